@@ -0,0 +1,175 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * compares a jmh csv result file against a stored baseline, and flags any benchmark whose throughput dropped, or whose normalized allocation rate grew,
+ * by more than a threshold percentage. When asked to, the result becomes the new baseline. Scores only compare on the same machine, so the baseline is not
+ * kept in source control, and a run without one fails, unless it was asked to create one.
+ * <p>
+ * Usage: BaselineComparator result.csv baseline.csv thresholdPercent updateBaseline
+ */
+public final class BaselineComparator {
+
+    private static final String ALLOCATION_METRIC = ":·gc.alloc.rate.norm";
+    private static final String PARAM_PREFIX = "Param: ";
+    /** allocation changes smaller than this many bytes per operation are measurement noise */
+    private static final double ALLOCATION_NOISE = 16.0;
+
+    private BaselineComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: BaselineComparator result.csv baseline.csv thresholdPercent updateBaseline");
+            System.exit(2);
+        }
+
+        Path result = Paths.get(args[0]);
+        Path baseline = Paths.get(args[1]);
+        double threshold = Double.parseDouble(args[2]);
+        boolean update = Boolean.parseBoolean(args[3]);
+
+        if (!Files.isRegularFile(baseline)) {
+            if (!update) {
+                System.err.println("No benchmark baseline exists at " + baseline + ", create one on this machine with -Djmh.updateBaseline=true");
+                System.exit(1);
+            }
+            Files.copy(result, baseline);
+            System.out.println("Stored " + result + " as the benchmark baseline " + baseline);
+            return;
+        }
+
+        int regressions = compare(read(result), read(baseline), threshold);
+        if (update) {
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Updated the benchmark baseline " + baseline);
+        } else if (regressions > 0) {
+            System.err.println(regressions + " benchmark(s) regressed more than " + threshold + "% against " + baseline);
+            System.exit(1);
+        }
+    }
+
+    private static int compare(Map<String, Score> results, Map<String, Score> baselines, double threshold) {
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : results.entrySet()) {
+            Score current = entry.getValue();
+            Score base = baselines.get(entry.getKey());
+            if ((base == null) || (base.value == 0.0) || !current.unit.equals(base.unit)) {
+                continue;
+            }
+
+            boolean isAllocation = entry.getKey().contains(ALLOCATION_METRIC);
+            if (!isAllocation && entry.getKey().indexOf(':') >= 0) {
+                // other secondary metrics, such as gc counts, are too noisy to compare
+                continue;
+            }
+
+            double change = ((current.value - base.value) * 100.0) / base.value;
+            boolean regressed = isAllocation ? ((change > threshold) && ((current.value - base.value) > ALLOCATION_NOISE)) : (-change > threshold);
+            if (regressed) {
+                regressions++;
+            }
+            System.out.println(String.format(Locale.ROOT, "%-10s %-90s %14.3f -> %14.3f %-8s %+7.1f%%", regressed ? "REGRESSED" : "ok", entry.getKey(),
+                    Double.valueOf(base.value), Double.valueOf(current.value), current.unit, Double.valueOf(change)));
+        }
+        return regressions;
+    }
+
+    /**
+     * reads a jmh csv file into scores keyed by benchmark name and parameter values
+     */
+    private static Map<String, Score> read(Path csv) throws IOException {
+        List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+        Map<String, Score> scores = new LinkedHashMap<>();
+        if (lines.isEmpty()) {
+            return scores;
+        }
+
+        List<String> header = split(lines.get(0));
+        int benchmarkColumn = header.indexOf("Benchmark");
+        int scoreColumn = header.indexOf("Score");
+        int unitColumn = header.indexOf("Unit");
+
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> fields = split(line);
+            if (fields.size() != header.size()) {
+                continue;
+            }
+
+            StringBuilder key = new StringBuilder(fields.get(benchmarkColumn));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith(PARAM_PREFIX)) {
+                    key.append(' ').append(header.get(i).substring(PARAM_PREFIX.length())).append('=').append(fields.get(i));
+                }
+            }
+
+            try {
+                scores.put(key.toString(), new Score(Double.parseDouble(fields.get(scoreColumn).replace(',', '.')), fields.get(unitColumn)));
+            } catch (NumberFormatException e) {
+                // a failed or unfinished benchmark has no score
+            }
+        }
+        return scores;
+    }
+
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if ((c == ',') && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * the score of one benchmark
+     */
+    static final class Score {
+        final double value;
+        final String unit;
+
+        Score(double value, String unit) {
+            this.value = value;
+            this.unit = unit;
+        }
+    }
+}
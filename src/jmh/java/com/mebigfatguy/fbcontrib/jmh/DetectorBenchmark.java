@@ -0,0 +1,86 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * measures how many times per second spotbugs can analyze the samples, either with one fb-contrib detector enabled, or with the whole plugin. The collectors
+ * and spotbugs' own non reporting detectors run in both, so the difference between an isolated detector and the cheapest one is that detector's own cost.
+ * The detectors measured in isolation default to the ones marked slow or moderate and the ones known to be hot; others may be picked with -p detector=...
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class DetectorBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Isolated {
+
+        @Param({ "BloatedAssignmentScope", "SillynessPotPourri", "OverlyConcreteParameter", "SyncCollectionIterators", "CyclomaticComplexity",
+                "FinalParameters", "ListIndexedIterating", "PossiblyRedundantMethodCalls", "FieldCouldBeLocal", "DeletingWhileIterating", "ClassEnvy",
+                "CopiedOverriddenMethod", "SuspiciousJDKVersionUse" })
+        public String detector;
+
+        DetectorRunner runner;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            runner = new DetectorRunner(Collections.singleton(detector));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PluginSet {
+
+        DetectorRunner runner;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            runner = new DetectorRunner(null);
+        }
+    }
+
+    @Benchmark
+    public int isolated(Isolated state) throws IOException, InterruptedException {
+        return state.runner.analyze();
+    }
+
+    @Benchmark
+    public int pluginSet(PluginSet state) throws IOException, InterruptedException {
+        return state.runner.analyze();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import edu.umd.cs.findbugs.BugCollectionBugReporter;
+import edu.umd.cs.findbugs.DetectorFactory;
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.FindBugs;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.PluginException;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.config.UserPreferences;
+
+/**
+ * runs spotbugs over the compiled samples with a chosen set of fb-contrib reporting detectors enabled. Every non reporting detector, such as the fb-contrib
+ * collectors, stays enabled, so that a detector sees the same first pass data it would in a full run. Where the plugin and samples live is passed in by the
+ * jmh maven profile through system properties.
+ */
+final class DetectorRunner {
+
+    static final String PLUGIN_ID = "com.mebigfatguy.fbcontrib";
+
+    private static final String PLUGIN_DIR = "fb-contrib.jmh.plugin";
+    private static final String SAMPLES_DIR = "fb-contrib.jmh.samples";
+    private static final String AUX_CLASSPATH = "fb-contrib.jmh.auxclasspath";
+
+    private final List<DetectorFactory> reportingDetectors;
+    private final String target;
+
+    /**
+     * creates a runner that enables the given fb-contrib detectors over the samples
+     *
+     * @param detectorNames
+     *            the short names of the detectors to enable, or null for all of the plugin's reporting detectors
+     */
+    DetectorRunner(Collection<String> detectorNames) {
+        this(detectorNames, requiredProperty(SAMPLES_DIR));
+    }
+
+    /**
+     * creates a runner that enables the given fb-contrib detectors over a directory or jar of classes
+     *
+     * @param detectorNames
+     *            the short names of the detectors to enable, or null for all of the plugin's reporting detectors
+     * @param target
+     *            the classes to analyze
+     */
+    DetectorRunner(Collection<String> detectorNames, String target) {
+        this.target = target;
+        Plugin plugin = loadPlugin();
+        reportingDetectors = new ArrayList<>();
+        if (detectorNames == null) {
+            for (DetectorFactory factory : plugin.getDetectorFactories()) {
+                if (factory.isReportingDetector()) {
+                    reportingDetectors.add(factory);
+                }
+            }
+        } else {
+            for (String detectorName : detectorNames) {
+                DetectorFactory factory = DetectorFactoryCollection.instance().getFactory(detectorName);
+                if ((factory == null) || (factory.getPlugin() != plugin)) {
+                    throw new IllegalArgumentException("Unknown fb-contrib detector: " + detectorName);
+                }
+                reportingDetectors.add(factory);
+            }
+        }
+    }
+
+    /**
+     * analyzes the target classes once
+     *
+     * @return the number of bugs found, so the work can not be optimized away
+     */
+    int analyze() throws IOException, InterruptedException {
+        Project project = new Project();
+        project.addFile(target);
+        for (String entry : requiredProperty(AUX_CLASSPATH).split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                project.addAuxClasspathEntry(entry);
+            }
+        }
+
+        BugCollectionBugReporter bugReporter = new BugCollectionBugReporter(project);
+        bugReporter.setPriorityThreshold(Priorities.LOW_PRIORITY);
+
+        FindBugs2 engine = new FindBugs2();
+        engine.setProject(project);
+        engine.setBugReporter(bugReporter);
+        engine.setDetectorFactoryCollection(DetectorFactoryCollection.instance());
+        engine.setUserPreferences(buildPreferences());
+        engine.setAnalysisFeatureSettings(FindBugs.MAX_EFFORT);
+        engine.setNoClassOk(true);
+        engine.finishSettings();
+        engine.execute();
+
+        return bugReporter.getBugCollection().getCollection().size();
+    }
+
+    private UserPreferences buildPreferences() {
+        UserPreferences prefs = UserPreferences.createDefaultUserPreferences();
+        prefs.enableAllDetectors(false);
+        Iterator<DetectorFactory> it = DetectorFactoryCollection.instance().factoryIterator();
+        while (it.hasNext()) {
+            DetectorFactory factory = it.next();
+            if (!factory.isReportingDetector()) {
+                prefs.enableDetector(factory, true);
+            }
+        }
+        for (DetectorFactory factory : reportingDetectors) {
+            prefs.enableDetector(factory, true);
+        }
+        prefs.setEffort(UserPreferences.EFFORT_MAX);
+        prefs.getFilterSettings().setMinPriority("Low");
+        return prefs;
+    }
+
+    private static synchronized Plugin loadPlugin() {
+        Plugin plugin = Plugin.getByPluginId(PLUGIN_ID);
+        if (plugin != null) {
+            return plugin;
+        }
+
+        try {
+            plugin = Plugin.addCustomPlugin(new File(requiredProperty(PLUGIN_DIR)).toURI());
+        } catch (PluginException e) {
+            throw new IllegalStateException("Failed to load fb-contrib from " + System.getProperty(PLUGIN_DIR), e);
+        }
+        if (plugin == null) {
+            throw new IllegalStateException("Failed to load fb-contrib from " + System.getProperty(PLUGIN_DIR));
+        }
+        return plugin;
+    }
+
+    /**
+     * finds a library on the auxiliary classpath, such as one of spotbugs' own dependencies, to analyze as a large body of real code
+     *
+     * @param jarPrefix
+     *            the start of the jar's file name, such as guava-
+     * @return the path of the jar
+     */
+    static String findLibrary(String jarPrefix) {
+        for (String entry : requiredProperty(AUX_CLASSPATH).split(File.pathSeparator)) {
+            String name = new File(entry).getName();
+            if (name.startsWith(jarPrefix) && name.endsWith(".jar")) {
+                return entry;
+            }
+        }
+        throw new IllegalArgumentException("No library starting with " + jarPrefix + " is on the classpath");
+    }
+
+    private static String requiredProperty(String name) {
+        String value = System.getProperty(name);
+        if ((value == null) || value.isEmpty()) {
+            throw new IllegalStateException("System property " + name + " is not set, run the benchmarks with mvn -Pjmh");
+        }
+        return value;
+    }
+}
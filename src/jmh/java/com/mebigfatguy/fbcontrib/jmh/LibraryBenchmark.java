@@ -0,0 +1,71 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * measures how long spotbugs takes to analyze a large library with one fb-contrib detector enabled. The samples are small classes, written to show off
+ * single bugs, so detectors whose cost grows with the length or nesting of a method are better measured over real code. The libraries are taken from the
+ * test classpath by jar name, and default to the largest ones there; the detector defaults to the one whose cost grows fastest with method size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LibraryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Library {
+
+        @Param({ "BloatedAssignmentScope" })
+        public String detector;
+
+        @Param({ "guava-", "spring-core-", "commons-lang3-" })
+        public String library;
+
+        DetectorRunner runner;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            runner = new DetectorRunner(Collections.singleton(detector), DetectorRunner.findLibrary(library));
+        }
+    }
+
+    @Benchmark
+    public int analyze(Library state) throws IOException, InterruptedException {
+        return state.runner.analyze();
+    }
+}
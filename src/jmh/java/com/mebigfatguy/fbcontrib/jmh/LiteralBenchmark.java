@@ -0,0 +1,92 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.mebigfatguy.fbcontrib.utils.LiteralMatcher;
+
+/**
+ * compares classifying a mix of string literals with the xml patterns of CustomBuiltXML, run one after another, against the same patterns behind a
+ * {@link LiteralMatcher}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LiteralBenchmark {
+
+    private static final Pattern[] XML_PATTERNS = { Pattern.compile(".*<[a-zA-Z_](\\w)*>[^=]?.*"), Pattern.compile(".*</[a-zA-Z_](\\w)*>[^=]?.*"),
+            Pattern.compile(".*<[a-zA-Z_](\\w)*/>[^=]?.*"), Pattern.compile(".*<[^=]?(/)?$"), Pattern.compile("^(/)?>.*"),
+            Pattern.compile(".*=(\\s)*[\"'].*"), Pattern.compile("^[\"']>.*"), Pattern.compile(".*<!\\[CDATA\\[.*", Pattern.CASE_INSENSITIVE),
+            Pattern.compile(".*\\]\\]>.*"), Pattern.compile(".*xmlns:.*") };
+
+    private static final String[][] XML_KEYWORDS = { { "<" }, { "</" }, { "/>" }, { "<" }, { ">" }, { "=" }, { ">" }, { "<![cdata[" }, { "]]>" },
+            { "xmlns:" } };
+
+    private static final String[] LITERALS = { "Unable to open the configuration file", "select id, name from customer where id = ?", "<order id=\"",
+            "\">", "</order>", "Processing record {} of {}", "java.lang.String", "The quick brown fox jumps over the lazy dog, again and again and again",
+            "%s: %d items", "user.home", "An unexpected error occurred while reading the stream; the connection was reset by the peer", "UTF-8",
+            "<![CDATA[", "]]>", "    indented text with trailing spaces    " };
+
+    private final LiteralMatcher matcher;
+
+    public LiteralBenchmark() {
+        LiteralMatcher.Builder builder = LiteralMatcher.builder();
+        for (int i = 0; i < XML_PATTERNS.length; i++) {
+            builder.addMatch(XML_PATTERNS[i], XML_KEYWORDS[i]);
+        }
+        matcher = builder.build();
+    }
+
+    @Benchmark
+    public void regularExpressions(Blackhole bh) {
+        for (String literal : LITERALS) {
+            int match = -1;
+            for (int i = 0; i < XML_PATTERNS.length; i++) {
+                if (XML_PATTERNS[i].matcher(literal).matches()) {
+                    match = i;
+                    break;
+                }
+            }
+            bh.consume(match);
+        }
+    }
+
+    @Benchmark
+    public void literalMatcher(Blackhole bh) {
+        for (String literal : LITERALS) {
+            bh.consume(matcher.firstMatch(literal));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.mebigfatguy.fbcontrib.utils.SignatureCursor;
+import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+
+/**
+ * compares walking the parameters of a mix of method signatures with {@link SignatureCursor} against building them with {@link SignatureUtils}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SignatureBenchmark {
+
+    private static final String[] SIGNATURES = { "()V", "(I)V", "(Ljava/lang/Object;)Z", "(Ljava/lang/String;I)Ljava/lang/String;",
+            "(Ljava/util/Map;Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", "([BII)V", "(JD[Ljava/lang/String;)J",
+            "(Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/String;" };
+
+    private final SignatureCursor cursor = new SignatureCursor();
+
+    @Benchmark
+    public void parameterSignatures(Blackhole bh) {
+        for (String sig : SIGNATURES) {
+            List<String> parms = SignatureUtils.getParameterSignatures(sig);
+            for (String parm : parms) {
+                bh.consume(parm.charAt(0));
+            }
+        }
+    }
+
+    @Benchmark
+    public void parameterSlotAndSignatures(Blackhole bh) {
+        for (String sig : SIGNATURES) {
+            Map<Integer, String> parms = SignatureUtils.getParameterSlotAndSignatures(false, sig);
+            for (Map.Entry<Integer, String> parm : parms.entrySet()) {
+                bh.consume(parm.getKey().intValue());
+                bh.consume(parm.getValue().charAt(0));
+            }
+        }
+    }
+
+    @Benchmark
+    public void cursor(Blackhole bh) {
+        for (String sig : SIGNATURES) {
+            cursor.reset(sig, false);
+            while (cursor.next()) {
+                bh.consume(cursor.getSlot());
+                bh.consume(cursor.getKind());
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.PrintingBugReporter;
+
+/**
+ * measures what it costs spotbugs to load and construct a detector that is enabled, which is paid up front by every run, however short, and whether or not
+ * the detector ever finds anything. Each invocation loads the detector's fb-contrib classes afresh, in a class loader of its own, so that their static
+ * initializers run every time. The detectors measured default to the ones with the largest static tables; others may be picked with -p detector=...
+ * <p>
+ * The jdk api index of SuspiciousJDKVersionUse is not part of this cost. It does not ship with the plugin, but is built at run time, from the classes of a
+ * jdk, when the first class compiled for each release is visited, and kept in the fb-contrib.sjvu.indexdir directory, java.io.tmpdir by default, for later
+ * runs to map.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 50)
+@Measurement(iterations = 200)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final String PLUGIN_DIR = "fb-contrib.jmh.plugin";
+    private static final String DETECT_PACKAGE = "com.mebigfatguy.fbcontrib.detect.";
+
+    @State(Scope.Benchmark)
+    public static class Detector {
+
+        @Param({ "PossiblyRedundantMethodCalls", "SillynessPotPourri", "MoreDumbMethods", "HangingExecutors", "SuspiciousJDKVersionUse" })
+        public String detector;
+
+        URL[] pluginUrls;
+        BugReporter bugReporter;
+        PluginClassLoader loader;
+
+        @Setup(Level.Trial)
+        public void setUp() throws MalformedURLException {
+            String pluginDir = System.getProperty(PLUGIN_DIR);
+            if ((pluginDir == null) || pluginDir.isEmpty()) {
+                throw new IllegalStateException("System property " + PLUGIN_DIR + " is not set, run the benchmarks with mvn -Pjmh");
+            }
+            pluginUrls = new URL[] { new File(pluginDir).toURI().toURL() };
+            bugReporter = new PrintingBugReporter();
+        }
+
+        @Setup(Level.Invocation)
+        public void newLoader() {
+            loader = new PluginClassLoader(pluginUrls, StartupBenchmark.class.getClassLoader());
+        }
+
+        @TearDown(Level.Invocation)
+        public void closeLoader() throws IOException {
+            loader.close();
+        }
+    }
+
+    @Benchmark
+    public Object construct(Detector state) throws ReflectiveOperationException {
+        Class<?> cls = Class.forName(DETECT_PACKAGE + state.detector, true, state.loader);
+        return cls.getConstructor(BugReporter.class).newInstance(state.bugReporter);
+    }
+
+    /**
+     * a class loader that loads fb-contrib's own classes itself, rather than asking its parent first, so that each instance initializes them anew
+     */
+    static class PluginClassLoader extends URLClassLoader {
+
+        private static final String PLUGIN_PACKAGE = "com.mebigfatguy.fbcontrib.";
+
+        PluginClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(PLUGIN_PACKAGE) || name.startsWith(PLUGIN_PACKAGE + "jmh.")) {
+                return super.loadClass(name, resolve);
+            }
+
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> cls = findLoadedClass(name);
+                if (cls == null) {
+                    cls = findClass(name);
+                }
+                if (resolve) {
+                    resolveClass(cls);
+                }
+                return cls;
+            }
+        }
+    }
+}
@@ -20,7 +20,6 @@ package com.mebigfatguy.fbcontrib.collect;
 
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -42,6 +41,7 @@ import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.NonReportingDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.ClassContext;
 
 /**
@@ -71,9 +71,11 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
     private boolean modifiesState;
     private boolean classHasAnnotation;
     private OpcodeStack stack;
-    private Map<QMethod, Set<CalledMethod>> selfCallTree;
+    private Set<MethodCallGraph.Call> selfCalls;
     private Set<QMethod> constrainingMethods;
-    private QMethod curMethod;
+    private Map<QMethod, Integer> callerCounts;
+    private Set<QMethod> calleesOfMethod;
+    private final MethodCallGraph callGraph;
 
     /**
      * constructs a CollectStatistics detector which clears the singleton that holds the statistics for all classes parsed in the first pass.
@@ -86,6 +88,7 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
     public CollectStatistics(BugReporter bugReporter) {
         Statistics.getStatistics().clear();
         this.bugReporter = bugReporter;
+        callGraph = new MethodCallGraph();
     }
 
     /**
@@ -98,23 +101,39 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
     public void visitClassContext(ClassContext classContext) {
         try {
             JavaClass cls = classContext.getJavaClass();
+            String clsName = cls.getClassName().replace('.', '/');
+            callGraph.addClass(clsName, cls.getSuperclassName().replace('.', '/'));
             constrainingMethods = buildConstrainingMethods(cls);
             AnnotationEntry[] annotations = cls.getAnnotationEntries();
             classHasAnnotation = !CollectionUtils.isEmpty(annotations);
             stack = new OpcodeStack();
-            selfCallTree = new HashMap<>();
+            selfCalls = new HashSet<>();
+            callerCounts = new HashMap<>();
+            calleesOfMethod = new HashSet<>();
             super.visitClassContext(classContext);
 
-            performModifyStateClosure(classContext.getJavaClass());
-
+            // library classes keep just what their own code does, as their callees were not all seen
+            if (AnalysisContext.currentAnalysisContext().isApplicationClass(cls)) {
+                callGraph.setCalls(clsName, selfCalls);
+            }
+            recordCallerCounts(clsName);
         } finally {
             stack = null;
-            selfCallTree = null;
-            curMethod = null;
+            selfCalls = null;
+            callerCounts = null;
+            calleesOfMethod = null;
             constrainingMethods = null;
         }
     }
 
+    /**
+     * implements the visitor to mark the methods that call methods that modify state as modifying state themselves, now that all classes have been seen
+     */
+    @Override
+    public void report() {
+        callGraph.propagateModifiesState(Statistics.getStatistics());
+    }
+
     @Override
     public void visitAnnotation(Annotations annotations) {
         for (AnnotationEntry entry : annotations.getAnnotationEntries()) {
@@ -137,7 +156,7 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
             return;
         }
         stack.resetForMethodEntry(this);
-        curMethod = null;
+        calleesOfMethod.clear();
         super.visitCode(obj);
         String clsName = getClassName();
         Method method = getMethod();
@@ -186,21 +205,20 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
                         if (stack.getStackDepth() > numParms) {
                             OpcodeStack.Item itm = stack.getStackItem(numParms);
                             if (itm.getRegisterNumber() == 0) {
-                                Set<CalledMethod> calledMethods;
-
-                                if (curMethod == null) {
-                                    curMethod = new QMethod(getMethodName(), getMethodSig());
-                                    calledMethods = new HashSet<>();
-                                    selfCallTree.put(curMethod, calledMethods);
-                                } else {
-                                    calledMethods = selfCallTree.get(curMethod);
-                                }
-
-                                calledMethods
-                                        .add(new CalledMethod(new QMethod(getNameConstantOperand(), getSigConstantOperand()), seen == Const.INVOKESPECIAL));
+                                String calleeClass = (seen == Const.INVOKEDYNAMIC) ? getClassName() : getClassConstantOperand();
+                                selfCalls.add(new MethodCallGraph.Call(getMethodName(), getMethodSig(), calleeClass, getNameConstantOperand(),
+                                        getSigConstantOperand()));
                             }
                         }
                     }
+
+                    if ((seen != Const.INVOKEDYNAMIC) && getClassConstantOperand().equals(getClassName())) {
+                        QMethod callee = new QMethod(getNameConstantOperand(), getSigConstantOperand());
+                        if (calleesOfMethod.add(callee)) {
+                            Integer count = callerCounts.get(callee);
+                            callerCounts.put(callee, Integer.valueOf((count == null) ? 1 : (count.intValue() + 1)));
+                        }
+                    }
                 break;
 
                 case Const.PUTSTATIC:
@@ -216,58 +234,20 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
         }
     }
 
-    private void performModifyStateClosure(JavaClass cls) {
-        boolean foundNewCall = true;
+    /**
+     * records on each method of the class just visited how many of the class's methods call it. Methods are visited in any order, so this is done once the
+     * whole class has been seen.
+     *
+     * @param clsName
+     *            the slashed name of the class just visited
+     */
+    private void recordCallerCounts(String clsName) {
         Statistics statistics = Statistics.getStatistics();
-
-        String clsName = cls.getClassName();
-        while (foundNewCall && !selfCallTree.isEmpty()) {
-            foundNewCall = false;
-
-            Iterator<Map.Entry<QMethod, Set<CalledMethod>>> callerIt = selfCallTree.entrySet().iterator();
-            while (callerIt.hasNext()) {
-                Map.Entry<QMethod, Set<CalledMethod>> callerEntry = callerIt.next();
-                QMethod caller = callerEntry.getKey();
-
-                MethodInfo callerMi = statistics.getMethodStatistics(clsName, caller.getMethodName(), caller.getSignature());
-                if (callerMi == null) {
-                    // odd, shouldn't happen
-                    foundNewCall = true;
-                } else if (callerMi.getModifiesState()) {
-                    foundNewCall = true;
-                } else {
-
-                    for (CalledMethod calledMethod : callerEntry.getValue()) {
-
-                        if (calledMethod.isSuper) {
-                            callerMi.setModifiesState(true);
-                            foundNewCall = true;
-                            break;
-                        }
-                        MethodInfo calleeMi = statistics.getMethodStatistics(clsName, calledMethod.callee.getMethodName(), calledMethod.callee.getSignature());
-                        if (calleeMi == null) {
-                            // a super or sub class probably implements this method so just assume it
-                            // modifies state
-                            callerMi.setModifiesState(true);
-                            foundNewCall = true;
-                            break;
-                        }
-
-                        if (calleeMi.getModifiesState()) {
-                            callerMi.setModifiesState(true);
-                            foundNewCall = true;
-                            break;
-                        }
-                    }
-                }
-
-                if (foundNewCall) {
-                    callerIt.remove();
-                }
-            }
+        for (Map.Entry<QMethod, Integer> entry : callerCounts.entrySet()) {
+            QMethod callee = entry.getKey();
+            MethodInfo mi = statistics.getMethodStatistics(clsName, callee.getMethodName(), callee.getSignature());
+            mi.setNumCallers(entry.getValue().intValue());
         }
-
-        selfCallTree.clear();
     }
 
     private boolean isAssociationedWithAnnotations(Method m) {
@@ -302,33 +282,4 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
     	
     	return constraints;
     }
-
-    /**
-     * represents a method that is called, and whether it is in the super class
-     */
-    static class CalledMethod {
-        final QMethod callee;
-        final boolean isSuper;
-
-        public CalledMethod(QMethod c, boolean s) {
-            callee = c;
-            isSuper = s;
-        }
-
-        @Override
-        public int hashCode() {
-            return callee.hashCode() & (isSuper ? 0 : 1);
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (!(obj instanceof CalledMethod)) {
-                return false;
-            }
-
-            CalledMethod that = (CalledMethod) obj;
-
-            return (isSuper == that.isSuper) && callee.equals(that.callee);
-        }
-    }
 }
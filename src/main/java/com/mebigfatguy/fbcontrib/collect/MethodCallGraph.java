@@ -0,0 +1,253 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.mebigfatguy.fbcontrib.utils.IntGraph;
+import com.mebigfatguy.fbcontrib.utils.ToString;
+import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
+import com.mebigfatguy.fbcontrib.utils.Values;
+
+import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
+
+/**
+ * the calls that methods make on their own instance, gathered across the application classes of the first pass, so that whether a method modifies state
+ * can be propagated from the methods it calls once every class has been seen. The library and jdk classes the first pass also visits record no calls, so
+ * their methods only modify state if their own code sets a field. Calls are resolved by walking up the superclass chain of the classes seen, so a call
+ * to an inherited method uses what was found for the superclass, and only calls to methods declared outside of the analyzed classes are assumed to modify
+ * state. The native methods of java.lang.Object, which have no code to collect statistics from, are known not to modify the state of the object, so calls
+ * that resolve to them are not.
+ * <p>
+ * Propagation numbers the methods, builds an {@link IntGraph} of the calls between them, and then visits its strongly connected components callees first,
+ * so each method and call is looked at once, however the calls are nested or recursive.
+ */
+final class MethodCallGraph {
+
+    /** the native methods of java.lang.Object that a class may call on itself, none of which modify the fields of the object */
+    private static final Set<String> OBJECT_NATIVE_METHODS = UnmodifiableSet.create("getClass()Ljava/lang/Class;", "hashCode()I",
+            "clone()Ljava/lang/Object;", "notify()V", "notifyAll()V", "wait(J)V");
+
+    private final Map<String, String> superclassNames = new ConcurrentHashMap<>();
+    private final Map<String, Collection<Call>> classCalls = new ConcurrentHashMap<>();
+
+    /**
+     * records the superclass of a class, so that calls to methods it inherits can be resolved
+     *
+     * @param className
+     *            the slashed class name
+     * @param superclassName
+     *            the slashed superclass name
+     */
+    void addClass(@SlashedClassName String className, @SlashedClassName String superclassName) {
+        // java/lang/Object names itself as its superclass
+        if (!className.equals(superclassName)) {
+            superclassNames.put(className, superclassName);
+        }
+    }
+
+    /**
+     * records the calls the methods of a class make on their own instance, replacing any recorded before
+     *
+     * @param className
+     *            the slashed class name of the callers
+     * @param calls
+     *            the calls made
+     */
+    void setCalls(@SlashedClassName String className, Collection<Call> calls) {
+        if (calls.isEmpty()) {
+            classCalls.remove(className);
+        } else {
+            classCalls.put(className, calls);
+        }
+    }
+
+    /**
+     * marks every method that calls, directly or indirectly, a method that modifies state, or a method that could not be found, as modifying state
+     *
+     * @param statistics
+     *            the statistics holding the methods' own modifiesState flags
+     * @return the number of methods that were newly marked
+     */
+    int propagateModifiesState(Statistics statistics) {
+        Map<MethodInfo, Integer> nodes = new IdentityHashMap<>();
+        List<MethodInfo> methods = new ArrayList<>();
+        BitSet modifies = new BitSet();
+        IntGraph.Builder builder = new IntGraph.Builder();
+
+        for (Map.Entry<String, Collection<Call>> entry : classCalls.entrySet()) {
+            String className = entry.getKey();
+            for (Call call : entry.getValue()) {
+                MethodInfo callerMi = statistics.findMethodStatistics(className, call.callerName, call.callerSignature);
+                if (callerMi == null) {
+                    continue;
+                }
+
+                int caller = getNode(nodes, methods, callerMi);
+                MethodInfo calleeMi = resolve(statistics, call);
+                if (calleeMi == null) {
+                    if (!isObjectNativeMethod(call)) {
+                        modifies.set(caller);
+                    }
+                } else if (calleeMi.getModifiesState()) {
+                    modifies.set(caller);
+                } else if (calleeMi != callerMi) {
+                    builder.addEdge(caller, getNode(nodes, methods, calleeMi));
+                }
+            }
+        }
+
+        IntGraph graph = builder.ensureNodes(methods.size()).build();
+        IntGraph.Components components = graph.findStronglyConnectedComponents();
+        int numMarked = 0;
+        for (int c = 0; c < components.getNumComponents(); c++) {
+            if (componentModifies(graph, components, c, modifies)) {
+                for (int m = 0; m < components.getSize(c); m++) {
+                    int node = components.getMember(c, m);
+                    modifies.set(node);
+                    MethodInfo mi = methods.get(node);
+                    if (!mi.getModifiesState()) {
+                        mi.setModifiesState(true);
+                        numMarked++;
+                    }
+                }
+            }
+        }
+
+        return numMarked;
+    }
+
+    private static int getNode(Map<MethodInfo, Integer> nodes, List<MethodInfo> methods, MethodInfo mi) {
+        Integer node = nodes.get(mi);
+        if (node == null) {
+            node = Integer.valueOf(methods.size());
+            nodes.put(mi, node);
+            methods.add(mi);
+        }
+        return node.intValue();
+    }
+
+    /**
+     * returns whether any member of a component modifies state, or calls a method that does. As components are numbered callees first, the components
+     * called have all been settled already.
+     */
+    private static boolean componentModifies(IntGraph graph, IntGraph.Components components, int component, BitSet modifies) {
+        for (int m = 0; m < components.getSize(component); m++) {
+            int node = components.getMember(component, m);
+            if (modifies.get(node)) {
+                return true;
+            }
+            for (int s = 0; s < graph.getNumSuccessors(node); s++) {
+                if (modifies.get(graph.getSuccessor(node, s))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * finds the method a call runs, starting at the class named in the call and walking up through the superclasses seen in the first pass
+     *
+     * @return the statistics of the method, or null if it is not declared in any analyzed class
+     */
+    private MethodInfo resolve(Statistics statistics, Call call) {
+        String className = call.calleeClassName;
+        while (className != null) {
+            MethodInfo mi = statistics.findMethodStatistics(className, call.calleeName, call.calleeSignature);
+            if (mi != null) {
+                return mi;
+            }
+            className = superclassNames.get(className);
+        }
+        return null;
+    }
+
+    /**
+     * returns whether a call that could not be resolved runs one of the native methods of java.lang.Object, which is so if the superclasses seen lead all
+     * the way up to java.lang.Object, so no unseen class could override it
+     */
+    private boolean isObjectNativeMethod(Call call) {
+        if (!OBJECT_NATIVE_METHODS.contains(call.calleeName + call.calleeSignature)) {
+            return false;
+        }
+
+        String className = call.calleeClassName;
+        while (className != null) {
+            if (Values.SLASHED_JAVA_LANG_OBJECT.equals(className)) {
+                return true;
+            }
+            className = superclassNames.get(className);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * a call made by a method on its own instance
+     */
+    static final class Call {
+        final String callerName;
+        final String callerSignature;
+        final String calleeClassName;
+        final String calleeName;
+        final String calleeSignature;
+
+        Call(String callerName, String callerSignature, @SlashedClassName String calleeClassName, String calleeName, String calleeSignature) {
+            this.callerName = callerName;
+            this.callerSignature = callerSignature;
+            this.calleeClassName = calleeClassName;
+            this.calleeName = calleeName;
+            this.calleeSignature = calleeSignature;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((((((callerName.hashCode() * 31) + callerSignature.hashCode()) * 31) + calleeClassName.hashCode()) * 31) + calleeName.hashCode()) * 31
+                    + calleeSignature.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Call)) {
+                return false;
+            }
+
+            Call that = (Call) obj;
+            return callerName.equals(that.callerName) && callerSignature.equals(that.callerSignature) && calleeClassName.equals(that.calleeClassName)
+                    && calleeName.equals(that.calleeName) && calleeSignature.equals(that.calleeSignature);
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
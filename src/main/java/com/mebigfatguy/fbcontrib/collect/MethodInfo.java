@@ -34,6 +34,7 @@ public class MethodInfo {
 
     private short numMethodBytes;
     private byte numMethodCalls;
+    private byte numCallers;
     private byte immutabilityOrdinal;
     private byte declaredAccess;
     private byte isCalledType;
@@ -57,6 +58,19 @@ public class MethodInfo {
         numMethodCalls = numCalls > 255 ? Byte.MAX_VALUE : (byte) numCalls;
     }
 
+    /**
+     * returns the number of distinct methods of the declaring class that call this method, saturating at 255. Calls from other classes are not counted.
+     *
+     * @return the number of methods of the same class that call this method
+     */
+    public int getNumCallers() {
+        return 0x000000FF & numCallers;
+    }
+
+    public void setNumCallers(int callers) {
+        numCallers = (byte) Math.min(callers, 255);
+    }
+
     public void setDeclaredAccess(int access) {
         declaredAccess = (byte) access;
     }
@@ -65,7 +79,14 @@ public class MethodInfo {
         return declaredAccess;
     }
 
-    public void addCallingAccess(int access) {
+    /**
+     * records the access level of a caller of this method. Callers may be visited on different threads than the declaring class, so the update is
+     * synchronized.
+     *
+     * @param access
+     *            the access flags of the calling method
+     */
+    public synchronized void addCallingAccess(int access) {
         if ((access & Const.ACC_PUBLIC) != 0) {
             isCalledType |= PUBLIC_USE;
         } else if ((access & Const.ACC_PROTECTED) != 0) {
@@ -0,0 +1,321 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+import javax.annotation.Nullable;
+
+import com.mebigfatguy.fbcontrib.utils.FQMethod;
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
+
+/**
+ * a compact table of method statistics keyed by class, method name and signature. The strings of the key are interned into symbol ids, and the methods are
+ * held in parallel int arrays of those ids, found with open addressing. This avoids allocating a key object for each lookup, and shares the heavily
+ * duplicated class name and signature strings between all methods.
+ * <p>
+ * Lookups are done under an optimistic read of a StampedLock, and so do not block or allocate unless a method is being added at the same time.
+ */
+final class MethodTable implements Iterable<Map.Entry<FQMethod, MethodInfo>> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Symbols symbols = new Symbols(INITIAL_CAPACITY);
+    private volatile Methods methods = new Methods(INITIAL_CAPACITY);
+
+    /**
+     * finds the statistics of a method
+     *
+     * @param className
+     *            the slashed class name
+     * @param methodName
+     *            the method name
+     * @param signature
+     *            the method signature
+     * @return the statistics, or null if the method is not in the table
+     */
+    @Nullable
+    MethodInfo get(@SlashedClassName String className, String methodName, String signature) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            MethodInfo mi = find(className, methodName, signature);
+            if (lock.validate(stamp)) {
+                return mi;
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return find(className, methodName, signature);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * finds the statistics of a method, adding empty statistics for it if it is not in the table yet
+     *
+     * @param className
+     *            the slashed class name
+     * @param methodName
+     *            the method name
+     * @param signature
+     *            the method signature
+     * @return the statistics of the method
+     */
+    MethodInfo getOrAdd(@SlashedClassName String className, String methodName, String signature) {
+        MethodInfo mi = get(className, methodName, signature);
+        if (mi != null) {
+            return mi;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            mi = find(className, methodName, signature);
+            if (mi == null) {
+                mi = new MethodInfo();
+                add(intern(className), intern(methodName), intern(signature), mi);
+            }
+            return mi;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        return methods.size;
+    }
+
+    void clear() {
+        long stamp = lock.writeLock();
+        try {
+            symbols = new Symbols(INITIAL_CAPACITY);
+            methods = new Methods(INITIAL_CAPACITY);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * returns an iterator over a snapshot of the table. Unlike lookups, this allocates a key and entry for each method.
+     */
+    @Override
+    public Iterator<Map.Entry<FQMethod, MethodInfo>> iterator() {
+        long stamp = lock.readLock();
+        try {
+            Symbols syms = symbols;
+            Methods meths = methods;
+            List<Map.Entry<FQMethod, MethodInfo>> entries = new ArrayList<>(meths.size);
+            for (int id = 0; id < meths.size; id++) {
+                FQMethod fqm = new FQMethod(syms.names[meths.classIds[id]], syms.names[meths.nameIds[id]], syms.names[meths.sigIds[id]]);
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(fqm, meths.infos[id]));
+            }
+            return entries.iterator();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * looks up a method without locking. When called under an optimistic read, the result may be inconsistent, and must be validated by the caller.
+     */
+    @Nullable
+    private MethodInfo find(String className, String methodName, String signature) {
+        Symbols syms = symbols;
+        int classId = syms.find(className);
+        if (classId < 0) {
+            return null;
+        }
+        int nameId = syms.find(methodName);
+        if (nameId < 0) {
+            return null;
+        }
+        int sigId = syms.find(signature);
+        if (sigId < 0) {
+            return null;
+        }
+        return methods.find(classId, nameId, sigId);
+    }
+
+    /**
+     * interns a string, called with the write lock held
+     */
+    private int intern(String s) {
+        Symbols syms = symbols;
+        int id = syms.find(s);
+        if (id >= 0) {
+            return id;
+        }
+
+        if (syms.isFull()) {
+            syms = syms.grow();
+            symbols = syms;
+        }
+        return syms.add(s);
+    }
+
+    /**
+     * adds a method, called with the write lock held
+     */
+    private void add(int classId, int nameId, int sigId, MethodInfo mi) {
+        Methods meths = methods;
+        if (meths.isFull()) {
+            meths = meths.grow();
+            methods = meths;
+        }
+        meths.add(classId, nameId, sigId, mi);
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * the interned strings, along with an open addressed index of them. Slots hold the symbol id plus one, so that zero marks an empty slot.
+     */
+    private static final class Symbols {
+        final String[] names;
+        final int[] slots;
+        int size;
+
+        Symbols(int capacity) {
+            names = new String[capacity];
+            slots = new int[capacity * 2];
+        }
+
+        int find(String s) {
+            int mask = slots.length - 1;
+            int slot = mix(s.hashCode()) & mask;
+            int id;
+            while ((id = slots[slot]) != 0) {
+                String name = names[id - 1];
+                if ((name == s) || s.equals(name)) {
+                    return id - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        boolean isFull() {
+            return size == names.length;
+        }
+
+        int add(String s) {
+            int id = size++;
+            names[id] = s;
+            int mask = slots.length - 1;
+            int slot = mix(s.hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+            return id;
+        }
+
+        Symbols grow() {
+            Symbols grown = new Symbols(names.length * 2);
+            for (int id = 0; id < size; id++) {
+                grown.add(names[id]);
+            }
+            return grown;
+        }
+    }
+
+    /**
+     * the methods, held as parallel arrays indexed by method id, along with an open addressed index of them. Slots hold the method id plus one, so that zero
+     * marks an empty slot.
+     */
+    private static final class Methods {
+        final int[] classIds;
+        final int[] nameIds;
+        final int[] sigIds;
+        final MethodInfo[] infos;
+        final int[] slots;
+        volatile int size;
+
+        Methods(int capacity) {
+            classIds = new int[capacity];
+            nameIds = new int[capacity];
+            sigIds = new int[capacity];
+            infos = new MethodInfo[capacity];
+            slots = new int[capacity * 2];
+        }
+
+        @Nullable
+        MethodInfo find(int classId, int nameId, int sigId) {
+            int mask = slots.length - 1;
+            int slot = hash(classId, nameId, sigId) & mask;
+            int id;
+            while ((id = slots[slot]) != 0) {
+                int index = id - 1;
+                if ((classIds[index] == classId) && (nameIds[index] == nameId) && (sigIds[index] == sigId)) {
+                    return infos[index];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        boolean isFull() {
+            return size == infos.length;
+        }
+
+        void add(int classId, int nameId, int sigId, MethodInfo mi) {
+            int index = size;
+            classIds[index] = classId;
+            nameIds[index] = nameId;
+            sigIds[index] = sigId;
+            infos[index] = mi;
+            int mask = slots.length - 1;
+            int slot = hash(classId, nameId, sigId) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = index + 1;
+            size = index + 1;
+        }
+
+        Methods grow() {
+            Methods grown = new Methods(infos.length * 2);
+            for (int id = 0; id < size; id++) {
+                grown.add(classIds[id], nameIds[id], sigIds[id], infos[id]);
+            }
+            return grown;
+        }
+
+        private static int hash(int classId, int nameId, int sigId) {
+            return mix((((classId * 31) + nameId) * 31) + sigId);
+        }
+    }
+}
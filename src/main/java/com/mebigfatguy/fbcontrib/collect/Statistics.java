@@ -18,12 +18,13 @@
  */
 package com.mebigfatguy.fbcontrib.collect;
 
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.annotation.Nullable;
+
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 
@@ -31,16 +32,17 @@ import edu.umd.cs.findbugs.internalAnnotations.DottedClassName;
 import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
 
 /**
- * holds statistics about classes and methods collected in the first pass.
+ * holds statistics about classes and methods collected in the first pass. All state is held in concurrent structures, so that collectors and detectors may
+ * update and query it from multiple analysis threads. Method statistics are kept in a {@link MethodTable}, so that looking them up does not allocate.
  */
 public final class Statistics implements Iterable<Map.Entry<FQMethod, MethodInfo>> {
 
     private static Statistics statistics = new Statistics();
-    private static final MethodInfo NOT_FOUND_METHOD_INFO = new MethodInfo();
+    private static final MethodInfo NOT_FOUND_METHOD_INFO = new UnknownMethodInfo();
 
-    private final Map<FQMethod, MethodInfo> methodStatistics = new ConcurrentHashMap<>();
+    private final MethodTable methodStatistics = new MethodTable();
 
-    private final Set<String> autowiredBeans = new HashSet<>();
+    private final Set<String> autowiredBeans = ConcurrentHashMap.newKeySet();
 
     private Statistics() {
     }
@@ -51,15 +53,11 @@ public final class Statistics implements Iterable<Map.Entry<FQMethod, MethodInfo
 
     public void clear() {
         methodStatistics.clear();
+        autowiredBeans.clear();
     }
 
     public MethodInfo addMethodStatistics(String className, String methodName, String signature, int access, int numBytes, int numMethodCalls, boolean isDerived) {
-        FQMethod key = new FQMethod(className, methodName, signature);
-        MethodInfo mi = methodStatistics.get(key);
-        if (mi == null) {
-            mi = new MethodInfo();
-            methodStatistics.put(key, mi);
-        }
+        MethodInfo mi = methodStatistics.getOrAdd(className, methodName, signature);
 
         mi.setNumBytes(numBytes);
         mi.setNumMethodCalls(numMethodCalls);
@@ -69,25 +67,37 @@ public final class Statistics implements Iterable<Map.Entry<FQMethod, MethodInfo
     }
 
     public MethodInfo getMethodStatistics(@SlashedClassName String className, String methodName, String signature) {
-        MethodInfo mi = methodStatistics.get(new FQMethod(className, methodName, signature));
+        MethodInfo mi = methodStatistics.get(className, methodName, signature);
         if (mi == null) {
             return NOT_FOUND_METHOD_INFO;
         }
         return mi;
     }
 
+    /**
+     * returns the statistics of a method, or null if the method was not seen in the first pass. Unlike getMethodStatistics, the result may be safely
+     * updated.
+     *
+     * @param className
+     *            the slashed name of the class that declares the method
+     * @param methodName
+     *            the name of the method
+     * @param signature
+     *            the signature of the method
+     * @return the statistics of the method or null
+     */
+    @Nullable
+    MethodInfo findMethodStatistics(@SlashedClassName String className, String methodName, String signature) {
+        return methodStatistics.get(className, methodName, signature);
+    }
+
     @Override
     public Iterator<Map.Entry<FQMethod, MethodInfo>> iterator() {
-        return methodStatistics.entrySet().iterator();
+        return methodStatistics.iterator();
     }
 
     public void addImmutabilityStatus(String className, String methodName, String signature, ImmutabilityType imType) {
-        FQMethod key = new FQMethod(className, methodName, signature);
-        MethodInfo mi = methodStatistics.get(key);
-        if (mi == null) {
-            mi = new MethodInfo();
-            methodStatistics.put(key, mi);
-        }
+        MethodInfo mi = methodStatistics.getOrAdd(className, methodName, signature);
 
         mi.setImmutabilityType(imType);
     }
@@ -100,8 +110,64 @@ public final class Statistics implements Iterable<Map.Entry<FQMethod, MethodInfo
         return autowiredBeans.contains(beanClass);
     }
 
+    public boolean hasAutowiredBeans() {
+        return !autowiredBeans.isEmpty();
+    }
+
     @Override
     public String toString() {
         return ToString.build(this);
     }
+
+    /**
+     * the statistics returned for methods that were not seen in the first pass. As this one instance is shared for all such methods, it ignores updates, so
+     * that what one detector records about one unknown method is not seen for all others.
+     */
+    static final class UnknownMethodInfo extends MethodInfo {
+
+        @Override
+        public void setNumBytes(int numBytes) {
+            // shared, so unmodifiable
+        }
+
+        @Override
+        public void setNumMethodCalls(int numCalls) {
+            // shared, so unmodifiable
+        }
+
+        @Override
+        public void setNumCallers(int callers) {
+            // shared, so unmodifiable
+        }
+
+        @Override
+        public void setDeclaredAccess(int access) {
+            // shared, so unmodifiable
+        }
+
+        @Override
+        public synchronized void addCallingAccess(int access) {
+            // shared, so unmodifiable
+        }
+
+        @Override
+        public void setImmutabilityType(ImmutabilityType imType) {
+            // shared, so unmodifiable
+        }
+
+        @Override
+        public void setModifiesState(boolean modifiesState) {
+            // shared, so unmodifiable
+        }
+
+        @Override
+        public void setCanReturnNull(boolean canReturnNull) {
+            // shared, so unmodifiable
+        }
+
+        @Override
+        public void setDerived(boolean isDerived) {
+            // shared, so unmodifiable
+        }
+    }
 }
@@ -0,0 +1,357 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.debug;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+
+import com.mebigfatguy.fbcontrib.debug.DetectorSampler.DetectorSample;
+import com.mebigfatguy.fbcontrib.debug.DetectorSampler.Phase;
+import com.mebigfatguy.fbcontrib.utils.MethodBudget;
+import com.mebigfatguy.fbcontrib.utils.SubtypeCache;
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.DetectorFactory;
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.NonReportingDetector;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.log.Profiler;
+import edu.umd.cs.findbugs.plan.AnalysisPass;
+import edu.umd.cs.findbugs.plan.ExecutionPlan;
+
+/**
+ * an opt in profiler of the fb-contrib detectors, enabled by setting the system property fb-contrib.profile.output to the file to write the report to. While
+ * enabled, a {@link DetectorSampler}, started in the first pass by the {@link DetectorProfilerStarter}, estimates the cpu time and allocations of each
+ * detector, and at the end of the last pass a report is written as xml. For each detector it holds the wall clock time spotbugs itself measured, and the
+ * classes and methods with code that spotbugs gave it in its pass, whether or not the detector looked into them. Then come the hits and misses of the shared
+ * {@link SubtypeCache}, and the number of methods each detector gave up on because they were over its {@link MethodBudget}. The report also holds the time
+ * since profiling started and the peak heap used. The sampling interval in milliseconds may be set with fb-contrib.profile.interval. Reports of two runs may
+ * be compared with {@link ProfileComparator}. The measures are held statically, and start over when a new analysis is seen, so only one analysis at a time
+ * can be profiled.
+ */
+public class DetectorProfiler implements Detector, NonReportingDetector {
+
+    private static final String PROFILE_OUTPUT_FILE = "fb-contrib.profile.output";
+    private static final String PROFILE_INTERVAL = "fb-contrib.profile.interval";
+    private static final long DEFAULT_INTERVAL_MILLIS = 2;
+
+    private static final String OUTPUT_FILE_NAME = System.getProperty(PROFILE_OUTPUT_FILE);
+
+    private static final Map<Integer, PassCounts> passCounts = new ConcurrentHashMap<>();
+    private static ExecutionPlan executionPlan;
+    private static DetectorSampler sampler;
+    private static Thread samplerThread;
+    private static long startNanos;
+
+    private final BugReporter bugReporter;
+    private final PassCounts counts;
+
+    public DetectorProfiler(BugReporter bugReporter) {
+        this.bugReporter = bugReporter;
+        counts = startPass(DetectorProfiler.class);
+    }
+
+    /**
+     * starts profiling the pass the given profiling detector runs in, starting the sampler over first if this is a new analysis
+     *
+     * @param profilingDetector
+     *            the profiling detector that is being constructed for its pass
+     * @return the counts for that detector to add the classes of the pass to, or null if profiling is off, or another profiling detector counts this pass
+     */
+    static PassCounts startPass(Class<? extends Detector> profilingDetector) {
+        if (OUTPUT_FILE_NAME == null) {
+            return null;
+        }
+
+        synchronized (DetectorProfiler.class) {
+            ExecutionPlan plan = getExecutionPlan();
+            if ((sampler == null) || (plan != executionPlan)) {
+                startAnalysis(plan);
+            }
+            sampler.addThread(Thread.currentThread());
+
+            PassCounts newCounts = new PassCounts();
+            return (passCounts.putIfAbsent(Integer.valueOf(getPass(plan, profilingDetector.getName())), newCounts) == null) ? newCounts : null;
+        }
+    }
+
+    /**
+     * notes that a profiling detector was given a class, so that the thread it runs on is sampled, and the class counted for its pass
+     *
+     * @param counts
+     *            the counts of the pass, or null if profiling is off or another profiling detector counts this pass
+     * @param classContext
+     *            the class being visited
+     */
+    static void visitClass(PassCounts counts, ClassContext classContext) {
+        if (OUTPUT_FILE_NAME == null) {
+            return;
+        }
+
+        DetectorSampler currentSampler;
+        synchronized (DetectorProfiler.class) {
+            currentSampler = sampler;
+        }
+        currentSampler.addThread(Thread.currentThread());
+        if (counts != null) {
+            counts.add(classContext.getJavaClass());
+        }
+    }
+
+    /**
+     * forgets the measures of any earlier analysis in this jvm, and starts a new sampler over the detectors of this plugin
+     *
+     * @param plan
+     *            the execution plan of the new analysis
+     */
+    private static void startAnalysis(ExecutionPlan plan) {
+        if (samplerThread != null) {
+            samplerThread.interrupt();
+        }
+
+        executionPlan = plan;
+        passCounts.clear();
+        MethodBudget.clearSkippedMethods();
+        startNanos = System.nanoTime();
+        sampler = new DetectorSampler(Long.getLong(PROFILE_INTERVAL, DEFAULT_INTERVAL_MILLIS).longValue(), getDetectorClassNames());
+        samplerThread = new Thread(sampler, "fb-contrib detector profiler");
+        samplerThread.setDaemon(true);
+        samplerThread.start();
+    }
+
+    /**
+     * returns the class names of the detectors registered by this plugin, or of all plugins if this one can't be found
+     *
+     * @return the detector class names
+     */
+    private static Set<String> getDetectorClassNames() {
+        DetectorFactoryCollection factories = DetectorFactoryCollection.instance();
+        DetectorFactory profilerFactory = factories.getFactoryByClassName(DetectorProfiler.class.getName());
+        Set<String> detectors = new HashSet<>();
+        for (Iterator<DetectorFactory> it = factories.factoryIterator(); it.hasNext();) {
+            DetectorFactory factory = it.next();
+            if ((profilerFactory == null) || (factory.getPlugin() == profilerFactory.getPlugin())) {
+                detectors.add(factory.getFullName());
+            }
+        }
+        return detectors;
+    }
+
+    @Nullable
+    private static ExecutionPlan getExecutionPlan() {
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        return (analysisCache == null) ? null : analysisCache.getOptionalDatabase(ExecutionPlan.class);
+    }
+
+    /**
+     * returns the index of the pass of the execution plan a detector runs in
+     *
+     * @param plan
+     *            the execution plan, or null if there is none
+     * @param detectorClassName
+     *            the class name of the detector
+     * @return the pass index, or -1 if the detector is not in the plan
+     */
+    private static int getPass(@Nullable ExecutionPlan plan, String detectorClassName) {
+        if (plan != null) {
+            int pass = 0;
+            for (Iterator<AnalysisPass> it = plan.passIterator(); it.hasNext(); pass++) {
+                for (DetectorFactory factory : it.next().getMembers()) {
+                    if (factory.getFullName().equals(detectorClassName)) {
+                        return pass;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        visitClass(counts, classContext);
+    }
+
+    @Override
+    public void report() {
+        if (OUTPUT_FILE_NAME == null) {
+            return;
+        }
+
+        Path output = Paths.get(OUTPUT_FILE_NAME);
+        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8))) {
+            writeReport(pw);
+        } catch (IOException e) {
+            bugReporter.logError("Failed to write detector profile " + output + ": " + e.getMessage());
+        }
+    }
+
+    private static synchronized void writeReport(PrintWriter pw) {
+        Map<String, DetectorSample> samplesByDetector = new HashMap<>();
+        for (DetectorSample sample : sampler.getSamples()) {
+            samplesByDetector.put(sample.getDetector(), sample);
+        }
+
+        // every detector of the plan gets a row, even if it was never sampled, followed by anything sampled outside of them
+        Map<String, PassCounts> detectorCounts = new LinkedHashMap<>();
+        Set<String> detectorClassNames = sampler.getDetectorClassNames();
+        if (executionPlan != null) {
+            int pass = 0;
+            for (Iterator<AnalysisPass> it = executionPlan.passIterator(); it.hasNext(); pass++) {
+                PassCounts counts = passCounts.get(Integer.valueOf(pass));
+                for (DetectorFactory factory : it.next().getMembers()) {
+                    if (detectorClassNames.contains(factory.getFullName())) {
+                        detectorCounts.put(factory.getFullName(), counts);
+                    }
+                }
+            }
+        }
+        for (String detector : samplesByDetector.keySet()) {
+            if (!detectorCounts.containsKey(detector)) {
+                detectorCounts.put(detector, null);
+            }
+        }
+
+        List<String> detectors = new ArrayList<>(detectorCounts.keySet());
+        detectors.sort(Comparator.comparingLong((String detector) -> {
+            DetectorSample sample = samplesByDetector.get(detector);
+            return (sample == null) ? 0 : sample.getCpuNanos();
+        }).reversed());
+
+        Profiler profiler = Global.getAnalysisCache().getProfiler();
+        DetectorFactoryCollection factories = DetectorFactoryCollection.instance();
+        PassCounts lastPassCounts = passCounts.get(Integer.valueOf(getPass(executionPlan, DetectorProfiler.class.getName())));
+
+        pw.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        pw.println("<DetectorProfile classes=\"" + ((lastPassCounts == null) ? 0 : lastPassCounts.getClasses()) + "\" intervalMillis=\""
+                + sampler.getIntervalMillis() + "\" elapsedMillis=\"" + ((System.nanoTime() - startNanos) / 1_000_000L) + "\" peakHeapBytes=\""
+                + getPeakHeapBytes() + "\">");
+        for (String detector : detectors) {
+            StringBuilder sb = new StringBuilder("  <Detector class=\"").append(detector).append('"');
+
+            DetectorFactory factory = factories.getFactoryByClassName(detector);
+            if (factory != null) {
+                sb.append(" speed=\"").append(factory.getSpeed()).append('"');
+                try {
+                    Profiler.Profile profile = profiler.getProfile(Class.forName(detector));
+                    sb.append(" wallMillis=\"").append(profile.getTotalTime() / 1_000_000L).append('"');
+                } catch (ClassNotFoundException e) {
+                    // not a loaded detector, so spotbugs has no time for it
+                }
+            }
+
+            PassCounts counts = detectorCounts.get(detector);
+            if (counts != null) {
+                sb.append(" classesVisited=\"").append(counts.getClasses()).append('"');
+                sb.append(" methodsVisited=\"").append(counts.getMethods()).append('"');
+            }
+
+            DetectorSample sample = samplesByDetector.get(detector);
+            sb.append(" cpuMillis=\"").append((sample == null) ? 0 : sample.getCpuNanos() / 1_000_000L).append('"');
+            sb.append(" allocatedBytes=\"").append((sample == null) ? 0 : sample.getAllocatedBytes()).append('"');
+            sb.append(" samples=\"").append((sample == null) ? 0 : sample.getSamples()).append('"');
+            sb.append(" runnableSamples=\"").append((sample == null) ? 0 : sample.getRunnableSamples()).append('"');
+            for (Phase phase : Phase.values()) {
+                sb.append(' ').append(phase.getMethodName()).append("=\"").append((sample == null) ? 0 : sample.getSamples(phase)).append('"');
+            }
+            pw.println(sb.append("/>"));
+        }
+
+        SubtypeCache subtypeCache = SubtypeCache.instance();
+        pw.println("  <SubtypeCache subtypeHits=\"" + subtypeCache.getSubtypeHits() + "\" subtypeMisses=\"" + subtypeCache.getSubtypeMisses()
+                + "\" superTypeHits=\"" + subtypeCache.getSuperTypeHits() + "\" superTypeMisses=\"" + subtypeCache.getSuperTypeMisses() + "\" evictions=\""
+                + subtypeCache.getEvictions() + "\"/>");
+        for (Map.Entry<String, Long> skipped : MethodBudget.getSkippedMethods().entrySet()) {
+            pw.println("  <SkippedMethods detector=\"" + skipped.getKey() + "\" count=\"" + skipped.getValue() + "\"/>");
+        }
+        pw.println("</DetectorProfile>");
+    }
+
+    /**
+     * returns the sum of the peak usage of each heap memory pool. As the pools need not peak at the same time this may overstate the true peak somewhat, but
+     * it only ever grows as the analysis needs more memory.
+     *
+     * @return the peak heap usage in bytes
+     */
+    private static long getPeakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * the classes, and methods with code, that spotbugs gave the detectors of one pass
+     */
+    static final class PassCounts {
+        private final AtomicLong classes = new AtomicLong();
+        private final AtomicLong methods = new AtomicLong();
+
+        void add(JavaClass cls) {
+            classes.incrementAndGet();
+            for (Method m : cls.getMethods()) {
+                if (m.getCode() != null) {
+                    methods.incrementAndGet();
+                }
+            }
+        }
+
+        long getClasses() {
+            return classes.get();
+        }
+
+        long getMethods() {
+            return methods.get();
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.debug;
+
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.NonReportingDetector;
+import edu.umd.cs.findbugs.ba.ClassContext;
+
+/**
+ * starts the sampling of the {@link DetectorProfiler} in the first pass, ahead of the collecting detectors, so that their time is measured too. The profiler
+ * itself runs in the last pass, as that is where the report of the whole run can be written.
+ */
+public class DetectorProfilerStarter implements Detector, NonReportingDetector {
+
+    private final DetectorProfiler.PassCounts passCounts;
+
+    public DetectorProfilerStarter(@SuppressWarnings("unused") BugReporter bugReporter) {
+        passCounts = DetectorProfiler.startPass(DetectorProfilerStarter.class);
+    }
+
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        DetectorProfiler.visitClass(passCounts, classContext);
+    }
+
+    @Override
+    public void report() {
+        // the report is written by the DetectorProfiler at the end of the last pass
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.debug;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+/**
+ * samples the stacks of the analysis threads, charging the cpu time and allocated bytes of each thread since the last sample to the innermost registered
+ * detector on its stack, split by whether the detector was in visitClassContext, visitCode, sawOpcode or report. Helpers that are not detectors themselves,
+ * such as the Statistics tables, are charged to the detector that called them. Sampling needs no changes to the detectors, at the cost of the numbers being
+ * estimates whose accuracy grows with the length of the run.
+ */
+final class DetectorSampler implements Runnable {
+
+    static final String OTHER = "[other]";
+
+    enum Phase {
+        VISIT_CLASS_CONTEXT("visitClassContext"), VISIT_CODE("visitCode"), SAW_OPCODE("sawOpcode"), REPORT("report"), OTHER("other");
+
+        private final String methodName;
+
+        Phase(String methodName) {
+            this.methodName = methodName;
+        }
+
+        String getMethodName() {
+            return methodName;
+        }
+
+        static Phase of(String methodName) {
+            for (Phase phase : values()) {
+                if (phase.methodName.equals(methodName)) {
+                    return phase;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final ThreadMXBean threadBean;
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final long intervalMillis;
+    private final Set<String> detectorClassNames;
+    private final Map<Long, ThreadState> threads = new ConcurrentHashMap<>();
+    private final Map<String, DetectorSample> samples = new ConcurrentHashMap<>();
+
+    DetectorSampler(long intervalMillis, Set<String> detectorClassNames) {
+        this.intervalMillis = intervalMillis;
+        this.detectorClassNames = detectorClassNames;
+        threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean.isThreadCpuTimeSupported() && !threadBean.isThreadCpuTimeEnabled()) {
+            threadBean.setThreadCpuTimeEnabled(true);
+        }
+
+        com.sun.management.ThreadMXBean bean = null;
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            bean = (com.sun.management.ThreadMXBean) threadBean;
+            if (bean.isThreadAllocatedMemorySupported() && !bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+        }
+        allocationBean = bean;
+    }
+
+    /**
+     * adds a thread to those sampled
+     *
+     * @param thread
+     *            a thread that runs detectors
+     */
+    void addThread(Thread thread) {
+        long id = thread.getId();
+        threads.computeIfAbsent(Long.valueOf(id), k -> new ThreadState(cpuTime(id), allocatedBytes(id)));
+    }
+
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    Set<String> getDetectorClassNames() {
+        return detectorClassNames;
+    }
+
+    /**
+     * @return a snapshot of the samples collected so far, by detector class name
+     */
+    List<DetectorSample> getSamples() {
+        return new ArrayList<>(samples.values());
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                TimeUnit.MILLISECONDS.sleep(intervalMillis);
+                sample();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void sample() {
+        for (Map.Entry<Long, ThreadState> entry : threads.entrySet()) {
+            long id = entry.getKey().longValue();
+            ThreadInfo info = threadBean.getThreadInfo(id, Integer.MAX_VALUE);
+            if (info == null) {
+                threads.remove(entry.getKey());
+                continue;
+            }
+
+            ThreadState state = entry.getValue();
+            long cpu = cpuTime(id);
+            long allocated = allocatedBytes(id);
+            long cpuDelta = Math.max(0, cpu - state.cpuTime);
+            long allocatedDelta = Math.max(0, allocated - state.allocatedBytes);
+            state.cpuTime = cpu;
+            state.allocatedBytes = allocated;
+
+            String detector = OTHER;
+            Phase phase = Phase.OTHER;
+            for (StackTraceElement frame : info.getStackTrace()) {
+                String className = frame.getClassName();
+                int dollarPos = className.indexOf('$');
+                String outerClassName = (dollarPos >= 0) ? className.substring(0, dollarPos) : className;
+                if (OTHER.equals(detector)) {
+                    if (!detectorClassNames.contains(outerClassName)) {
+                        continue;
+                    }
+                    detector = outerClassName;
+                } else if (!detector.equals(outerClassName)) {
+                    if (detectorClassNames.contains(outerClassName)) {
+                        break;
+                    }
+                    continue;
+                }
+                Phase framePhase = Phase.of(frame.getMethodName());
+                if (framePhase != null) {
+                    phase = framePhase;
+                    break;
+                }
+            }
+
+            samples.computeIfAbsent(detector, DetectorSample::new).add(phase, info.getThreadState() == Thread.State.RUNNABLE, cpuDelta, allocatedDelta);
+        }
+    }
+
+    private long cpuTime(long threadId) {
+        return threadBean.isThreadCpuTimeSupported() ? Math.max(0, threadBean.getThreadCpuTime(threadId)) : 0;
+    }
+
+    private long allocatedBytes(long threadId) {
+        return (allocationBean != null) && allocationBean.isThreadAllocatedMemorySupported() ? Math.max(0, allocationBean.getThreadAllocatedBytes(threadId))
+                : 0;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * the counters at the last sample of one analysis thread
+     */
+    static final class ThreadState {
+        long cpuTime;
+        long allocatedBytes;
+
+        ThreadState(long cpuTime, long allocatedBytes) {
+            this.cpuTime = cpuTime;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    /**
+     * the accumulated samples of one detector, only updated by the sampling thread
+     */
+    static final class DetectorSample {
+        private final String detector;
+        private final long[] phaseSamples = new long[Phase.values().length];
+        private volatile long samples;
+        private volatile long runnableSamples;
+        private volatile long cpuNanos;
+        private volatile long allocatedBytes;
+
+        DetectorSample(String detector) {
+            this.detector = detector;
+        }
+
+        void add(Phase phase, boolean runnable, long cpuDelta, long allocatedDelta) {
+            phaseSamples[phase.ordinal()]++;
+            samples++;
+            if (runnable) {
+                runnableSamples++;
+            }
+            cpuNanos += cpuDelta;
+            allocatedBytes += allocatedDelta;
+        }
+
+        String getDetector() {
+            return detector;
+        }
+
+        long getSamples() {
+            return samples;
+        }
+
+        long getRunnableSamples() {
+            return runnableSamples;
+        }
+
+        long getSamples(Phase phase) {
+            return phaseSamples[phase.ordinal()];
+        }
+
+        long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
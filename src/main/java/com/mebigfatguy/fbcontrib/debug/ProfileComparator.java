@@ -0,0 +1,143 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.debug;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * compares a report written by {@link DetectorProfiler} against a stored baseline report, and flags the run as slower when the total time, the peak heap, or
+ * the time of any one detector grew by more than a tolerance percentage. Detectors are compared by their sampled cpu time rather than the wall clock time
+ * spotbugs measured for them, as the latter includes garbage collection pauses that land on whichever detector happens to be running. As the samples are
+ * small, changes of fewer than a given number of milliseconds, or of 16 megabytes of heap, are taken to be noise. When asked to, the report becomes the new
+ * baseline. As timings only compare on the same machine, the baseline is not kept in source control, and a run without one skips the comparison with a
+ * warning, rather than failing or passing against a baseline it just made, unless it was asked to create one. As the profile holds the detectors of every
+ * pass, the collecting detectors of the first pass are compared as well.
+ * <p>
+ * Usage: ProfileComparator profile.xml baseline.xml tolerancePercent noiseMillis updateBaseline
+ */
+public final class ProfileComparator {
+
+    private static final String TOTAL = "total";
+    private static final String PEAK_HEAP = "peakHeap";
+    private static final long HEAP_NOISE_BYTES = 16L * 1024L * 1024L;
+
+    private ProfileComparator() {
+    }
+
+    public static void main(String[] args) throws IOException, ParserConfigurationException, SAXException {
+        if (args.length != 5) {
+            System.err.println("Usage: ProfileComparator profile.xml baseline.xml tolerancePercent noiseMillis updateBaseline");
+            System.exit(2);
+        }
+
+        Path profile = Paths.get(args[0]);
+        Path baseline = Paths.get(args[1]);
+        double tolerance = Double.parseDouble(args[2]);
+        long noiseMillis = Long.parseLong(args[3]);
+        boolean update = Boolean.parseBoolean(args[4]);
+
+        if (!Files.isRegularFile(profile)) {
+            System.err.println("No detector profile was written to " + profile);
+            System.exit(2);
+        }
+
+        if (!Files.isRegularFile(baseline)) {
+            if (!update) {
+                System.err.println("WARNING: No detector profile baseline exists at " + baseline
+                        + ", so detector timings were not compared; create one on this machine with -Dsample.profile.update=true");
+                return;
+            }
+            Files.copy(profile, baseline);
+            System.out.println("Stored " + profile + " as the detector profile baseline " + baseline);
+            return;
+        }
+
+        int regressions = compare(read(profile), read(baseline), tolerance, noiseMillis);
+        if (update) {
+            Files.copy(profile, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Updated the detector profile baseline " + baseline);
+        } else if (regressions > 0) {
+            System.err.println(regressions + " measure(s) grew more than " + tolerance + "% against " + baseline);
+            System.exit(1);
+        }
+    }
+
+    private static int compare(Map<String, Long> current, Map<String, Long> base, double tolerance, long noiseMillis) {
+        int regressions = 0;
+        for (Map.Entry<String, Long> entry : current.entrySet()) {
+            Long baseValue = base.get(entry.getKey());
+            if (baseValue == null) {
+                continue;
+            }
+
+            long before = baseValue.longValue();
+            long after = entry.getValue().longValue();
+            long noise = PEAK_HEAP.equals(entry.getKey()) ? HEAP_NOISE_BYTES : noiseMillis;
+            double change = (before == 0) ? 0.0 : ((after - before) * 100.0) / before;
+            boolean regressed = ((after - before) > noise) && ((before == 0) || (change > tolerance));
+            if (regressed) {
+                regressions++;
+            }
+            System.out.println(String.format(Locale.ROOT, "%-10s %-80s %12d -> %12d %+7.1f%%", regressed ? "SLOWER" : "ok", entry.getKey(),
+                    Long.valueOf(before), Long.valueOf(after), Double.valueOf(change)));
+        }
+        return regressions;
+    }
+
+    /**
+     * reads a detector profile into the total time, the peak heap and the time of each detector, keyed by detector class name
+     */
+    private static Map<String, Long> read(Path xml) throws IOException, ParserConfigurationException, SAXException {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        Element root = dbf.newDocumentBuilder().parse(xml.toFile()).getDocumentElement();
+
+        Map<String, Long> measures = new LinkedHashMap<>();
+        putIfPresent(measures, TOTAL, root.getAttribute("elapsedMillis"));
+        putIfPresent(measures, PEAK_HEAP, root.getAttribute("peakHeapBytes"));
+
+        NodeList detectors = root.getElementsByTagName("Detector");
+        for (int i = 0; i < detectors.getLength(); i++) {
+            Element detector = (Element) detectors.item(i);
+            putIfPresent(measures, detector.getAttribute("class"), detector.getAttribute("cpuMillis"));
+        }
+        return measures;
+    }
+
+    private static void putIfPresent(Map<String, Long> measures, String key, String value) {
+        if (!value.isEmpty()) {
+            measures.put(key, Long.valueOf(value));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.detect;
+
+import org.apache.bcel.classfile.Code;
+
+import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
+
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ba.ClassContext;
+
+/**
+ * a base detector for simple opcode stack based detectors, that either walks each method itself, or, when fused scanning is enabled, lets
+ * {@link FusedOpcodeScanner} drive it, along with all other subscribers, from one walk of the method with one shared opcode stack. Subclasses implement the
+ * callbacks in terms of the scanner and stack they are given, and not of themselves, as when fused they are not the visitor positioned on the instruction.
+ * User values are attached by returning them from {@link #sawOpcode(BytecodeScanningDetector, OpcodeStack, int)}, and read with
+ * {@link #getUserValue(OpcodeStack.Item)}, so that subscribers never see each other's values on the shared stack.
+ */
+public abstract class AbstractOpcodeSubscriber extends BytecodeScanningDetector {
+
+    enum Mode {
+        UNDECIDED, STANDALONE, FUSED
+    }
+
+    protected final BugReporter bugReporter;
+    private OpcodeStack stack;
+    private Mode mode = Mode.UNDECIDED;
+    private int slot = -1;
+
+    protected AbstractOpcodeSubscriber(BugReporter bugReporter) {
+        this.bugReporter = bugReporter;
+        FusedOpcodeScanner.subscribe(bugReporter, this);
+    }
+
+    /**
+     * called before the methods of a class are walked
+     *
+     * @param classContext
+     *            the context object of the class about to be parsed
+     * @return whether any method of this class is of interest
+     */
+    protected boolean startClass(ClassContext classContext) {
+        return true;
+    }
+
+    /**
+     * called before the code of a method is walked, with the scanner positioned on the method
+     *
+     * @param scanner
+     *            the visitor walking the method
+     * @return whether the method's opcodes are of interest
+     */
+    protected boolean startMethod(BytecodeScanningDetector scanner) {
+        return true;
+    }
+
+    /**
+     * called for each opcode, before the stack has been updated for it. Throwing StopOpcodeParsingException ends the walk of the current method for this
+     * subscriber only.
+     *
+     * @param scanner
+     *            the visitor positioned on the instruction, to be used for its operands and for bug annotations
+     * @param stack
+     *            the opcode stack as it is before the instruction
+     * @param seen
+     *            the currently parsed opcode
+     * @return a user value to attach to the top of the stack once the instruction has been simulated, or null
+     */
+    protected abstract Object sawOpcode(BytecodeScanningDetector scanner, OpcodeStack stack, int seen);
+
+    /**
+     * called after the methods of a class have been walked
+     */
+    protected void endClass() {
+        // no default cleanup
+    }
+
+    /**
+     * returns the user value this subscriber attached to a stack item
+     *
+     * @param item
+     *            the stack item to inspect
+     * @return this subscriber's user value, or null
+     */
+    protected final Object getUserValue(OpcodeStack.Item item) {
+        if (slot < 0) {
+            return item.getUserValue();
+        }
+        return FusedOpcodeScanner.getUserValue(item, slot);
+    }
+
+    /**
+     * implements the visitor to walk the class itself, unless it is driven by the fused scanner
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     */
+    @Override
+    public final void visitClassContext(ClassContext classContext) {
+        if (!FusedOpcodeScanner.runStandalone(this) || !startClass(classContext)) {
+            return;
+        }
+
+        try {
+            stack = new OpcodeStack();
+            super.visitClassContext(classContext);
+        } finally {
+            stack = null;
+            endClass();
+        }
+    }
+
+    /**
+     * implements the visitor to reset the stack for methods that are of interest
+     *
+     * @param obj
+     *            the context object of the currently parsed code block
+     */
+    @Override
+    public final void visitCode(Code obj) {
+        if (startMethod(this)) {
+            try {
+                stack.resetForMethodEntry(this);
+                super.visitCode(obj);
+            } catch (StopOpcodeParsingException e) {
+                // no point in looking further into this method
+            }
+        }
+    }
+
+    /**
+     * implements the visitor to forward the opcode to the subscriber callback and attach the user value it returns
+     *
+     * @param seen
+     *            the currently parsed opcode
+     */
+    @Override
+    public final void sawOpcode(int seen) {
+        Object userValue = null;
+        try {
+            stack.precomputation(this);
+            userValue = sawOpcode(this, stack, seen);
+        } finally {
+            stack.sawOpcode(this, seen);
+            if ((userValue != null) && (stack.getStackDepth() > 0)) {
+                stack.getStackItem(0).setUserValue(userValue);
+            }
+        }
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    void setMode(Mode mode, int slot) {
+        this.mode = mode;
+        this.slot = slot;
+    }
+}
@@ -19,14 +19,13 @@
 package com.mebigfatguy.fbcontrib.detect;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
@@ -42,10 +41,13 @@ import com.mebigfatguy.fbcontrib.collect.MethodInfo;
 import com.mebigfatguy.fbcontrib.collect.Statistics;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
+import com.mebigfatguy.fbcontrib.utils.LiteralMatcher;
+import com.mebigfatguy.fbcontrib.utils.MethodBudget;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
 import com.mebigfatguy.fbcontrib.utils.TernaryPatcher;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
@@ -85,20 +87,21 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
     // @formatter:on
     );
 
-    private static final Set<Pattern> dangerousAssignmentMethodPatterns = UnmodifiableSet.create(
+    private static final LiteralMatcher dangerousAssignmentMethodPatterns = LiteralMatcher.builder()
     //@formatter:off
-            Pattern.compile(".*serial.*", Pattern.CASE_INSENSITIVE),
-            Pattern.compile(".*\\.read[^.]*", Pattern.CASE_INSENSITIVE),
-            Pattern.compile(".*\\.create[^.]*", Pattern.CASE_INSENSITIVE)
+            .addMatch(Pattern.compile(".*serial.*", Pattern.CASE_INSENSITIVE), "serial")
+            .addMatch(Pattern.compile(".*\\.read[^.]*", Pattern.CASE_INSENSITIVE), ".read")
+            .addMatch(Pattern.compile(".*\\.create[^.]*", Pattern.CASE_INSENSITIVE), ".create")
+            .build();
     // @formatter:on
-    );
 
     private static final Set<String> dangerousStoreClassSigs = UnmodifiableSet.create("Ljava/util/concurrent/Future;");
 
     BugReporter bugReporter;
+    private final MethodBudget budget;
     private OpcodeStack stack;
     BitSet ignoreRegs;
-    private ScopeBlock rootScopeBlock;
+    private ScopeBlocks scopeBlocks;
     private BitSet tryBlocks;
     private BitSet catchHandlers;
     private BitSet switchTargets;
@@ -115,6 +118,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
      */
     public BloatedAssignmentScope(BugReporter bugReporter) {
         this.bugReporter = bugReporter;
+        budget = new MethodBudget(BloatedAssignmentScope.class);
     }
 
     /**
@@ -127,6 +131,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
     public void visitClassContext(ClassContext classContext) {
         try {
             ignoreRegs = new BitSet();
+            scopeBlocks = new ScopeBlocks();
             tryBlocks = new BitSet();
             catchHandlers = new BitSet();
             switchTargets = new BitSet();
@@ -135,6 +140,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
             super.visitClassContext(classContext);
         } finally {
             ignoreRegs = null;
+            scopeBlocks = null;
             tryBlocks = null;
             catchHandlers = null;
             switchTargets = null;
@@ -144,13 +150,17 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
     }
 
     /**
-     * implements the visitor to reset the register to location map
+     * implements the visitor to reset the register to location map, leaving out methods that are over budget
      *
      * @param obj
      *            the context object of the currently parsed code block
      */
     @Override
     public void visitCode(Code obj) {
+        if (!budget.admit(obj)) {
+            return;
+        }
+
         try {
 
             ignoreRegs.clear();
@@ -164,7 +174,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
                 ignoreRegs.set(parm);
             }
 
-            rootScopeBlock = new ScopeBlock(0, obj.getLength());
+            scopeBlocks.reset(obj.getLength());
             tryBlocks.clear();
             catchHandlers.clear();
             CodeException[] exceptions = obj.getExceptionTable();
@@ -183,11 +193,11 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
             super.visitCode(obj);
 
             if (!dontReport) {
-                rootScopeBlock.findBugs(new HashSet<Integer>());
+                findBugs(ScopeBlocks.ROOT, new BitSet(), scopeBlocks.collectSubtreeRegisters());
             }
 
-        } finally {
-            rootScopeBlock = null;
+        } catch (StopOpcodeParsingException e) {
+            // over budget, so nothing is reported for this method
         }
     }
 
@@ -199,15 +209,14 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
      */
     @Override
     public void sawOpcode(int seen) {
+        budget.checkpoint();
         UserObject uo = null;
         try {
             stack.precomputation(this);
 
             int pc = getPC();
             if (tryBlocks.get(pc)) {
-                ScopeBlock sb = new ScopeBlock(pc, findCatchHandlerFor(pc));
-                sb.setTry();
-                rootScopeBlock.addChild(sb);
+                scopeBlocks.add(pc, findCatchHandlerFor(pc), ScopeBlocks.TRY);
             }
 
             if (OpcodeUtils.isStore(seen)) {
@@ -260,11 +269,11 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
 
         if (catchHandlers.get(pc)) {
             ignoreRegs.set(reg);
-            ScopeBlock catchSB = findScopeBlock(rootScopeBlock, pc + 1);
-            if ((catchSB != null) && (catchSB.getStart() < pc)) {
-                ScopeBlock sb = new ScopeBlock(pc, catchSB.getFinish());
-                catchSB.setFinish(getPC() - 1);
-                rootScopeBlock.addChild(sb);
+            int catchSB = scopeBlocks.find(pc + 1);
+            if ((catchSB != ScopeBlocks.NONE) && (scopeBlocks.getStart(catchSB) < pc)) {
+                int finish = scopeBlocks.getFinish(catchSB);
+                scopeBlocks.setFinish(catchSB, getPC() - 1);
+                scopeBlocks.add(pc, finish, 0);
             }
         } else if (!monitorSyncPCs.isEmpty()) {
             ignoreRegs.set(reg);
@@ -275,8 +284,8 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
         }
 
         if (!ignoreRegs.get(reg)) {
-            ScopeBlock sb = findScopeBlock(rootScopeBlock, pc);
-            if (sb != null) {
+            int sb = scopeBlocks.find(pc);
+            if (sb != ScopeBlocks.NONE) {
                 UserObject assoc = null;
                 if (stack.getStackDepth() > 0) {
                     OpcodeStack.Item srcItm = stack.getStackItem(0);
@@ -291,9 +300,9 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
                 if ((assoc != null) && assoc.isRisky) {
                     ignoreRegs.set(reg);
                 } else {
-                    sb.addStore(reg, pc, assoc);
+                    scopeBlocks.addStore(sb, reg, pc, assoc);
                     if (sawDup) {
-                        sb.addLoad(reg, pc);
+                        scopeBlocks.addLoad(sb, reg, pc);
                     }
                 }
             } else {
@@ -301,9 +310,9 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
             }
         }
 
-        ScopeBlock sb = findScopeBlock(rootScopeBlock, pc);
-        if (sb != null) {
-            sb.markFieldAssociatedWrites(reg);
+        int sb = scopeBlocks.find(pc);
+        if (sb != ScopeBlocks.NONE) {
+            scopeBlocks.markFieldAssociatedWrites(sb, reg);
         }
     }
 
@@ -316,9 +325,9 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
     private void sawIINC(int pc) {
         int reg = getRegisterOperand();
         if (!ignoreRegs.get(reg)) {
-            ScopeBlock sb = findScopeBlock(rootScopeBlock, pc);
-            if (sb != null) {
-                sb.addLoad(reg, pc);
+            int sb = scopeBlocks.find(pc);
+            if (sb != ScopeBlocks.NONE) {
+                scopeBlocks.addLoad(sb, reg, pc);
             } else {
                 ignoreRegs.set(reg);
             }
@@ -332,11 +341,11 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
         }
 
         if (!ignoreRegs.get(reg)) {
-            ScopeBlock sb = findScopeBlock(rootScopeBlock, pc);
-            if (sb != null) {
-                sb.addStore(reg, pc, null);
+            int sb = scopeBlocks.find(pc);
+            if (sb != ScopeBlocks.NONE) {
+                scopeBlocks.addStore(sb, reg, pc, null);
                 if (sawDup) {
-                    sb.addLoad(reg, pc);
+                    scopeBlocks.addLoad(sb, reg, pc);
                 }
             } else {
                 ignoreRegs.set(reg);
@@ -355,9 +364,9 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
     private void sawLoad(int seen, int pc) {
         int reg = RegisterUtils.getLoadReg(this, seen);
         if (!ignoreRegs.get(reg)) {
-            ScopeBlock sb = findScopeBlock(rootScopeBlock, pc);
-            if (sb != null) {
-                sb.addLoad(reg, pc);
+            int sb = scopeBlocks.find(pc);
+            if (sb != ScopeBlocks.NONE) {
+                scopeBlocks.addLoad(sb, reg, pc);
             } else {
                 ignoreRegs.set(reg);
             }
@@ -378,58 +387,48 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
             if ((seen == Const.GOTO) || (seen == Const.GOTO_W)) {
                 int nextPC = getNextPC();
                 if (!switchTargets.get(nextPC)) {
-                    ScopeBlock sb = findScopeBlockWithTarget(rootScopeBlock, pc, nextPC);
-                    if (sb == null) {
-                        sb = new ScopeBlock(pc, target);
-                        sb.setLoop();
-                        sb.setGoto();
-                        rootScopeBlock.addChild(sb);
+                    int sb = scopeBlocks.findWithTarget(pc, nextPC);
+                    if (sb == ScopeBlocks.NONE) {
+                        scopeBlocks.add(pc, target, ScopeBlocks.LOOP | ScopeBlocks.GOTO);
                     } else {
-                        sb = new ScopeBlock(nextPC, target);
-                        sb.setGoto();
-                        rootScopeBlock.addChild(sb);
+                        scopeBlocks.add(nextPC, target, ScopeBlocks.GOTO);
                     }
                 }
             } else {
-                ScopeBlock sb = findScopeBlockWithTarget(rootScopeBlock, pc, target);
-                if ((sb != null) && !sb.isLoop() && !sb.isCase() && !sb.hasChildren()) {
-                    if (sb.isGoto()) {
-                        ScopeBlock parent = sb.getParent();
-                        sb.pushUpLoadStores();
-                        if (parent != null) {
-                            parent.removeChild(sb);
-                        }
-                        sb = new ScopeBlock(pc, target);
-                        rootScopeBlock.addChild(sb);
+                int sb = scopeBlocks.findWithTarget(pc, target);
+                if ((sb != ScopeBlocks.NONE) && !scopeBlocks.is(sb, ScopeBlocks.LOOP) && !scopeBlocks.is(sb, ScopeBlocks.CASE) && !scopeBlocks.hasChildren(sb)) {
+                    if (scopeBlocks.is(sb, ScopeBlocks.GOTO)) {
+                        scopeBlocks.pushUpLoadStores(sb);
+                        scopeBlocks.remove(sb);
+                        scopeBlocks.add(pc, target, 0);
                     } else {
-                        sb.pushUpLoadStores();
-                        sb.setStart(pc);
+                        scopeBlocks.pushUpLoadStores(sb);
+                        scopeBlocks.setStart(sb, pc);
                     }
                 } else {
-                    sb = new ScopeBlock(pc, target);
-                    rootScopeBlock.addChild(sb);
+                    scopeBlocks.add(pc, target, 0);
                 }
             }
         } else {
-            ScopeBlock sb = findScopeBlock(rootScopeBlock, pc);
-            if (sb != null) {
-                ScopeBlock parentSB = sb.getParent();
-                while (parentSB != null) {
-                    if (parentSB.getStart() >= target) {
+            int sb = scopeBlocks.find(pc);
+            if (sb != ScopeBlocks.NONE) {
+                int parentSB = scopeBlocks.getParent(sb);
+                while (parentSB != ScopeBlocks.NONE) {
+                    if (scopeBlocks.getStart(parentSB) >= target) {
                         sb = parentSB;
-                        parentSB = parentSB.getParent();
+                        parentSB = scopeBlocks.getParent(parentSB);
                     } else {
                         break;
                     }
                 }
 
-                if (sb.getStart() > target) {
-                    ScopeBlock previous = findPreviousSiblingScopeBlock(sb);
-                    if ((previous != null) && (previous.getStart() >= target)) {
+                if (scopeBlocks.getStart(sb) > target) {
+                    int previous = scopeBlocks.findPreviousSibling(sb);
+                    if ((previous != ScopeBlocks.NONE) && (scopeBlocks.getStart(previous) >= target)) {
                         sb = previous;
                     }
                 }
-                sb.setLoop();
+                scopeBlocks.set(sb, ScopeBlocks.LOOP);
             }
         }
     }
@@ -455,9 +454,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
         Integer lastTarget = targets.get(0);
         for (int i = 1; i < targets.size(); i++) {
             Integer nextTarget = targets.get(i);
-            ScopeBlock sb = new ScopeBlock(lastTarget.intValue(), nextTarget.intValue());
-            sb.setCase();
-            rootScopeBlock.addChild(sb);
+            scopeBlocks.add(lastTarget.intValue(), nextTarget.intValue(), ScopeBlocks.CASE);
             lastTarget = nextTarget;
         }
         for (Integer target : targets) {
@@ -493,9 +490,9 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
         UserObject uo = new UserObject(getCallingObject(), mi.getModifiesState() || isRiskyMethodCall());
 
         if (uo.caller != null) {
-            ScopeBlock sb = findScopeBlock(rootScopeBlock, pc);
-            if (sb != null) {
-                sb.removeByAssoc(uo.caller);
+            int sb = scopeBlocks.find(pc);
+            if (sb != ScopeBlocks.NONE) {
+                scopeBlocks.removeByAssoc(sb, uo.caller);
             }
         }
 
@@ -538,9 +535,9 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
 
             if (reg >= 0) {
 
-                ScopeBlock sb = findScopeBlock(rootScopeBlock, pc);
-                if (sb != null) {
-                    sb.markFieldAssociatedWrites(reg);
+                int sb = scopeBlocks.find(pc);
+                if (sb != ScopeBlocks.NONE) {
+                    scopeBlocks.markFieldAssociatedWrites(sb, reg);
                 }
             }
         }
@@ -555,9 +552,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
     private void sawMonitorEnter(int pc) {
         monitorSyncPCs.add(Integer.valueOf(pc));
 
-        ScopeBlock sb = new ScopeBlock(pc, Integer.MAX_VALUE);
-        sb.setSync();
-        rootScopeBlock.addChild(sb);
+        scopeBlocks.add(pc, Integer.MAX_VALUE, ScopeBlocks.SYNC);
     }
 
     /**
@@ -568,10 +563,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
      */
     private void sawMonitorExit(int pc) {
         if (!monitorSyncPCs.isEmpty()) {
-            ScopeBlock sb = findSynchronizedScopeBlock(rootScopeBlock, monitorSyncPCs.get(0).intValue());
-            if (sb != null) {
-                sb.setFinish(pc);
-            }
+            scopeBlocks.setFinish(scopeBlocks.findSynchronized(ScopeBlocks.ROOT), pc);
             monitorSyncPCs.remove(monitorSyncPCs.size() - 1);
         }
     }
@@ -617,334 +609,423 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
     }
 
     /**
-     * returns the scope block in which this register was assigned, by traversing the scope block tree
+     * returns the catch handler for a given try block
      *
-     * @param sb
-     *            the scope block to start searching in
      * @param pc
-     *            the current program counter
-     * @return the scope block or null if not found
-     */
-    @Nullable
-    private ScopeBlock findScopeBlock(ScopeBlock sb, int pc) {
-
-        if ((pc <= sb.getStart()) || (pc >= sb.getFinish())) {
-            return null;
-        }
-
-        List<ScopeBlock> children = sb.getChildren();
-        if (children != null) {
-            for (ScopeBlock child : children) {
-                ScopeBlock foundSb = findScopeBlock(child, pc);
-                if (foundSb != null) {
-                    return foundSb;
-                }
-            }
-        }
-        return sb;
-    }
-
-    /**
-     * returns an existing scope block that has the same target as the one looked for
-     *
-     * @param sb
-     *            the scope block to start with
-     * @param start
-     *            the current pc
-     * @param target
-     *            the target to look for
+     *            the current instruction
+     * @return the pc of the handler for this pc if it's the start of a try block, or -1
      *
-     * @return the scope block found or null
      */
-    private ScopeBlock findScopeBlockWithTarget(ScopeBlock sb, int start, int target) {
-        ScopeBlock parentBlock = null;
-        int finishLocation = sb.getFinish();
-        if ((sb.getStart() < start) && (finishLocation >= start) && ((finishLocation <= target) || (sb.isGoto() && !sb.isLoop()))) {
-            parentBlock = sb;
-        }
-
-        List<ScopeBlock> children = sb.getChildren();
-        if (children != null) {
-            for (ScopeBlock child : children) {
-                ScopeBlock targetBlock = findScopeBlockWithTarget(child, start, target);
-                if (targetBlock != null) {
-                    return targetBlock;
+    private int findCatchHandlerFor(int pc) {
+        CodeException[] exceptions = getMethod().getCode().getExceptionTable();
+        if (exceptions != null) {
+            for (CodeException ex : exceptions) {
+                if (ex.getStartPC() == pc) {
+                    return ex.getHandlerPC();
                 }
             }
         }
 
-        return parentBlock;
+        return -1;
     }
 
     /**
-     * looks for the ScopeBlock has the same parent as this given one, but precedes it in the list.
+     * report stores that occur at scopes higher than associated loads that are not involved with loops
      *
      * @param sb
-     *            the scope block to look for the previous scope block
-     * @return the previous sibling scope block, or null if doesn't exist
+     *            the scope block to report stores of
+     * @param parentUsedRegs
+     *            the set of registers that where used by the parent scope block
+     * @param subtreeRegs
+     *            the registers used by each scope block or its children
      */
-    @Nullable
-    private ScopeBlock findPreviousSiblingScopeBlock(ScopeBlock sb) {
-        ScopeBlock parent = sb.getParent();
-        if (parent == null) {
-            return null;
+    private void findBugs(int sb, BitSet parentUsedRegs, BitSet[] subtreeRegs) {
+        if (scopeBlocks.is(sb, ScopeBlocks.LOOP)) {
+            return;
         }
 
-        List<ScopeBlock> children = parent.getChildren();
-        if (children == null) {
-            return null;
+        RegisterPCs stores = scopeBlocks.getStores(sb);
+        RegisterPCs loads = scopeBlocks.getLoads(sb);
+        BitSet usedRegs = (BitSet) parentUsedRegs.clone();
+        if (stores != null) {
+            stores.addRegistersTo(usedRegs);
         }
-
-        ScopeBlock lastSibling = null;
-        for (ScopeBlock sibling : children) {
-            if (sibling.equals(sb)) {
-                return lastSibling;
-            }
-            lastSibling = sibling;
+        if (loads != null) {
+            loads.addRegistersTo(usedRegs);
         }
 
-        return null;
-    }
-
-    /**
-     * finds the scope block that is the active synchronized block
-     *
-     * @param sb
-     *            the parent scope block to start with
-     * @param monitorEnterPC
-     *            the pc where the current synchronized block starts
-     * @return the scope block
-     */
-    private ScopeBlock findSynchronizedScopeBlock(ScopeBlock sb, int monitorEnterPC) {
-
-        ScopeBlock monitorBlock = sb;
+        int numChildren = scopeBlocks.getNumChildren(sb);
+        if ((stores != null) && (numChildren > 0)) {
+            for (int i = 0; i < stores.size(); i++) {
+                int reg = stores.getRegister(i);
+                if (((loads != null) && loads.containsKey(reg)) || parentUsedRegs.get(reg) || ignoreRegs.get(reg)) {
+                    continue;
+                }
 
-        if (sb.hasChildren()) {
-            for (ScopeBlock child : sb.getChildren()) {
-                if (child.isSync() && (child.getStart() > monitorBlock.getStart())) {
-                    monitorBlock = child;
-                    monitorBlock = findSynchronizedScopeBlock(monitorBlock, monitorEnterPC);
+                int childUseCount = 0;
+                boolean inIgnoreSB = false;
+                for (int c = 0; c < numChildren; c++) {
+                    int child = scopeBlocks.getChild(sb, c);
+                    if (subtreeRegs[child].get(reg)) {
+                        if (scopeBlocks.is(child, ScopeBlocks.LOOP | ScopeBlocks.SYNC | ScopeBlocks.TRY)) {
+                            inIgnoreSB = true;
+                            break;
+                        }
+                        childUseCount++;
+                    }
+                }
+                if (!inIgnoreSB && (childUseCount == 1)) {
+                    if (appearsToBeUserRegister(reg)) {
+                        bugReporter.reportBug(new BugInstance(this, BugType.BAS_BLOATED_ASSIGNMENT_SCOPE.name(), NORMAL_PRIORITY).addClass(this).addMethod(this)
+                                .addSourceLine(this, stores.getPC(i)));
+                    }
                 }
             }
         }
 
-        return monitorBlock;
+        for (int c = 0; c < numChildren; c++) {
+            findBugs(scopeBlocks.getChild(sb, c), usedRegs, subtreeRegs);
+        }
     }
 
     /**
-     * returns the catch handler for a given try block
+     * in some cases the java compiler synthesizes variable for its own purposes. Hopefully when it does this these, can not be found in the localvariable
+     * table. If we find this to be the case, don't report them
      *
-     * @param pc
-     *            the current instruction
-     * @return the pc of the handler for this pc if it's the start of a try block, or -1
+     * @param reg
+     *            the register to check
      *
+     * @return if reg variable appears in the local variable table
      */
-    private int findCatchHandlerFor(int pc) {
-        CodeException[] exceptions = getMethod().getCode().getExceptionTable();
-        if (exceptions != null) {
-            for (CodeException ex : exceptions) {
-                if (ex.getStartPC() == pc) {
-                    return ex.getHandlerPC();
-                }
-            }
+    private boolean appearsToBeUserRegister(int reg) {
+        LocalVariableTable lvt = getMethod().getLocalVariableTable();
+        if (lvt == null) {
+            return false;
         }
 
-        return -1;
+        LocalVariable lv = lvt.getLocalVariable(reg);
+        return lv != null;
     }
 
     /**
-     * holds the description of a scope { } block, be it a for, if, while block
+     * holds the scope { } blocks of a method, be they for, if, while, try, case or synchronized blocks, as a tree kept in flat arrays indexed by block number.
+     * Each block covers the pcs strictly between its start and finish, and the root block, number 0, covers the whole method. As a new block is only ever
+     * placed below blocks that already exist, a block is always numbered after its parent. The arrays are reused from method to method.
      */
-    private class ScopeBlock {
-        private ScopeBlock parent;
-        private int startLocation;
-        private int finishLocation;
-        private boolean isLoop;
-        private boolean isGoto;
-        private boolean isSync;
-        private boolean isTry;
-        private boolean isCase;
-        private Map<Integer, Integer> loads;
-        private Map<Integer, Integer> stores;
-        private Map<UserObject, Integer> assocs;
-        private List<ScopeBlock> children;
+    private static final class ScopeBlocks {
+        static final int ROOT = 0;
+        static final int NONE = -1;
+
+        static final int LOOP = 1;
+        static final int GOTO = 1 << 1;
+        static final int SYNC = 1 << 2;
+        static final int TRY = 1 << 3;
+        static final int CASE = 1 << 4;
+        private static final int REMOVED = 1 << 5;
+
+        private static final int INITIAL_BLOCKS = 32;
+        private static final int INITIAL_CHILDREN = 4;
+
+        private int numBlocks;
+        private int[] starts;
+        private int[] finishes;
+        private int[] parents;
+        private int[] flags;
+        private int[][] children;
+        private int[] numChildren;
+        private RegisterPCs[] loads;
+        private RegisterPCs[] stores;
+        private Map<UserObject, Integer>[] assocs;
+        private int[] walkPath = new int[INITIAL_CHILDREN * 2];
+        private int[] walkNextChild = new int[INITIAL_CHILDREN * 2];
+
+        ScopeBlocks() {
+            allocate(INITIAL_BLOCKS);
+        }
 
         /**
-         * constructs a new scope block
+         * clears out the blocks of the last method, leaving just a root block
          *
-         * @param start
-         *            the beginning of the block
          * @param finish
-         *            the end of the block
+         *            the end of the root block
          */
-        public ScopeBlock(int start, int finish) {
-            parent = null;
-            startLocation = start;
-            finishLocation = finish;
-            isLoop = false;
-            isGoto = false;
-            isSync = false;
-            isTry = false;
-            isCase = false;
-            loads = null;
-            stores = null;
-            assocs = null;
-            children = null;
+        void reset(int finish) {
+            Arrays.fill(children, 0, numBlocks, null);
+            Arrays.fill(loads, 0, numBlocks, null);
+            Arrays.fill(stores, 0, numBlocks, null);
+            Arrays.fill(assocs, 0, numBlocks, null);
+            numBlocks = 0;
+            newBlock(0, finish, 0);
         }
 
         /**
-         * returns a string representation of the scope block
+         * adds a scope block to the tree by finding the correct place in the hierarchy to store it. A block that starts inside an existing block is placed
+         * inside it, cut short to finish with it if need be.
          *
-         * @return a string representation
+         * @param start
+         *            the beginning of the block
+         * @param finish
+         *            the end of the block
+         * @param blockFlags
+         *            what kind of block this is, as LOOP, GOTO, SYNC, TRY or CASE bits
+         * @return the new block
          */
-        @Override
-        public String toString() {
-            return ToString.build(this, "parent");
+        int add(int start, int finish, int blockFlags) {
+            int sb = newBlock(start, finish, blockFlags);
+            int parent = ROOT;
+            descend: while (true) {
+                parents[sb] = parent;
+                int[] siblings = children[parent];
+                if (siblings == null) {
+                    siblings = new int[INITIAL_CHILDREN];
+                    siblings[0] = sb;
+                    children[parent] = siblings;
+                    numChildren[parent] = 1;
+                    return sb;
+                }
+
+                int count = numChildren[parent];
+                for (int i = 0; i < count; i++) {
+                    int child = siblings[i];
+                    if ((start > starts[child]) && (start < finishes[child])) {
+                        if (finishes[sb] > finishes[child]) {
+                            finishes[sb] = finishes[child];
+                        }
+                        parent = child;
+                        continue descend;
+                    }
+                }
+
+                int pos = 0;
+                while ((pos < count) && (start >= starts[siblings[pos]])) {
+                    pos++;
+                }
+                if (count == siblings.length) {
+                    siblings = Arrays.copyOf(siblings, count * 2);
+                    children[parent] = siblings;
+                }
+                System.arraycopy(siblings, pos, siblings, pos + 1, count - pos);
+                siblings[pos] = sb;
+                numChildren[parent] = count + 1;
+                return sb;
+            }
         }
 
         /**
-         * returns the scope blocks parent
+         * detaches a childless block from its parent, and so from the tree
          *
-         * @return the parent of this scope block
+         * @param sb
+         *            the block to remove
          */
-        public ScopeBlock getParent() {
-            return parent;
+        void remove(int sb) {
+            flags[sb] |= REMOVED;
+            int parent = parents[sb];
+            if (parent == NONE) {
+                return;
+            }
+
+            int[] siblings = children[parent];
+            int count = numChildren[parent];
+            for (int i = 0; i < count; i++) {
+                if (siblings[i] == sb) {
+                    System.arraycopy(siblings, i + 1, siblings, i, count - i - 1);
+                    numChildren[parent] = count - 1;
+                    return;
+                }
+            }
         }
 
         /**
-         * returns the children of this scope block
+         * returns the innermost scope block containing a pc, by descending into the first child that contains it at each level of the tree
          *
-         * @return the scope blocks children
+         * @param pc
+         *            the current program counter
+         * @return the scope block or NONE if not found
          */
-        public List<ScopeBlock> getChildren() {
-            return children;
+        int find(int pc) {
+            if (!contains(ROOT, pc)) {
+                return NONE;
+            }
+
+            int sb = ROOT;
+            descend: while (true) {
+                int count = numChildren[sb];
+                for (int i = 0; i < count; i++) {
+                    int child = children[sb][i];
+                    if (contains(child, pc)) {
+                        sb = child;
+                        continue descend;
+                    }
+                }
+                return sb;
+            }
         }
 
-        /**
-         * returns the start of the block
-         *
-         * @return the start of the block
-         */
-        public int getStart() {
-            return startLocation;
+        private boolean contains(int sb, int pc) {
+            return (pc > starts[sb]) && (pc < finishes[sb]);
         }
 
         /**
-         * returns the end of the block
+         * returns an existing scope block that has the same target as the one looked for. A block that is open at start, and finishes by the target, or was
+         * caused by a goto, qualifies, and the first qualifying block in a walk of the tree that visits children before their parent is returned.
          *
-         * @return the end of the block
+         * @param start
+         *            the current pc
+         * @param target
+         *            the target to look for
+         *
+         * @return the scope block found or NONE
          */
-        public int getFinish() {
-            return finishLocation;
+        int findWithTarget(int start, int target) {
+            int[] path = walkPath;
+            int[] nextChild = walkNextChild;
+            int depth = 0;
+            path[0] = ROOT;
+            nextChild[0] = 0;
+
+            while (depth >= 0) {
+                int sb = path[depth];
+                int c = nextChild[depth];
+                if (c < numChildren[sb]) {
+                    nextChild[depth] = c + 1;
+                    depth++;
+                    if (depth == path.length) {
+                        path = Arrays.copyOf(path, depth * 2);
+                        nextChild = Arrays.copyOf(nextChild, depth * 2);
+                        walkPath = path;
+                        walkNextChild = nextChild;
+                    }
+                    path[depth] = children[sb][c];
+                    nextChild[depth] = 0;
+                } else {
+                    int finish = finishes[sb];
+                    if ((starts[sb] < start) && (finish >= start) && ((finish <= target) || ((flags[sb] & (GOTO | LOOP)) == GOTO))) {
+                        return sb;
+                    }
+                    depth--;
+                }
+            }
+            return NONE;
         }
 
         /**
-         * sets the start pc of the block
+         * looks for the scope block that has the same parent as this given one, but precedes it among the parent's children.
          *
-         * @param start
-         *            the start pc
+         * @param sb
+         *            the scope block to look for the previous scope block
+         * @return the previous sibling scope block, or NONE if doesn't exist
          */
-        public void setStart(int start) {
-            startLocation = start;
+        int findPreviousSibling(int sb) {
+            int parent = parents[sb];
+            if (parent == NONE) {
+                return NONE;
+            }
+
+            int lastSibling = NONE;
+            int count = numChildren[parent];
+            for (int i = 0; i < count; i++) {
+                int sibling = children[parent][i];
+                if (sibling == sb) {
+                    return lastSibling;
+                }
+                lastSibling = sibling;
+            }
+
+            return NONE;
         }
 
         /**
-         * sets the finish pc of the block
+         * finds the scope block that is the active synchronized block
          *
-         * @param finish
-         *            the finish pc
+         * @param sb
+         *            the parent scope block to start with
+         * @return the scope block
          */
-        public void setFinish(int finish) {
-            finishLocation = finish;
+        int findSynchronized(int sb) {
+            int monitorBlock = sb;
+
+            int count = numChildren[sb];
+            for (int i = 0; i < count; i++) {
+                int child = children[sb][i];
+                if (is(child, SYNC) && (starts[child] > starts[monitorBlock])) {
+                    monitorBlock = findSynchronized(child);
+                }
+            }
+
+            return monitorBlock;
         }
 
-        public boolean hasChildren() {
-            return children != null;
+        int getStart(int sb) {
+            return starts[sb];
         }
 
-        /**
-         * sets that this block is a loop
-         */
-        public void setLoop() {
-            isLoop = true;
+        void setStart(int sb, int start) {
+            starts[sb] = start;
         }
 
-        /**
-         * returns whether this scope block is a loop
-         *
-         * @return whether this block is a loop
-         */
-        public boolean isLoop() {
-            return isLoop;
+        int getFinish(int sb) {
+            return finishes[sb];
         }
 
-        /**
-         * sets that this block was caused from a goto, (an if block exit)
-         */
-        public void setGoto() {
-            isGoto = true;
+        void setFinish(int sb, int finish) {
+            finishes[sb] = finish;
+        }
+
+        int getParent(int sb) {
+            return parents[sb];
         }
 
         /**
-         * returns whether this block was caused from a goto
+         * returns whether a block is any of the given kinds
          *
-         * @return whether this block was caused by a goto
+         * @param sb
+         *            the block to check
+         * @param blockFlags
+         *            LOOP, GOTO, SYNC, TRY or CASE bits
+         * @return whether the block has any of the bits set
          */
-        public boolean isGoto() {
-            return isGoto;
+        boolean is(int sb, int blockFlags) {
+            return (flags[sb] & blockFlags) != 0;
         }
 
-        /**
-         * sets that this block was caused from a synchronized block
-         */
-        public void setSync() {
-            isSync = true;
+        void set(int sb, int blockFlags) {
+            flags[sb] |= blockFlags;
         }
 
         /**
-         * returns whether this block was caused from a synchronized block
+         * returns whether a block has ever had children, even if they have since been removed
          *
-         * @return whether this block was caused by a synchronized block
+         * @param sb
+         *            the block to check
+         * @return whether children have been added to the block
          */
-        public boolean isSync() {
-            return isSync;
+        boolean hasChildren(int sb) {
+            return children[sb] != null;
         }
 
-        /**
-         * sets that this block was caused from a try block
-         */
-        public void setTry() {
-            isTry = true;
+        int getNumChildren(int sb) {
+            return numChildren[sb];
         }
 
-        /**
-         * returns whether this block was caused from a try block
-         *
-         * @return whether this block was caused by a try block
-         */
-        public boolean isTry() {
-            return isTry;
+        int getChild(int sb, int index) {
+            return children[sb][index];
         }
 
-        /**
-         * sets that this block was caused from a case block
-         */
-        public void setCase() {
-            isCase = true;
+        @Nullable
+        RegisterPCs getLoads(int sb) {
+            return loads[sb];
         }
 
-        /**
-         * returns whether this block was caused from a case block
-         *
-         * @return whether this block was caused by a case block
-         */
-        public boolean isCase() {
-            return isCase;
+        @Nullable
+        RegisterPCs getStores(int sb) {
+            return stores[sb];
         }
 
         /**
          * adds the register as a store in this scope block
          *
+         * @param sb
+         *            the block in which the store happened
          * @param reg
          *            the register that was stored
          * @param pc
@@ -952,245 +1033,246 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
          * @param assocObject
          *            the the object that is associated with this store, usually the field from which this came
          */
-        public void addStore(int reg, int pc, UserObject assocObject) {
-            if (stores == null) {
-                stores = new HashMap<>(6);
+        void addStore(int sb, int reg, int pc, UserObject assocObject) {
+            if (stores[sb] == null) {
+                stores[sb] = new RegisterPCs();
             }
-
-            stores.put(Integer.valueOf(reg), Integer.valueOf(pc));
+            stores[sb].put(reg, pc);
 
             if (assocObject != null) {
-                if (assocs == null) {
-                    assocs = new HashMap<>(6);
-                }
-                assocs.put(assocObject, Integer.valueOf(reg));
-            }
-        }
-
-        /**
-         * removes stores to registers that where retrieved from method calls on assocObject
-         *
-         * @param assocObject
-         *            the object that a method call was just performed on
-         */
-        public void removeByAssoc(Object assocObject) {
-            if (assocs != null) {
-                Integer reg = assocs.remove(assocObject);
-                if (reg != null) {
-                    if (loads != null) {
-                        loads.remove(reg);
-                    }
-                    if (stores != null) {
-                        stores.remove(reg);
-                    }
+                if (assocs[sb] == null) {
+                    assocs[sb] = new HashMap<>(6);
                 }
+                assocs[sb].put(assocObject, Integer.valueOf(reg));
             }
         }
 
         /**
          * adds the register as a load in this scope block
          *
+         * @param sb
+         *            the block in which the load happened
          * @param reg
          *            the register that was loaded
          * @param pc
          *            the instruction that did the load
          */
-        public void addLoad(int reg, int pc) {
-            if (loads == null) {
-                loads = new HashMap<>(10);
+        void addLoad(int sb, int reg, int pc) {
+            if (loads[sb] == null) {
+                loads[sb] = new RegisterPCs();
             }
-
-            loads.put(Integer.valueOf(reg), Integer.valueOf(pc));
+            loads[sb].put(reg, pc);
         }
 
         /**
-         * adds a scope block to this subtree by finding the correct place in the hierarchy to store it
+         * removes stores to registers that where retrieved from method calls on assocObject
          *
-         * @param newChild
-         *            the scope block to add to the tree
+         * @param sb
+         *            the block in which the call happened
+         * @param assocObject
+         *            the object that a method call was just performed on
          */
-        public void addChild(ScopeBlock newChild) {
-            newChild.parent = this;
-
-            if (children != null) {
-                for (ScopeBlock child : children) {
-                    if ((newChild.startLocation > child.startLocation) && (newChild.startLocation < child.finishLocation)) {
-                        if (newChild.finishLocation > child.finishLocation) {
-                            newChild.finishLocation = child.finishLocation;
-                        }
-                        child.addChild(newChild);
-                        return;
+        void removeByAssoc(int sb, Object assocObject) {
+            if (assocs[sb] != null) {
+                Integer reg = assocs[sb].remove(assocObject);
+                if (reg != null) {
+                    if (loads[sb] != null) {
+                        loads[sb].remove(reg.intValue());
                     }
-                }
-                int pos = 0;
-                for (ScopeBlock child : children) {
-                    if (newChild.startLocation < child.startLocation) {
-                        children.add(pos, newChild);
-                        return;
+                    if (stores[sb] != null) {
+                        stores[sb].remove(reg.intValue());
                     }
-                    pos++;
                 }
-                children.add(newChild);
-                return;
-            }
-            children = new ArrayList<>();
-            children.add(newChild);
-        }
-
-        /**
-         * removes a child from this node
-         *
-         * @param child
-         *            the child to remove
-         */
-        public void removeChild(ScopeBlock child) {
-            if (children != null) {
-                children.remove(child);
             }
         }
 
-        public void markFieldAssociatedWrites(int sourceReg) {
-            if (assocs != null) {
-                for (Map.Entry<UserObject, Integer> entry : assocs.entrySet()) {
+        void markFieldAssociatedWrites(int sb, int sourceReg) {
+            if ((assocs[sb] != null) && (stores[sb] != null)) {
+                for (Map.Entry<UserObject, Integer> entry : assocs[sb].entrySet()) {
                     UserObject uo = entry.getKey();
                     if ((uo.registerSource == sourceReg) || ((uo.caller instanceof Integer) && (((Integer) uo.caller).intValue() == sourceReg))) {
-                        Integer preWrittenFromField = entry.getValue();
-                        if ((preWrittenFromField != null) && (stores != null)) {
-                            stores.remove(preWrittenFromField);
-                        }
+                        stores[sb].remove(entry.getValue().intValue());
                     }
                 }
             }
         }
 
         /**
-         * report stores that occur at scopes higher than associated loads that are not involved with loops
+         * push all loads and stores of this block up to the parent
          *
-         * @param parentUsedRegs
-         *            the set of registers that where used by the parent scope block
+         * @param sb
+         *            the block whose loads and stores are moved
          */
-        public void findBugs(Set<Integer> parentUsedRegs) {
-            if (isLoop) {
-                return;
-            }
-
-            Set<Integer> usedRegs = new HashSet<>(parentUsedRegs);
-            if (stores != null) {
-                usedRegs.addAll(stores.keySet());
-            }
-            if (loads != null) {
-                usedRegs.addAll(loads.keySet());
+        void pushUpLoadStores(int sb) {
+            int parent = parents[sb];
+            if (parent != NONE) {
+                if (loads[sb] != null) {
+                    if (loads[parent] != null) {
+                        loads[parent].putAll(loads[sb]);
+                    } else {
+                        loads[parent] = loads[sb];
+                    }
+                }
+                if (stores[sb] != null) {
+                    if (stores[parent] != null) {
+                        stores[parent].putAll(stores[sb]);
+                    } else {
+                        stores[parent] = stores[sb];
+                    }
+                }
+                loads[sb] = null;
+                stores[sb] = null;
             }
+        }
 
-            if (stores != null) {
-                if (loads != null) {
-                    stores.keySet().removeAll(loads.keySet());
+        /**
+         * collects, for each block in the tree, the registers loaded or stored in it or any block below it. As children are numbered after their parents, this
+         * is one pass from the last block back to the root.
+         *
+         * @return the registers used by each block and its children, indexed by block
+         */
+        BitSet[] collectSubtreeRegisters() {
+            BitSet[] used = new BitSet[numBlocks];
+            for (int sb = numBlocks - 1; sb >= 0; sb--) {
+                if (used[sb] == null) {
+                    used[sb] = new BitSet();
                 }
-                stores.keySet().removeAll(parentUsedRegs);
-                for (int r = ignoreRegs.nextSetBit(0); r >= 0; r = ignoreRegs.nextSetBit(r + 1)) {
-                    stores.remove(Integer.valueOf(r));
+                if (loads[sb] != null) {
+                    loads[sb].addRegistersTo(used[sb]);
+                }
+                if (stores[sb] != null) {
+                    stores[sb].addRegistersTo(used[sb]);
                 }
 
-                if ((children != null) && !stores.isEmpty()) {
-                    for (Map.Entry<Integer, Integer> entry : stores.entrySet()) {
-                        int childUseCount = 0;
-                        boolean inIgnoreSB = false;
-                        Integer reg = entry.getKey();
-                        for (ScopeBlock child : children) {
-                            if (child.usesReg(reg)) {
-                                if (child.isLoop || child.isSync() || child.isTry()) {
-                                    inIgnoreSB = true;
-                                    break;
-                                }
-                                childUseCount++;
-                            }
-                        }
-                        if (!inIgnoreSB && (childUseCount == 1)) {
-                            if (appearsToBeUserRegister(reg)) {
-                                bugReporter.reportBug(new BugInstance(BloatedAssignmentScope.this, BugType.BAS_BLOATED_ASSIGNMENT_SCOPE.name(), NORMAL_PRIORITY)
-                                        .addClass(BloatedAssignmentScope.this).addMethod(BloatedAssignmentScope.this)
-                                        .addSourceLine(BloatedAssignmentScope.this, entry.getValue().intValue()));
-                            }
-                        }
+                int parent = parents[sb];
+                if ((parent != NONE) && ((flags[sb] & REMOVED) == 0)) {
+                    if (used[parent] == null) {
+                        used[parent] = new BitSet();
                     }
+                    used[parent].or(used[sb]);
                 }
             }
+            return used;
+        }
 
-            if (children != null) {
-                for (ScopeBlock child : children) {
-                    child.findBugs(usedRegs);
-                }
+        private int newBlock(int start, int finish, int blockFlags) {
+            if (numBlocks == starts.length) {
+                grow();
             }
+
+            int sb = numBlocks++;
+            starts[sb] = start;
+            finishes[sb] = finish;
+            parents[sb] = NONE;
+            flags[sb] = blockFlags;
+            numChildren[sb] = 0;
+            return sb;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void allocate(int capacity) {
+            starts = new int[capacity];
+            finishes = new int[capacity];
+            parents = new int[capacity];
+            flags = new int[capacity];
+            children = new int[capacity][];
+            numChildren = new int[capacity];
+            loads = new RegisterPCs[capacity];
+            stores = new RegisterPCs[capacity];
+            assocs = new Map[capacity];
+        }
+
+        private void grow() {
+            int capacity = starts.length * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            finishes = Arrays.copyOf(finishes, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            children = Arrays.copyOf(children, capacity);
+            numChildren = Arrays.copyOf(numChildren, capacity);
+            loads = Arrays.copyOf(loads, capacity);
+            stores = Arrays.copyOf(stores, capacity);
+            assocs = Arrays.copyOf(assocs, capacity);
         }
 
-        /**
-         * in some cases the java compiler synthesizes variable for its own purposes. Hopefully when it does this these, can not be found in the localvariable
-         * table. If we find this to be the case, don't report them
-         *
-         * @param reg
-         *            the register to check
-         *
-         * @return if reg variable appears in the local variable table
-         */
-        private boolean appearsToBeUserRegister(int reg) {
-            LocalVariableTable lvt = getMethod().getLocalVariableTable();
-            if (lvt == null) {
-                return false;
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+
+    /**
+     * a map from register to the pc of its last load or store in a scope block, kept in two int arrays, as a block only touches a handful of registers
+     */
+    private static final class RegisterPCs {
+        private int[] registers = new int[4];
+        private int[] pcs = new int[4];
+        private int size;
+
+        void put(int reg, int pc) {
+            int index = indexOf(reg);
+            if (index >= 0) {
+                pcs[index] = pc;
+                return;
             }
 
-            LocalVariable lv = lvt.getLocalVariable(reg);
-            return lv != null;
+            if (size == registers.length) {
+                registers = Arrays.copyOf(registers, size * 2);
+                pcs = Arrays.copyOf(pcs, size * 2);
+            }
+            registers[size] = reg;
+            pcs[size++] = pc;
         }
 
-        /**
-         * returns whether this block either loads or stores into the register in question
-         *
-         * @param reg
-         *            the register to look for loads or stores
-         *
-         * @return whether the block uses the register
-         */
-        public boolean usesReg(Integer reg) {
-            if ((loads != null) && loads.containsKey(reg)) {
-                return true;
-            }
-            if ((stores != null) && stores.containsKey(reg)) {
-                return true;
+        void putAll(RegisterPCs other) {
+            for (int i = 0; i < other.size; i++) {
+                put(other.registers[i], other.pcs[i]);
             }
+        }
 
-            if (children != null) {
-                for (ScopeBlock child : children) {
-                    if (child.usesReg(reg)) {
-                        return true;
-                    }
-                }
+        void remove(int reg) {
+            int index = indexOf(reg);
+            if (index >= 0) {
+                size--;
+                registers[index] = registers[size];
+                pcs[index] = pcs[size];
             }
+        }
 
-            return false;
+        boolean containsKey(int reg) {
+            return indexOf(reg) >= 0;
         }
 
-        /**
-         * push all loads and stores to this block up to the parent
-         */
-        public void pushUpLoadStores() {
-            if (parent != null) {
-                if (loads != null) {
-                    if (parent.loads != null) {
-                        parent.loads.putAll(loads);
-                    } else {
-                        parent.loads = loads;
-                    }
-                }
-                if (stores != null) {
-                    if (parent.stores != null) {
-                        parent.stores.putAll(stores);
-                    } else {
-                        parent.stores = stores;
-                    }
+        int size() {
+            return size;
+        }
+
+        int getRegister(int index) {
+            return registers[index];
+        }
+
+        int getPC(int index) {
+            return pcs[index];
+        }
+
+        void addRegistersTo(BitSet regs) {
+            for (int i = 0; i < size; i++) {
+                regs.set(registers[i]);
+            }
+        }
+
+        private int indexOf(int reg) {
+            for (int i = 0; i < size; i++) {
+                if (registers[i] == reg) {
+                    return i;
                 }
-                loads = null;
-                stores = null;
             }
+            return -1;
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
         }
     }
 
@@ -1207,15 +1289,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
             return true;
         }
 
-        String sig = key.toFQMethodSignature();
-        for (Pattern p : dangerousAssignmentMethodPatterns) {
-            Matcher m = p.matcher(sig);
-            if (m.matches()) {
-                return true;
-            }
-        }
-
-        return false;
+        return dangerousAssignmentMethodPatterns.anyMatch(key.toFQMethodSignature());
     }
 
     public boolean isRiskyStoreClass(int reg) {
@@ -0,0 +1,448 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.detect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Attribute;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.Field;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.LocalVariable;
+import org.apache.bcel.classfile.LocalVariableTypeTable;
+
+import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ConstantPoolInterest;
+import com.mebigfatguy.fbcontrib.utils.ControlFlowSummary;
+import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
+import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
+import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.TernaryPatcher;
+import com.mebigfatguy.fbcontrib.utils.ToString;
+import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
+import com.mebigfatguy.fbcontrib.utils.Values;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.MethodAnnotation;
+import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.OpcodeStack.CustomUserValue;
+import edu.umd.cs.findbugs.SourceLineAnnotation;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.ba.XField;
+
+/**
+ * looks for private fields and local variables holding java.util collections whose generic type arguments are all boxed primitives, such as a
+ * Map&lt;Integer, Long&gt; of counters or a List&lt;Integer&gt; buffer, where the elements going in are boxed with valueOf, and the elements coming out are
+ * unboxed again. Each such element costs a box object as well as the reference to it, so a collection of primitives, or a plain array, would hold the same
+ * data in a fraction of the memory, without the garbage. Collections whose boxing traffic happens inside a loop are reported at a higher priority.
+ */
+@CustomUserValue
+public class BoxedCollectionElements extends BytecodeScanningDetector {
+
+    private static final ConstantPoolInterest BOXED_GENERIC_INTEREST = ConstantPoolInterest.of("<Ljava/lang/Integer;", "<Ljava/lang/Long;",
+            "<Ljava/lang/Short;", "<Ljava/lang/Byte;", "<Ljava/lang/Character;", "<Ljava/lang/Float;", "<Ljava/lang/Double;");
+
+    private static final Set<String> COLLECTION_CLASSES = UnmodifiableSet.create("java/util/Collection", "java/util/List", "java/util/ArrayList",
+            "java/util/LinkedList", "java/util/Set", "java/util/HashSet", "java/util/LinkedHashSet", "java/util/SortedSet", "java/util/NavigableSet",
+            "java/util/TreeSet", "java/util/Queue", "java/util/Deque", "java/util/ArrayDeque", "java/util/Map", "java/util/HashMap",
+            "java/util/LinkedHashMap", "java/util/SortedMap", "java/util/NavigableMap", "java/util/TreeMap", "java/util/concurrent/ConcurrentMap",
+            "java/util/concurrent/ConcurrentHashMap");
+
+    /** boxed class, bytes a box of it takes on a 64 bit vm with compressed oops */
+    private static final Map<String, Integer> BOX_SIZES;
+
+    static {
+        Integer small = Integer.valueOf(16);
+        Integer large = Integer.valueOf(24);
+        Map<String, Integer> sizes = new HashMap<>();
+        sizes.put(Values.SLASHED_JAVA_LANG_BYTE, small);
+        sizes.put(Values.SLASHED_JAVA_LANG_SHORT, small);
+        sizes.put(Values.SLASHED_JAVA_LANG_CHARACTER, small);
+        sizes.put(Values.SLASHED_JAVA_LANG_INTEGER, small);
+        sizes.put(Values.SLASHED_JAVA_LANG_FLOAT, small);
+        sizes.put(Values.SLASHED_JAVA_LANG_LONG, large);
+        sizes.put(Values.SLASHED_JAVA_LANG_DOUBLE, large);
+        BOX_SIZES = Collections.unmodifiableMap(sizes);
+    }
+
+    private static final String SIG_OBJECT = "Ljava/lang/Object;";
+    private static final String SIG_ITERATOR = "Ljava/util/Iterator;";
+    private static final String SIG_LIST_ITERATOR = "Ljava/util/ListIterator;";
+    private static final int MIN_BOXING_TRAFFIC = 2;
+
+    private final BugReporter bugReporter;
+    private OpcodeStack stack;
+    /** field name, traffic through that field */
+    private Map<String, BoxingTraffic> fieldTraffic;
+    private List<LocalVariable> boxedLocals;
+    private List<BoxingTraffic> localTraffic;
+    /** register, traffic of the collection whose iterator is stored there */
+    private Map<Integer, BoxingTraffic> iteratorRegisters;
+
+    /**
+     * constructs a BCE detector given the reporter to report bugs on
+     *
+     * @param bugReporter
+     *            the sync of bug reports
+     */
+    public BoxedCollectionElements(BugReporter bugReporter) {
+        this.bugReporter = bugReporter;
+    }
+
+    /**
+     * overrides the visitor to only look at classes that mention a boxed type argument, collect the private fields that are collections of boxed
+     * primitives, and report on those fields once all the methods have been seen
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     */
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        JavaClass cls = classContext.getJavaClass();
+        if (!BOXED_GENERIC_INTEREST.isInterestedIn(cls)) {
+            return;
+        }
+
+        try {
+            fieldTraffic = new HashMap<>();
+            for (Field f : cls.getFields()) {
+                if (f.isPrivate()) {
+                    List<String> typeArgs = getBoxedTypeArguments(f.getGenericSignature());
+                    if (typeArgs != null) {
+                        fieldTraffic.put(f.getName(), new BoxingTraffic(f.getName(), typeArgs));
+                    }
+                }
+            }
+
+            stack = new OpcodeStack();
+            boxedLocals = new ArrayList<>();
+            localTraffic = new ArrayList<>();
+            iteratorRegisters = new HashMap<>();
+            super.visitClassContext(classContext);
+
+            for (Field f : cls.getFields()) {
+                BoxingTraffic traffic = fieldTraffic.get(f.getName());
+                if ((traffic != null) && traffic.isDominatedByBoxing()) {
+                    bugReporter.reportBug(traffic.toBugInstance(new BugInstance(this, BugType.BCE_BOXED_COLLECTION_ELEMENTS.name(), traffic.getPriority())
+                            .addClass(cls)).addField(cls.getClassName(), f.getName(), f.getSignature(), f.isStatic()));
+                }
+            }
+        } finally {
+            stack = null;
+            fieldTraffic = null;
+            boxedLocals = null;
+            localTraffic = null;
+            iteratorRegisters = null;
+        }
+    }
+
+    /**
+     * implements the visitor to find the local variables of the method, other than its parameters, that are collections of boxed primitives, and to report
+     * on them once the method has been seen
+     *
+     * @param obj
+     *            the context object of the currently parsed code block
+     */
+    @Override
+    public void visitCode(Code obj) {
+        boxedLocals.clear();
+        localTraffic.clear();
+        int firstLocal = SignatureUtils.getFirstRegisterSlot(getMethod());
+        for (Attribute attribute : obj.getAttributes()) {
+            if (attribute instanceof LocalVariableTypeTable) {
+                for (LocalVariable lv : ((LocalVariableTypeTable) attribute).getLocalVariableTypeTable()) {
+                    if (lv.getIndex() >= firstLocal) {
+                        List<String> typeArgs = getBoxedTypeArguments(lv.getSignature());
+                        if (typeArgs != null) {
+                            boxedLocals.add(lv);
+                            localTraffic.add(new BoxingTraffic(lv.getName(), typeArgs));
+                        }
+                    }
+                }
+            }
+        }
+
+        if (boxedLocals.isEmpty() && fieldTraffic.isEmpty()) {
+            return;
+        }
+
+        stack.resetForMethodEntry(this);
+        iteratorRegisters.clear();
+        super.visitCode(obj);
+
+        for (BoxingTraffic traffic : localTraffic) {
+            if (traffic.isDominatedByBoxing()) {
+                bugReporter.reportBug(traffic.toBugInstance(new BugInstance(this, BugType.BCE_BOXED_COLLECTION_ELEMENTS.name(), traffic.getPriority())
+                        .addClass(this)));
+            }
+        }
+    }
+
+    /**
+     * implements the visitor to count the elements that are boxed on their way into a tracked collection, or unboxed on their way out of it
+     *
+     * @param seen
+     *            the opcode of the currently parsed instruction
+     */
+    @Override
+    public void sawOpcode(int seen) {
+        Object userValue = null;
+        try {
+            stack.precomputation(this);
+
+            switch (seen) {
+                case Const.INVOKEINTERFACE:
+                case Const.INVOKEVIRTUAL:
+                    userValue = sawInstanceCall();
+                break;
+
+                case Const.INVOKESTATIC:
+                    if (isBoxingCall()) {
+                        userValue = Boolean.TRUE;
+                    }
+                break;
+
+                case Const.CHECKCAST:
+                    if (stack.getStackDepth() > 0) {
+                        userValue = stack.getStackItem(0).getUserValue();
+                    }
+                break;
+
+                default:
+                    if (OpcodeUtils.isAStore(seen) && (stack.getStackDepth() > 0)) {
+                        sawAStore(seen);
+                    }
+                break;
+            }
+        } finally {
+            TernaryPatcher.pre(stack, seen);
+            stack.sawOpcode(this, seen);
+            TernaryPatcher.post(stack, seen);
+            if ((userValue != null) && (stack.getStackDepth() > 0)) {
+                stack.getStackItem(0).setUserValue(userValue);
+            }
+        }
+    }
+
+    /**
+     * remembers the registers that iterators of tracked collections are stored in, as the user value of the iterator does not survive the merge at the
+     * top of the loop that walks it
+     *
+     * @param seen
+     *            the astore opcode of the currently parsed instruction
+     */
+    private void sawAStore(int seen) {
+        Integer reg = Integer.valueOf(RegisterUtils.getAStoreReg(this, seen));
+        Object userValue = stack.getStackItem(0).getUserValue();
+        if (userValue instanceof BoxingTraffic) {
+            iteratorRegisters.put(reg, (BoxingTraffic) userValue);
+        } else {
+            iteratorRegisters.remove(reg);
+        }
+    }
+
+    /**
+     * looks at a call on an object, counting boxed elements passed to a tracked collection, and unboxing of elements taken from one
+     *
+     * @return the traffic to tag the result of the call with, when it is an element or iterator of a tracked collection
+     */
+    private Object sawInstanceCall() {
+        String sig = getSigConstantOperand();
+        int numParms = SignatureUtils.getNumParameters(sig);
+        if (stack.getStackDepth() <= numParms) {
+            return null;
+        }
+
+        OpcodeStack.Item receiver = stack.getStackItem(numParms);
+        Object receiverValue = receiver.getUserValue();
+        if ((receiverValue == null) && (receiver.getRegisterNumber() >= 0)) {
+            receiverValue = iteratorRegisters.get(Integer.valueOf(receiver.getRegisterNumber()));
+        }
+        if (receiverValue instanceof BoxingTraffic) {
+            BoxingTraffic traffic = (BoxingTraffic) receiverValue;
+            String methodName = getNameConstantOperand();
+            if ("next".equals(methodName) || "previous".equals(methodName)) {
+                return traffic;
+            }
+            if (BOX_SIZES.containsKey(getClassConstantOperand()) && methodName.endsWith("Value")) {
+                traffic.sawBoxingTraffic(this);
+            }
+            return null;
+        }
+
+        BoxingTraffic traffic = findTraffic(receiver);
+        if (traffic == null) {
+            return null;
+        }
+
+        List<String> parmSigs = SignatureUtils.getParameterSignatures(sig);
+        for (int i = 0; i < numParms; i++) {
+            if (SIG_OBJECT.equals(parmSigs.get(i))) {
+                if (Boolean.TRUE.equals(stack.getStackItem(numParms - i - 1).getUserValue())) {
+                    traffic.sawBoxingTraffic(this);
+                } else {
+                    traffic.sawPassThrough();
+                }
+            }
+        }
+
+        String returnSig = SignatureUtils.getReturnSignature(sig);
+        if (SIG_OBJECT.equals(returnSig) || SIG_ITERATOR.equals(returnSig) || SIG_LIST_ITERATOR.equals(returnSig)) {
+            return traffic;
+        }
+        return null;
+    }
+
+    /**
+     * returns the traffic of the private field or local variable the receiver of a call was loaded from, if it is a tracked collection
+     *
+     * @param receiver
+     *            the object a method is called on
+     * @return the traffic of the collection, or null if it isn't tracked
+     */
+    private BoxingTraffic findTraffic(OpcodeStack.Item receiver) {
+        XField field = receiver.getXField();
+        if (field != null) {
+            return getDottedClassName().equals(field.getClassName()) ? fieldTraffic.get(field.getName()) : null;
+        }
+
+        int reg = receiver.getRegisterNumber();
+        if (reg >= 0) {
+            int pc = getPC();
+            for (int i = 0; i < boxedLocals.size(); i++) {
+                LocalVariable lv = boxedLocals.get(i);
+                if ((lv.getIndex() == reg) && (pc >= lv.getStartPC()) && (pc < (lv.getStartPC() + lv.getLength()))) {
+                    return localTraffic.get(i);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * returns whether the current static call boxes a primitive, such as Integer.valueOf(int)
+     *
+     * @return whether a primitive is boxed
+     */
+    private boolean isBoxingCall() {
+        if (!"valueOf".equals(getNameConstantOperand()) || !BOX_SIZES.containsKey(getClassConstantOperand())) {
+            return false;
+        }
+
+        List<String> parmSigs = SignatureUtils.getParameterSignatures(getSigConstantOperand());
+        return (parmSigs.size() == 1) && SignatureUtils.PRIMITIVE_TYPES.contains(parmSigs.get(0));
+    }
+
+    /**
+     * parses a generic signature of a java.util collection, such as Ljava/util/Map&lt;Ljava/lang/Integer;Ljava/lang/Long;&gt;;, into its type arguments, if
+     * they are all boxed primitives
+     *
+     * @param genericSignature
+     *            the generic signature of a field or local variable
+     * @return the slashed class names of the type arguments, or null if this isn't a collection of boxed primitives
+     */
+    private static List<String> getBoxedTypeArguments(String genericSignature) {
+        if ((genericSignature == null) || !genericSignature.startsWith(Values.SIG_QUALIFIED_CLASS_PREFIX) || !genericSignature.endsWith(">;")) {
+            return null;
+        }
+
+        int argsStart = genericSignature.indexOf('<');
+        if (!COLLECTION_CLASSES.contains(genericSignature.substring(1, argsStart))) {
+            return null;
+        }
+
+        List<String> typeArgs = new ArrayList<>(2);
+        String args = genericSignature.substring(argsStart + 1, genericSignature.length() - 2);
+        for (String arg : args.split(";")) {
+            if (!arg.startsWith(Values.SIG_QUALIFIED_CLASS_PREFIX) || !BOX_SIZES.containsKey(arg.substring(1))) {
+                return null;
+            }
+            typeArgs.add(arg.substring(1));
+        }
+        return typeArgs;
+    }
+
+    /**
+     * holds how often elements of one collection are boxed going in or unboxed coming out, and how often they are passed through as objects
+     */
+    static class BoxingTraffic {
+        private final String name;
+        private final List<String> typeArgs;
+        private int boxingTraffic;
+        private int passThroughs;
+        private boolean inLoop;
+        private MethodAnnotation firstMethod;
+        private SourceLineAnnotation firstLine;
+
+        BoxingTraffic(String name, List<String> typeArgs) {
+            this.name = name;
+            this.typeArgs = typeArgs;
+        }
+
+        void sawBoxingTraffic(BytecodeScanningDetector detector) {
+            if (firstMethod == null) {
+                firstMethod = MethodAnnotation.fromVisitedMethod(detector);
+                firstLine = SourceLineAnnotation.fromVisitedInstruction(detector);
+            }
+            boxingTraffic++;
+            inLoop |= ControlFlowSummary.of(detector.getCode()).isInLoop(detector.getPC());
+        }
+
+        void sawPassThrough() {
+            passThroughs++;
+        }
+
+        boolean isDominatedByBoxing() {
+            return (boxingTraffic >= MIN_BOXING_TRAFFIC) && (boxingTraffic > passThroughs);
+        }
+
+        int getPriority() {
+            return inLoop ? NORMAL_PRIORITY : LOW_PRIORITY;
+        }
+
+        /**
+         * adds the method, collection name, element types and the bytes the boxes of one element may take, to a bug instance that already has its class
+         */
+        BugInstance toBugInstance(BugInstance bug) {
+            StringBuilder types = new StringBuilder();
+            int boxBytes = 0;
+            for (String typeArg : typeArgs) {
+                if (types.length() > 0) {
+                    types.append(", ");
+                }
+                types.append(typeArg.substring(typeArg.lastIndexOf('/') + 1));
+                boxBytes += BOX_SIZES.get(typeArg).intValue();
+            }
+            return bug.addMethod(firstMethod).addString(name).addString(types.toString()).addInt(boxBytes).add(firstLine);
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.SubtypeCache;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
 import edu.umd.cs.findbugs.BugInstance;
@@ -81,7 +82,7 @@ public class CloneUsability extends BytecodeScanningDetector {
 
         try {
             cls = classContext.getJavaClass();
-            if (cls.implementationOf(cloneClass)) {
+            if (SubtypeCache.instance().isSubtype(cls, cloneClass)) {
                 clsName = cls.getClassName();
                 stack = new OpcodeStack();
                 super.visitClassContext(classContext);
@@ -114,8 +115,7 @@ public class CloneUsability extends BytecodeScanningDetector {
                         bugReporter.reportBug(
                                 new BugInstance(this, BugType.CU_CLONE_USABILITY_OBJECT_RETURN.name(), NORMAL_PRIORITY).addClass(this).addMethod(this));
                     } else {
-                        JavaClass clonedClass = Repository.lookupClass(returnClsName);
-                        if (!cls.instanceOf(clonedClass)) {
+                        if (!SubtypeCache.instance().isSubtype(clsName, returnClsName)) {
                             bugReporter.reportBug(
                                     new BugInstance(this, BugType.CU_CLONE_USABILITY_MISMATCHED_RETURN.name(), HIGH_PRIORITY).addClass(this).addMethod(this));
                         }
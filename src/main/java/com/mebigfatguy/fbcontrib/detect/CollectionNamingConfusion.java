@@ -19,6 +19,7 @@
 package com.mebigfatguy.fbcontrib.detect;
 
 import java.util.Locale;
+import java.util.Set;
 
 import org.apache.bcel.Repository;
 import org.apache.bcel.classfile.Field;
@@ -29,6 +30,7 @@ import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.SubtypeCache;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
 import edu.umd.cs.findbugs.BugInstance;
@@ -139,10 +141,11 @@ public class CollectionNamingConfusion extends PreorderVisitor implements Detect
             if ((name.endsWith("map") || (name.endsWith("set") && !name.endsWith("toset")) || name.endsWith("list") || name.endsWith("queue"))
                     && signature.startsWith("Ljava/util/")) {
                 String clsName = SignatureUtils.stripSignature(signature);
-                JavaClass cls = Repository.lookupClass(clsName);
-                if ((cls.implementationOf(mapInterface) && !name.endsWith("map")) || (cls.implementationOf(setInterface) && !name.endsWith("set"))
-                        || ((cls.implementationOf(listInterface) || cls.implementationOf(queueInterface)) && !name.endsWith("list")
-                                && !name.endsWith("queue"))) {
+                Set<String> superTypes = SubtypeCache.instance().getSuperTypes(clsName);
+                if ((superTypes.contains(mapInterface.getClassName()) && !name.endsWith("map"))
+                        || (superTypes.contains(setInterface.getClassName()) && !name.endsWith("set"))
+                        || ((superTypes.contains(listInterface.getClassName()) || superTypes.contains(queueInterface.getClassName()))
+                                && !name.endsWith("list") && !name.endsWith("queue"))) {
                     return true;
                 }
             }
@@ -38,6 +38,7 @@ import org.apache.bcel.generic.ReferenceType;
 import org.apache.bcel.generic.Type;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.CodeFingerprints;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
 import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
 import com.mebigfatguy.fbcontrib.utils.ToString;
@@ -55,6 +56,9 @@ import edu.umd.cs.findbugs.ba.ClassContext;
 public class CopiedOverriddenMethod extends BytecodeScanningDetector {
     private final BugReporter bugReporter;
     private Map<String, CodeInfo> superclassCode;
+    private Map<String, Long> childFingerprints;
+    private Map<String, Long> parentFingerprints;
+    private JavaClass superCls;
     private ClassContext classContext;
     private String curMethodInfo;
     private ConstantPoolGen childPoolGen, parentPoolGen;
@@ -88,9 +92,7 @@ public class CopiedOverriddenMethod extends BytecodeScanningDetector {
             if (!Values.DOTTED_JAVA_LANG_OBJECT.equals(superName)) {
                 this.classContext = clsContext;
                 superclassCode = new HashMap<>();
-                JavaClass superCls = cls.getSuperClass();
-                childPoolGen = new ConstantPoolGen(cls.getConstantPool());
-                parentPoolGen = new ConstantPoolGen(superCls.getConstantPool());
+                superCls = cls.getSuperClass();
                 Method[] methods = superCls.getMethods();
                 for (Method m : methods) {
                     String methodName = m.getName();
@@ -106,6 +108,9 @@ public class CopiedOverriddenMethod extends BytecodeScanningDetector {
             bugReporter.reportMissingClass(cnfe);
         } finally {
             superclassCode = null;
+            childFingerprints = null;
+            parentFingerprints = null;
+            superCls = null;
             this.classContext = null;
             childPoolGen = null;
             parentPoolGen = null;
@@ -139,7 +144,7 @@ public class CopiedOverriddenMethod extends BytecodeScanningDetector {
 
             CodeInfo superCode = superclassCode.remove(curMethodInfo);
             if (superCode != null) {
-                if (sameAccess(getMethod().getAccessFlags(), superCode.getAccess()) && codeEquals(obj, superCode.getCode())) {
+                if (sameAccess(getMethod().getAccessFlags(), superCode.getAccess()) && fingerprintsMatch() && codeEquals(obj, superCode.getCode())) {
                     bugReporter.reportBug(new BugInstance(this, BugType.COM_COPIED_OVERRIDDEN_METHOD.name(), NORMAL_PRIORITY).addClass(this).addMethod(this)
                             .addSourceLine(classContext, this, getPC()));
                     return;
@@ -256,6 +261,22 @@ public class CopiedOverriddenMethod extends BytecodeScanningDetector {
         return ((parentAccess & (Const.ACC_PUBLIC | Const.ACC_PROTECTED)) == (childAccess & (Const.ACC_PUBLIC | Const.ACC_PROTECTED)));
     }
 
+    /**
+     * compares the fingerprints of the current method and the method of the same name and signature in the parent class, as a quick check before comparing
+     * the code instruction by instruction. The fingerprints of both classes are cached, so a parent with many children is only hashed once.
+     *
+     * @return whether the two methods may have the same code
+     */
+    private boolean fingerprintsMatch() {
+        if (childFingerprints == null) {
+            childFingerprints = CodeFingerprints.instance().getFingerprints(getThisClass());
+            parentFingerprints = CodeFingerprints.instance().getFingerprints(superCls);
+        }
+
+        Long parentFingerprint = parentFingerprints.get(curMethodInfo);
+        return (parentFingerprint != null) && parentFingerprint.equals(childFingerprints.get(curMethodInfo));
+    }
+
     /**
      * compares two code blocks to see if they are equal with regard to instructions and field accesses
      *
@@ -283,6 +304,11 @@ public class CopiedOverriddenMethod extends BytecodeScanningDetector {
             return false;
         }
 
+        if (childPoolGen == null) {
+            childPoolGen = new ConstantPoolGen(getThisClass().getConstantPool());
+            parentPoolGen = new ConstantPoolGen(superCls.getConstantPool());
+        }
+
         InstructionHandle[] childihs = new InstructionList(childBytes).getInstructionHandles();
         InstructionHandle[] parentihs = new InstructionList(parentBytes).getInstructionHandles();
 
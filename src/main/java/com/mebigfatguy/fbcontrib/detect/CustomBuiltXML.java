@@ -19,12 +19,12 @@
 package com.mebigfatguy.fbcontrib.detect;
 
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.Code;
 
+import com.mebigfatguy.fbcontrib.utils.LiteralMatcher;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
 import com.mebigfatguy.fbcontrib.utils.ToString;
@@ -44,19 +44,21 @@ import edu.umd.cs.findbugs.ba.ClassContext;
 public class CustomBuiltXML extends BytecodeScanningDetector {
     private static final List<XMLPattern> xmlPatterns = UnmodifiableList.create(
     // @formatter:off
-        new XMLPattern(Pattern.compile(".*<[a-zA-Z_](\\w)*>[^=]?.*"), true),
-        new XMLPattern(Pattern.compile(".*</[a-zA-Z_](\\w)*>[^=]?.*"), true),
-        new XMLPattern(Pattern.compile(".*<[a-zA-Z_](\\w)*/>[^=]?.*"), true),
-        new XMLPattern(Pattern.compile(".*<[^=]?(/)?$"), true),
-        new XMLPattern(Pattern.compile("^(/)?>.*"), true),
-        new XMLPattern(Pattern.compile(".*=(\\s)*[\"'].*"), false),
-        new XMLPattern(Pattern.compile("^[\"']>.*"), true),
-        new XMLPattern(Pattern.compile(".*<!\\[CDATA\\[.*", Pattern.CASE_INSENSITIVE), true),
-        new XMLPattern(Pattern.compile(".*\\]\\]>.*"), true),
-        new XMLPattern(Pattern.compile(".*xmlns:.*"), true)
+        new XMLPattern(Pattern.compile(".*<[a-zA-Z_](\\w)*>[^=]?.*"), true, "<"),
+        new XMLPattern(Pattern.compile(".*</[a-zA-Z_](\\w)*>[^=]?.*"), true, "</"),
+        new XMLPattern(Pattern.compile(".*<[a-zA-Z_](\\w)*/>[^=]?.*"), true, "/>"),
+        new XMLPattern(Pattern.compile(".*<[^=]?(/)?$"), true, "<"),
+        new XMLPattern(Pattern.compile("^(/)?>.*"), true, ">"),
+        new XMLPattern(Pattern.compile(".*=(\\s)*[\"'].*"), false, "="),
+        new XMLPattern(Pattern.compile("^[\"']>.*"), true, ">"),
+        new XMLPattern(Pattern.compile(".*<!\\[CDATA\\[.*", Pattern.CASE_INSENSITIVE), true, "<![cdata["),
+        new XMLPattern(Pattern.compile(".*\\]\\]>.*"), true, "]]>"),
+        new XMLPattern(Pattern.compile(".*xmlns:.*"), true, "xmlns:")
         // @formatter:on
     );
 
+    private static final LiteralMatcher xmlMatcher = buildXMLMatcher();
+
     private static final String CBX_MIN_REPORTABLE_ITEMS = "fb-contrib.cbx.minxmlitems";
 
     /**
@@ -165,17 +167,14 @@ public class CustomBuiltXML extends BytecodeScanningDetector {
                     return;
                 }
 
-                for (XMLPattern pattern : xmlPatterns) {
-                    Matcher m = pattern.getPattern().matcher(strCon);
-                    if (m.matches()) {
-                        xmlItemCount++;
-                        if (pattern.isConfident()) {
-                            xmlConfidentCount++;
-                        }
-                        if ((firstPC < 0) && (xmlConfidentCount > 0)) {
-                            firstPC = getPC();
-                        }
-                        break;
+                int patternIndex = xmlMatcher.firstMatch(strCon);
+                if (patternIndex >= 0) {
+                    xmlItemCount++;
+                    if (xmlPatterns.get(patternIndex).isConfident()) {
+                        xmlConfidentCount++;
+                    }
+                    if ((firstPC < 0) && (xmlConfidentCount > 0)) {
+                        firstPC = getPC();
                     }
                 }
             }
@@ -184,22 +183,37 @@ public class CustomBuiltXML extends BytecodeScanningDetector {
         }
     }
 
+    private static LiteralMatcher buildXMLMatcher() {
+        LiteralMatcher.Builder builder = LiteralMatcher.builder();
+        for (XMLPattern pattern : xmlPatterns) {
+            builder.addMatch(pattern.getPattern(), pattern.getKeywords());
+        }
+        return builder.build();
+    }
+
     /**
-     * represents a text pattern that is likely to be an xml snippet, as well as how much confidence that the pattern is infact xml, versus something else.
+     * represents a text pattern that is likely to be an xml snippet, as well as how much confidence that the pattern is infact xml, versus something else. The
+     * keywords are fragments, one of which any string matching the pattern contains.
      */
     private static class XMLPattern {
         private Pattern pattern;
         private boolean confident;
+        private String[] keywords;
 
-        public XMLPattern(Pattern p, boolean isConfident) {
+        public XMLPattern(Pattern p, boolean isConfident, String... patternKeywords) {
             pattern = p;
             confident = isConfident;
+            keywords = patternKeywords;
         }
 
         public Pattern getPattern() {
             return pattern;
         }
 
+        public String[] getKeywords() {
+            return keywords;
+        }
+
         public boolean isConfident() {
             return confident;
         }
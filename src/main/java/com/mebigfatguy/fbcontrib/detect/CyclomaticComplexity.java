@@ -25,6 +25,7 @@ import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ControlFlowSummary;
 
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
@@ -43,6 +44,10 @@ import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
  */
 public class CyclomaticComplexity extends PreorderVisitor implements Detector {
     public static final String LIMIT_PROPERTY = "fb-contrib.cc.limit";
+    /**
+     * the edges counted below that are not accounted for by a branch, switch case, handler or call: the start edge, and unhandled exceptions leaving the method
+     */
+    private static final int UNSUMMARIZED_EDGES = 2;
     private BugReporter bugReporter;
     private ClassContext classContext;
     private int reportLimit = 50;
@@ -112,6 +117,11 @@ public class CyclomaticComplexity extends PreorderVisitor implements Detector {
                 return;
             }
 
+            // Only build the CFG if the branches counted below could exceed the limit.
+            if (!couldExceedLimit(ControlFlowSummary.of(code))) {
+                return;
+            }
+
             BitSet exceptionNodeTargets = new BitSet();
 
             CFG cfg = classContext.getCFG(obj);
@@ -157,4 +167,23 @@ public class CyclomaticComplexity extends PreorderVisitor implements Detector {
                     + " in Cyclomatic Complexity detector", cbe);
         }
     }
+
+    /**
+     * determines from the control flow summary of a method whether its CFG could have more branches than the report limit. Each conditional branch, goto and
+     * switch case adds at most one counted edge, each handler is the target of at most one counted exception edge, and each call adds at most one more, should
+     * spotbugs find that the called method never returns. Subroutines are duplicated in the CFG, so methods with them are always examined.
+     *
+     * @param summary
+     *            the control flow summary of the method
+     * @return whether the method needs to be examined
+     */
+    private boolean couldExceedLimit(ControlFlowSummary summary) {
+        if (summary.hasSubroutines()) {
+            return true;
+        }
+
+        int maxBranches = summary.getConditionalBranchCount() + summary.getGotoCount() + summary.getSwitchEdgeCount() + summary.getHandlerCount()
+                + summary.getInvokeCount() + UNSUMMARIZED_EDGES;
+        return maxBranches > reportLimit;
+    }
 }
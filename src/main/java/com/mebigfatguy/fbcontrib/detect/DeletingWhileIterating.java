@@ -37,11 +37,13 @@ import org.apache.bcel.classfile.LocalVariableTable;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.CodeByteUtils;
+import com.mebigfatguy.fbcontrib.utils.MethodBudget;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.QMethod;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
 import com.mebigfatguy.fbcontrib.utils.TernaryPatcher;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
@@ -106,6 +108,7 @@ public class DeletingWhileIterating extends AbstractCollectionScanningDetector {
     private static final QMethod REMOVE = new QMethod("remove", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN);
     private static final QMethod HASNEXT = new QMethod("hasNext", SignatureBuilder.SIG_VOID_TO_BOOLEAN);
 
+    private final MethodBudget budget;
     private List<GroupPair> collectionGroups;
     private Map<Integer, Integer> groupToIterator;
     private Map<Integer, Loop> loops;
@@ -119,6 +122,7 @@ public class DeletingWhileIterating extends AbstractCollectionScanningDetector {
      */
     public DeletingWhileIterating(BugReporter bugReporter) {
         super(bugReporter, Values.SLASHED_JAVA_UTIL_COLLECTION);
+        budget = new MethodBudget(DeletingWhileIterating.class);
     }
 
     /**
@@ -147,19 +151,27 @@ public class DeletingWhileIterating extends AbstractCollectionScanningDetector {
     }
 
     /**
-     * implements the visitor to reset the stack, collectionGroups, groupToIterator and loops
+     * implements the visitor to reset the stack, collectionGroups, groupToIterator and loops, leaving out methods that are over budget
      *
      * @param obj
      *            the context object of the currently parsed code block
      */
     @Override
     public void visitCode(Code obj) {
+        if (!budget.admit(obj)) {
+            return;
+        }
+
         collectionGroups.clear();
         groupToIterator.clear();
         loops.clear();
         buildVariableEndScopeMap();
 
-        super.visitCode(obj);
+        try {
+            super.visitCode(obj);
+        } catch (StopOpcodeParsingException e) {
+            // over budget, so the rest of the method is not looked at
+        }
     }
 
     /**
@@ -170,6 +182,7 @@ public class DeletingWhileIterating extends AbstractCollectionScanningDetector {
      */
     @Override
     public void sawOpcode(int seen) {
+        budget.checkpoint();
         int groupId = -1;
 
         try {
@@ -0,0 +1,358 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.detect;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.CodeException;
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantClass;
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.ConstantUtf8;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+
+import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ControlFlowSummary;
+import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
+import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.TernaryPatcher;
+import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
+import com.mebigfatguy.fbcontrib.utils.Values;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ba.ClassContext;
+
+/**
+ * looks for exceptions used for control flow in loops, where the cost of capturing the stack trace of each exception is paid on every iteration. This includes
+ * exceptions that are allocated and thrown in a loop only to be caught in the same method, numbers parsed in a loop inside a try block that catches the
+ * NumberFormatException as a way of validating them, and application exceptions, that do not turn off filling in their stack trace, being allocated in a loop.
+ */
+public class ExceptionControlFlow extends BytecodeScanningDetector {
+
+    private static final String SIG_STRING_PREFIX = "(" + Values.SIG_JAVA_LANG_STRING;
+
+    /** class, the methods of it that parse a string into a number, throwing NumberFormatException when it isn't one */
+    private static final Map<String, Set<String>> PARSE_METHODS;
+
+    static {
+        Map<String, Set<String>> methods = new HashMap<>();
+        methods.put(Values.SLASHED_JAVA_LANG_INTEGER, UnmodifiableSet.create("parseInt", "parseUnsignedInt", "valueOf", "decode"));
+        methods.put(Values.SLASHED_JAVA_LANG_LONG, UnmodifiableSet.create("parseLong", "parseUnsignedLong", "valueOf", "decode"));
+        methods.put(Values.SLASHED_JAVA_LANG_SHORT, UnmodifiableSet.create("parseShort", "valueOf", "decode"));
+        methods.put(Values.SLASHED_JAVA_LANG_BYTE, UnmodifiableSet.create("parseByte", "valueOf", "decode"));
+        methods.put(Values.SLASHED_JAVA_LANG_FLOAT, UnmodifiableSet.create("parseFloat", "valueOf"));
+        methods.put(Values.SLASHED_JAVA_LANG_DOUBLE, UnmodifiableSet.create("parseDouble", "valueOf"));
+        methods.put("java/math/BigInteger", UnmodifiableSet.create(Values.CONSTRUCTOR));
+        methods.put("java/math/BigDecimal", UnmodifiableSet.create(Values.CONSTRUCTOR));
+        PARSE_METHODS = Collections.unmodifiableMap(methods);
+    }
+
+    /** catch types that catch a NumberFormatException */
+    private static final Set<String> NUMBER_FORMAT_CATCHES = UnmodifiableSet.create("java/lang/NumberFormatException", "java/lang/IllegalArgumentException",
+            "java/lang/RuntimeException", "java/lang/Exception", Values.SLASHED_JAVA_LANG_THROWABLE);
+
+    /** the signature of the Throwable constructor that can turn off writing the stack trace */
+    private static final String SIG_WRITABLE_STACK_TRACE_CTOR = new SignatureBuilder()
+            .withParamTypes(Values.SLASHED_JAVA_LANG_STRING, Values.SLASHED_JAVA_LANG_THROWABLE, Values.SIG_PRIMITIVE_BOOLEAN, Values.SIG_PRIMITIVE_BOOLEAN)
+            .toString();
+    private static final String SIG_FILL_IN_STACK_TRACE = new SignatureBuilder().withReturnType(Values.SLASHED_JAVA_LANG_THROWABLE).toString();
+
+    private final BugReporter bugReporter;
+    private JavaClass throwableClass;
+    private OpcodeStack stack;
+    private ControlFlowSummary summary;
+    /** dotted exception class name, whether allocating it fills in a stack trace */
+    private Map<String, Boolean> fillsInStackTrace;
+    /** dotted exception class name, pc of its first allocation in a loop of this method that has not been thrown */
+    private Map<String, Integer> unthrownAllocations;
+    /** dotted class name of the last object allocated, for throws the opcode stack thinks unreachable */
+    private String lastAllocation;
+
+    /**
+     * constructs a ECF detector given the reporter to report bugs on
+     *
+     * @param bugReporter
+     *            the sync of bug reports
+     */
+    public ExceptionControlFlow(BugReporter bugReporter) {
+        this.bugReporter = bugReporter;
+
+        try {
+            throwableClass = Repository.lookupClass(Values.SLASHED_JAVA_LANG_THROWABLE);
+        } catch (ClassNotFoundException cnfe) {
+            bugReporter.reportMissingClass(cnfe);
+        }
+    }
+
+    /**
+     * overrides the visitor to create the opcode stack and the cache of which exceptions fill in their stack trace
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     */
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        if (throwableClass == null) {
+            return;
+        }
+
+        try {
+            stack = new OpcodeStack();
+            fillsInStackTrace = new HashMap<>();
+            unthrownAllocations = new LinkedHashMap<>();
+            super.visitClassContext(classContext);
+        } finally {
+            stack = null;
+            summary = null;
+            fillsInStackTrace = null;
+            unthrownAllocations = null;
+        }
+    }
+
+    /**
+     * implements the visitor to skip methods without a loop, as all the patterns looked for happen in loops, and to report the exceptions allocated in a
+     * loop that were kept rather than thrown
+     *
+     * @param obj
+     *            the context object of the currently parsed code block
+     */
+    @Override
+    public void visitCode(Code obj) {
+        summary = ControlFlowSummary.of(obj);
+        if (!summary.hasBackEdges()) {
+            return;
+        }
+
+        stack.resetForMethodEntry(this);
+        unthrownAllocations.clear();
+        lastAllocation = null;
+        super.visitCode(obj);
+
+        for (Map.Entry<String, Integer> entry : unthrownAllocations.entrySet()) {
+            bugReporter.reportBug(new BugInstance(this, BugType.ECF_STACK_TRACE_FILLED_IN_LOOP.name(), LOW_PRIORITY).addClass(this).addMethod(this)
+                    .addSourceLine(getClassContext(), this, entry.getValue().intValue()).addString(entry.getKey()));
+        }
+    }
+
+    /**
+     * implements the visitor to look for exceptions thrown and caught, numbers parsed under a catch of their format exception, and exceptions allocated, in
+     * a loop
+     *
+     * @param seen
+     *            the opcode of the currently parsed instruction
+     */
+    @Override
+    public void sawOpcode(int seen) {
+        try {
+            stack.precomputation(this);
+
+            switch (seen) {
+                case Const.ATHROW:
+                    sawThrow();
+                break;
+
+                case Const.INVOKESTATIC:
+                case Const.INVOKESPECIAL:
+                    if (summary.isInLoop(getPC())) {
+                        sawParse();
+                    }
+                break;
+
+                case Const.NEW:
+                    lastAllocation = getDottedClassConstantOperand();
+                    if (summary.isInLoop(getPC())) {
+                        sawAllocation();
+                    }
+                break;
+
+                default:
+                break;
+            }
+        } catch (ClassNotFoundException cnfe) {
+            bugReporter.reportMissingClass(cnfe);
+        } finally {
+            TernaryPatcher.pre(stack, seen);
+            stack.sawOpcode(this, seen);
+            TernaryPatcher.post(stack, seen);
+        }
+    }
+
+    /**
+     * looks for an exception allocated in this method being thrown in a loop, to a handler of the same method. As an exception that is thrown either ends
+     * the loop or is reported here, its allocation is not reported as well.
+     */
+    private void sawThrow() throws ClassNotFoundException {
+        if (lastAllocation != null) {
+            unthrownAllocations.remove(lastAllocation);
+        }
+
+        if (stack.getStackDepth() == 0) {
+            return;
+        }
+
+        OpcodeStack.Item itm = stack.getStackItem(0);
+        String thrownClass = SignatureUtils.stripSignature(itm.getSignature());
+        unthrownAllocations.remove(thrownClass);
+        if (!itm.isNewlyAllocated() || !summary.isInLoop(getPC())) {
+            return;
+        }
+
+        CodeException handler = findHandler(getPC(), thrownClass, null);
+        if (handler != null) {
+            bugReporter.reportBug(new BugInstance(this, BugType.ECF_EXCEPTION_THROWN_AND_CAUGHT_IN_LOOP.name(),
+                    summary.isInLoop(handler.getHandlerPC()) ? NORMAL_PRIORITY : LOW_PRIORITY).addClass(this).addMethod(this).addSourceLine(this)
+                            .addString(thrownClass));
+        }
+    }
+
+    /**
+     * looks for a string parsed into a number in a loop, inside a try block that catches the NumberFormatException that is thrown when it isn't a number,
+     * with a handler that goes on with the loop. A handler that throws an exception of its own is reporting the bad number, not skipping it.
+     */
+    private void sawParse() throws ClassNotFoundException {
+        Set<String> methods = PARSE_METHODS.get(getClassConstantOperand());
+        if ((methods == null) || !methods.contains(getNameConstantOperand()) || !getSigConstantOperand().startsWith(SIG_STRING_PREFIX)) {
+            return;
+        }
+
+        CodeException handler = findHandler(getPC(), null, NUMBER_FORMAT_CATCHES);
+        if ((handler != null) && summary.isInLoop(handler.getHandlerPC()) && !endsInThrow(handler.getHandlerPC())) {
+            bugReporter.reportBug(new BugInstance(this, BugType.ECF_PARSE_EXCEPTION_AS_VALIDATION.name(), NORMAL_PRIORITY).addClass(this).addMethod(this)
+                    .addCalledMethod(this).addSourceLine(this));
+        }
+    }
+
+    /**
+     * looks for an application exception, that fills in its stack trace, allocated in a loop, remembering the first allocation of each exception class
+     */
+    private void sawAllocation() throws ClassNotFoundException {
+        String clsName = getDottedClassConstantOperand();
+        if (clsName.startsWith("java.") || clsName.startsWith("javax.") || unthrownAllocations.containsKey(clsName)) {
+            return;
+        }
+
+        if (fillsInStackTrace(clsName)) {
+            unthrownAllocations.put(clsName, Integer.valueOf(getPC()));
+        }
+    }
+
+    /**
+     * finds the innermost handler of this method covering an instruction, that catches either the given thrown exception, or one of a set of catch types
+     *
+     * @param pc
+     *            the instruction that throws
+     * @param thrownClass
+     *            the dotted name of the exception thrown, or null to look for the catch types instead
+     * @param catchTypes
+     *            the slashed names of the catch types looked for, when the thrown class isn't given
+     * @return the handler, or null if none catches the exception
+     */
+    private CodeException findHandler(int pc, String thrownClass, Set<String> catchTypes) throws ClassNotFoundException {
+        ConstantPool pool = getConstantPool();
+        for (CodeException ce : getCode().getExceptionTable()) {
+            if ((ce.getCatchType() == 0) || (pc < ce.getStartPC()) || (pc >= ce.getEndPC())) {
+                continue;
+            }
+
+            String catchType = ((ConstantClass) pool.getConstant(ce.getCatchType())).getBytes(pool);
+            if (thrownClass == null) {
+                if (catchTypes.contains(catchType)) {
+                    return ce;
+                }
+            } else if (Repository.instanceOf(thrownClass, catchType.replace('/', '.'))) {
+                return ce;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * returns whether the code run straight on from a handler, up to the first instruction that doesn't fall through to the next, is a throw
+     *
+     * @param handlerPC
+     *            the start of the handler
+     * @return whether the handler ends by throwing
+     */
+    private boolean endsInThrow(int handlerPC) {
+        InstructionList il = new InstructionList(getCode().getCode());
+        InstructionHandle ih = il.findHandle(handlerPC);
+        while (ih != null) {
+            int opcode = ih.getInstruction().getOpcode();
+            if (opcode == Const.ATHROW) {
+                return true;
+            }
+            if ((opcode == Const.GOTO) || (opcode == Const.GOTO_W) || (opcode == Const.TABLESWITCH) || (opcode == Const.LOOKUPSWITCH)
+                    || ((opcode >= Const.IRETURN) && (opcode <= Const.RETURN))) {
+                return false;
+            }
+            ih = ih.getNext();
+        }
+        return false;
+    }
+
+    /**
+     * returns whether a class is an exception that fills in its stack trace when allocated, which is so unless it, or one of its non jdk super classes,
+     * overrides fillInStackTrace, or calls the Throwable constructor that can turn off writing the stack trace
+     *
+     * @param clsName
+     *            the dotted name of the class allocated
+     * @return whether it is an exception that fills in its stack trace
+     */
+    private boolean fillsInStackTrace(String clsName) throws ClassNotFoundException {
+        Boolean fills = fillsInStackTrace.get(clsName);
+        if (fills == null) {
+            JavaClass cls = Repository.lookupClass(clsName);
+            fills = Boolean.valueOf(cls.instanceOf(throwableClass) && !avoidsStackTrace(cls));
+            fillsInStackTrace.put(clsName, fills);
+        }
+        return fills.booleanValue();
+    }
+
+    private static boolean avoidsStackTrace(JavaClass exceptionClass) throws ClassNotFoundException {
+        JavaClass cls = exceptionClass;
+        while ((cls != null) && !cls.getClassName().startsWith("java.")) {
+            for (Method m : cls.getMethods()) {
+                if ("fillInStackTrace".equals(m.getName()) && SIG_FILL_IN_STACK_TRACE.equals(m.getSignature())) {
+                    return true;
+                }
+            }
+
+            for (Constant c : cls.getConstantPool().getConstantPool()) {
+                if ((c instanceof ConstantUtf8) && SIG_WRITABLE_STACK_TRACE_CTOR.equals(((ConstantUtf8) c).getBytes())) {
+                    return true;
+                }
+            }
+            cls = cls.getSuperClass();
+        }
+        return false;
+    }
+}
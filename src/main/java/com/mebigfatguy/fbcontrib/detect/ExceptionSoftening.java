@@ -48,6 +48,7 @@ import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.SubtypeCache;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
@@ -198,13 +199,12 @@ public class ExceptionSoftening extends BytecodeScanningDetector {
                 if (stack.getStackDepth() > 0) {
                     OpcodeStack.Item itm = stack.getStackItem(0);
                     JavaClass exClass = itm.getJavaClass();
-                    if ((exClass != null) && exClass.instanceOf(runtimeClass)) {
+                    if ((exClass != null) && SubtypeCache.instance().isSubtype(exClass, runtimeClass)) {
                         Set<String> possibleCatchSignatures = findPossibleCatchSignatures(catchInfos, getPC());
                         if (!possibleCatchSignatures.contains(exClass.getClassName())) {
                             boolean anyRuntimes = false;
                             for (String possibleCatches : possibleCatchSignatures) {
-                                exClass = Repository.lookupClass(possibleCatches);
-                                if (exClass.instanceOf(runtimeClass)) {
+                                if (SubtypeCache.instance().isSubtype(possibleCatches, runtimeClass.getClassName())) {
                                     anyRuntimes = true;
                                     break;
                                 }
@@ -460,8 +460,7 @@ public class ExceptionSoftening extends BytecodeScanningDetector {
                 if (index != 0) {
                     ConstantClass ccls = (ConstantClass) pool.getConstant(index);
                     String exName = ccls.getBytes(pool);
-                    JavaClass exClass = Repository.lookupClass(exName);
-                    if (!exClass.instanceOf(runtimeClass)) {
+                    if (!SubtypeCache.instance().isSubtype(exName, runtimeClass.getClassName())) {
                         exs.add(ccls.getBytes(pool));
                     }
                 }
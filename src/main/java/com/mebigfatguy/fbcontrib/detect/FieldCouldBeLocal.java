@@ -43,11 +43,14 @@ import org.apache.bcel.generic.INVOKESPECIAL;
 import org.apache.bcel.generic.INVOKEVIRTUAL;
 import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
 import org.apache.bcel.generic.ObjectType;
 import org.apache.bcel.generic.ReferenceType;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.MethodBudget;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
@@ -69,6 +72,7 @@ import edu.umd.cs.findbugs.internalAnnotations.DottedClassName;
  */
 public class FieldCouldBeLocal extends BytecodeScanningDetector {
     private final BugReporter bugReporter;
+    private final MethodBudget budget;
     private ClassContext clsContext;
     private Map<String, FieldInfo> localizableFields;
     private CFG cfg;
@@ -86,6 +90,7 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
      */
     public FieldCouldBeLocal(BugReporter bugReporter) {
         this.bugReporter = bugReporter;
+        budget = new MethodBudget(FieldCouldBeLocal.class);
     }
 
     /**
@@ -143,7 +148,8 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
     }
 
     /**
-     * overrides the visitor to navigate basic blocks looking for all first usages of fields, removing those that are read from first.
+     * overrides the visitor to navigate basic blocks looking for all first usages of fields, removing those that are read from first. Methods that are
+     * over budget are not navigated, and instead all the fields they may touch are removed.
      *
      * @param obj
      *            the context object of the currently parsed method
@@ -154,6 +160,12 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
             return;
         }
 
+        Code code = obj.getCode();
+        if ((code != null) && !budget.admit(code)) {
+            removeTouchedFields(code);
+            return;
+        }
+
         try {
 
             cfg = clsContext.getCFG(obj);
@@ -164,6 +176,8 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
             checkBlock(bb, uncheckedFields);
         } catch (CFGBuilderException cbe) {
             localizableFields.clear();
+        } catch (StopOpcodeParsingException e) {
+            removeTouchedFields(code);
         } finally {
             cfg = null;
             cpg = null;
@@ -237,6 +251,7 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
             if (localizableFields.isEmpty()) {
                 return;
             }
+            budget.checkpoint();
             BlockState bState = toBeProcessed.removeFirst();
             BasicBlock bb = bState.getBasicBlock();
 
@@ -308,6 +323,44 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
         }
     }
 
+    /**
+     * removes all the fields that a method, or a method it calls, may read or write, without regard to the order in which it does so. This is used in place of
+     * {@link #checkBlock(BasicBlock, Set)} for methods that are too expensive to navigate, and so gives up on no less than it would.
+     *
+     * @param code
+     *            the code of the method that was not navigated
+     */
+    private void removeTouchedFields(Code code) {
+        ConstantPoolGen pool = clsContext.getConstantPoolGen();
+        for (Instruction ins : new InstructionList(code.getCode()).getInstructions()) {
+            if (ins instanceof FieldInstruction) {
+                FieldInstruction fi = (FieldInstruction) ins;
+                if (fi.getReferenceType(pool).getSignature().equals(clsSig)) {
+                    localizableFields.remove(fi.getFieldName(pool));
+                }
+            } else if (ins instanceof INVOKESPECIAL) {
+                INVOKESPECIAL is = (INVOKESPECIAL) ins;
+
+                ReferenceType rt = is.getReferenceType(pool);
+                if (!Values.CONSTRUCTOR.equals(is.getMethodName(pool))
+                        || ((rt instanceof ObjectType) && ((ObjectType) rt).getClassName().startsWith(clsName + Values.INNER_CLASS_SEPARATOR))) {
+                    localizableFields.clear();
+                    return;
+                }
+            } else if (ins instanceof INVOKEVIRTUAL) {
+                INVOKEVIRTUAL is = (INVOKEVIRTUAL) ins;
+
+                ReferenceType rt = is.getReferenceType(pool);
+                if ((rt instanceof ObjectType) && ((ObjectType) rt).getClassName().equals(clsName)) {
+                    Set<String> fields = methodFieldModifiers.get(is.getName(pool) + is.getSignature(pool));
+                    if (fields != null) {
+                        localizableFields.keySet().removeAll(fields);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * builds up the method to field map of what method write to which fields this is one recursively so that if method A calls method B, and method B writes to
      * field C, then A modifies F.
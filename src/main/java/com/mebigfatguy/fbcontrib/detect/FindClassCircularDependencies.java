@@ -18,10 +18,11 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -36,8 +37,8 @@ import org.apache.bcel.classfile.ElementValue;
 import org.apache.bcel.classfile.JavaClass;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.IntGraph;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
-import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
 import edu.umd.cs.findbugs.BugInstance;
@@ -171,29 +172,46 @@ public class FindClassCircularDependencies extends BytecodeScanningDetector {
         return innerClass.startsWith(outerClass) && (innerClass.indexOf(Values.INNER_CLASS_SEPARATOR) >= 0);
     }
 
+    /**
+     * implements the visitor to find the circular dependencies, by interning the class names into an int indexed graph, and finding its strongly connected
+     * components. Each component of more than one class is reported as one circular dependency.
+     */
     @Override
     public void report() {
-        removeDependencyLeaves();
+        Map<String, Integer> classIds = new HashMap<>();
+        List<String> classNames = new ArrayList<>();
+        for (String clsName : dependencyGraph.keySet()) {
+            if (clsName.indexOf(Values.INNER_CLASS_SEPARATOR) < 0) {
+                classIds.put(clsName, Integer.valueOf(classNames.size()));
+                classNames.add(clsName);
+            }
+        }
+
+        IntGraph.Builder builder = new IntGraph.Builder().ensureNodes(classNames.size());
+        for (int source = 0; source < classNames.size(); source++) {
+            for (String dependency : dependencyGraph.get(classNames.get(source))) {
+                Integer target = classIds.get(dependency);
+                if (target != null) {
+                    builder.addEdge(source, target.intValue());
+                }
+            }
+        }
 
-        LoopFinder lf = new LoopFinder();
+        IntGraph.Components components = builder.build().findStronglyConnectedComponents();
+        for (int component = 0; component < components.getNumComponents(); component++) {
+            int size = components.getSize(component);
+            if (size > 1) {
+                String[] loop = new String[size];
+                for (int i = 0; i < size; i++) {
+                    loop[i] = classNames.get(components.getMember(component, i));
+                }
+                Arrays.sort(loop);
 
-        while (!dependencyGraph.isEmpty()) {
-            String clsName = dependencyGraph.keySet().iterator().next();
-            Set<String> loop = lf.findLoop(dependencyGraph, clsName);
-            boolean pruneLeaves;
-            if (loop != null) {
                 BugInstance bug = new BugInstance(this, BugType.FCCD_FIND_CLASS_CIRCULAR_DEPENDENCY.name(), NORMAL_PRIORITY);
                 for (String loopCls : loop) {
                     bug.addClass(loopCls);
                 }
                 bugReporter.reportBug(bug);
-                pruneLeaves = removeLoopLinks(loop);
-            } else {
-                dependencyGraph.remove(clsName);
-                pruneLeaves = true;
-            }
-            if (pruneLeaves) {
-                removeDependencyLeaves();
             }
         }
 
@@ -208,111 +226,4 @@ public class FindClassCircularDependencies extends BytecodeScanningDetector {
         int parentLength = parent.length();
         return ((child.charAt(parentLength) == '.') && (child.indexOf('.', parentLength + 1) < 0));
     }
-
-    private void removeDependencyLeaves() {
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            Iterator<Set<String>> it = dependencyGraph.values().iterator();
-            while (it.hasNext()) {
-                Set<String> dependencies = it.next();
-
-                boolean foundClass = false;
-                Iterator<String> dit = dependencies.iterator();
-                while (dit.hasNext()) {
-                    foundClass = dependencyGraph.containsKey(dit.next());
-                    if (!foundClass) {
-                        dit.remove();
-                        changed = true;
-                    }
-                }
-                if (dependencies.isEmpty()) {
-                    it.remove();
-                    changed = true;
-                }
-            }
-        }
-    }
-
-    private boolean removeLoopLinks(Set<String> loop) {
-        Set<String> dependencies = null;
-        for (String clsName : loop) {
-            if (dependencies != null) {
-                dependencies.remove(clsName);
-            }
-            dependencies = dependencyGraph.get(clsName);
-        }
-        if (dependencies != null) {
-            dependencies.remove(loop.iterator().next());
-        }
-
-        boolean removedClass = false;
-        Iterator<String> cIt = loop.iterator();
-        while (cIt.hasNext()) {
-            String clsName = cIt.next();
-            dependencies = dependencyGraph.get(clsName);
-            if (dependencies.isEmpty()) {
-                cIt.remove();
-                removedClass = true;
-            }
-        }
-        return removedClass;
-    }
-
-    /**
-     * finds class dependency loops in a directed graph
-     */
-    static class LoopFinder {
-
-        private Map<String, Set<String>> dGraph = null;
-        private String startClass = null;
-        private Set<String> visited = null;
-        private Set<String> loop = null;
-
-        @Nullable
-        public Set<String> findLoop(Map<String, Set<String>> dependencyGraph, String startCls) {
-            dGraph = dependencyGraph;
-            startClass = startCls;
-            visited = new HashSet<>();
-            loop = new LinkedHashSet<>();
-            if (findLoop(startClass)) {
-                return loop;
-            }
-            return null;
-        }
-
-        private boolean findLoop(String curClass) {
-            if (curClass.indexOf(Values.INNER_CLASS_SEPARATOR) >= 0) {
-                return false;
-            }
-
-            Set<String> dependencies = dGraph.get(curClass);
-            if (dependencies == null) {
-                return false;
-            }
-
-            visited.add(curClass);
-            loop.add(curClass);
-            for (String depClass : dependencies) {
-                if (depClass.equals(startClass)) {
-                    return true;
-                }
-
-                if (visited.contains(depClass)) {
-                    continue;
-                }
-
-                if (findLoop(depClass)) {
-                    return true;
-                }
-            }
-            loop.remove(curClass);
-            return false;
-        }
-
-        @Override
-        public String toString() {
-            return ToString.build(this);
-        }
-    }
 }
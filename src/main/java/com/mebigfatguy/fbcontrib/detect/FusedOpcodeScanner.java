@@ -0,0 +1,348 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.detect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.bcel.classfile.Code;
+
+import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
+
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.NonReportingDetector;
+import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ba.ClassContext;
+
+/**
+ * an optional driver, enabled with the system property fb-contrib.fused=true, that walks the bytecode of each method once, with one opcode stack, and fans
+ * each opcode out to every {@link AbstractOpcodeSubscriber} created for the same analysis, instead of each of them decoding and simulating the method on its
+ * own. Subscribers are claimed the first time this detector visits a class; a subscriber that already walked a class itself stays standalone, so no class is
+ * seen twice or missed. Each subscriber's user values are kept in its own slot of a {@link SubscriberValues} on the shared stack items. As the stack merges
+ * items at branch targets only when the whole of their user values agree, a subscriber may lose a value at a merge that it would have kept standalone, but
+ * it never sees another subscriber's value.
+ */
+public class FusedOpcodeScanner extends BytecodeScanningDetector implements NonReportingDetector {
+
+    private static final String FUSED_PROPERTY = "fb-contrib.fused";
+    private static final boolean FUSED = Boolean.getBoolean(FUSED_PROPERTY);
+
+    private static final Map<BugReporter, List<AbstractOpcodeSubscriber>> unclaimedSubscribers = new WeakHashMap<>();
+
+    private static final AbstractOpcodeSubscriber[] NO_SUBSCRIBERS = new AbstractOpcodeSubscriber[0];
+
+    private final BugReporter bugReporter;
+    private AbstractOpcodeSubscriber[] subscribers = NO_SUBSCRIBERS;
+    private AbstractOpcodeSubscriber[] classSubscribers = NO_SUBSCRIBERS;
+    private int classSubscriberCount;
+    private AbstractOpcodeSubscriber[] methodSubscribers = NO_SUBSCRIBERS;
+    private int methodSubscriberCount;
+    private Object[] pendingUserValues = new Object[0];
+    private OpcodeStack stack;
+
+    /**
+     * constructs a FOS detector given the reporter that its subscribers report bugs on
+     *
+     * @param bugReporter
+     *            the sync of bug reports
+     */
+    public FusedOpcodeScanner(BugReporter bugReporter) {
+        this.bugReporter = bugReporter;
+    }
+
+    /**
+     * records a subscriber so that the scanner created for the same analysis can claim it
+     *
+     * @param bugReporter
+     *            the reporter of the analysis the subscriber was created for
+     * @param subscriber
+     *            the newly constructed subscriber
+     */
+    static void subscribe(BugReporter bugReporter, AbstractOpcodeSubscriber subscriber) {
+        if (!FUSED) {
+            return;
+        }
+
+        synchronized (unclaimedSubscribers) {
+            List<AbstractOpcodeSubscriber> pending = unclaimedSubscribers.get(bugReporter);
+            if (pending == null) {
+                pending = new ArrayList<>();
+                unclaimedSubscribers.put(bugReporter, pending);
+            }
+            pending.add(subscriber);
+        }
+    }
+
+    /**
+     * decides, on a subscriber's first visit to a class, whether it walks classes itself
+     *
+     * @param subscriber
+     *            the subscriber about to visit a class
+     * @return whether the subscriber should walk the class itself
+     */
+    static boolean runStandalone(AbstractOpcodeSubscriber subscriber) {
+        if (!FUSED) {
+            return true;
+        }
+
+        synchronized (unclaimedSubscribers) {
+            if (subscriber.getMode() == AbstractOpcodeSubscriber.Mode.UNDECIDED) {
+                subscriber.setMode(AbstractOpcodeSubscriber.Mode.STANDALONE, -1);
+            }
+            return subscriber.getMode() == AbstractOpcodeSubscriber.Mode.STANDALONE;
+        }
+    }
+
+    /**
+     * returns the user value a fused subscriber attached to a stack item
+     *
+     * @param item
+     *            the stack item to inspect
+     * @param slot
+     *            the subscriber's slot
+     * @return the subscriber's user value, or null
+     */
+    static Object getUserValue(OpcodeStack.Item item, int slot) {
+        Object values = item.getUserValue();
+        if (values instanceof SubscriberValues) {
+            return ((SubscriberValues) values).get(slot);
+        }
+        return null;
+    }
+
+    /**
+     * implements the visitor to claim any new subscribers, and walk the class if any of them are interested in it
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     */
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        if (!FUSED) {
+            return;
+        }
+
+        claimSubscribers();
+        classSubscriberCount = 0;
+        for (AbstractOpcodeSubscriber subscriber : subscribers) {
+            try {
+                if (subscriber.startClass(classContext)) {
+                    classSubscribers[classSubscriberCount++] = subscriber;
+                }
+            } catch (RuntimeException e) {
+                logSubscriberError(subscriber, classContext.getJavaClass().getClassName(), e);
+            }
+        }
+
+        if (classSubscriberCount == 0) {
+            return;
+        }
+
+        try {
+            stack = new OpcodeStack();
+            super.visitClassContext(classContext);
+        } finally {
+            stack = null;
+            for (int i = 0; i < classSubscriberCount; i++) {
+                classSubscribers[i].endClass();
+            }
+        }
+    }
+
+    /**
+     * implements the visitor to collect the subscribers interested in this method, and walk it if there are any
+     *
+     * @param obj
+     *            the context object of the currently parsed code block
+     */
+    @Override
+    public void visitCode(Code obj) {
+        methodSubscriberCount = 0;
+        for (int i = 0; i < classSubscriberCount; i++) {
+            AbstractOpcodeSubscriber subscriber = classSubscribers[i];
+            try {
+                if (subscriber.startMethod(this)) {
+                    methodSubscribers[methodSubscriberCount++] = subscriber;
+                }
+            } catch (StopOpcodeParsingException e) {
+                // not interested in this method after all
+            } catch (RuntimeException e) {
+                dropFromClass(subscriber, e);
+                i--;
+            }
+        }
+
+        if (methodSubscriberCount > 0) {
+            try {
+                stack.resetForMethodEntry(this);
+                super.visitCode(obj);
+            } catch (StopOpcodeParsingException e) {
+                // no subscriber is interested in the rest of this method
+            }
+        }
+    }
+
+    /**
+     * implements the visitor to hand the opcode to each interested subscriber, before simulating it once on the shared stack
+     *
+     * @param seen
+     *            the currently parsed opcode
+     */
+    @Override
+    public void sawOpcode(int seen) {
+        boolean sawUserValue = false;
+        try {
+            stack.precomputation(this);
+
+            int i = 0;
+            while (i < methodSubscriberCount) {
+                AbstractOpcodeSubscriber subscriber = methodSubscribers[i];
+                try {
+                    Object userValue = subscriber.sawOpcode(this, stack, seen);
+                    if (userValue != null) {
+                        pendingUserValues[subscriber.getSlot()] = userValue;
+                        sawUserValue = true;
+                    }
+                    i++;
+                } catch (StopOpcodeParsingException e) {
+                    removeMethodSubscriber(i);
+                } catch (RuntimeException e) {
+                    removeMethodSubscriber(i);
+                    dropFromClass(subscriber, e);
+                }
+            }
+        } finally {
+            stack.sawOpcode(this, seen);
+            if (sawUserValue) {
+                attachUserValues();
+            }
+        }
+
+        if (methodSubscriberCount == 0) {
+            throw new StopOpcodeParsingException();
+        }
+    }
+
+    private void claimSubscribers() {
+        List<AbstractOpcodeSubscriber> claimed = null;
+        synchronized (unclaimedSubscribers) {
+            List<AbstractOpcodeSubscriber> pending = unclaimedSubscribers.remove(bugReporter);
+            if (pending == null) {
+                return;
+            }
+
+            claimed = new ArrayList<>(Arrays.asList(subscribers));
+            for (AbstractOpcodeSubscriber subscriber : pending) {
+                if (subscriber.getMode() == AbstractOpcodeSubscriber.Mode.UNDECIDED) {
+                    subscriber.setMode(AbstractOpcodeSubscriber.Mode.FUSED, claimed.size());
+                    claimed.add(subscriber);
+                }
+            }
+        }
+
+        subscribers = claimed.toArray(new AbstractOpcodeSubscriber[claimed.size()]);
+        classSubscribers = new AbstractOpcodeSubscriber[subscribers.length];
+        methodSubscribers = new AbstractOpcodeSubscriber[subscribers.length];
+        pendingUserValues = new Object[subscribers.length];
+    }
+
+    private void removeMethodSubscriber(int index) {
+        methodSubscriberCount--;
+        System.arraycopy(methodSubscribers, index + 1, methodSubscribers, index, methodSubscriberCount - index);
+        methodSubscribers[methodSubscriberCount] = null;
+    }
+
+    /**
+     * removes a subscriber that threw from the rest of the class, as spotbugs would have abandoned the class for it had it run standalone
+     */
+    private void dropFromClass(AbstractOpcodeSubscriber subscriber, RuntimeException e) {
+        for (int i = 0; i < classSubscriberCount; i++) {
+            if (classSubscribers[i] == subscriber) {
+                classSubscriberCount--;
+                System.arraycopy(classSubscribers, i + 1, classSubscribers, i, classSubscriberCount - i);
+                classSubscribers[classSubscriberCount] = null;
+                break;
+            }
+        }
+        subscriber.endClass();
+        logSubscriberError(subscriber, getClassName(), e);
+    }
+
+    private void logSubscriberError(AbstractOpcodeSubscriber subscriber, String className, RuntimeException e) {
+        bugReporter.logError("Exception analyzing " + className + " using detector " + subscriber.getClass().getName(), e);
+    }
+
+    private void attachUserValues() {
+        if (stack.getStackDepth() > 0) {
+            OpcodeStack.Item item = stack.getStackItem(0);
+            Object existing = item.getUserValue();
+            Object[] values = (existing instanceof SubscriberValues) ? ((SubscriberValues) existing).copyOf(subscribers.length)
+                    : new Object[subscribers.length];
+            for (int slot = 0; slot < pendingUserValues.length; slot++) {
+                if (pendingUserValues[slot] != null) {
+                    values[slot] = pendingUserValues[slot];
+                }
+            }
+            item.setUserValue(new SubscriberValues(values));
+        }
+        Arrays.fill(pendingUserValues, null);
+    }
+
+    /**
+     * the user values of all fused subscribers for one stack item, indexed by subscriber slot. Instances are never modified once attached, as the stack
+     * shares them between copies of an item.
+     */
+    static final class SubscriberValues {
+        private final Object[] values;
+
+        SubscriberValues(Object[] values) {
+            this.values = values;
+        }
+
+        Object get(int slot) {
+            return (slot < values.length) ? values[slot] : null;
+        }
+
+        Object[] copyOf(int length) {
+            return Arrays.copyOf(values, length);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SubscriberValues)) {
+                return false;
+            }
+            return Arrays.equals(values, ((SubscriberValues) o).values);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(values);
+        }
+    }
+}
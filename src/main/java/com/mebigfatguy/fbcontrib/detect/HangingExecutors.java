@@ -21,7 +21,6 @@ package com.mebigfatguy.fbcontrib.detect;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -319,21 +318,12 @@ public class HangingExecutors extends BytecodeScanningDetector {
 
 class LocalHangingExecutor extends LocalTypeDetector {
 
-    private static final Map<String, Set<String>> watchedClassMethods;
+    private static final Map<String, Set<String>> watchedClassMethods = Collections.singletonMap("java/util/concurrent/Executors",
+            UnmodifiableSet.create("newCachedThreadPool", "newFixedThreadPool", "newScheduledThreadPool", "newSingleThreadExecutor"));
     private static final Map<String, Integer> syncCtors;
 
     static {
-        Set<String> forExecutors = new HashSet<>();
-        forExecutors.add("newCachedThreadPool");
-        forExecutors.add("newFixedThreadPool");
-        forExecutors.add("newScheduledThreadPool");
-        forExecutors.add("newSingleThreadExecutor");
-
-        Map<String, Set<String>> wcm = new HashMap<>();
-        wcm.put("java/util/concurrent/Executors", forExecutors);
-        watchedClassMethods = Collections.unmodifiableMap(wcm);
-
-        Map<String, Integer> sc = new HashMap<>();
+        Map<String, Integer> sc = new HashMap<>(4);
         sc.put("java/util/concurrent/ThreadPoolExecutor", Values.JAVA_5);
         sc.put("java/util/concurrent/ScheduledThreadPoolExecutor", Values.JAVA_5);
         syncCtors = Collections.unmodifiableMap(sc);
@@ -22,10 +22,12 @@ package com.mebigfatguy.fbcontrib.detect;
 import java.util.Set;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ConstantPoolInterest;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
 
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.internalAnnotations.DottedClassName;
 
 /**
@@ -37,6 +39,8 @@ public class HttpClientProblems extends MissingMethodsDetector {
     private static Set<String> httpRequestClasses = UnmodifiableSet.create("org.apache.http.client.methods.HttpGet", "org.apache.http.client.methods.HttpPut",
             "org.apache.http.client.methods.HttpDelete", "org.apache.http.client.methods.HttpPost", "org.apache.http.client.methods.HttpPatch");
 
+    private static final ConstantPoolInterest HTTP_REQUEST_INTEREST = ConstantPoolInterest.of("org/apache/http/client/methods/");
+
     private static Set<String> resetMethods = UnmodifiableSet.create("reset", "releaseConnection");
 
     // Any methods that should not be treated as a "will call a reset method"
@@ -48,6 +52,19 @@ public class HttpClientProblems extends MissingMethodsDetector {
         super(bugReporter);
     }
 
+    /**
+     * overrides the visitor to only look at classes that use http requests
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     */
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        if (HTTP_REQUEST_INTEREST.isInterestedIn(classContext.getJavaClass())) {
+            super.visitClassContext(classContext);
+        }
+    }
+
     @Override
     protected BugInstance makeFieldBugInstance() {
         return new BugInstance(this, BugType.HCP_HTTP_REQUEST_RESOURCES_NOT_FREED_FIELD.name(), NORMAL_PRIORITY);
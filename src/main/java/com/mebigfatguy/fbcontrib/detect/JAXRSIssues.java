@@ -30,6 +30,7 @@ import org.apache.bcel.classfile.ParameterAnnotationEntry;
 import org.apache.bcel.generic.Type;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ConstantPoolInterest;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
 import com.mebigfatguy.fbcontrib.utils.Values;
@@ -103,6 +104,8 @@ public class JAXRSIssues extends PreorderVisitor implements Detector {
             //@formatter:on
     );
 
+    private static final ConstantPoolInterest JAXRS_INTEREST = ConstantPoolInterest.of("javax/ws/rs/");
+
     private BugReporter bugReporter;
     private boolean hasClassConsumes;
     private String pathOnClass;
@@ -114,6 +117,10 @@ public class JAXRSIssues extends PreorderVisitor implements Detector {
     @Override
     public void visitClassContext(ClassContext classContext) {
         JavaClass cls = classContext.getJavaClass();
+        if (!JAXRS_INTEREST.isInterestedIn(cls)) {
+            return;
+        }
+
         pathOnClass = "";
         hasClassConsumes = false;
         for (AnnotationEntry entry : cls.getAnnotationEntries()) {
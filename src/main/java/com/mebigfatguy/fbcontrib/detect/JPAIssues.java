@@ -40,6 +40,7 @@ import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ConstantPoolInterest;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
@@ -80,6 +81,8 @@ public class JPAIssues extends BytecodeScanningDetector {
 
     private static final Pattern annotationClassPattern = Pattern.compile("(L[^;]+;)");
 
+    private static final ConstantPoolInterest JPA_INTEREST = ConstantPoolInterest.of("javax/persistence/", "org/springframework/transaction/");
+
     private BugReporter bugReporter;
     private JavaClass runtimeExceptionClass;
     private JavaClass cls;
@@ -123,6 +126,10 @@ public class JPAIssues extends BytecodeScanningDetector {
     public void visitClassContext(ClassContext clsContext) {
         try {
             cls = clsContext.getJavaClass();
+            if (!JPA_INTEREST.isInterestedIn(cls)) {
+                return;
+            }
+
             catalogClass(cls);
 
             if (isEntity) {
@@ -21,7 +21,6 @@ package com.mebigfatguy.fbcontrib.detect;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
@@ -38,6 +37,8 @@ import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ConstantPoolInterest;
+import com.mebigfatguy.fbcontrib.utils.LiteralMatcher;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
@@ -64,6 +65,11 @@ import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
 public class LoggerOddities extends BytecodeScanningDetector {
 
     private static final Set<String> LOGGER_METHODS = UnmodifiableSet.create("trace", "debug", "info", "warn", "error", "fatal");
+    /**
+     * every logger, or logger factory, class looked at ends with Log, Logger, LogFactory or LogManager, and exceptions are only reported for anchors in a
+     * string
+     */
+    private static final ConstantPoolInterest LOGGER_INTEREST = ConstantPoolInterest.of("Log", "{");
     private static final String COMMONS_LOGGER = "org/apache/commons/logging/Log";
     private static final String LOG4J_LOGGER = "org/apache/log4j/Logger";
     private static final String LOG4J2_LOGGER = "org/apache/logging/log4j/Logger";
@@ -96,11 +102,18 @@ public class LoggerOddities extends BytecodeScanningDetector {
     private static final String SIG_STRING_AND_FACTORY_TO_LOG4J_LOGGER = new SignatureBuilder()
             .withParamTypes(Values.SLASHED_JAVA_LANG_STRING, "org/apache/log4j/spi/LoggerFactory").withReturnType(LOG4J_LOGGER).toString();
 
-    private static final Pattern BAD_FORMATTING_ANCHOR = Pattern.compile("\\{[0-9]\\}");
-    private static final Pattern BAD_STRING_FORMAT_PATTERN = Pattern
-            .compile("(?<![a-zA-Z0-9])%([0-9]*\\$)?(-|#|\\+|0|,|\\(|)?[0-9]*(\\.[0-9]+)?(b|h|s|c|d|o|x|e|f|g|a|t|%|n)");
-    private static final Pattern FORMATTER_ANCHOR = Pattern.compile("\\{\\}");
-    private static final Pattern NON_SIMPLE_FORMAT = Pattern.compile(".*\\%[^sdf].*", Pattern.CASE_INSENSITIVE);
+    private static final String FORMATTER_ANCHOR = "{}";
+
+    private static final int BAD_FORMATTING_ANCHOR = 0;
+    private static final int BAD_STRING_FORMAT_PATTERN = 1;
+    private static final int NON_SIMPLE_FORMAT = 2;
+    private static final LiteralMatcher FORMAT_MATCHER = LiteralMatcher.builder()
+    //@formatter:off
+            .addFind(Pattern.compile("\\{[0-9]\\}"), "{")
+            .addFind(Pattern.compile("(?<![a-zA-Z0-9])%([0-9]*\\$)?(-|#|\\+|0|,|\\(|)?[0-9]*(\\.[0-9]+)?(b|h|s|c|d|o|x|e|f|g|a|t|%|n)"), "%")
+            .addMatch(Pattern.compile(".*\\%[^sdf].*", Pattern.CASE_INSENSITIVE), "%")
+            .build();
+    //@formatter:on
 
     private final BugReporter bugReporter;
     private Set<String> formatterLoggers;
@@ -134,6 +147,10 @@ public class LoggerOddities extends BytecodeScanningDetector {
      */
     @Override
     public void visitClassContext(ClassContext classContext) {
+        if (!LOGGER_INTEREST.isInterestedIn(classContext.getJavaClass())) {
+            return;
+        }
+
         try {
             stack = new OpcodeStack();
             nameOfThisClass = SignatureUtils.getNonAnonymousPortion(classContext.getJavaClass().getClassName());
@@ -201,11 +218,8 @@ public class LoggerOddities extends BytecodeScanningDetector {
                 String methodName = getNameConstantOperand();
                 if (Values.SLASHED_JAVA_LANG_STRING.equals(clsName) && "format".equals(methodName) && (stack.getStackDepth() >= 2)) {
                     String format = (String) stack.getStackItem(1).getConstant();
-                    if (format != null) {
-                        Matcher m = NON_SIMPLE_FORMAT.matcher(format);
-                        if (!m.matches()) {
-                            simpleFormat = true;
-                        }
+                    if ((format != null) && !FORMAT_MATCHER.matches(format, NON_SIMPLE_FORMAT)) {
+                        simpleFormat = true;
                     }
                 } else if ("getFormatterLogger".equals(methodName) && LOG4J2_LOGMANAGER.equals(clsName)) {
                     seenFormatterLogger = true;
@@ -430,13 +444,13 @@ public class LoggerOddities extends BytecodeScanningDetector {
         OpcodeStack.Item formatItem = stack.getStackItem(numParms - 1);
         Object con = formatItem.getConstant();
         if (con instanceof String) {
-            Matcher m = BAD_FORMATTING_ANCHOR.matcher((String) con);
-            if (m.find()) {
+            String format = (String) con;
+            long candidates = FORMAT_MATCHER.candidates(format);
+            if (FORMAT_MATCHER.matches(format, BAD_FORMATTING_ANCHOR, candidates)) {
                 bugReporter.reportBug(
                         new BugInstance(this, BugType.LO_INVALID_FORMATTING_ANCHOR.name(), NORMAL_PRIORITY).addClass(this).addMethod(this).addSourceLine(this));
             } else {
-                m = BAD_STRING_FORMAT_PATTERN.matcher((String) con);
-                if (m.find()) {
+                if (FORMAT_MATCHER.matches(format, BAD_STRING_FORMAT_PATTERN, candidates)) {
                     OpcodeStack.Item loggerItem = stack.getStackItem(numParms);
                     LOUserValue<Void> loggerUV = (LOUserValue<Void>) loggerItem.getUserValue();
                     if ((loggerUV == null) || (loggerUV.getType() != LOUserValue.LOType.FORMATTER_LOGGER)) {
@@ -446,7 +460,7 @@ public class LoggerOddities extends BytecodeScanningDetector {
                 } else {
                     int actualParms = getVarArgsParmCount(sig);
                     if (actualParms != -1) {
-                        int expectedParms = countAnchors((String) con);
+                        int expectedParms = countAnchors(format);
                         boolean hasEx = hasExceptionOnStack();
                         if ((!hasEx && (expectedParms != actualParms)) || (hasEx && ((expectedParms != (actualParms - 1)) && (expectedParms != actualParms)))) {
                             bugReporter.reportBug(new BugInstance(this, BugType.LO_INCORRECT_NUMBER_OF_ANCHOR_PARAMETERS.name(), NORMAL_PRIORITY).addClass(this)
@@ -607,12 +621,11 @@ public class LoggerOddities extends BytecodeScanningDetector {
      * @return the number of anchors
      */
     private static int countAnchors(String formatString) {
-        Matcher m = FORMATTER_ANCHOR.matcher(formatString);
         int count = 0;
-        int start = 0;
-        while (m.find(start)) {
+        int start = formatString.indexOf(FORMATTER_ANCHOR);
+        while (start >= 0) {
             ++count;
-            start = m.end();
+            start = formatString.indexOf(FORMATTER_ANCHOR, start + FORMATTER_ANCHOR.length());
         }
 
         return count;
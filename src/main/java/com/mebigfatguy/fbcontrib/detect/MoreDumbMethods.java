@@ -19,7 +19,9 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -42,108 +44,136 @@ import edu.umd.cs.findbugs.ba.ClassContext;
  * looks for method calls that are unsafe or might indicate bugs.
  */
 public class MoreDumbMethods extends BytecodeScanningDetector {
-    private final static Map<FQMethod, ReportInfo> dumbMethods = new HashMap<>();
-
     private static final Set<ReportInfo> assertableReports = UnmodifiableSet.create(new ReportInfo("MDM_LOCK_ISLOCKED", LOW_PRIORITY));
 
-    private static final String byteArrayToVoid = new SignatureBuilder().withParamTypes(SignatureBuilder.SIG_BYTE_ARRAY).toString();
-    private static final String intToByteArray = new SignatureBuilder().withParamTypes(Values.SIG_PRIMITIVE_INT).withReturnType(SignatureBuilder.SIG_BYTE_ARRAY)
-            .toString();
-
-    static {
-        dumbMethods.put(new FQMethod("java/lang/Runtime", "exit", SignatureBuilder.SIG_INT_TO_VOID), new ReportInfo("MDM_RUNTIME_EXIT_OR_HALT", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod("java/lang/Runtime", "halt", SignatureBuilder.SIG_INT_TO_VOID), new ReportInfo("MDM_RUNTIME_EXIT_OR_HALT", HIGH_PRIORITY));
-
-        dumbMethods.put(new FQMethod("java/lang/Runtime", "runFinalization", SignatureBuilder.SIG_VOID_TO_VOID),
-                new ReportInfo("MDM_RUNFINALIZATION", NORMAL_PRIORITY));
-        dumbMethods.put(new FQMethod(Values.SLASHED_JAVA_LANG_SYSTEM, "runFinalization", SignatureBuilder.SIG_VOID_TO_VOID),
-                new ReportInfo("MDM_RUNFINALIZATION", NORMAL_PRIORITY));
-
-        dumbMethods.put(new FQMethod("java/math/BigDecimal", "equals", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN),
-                new ReportInfo("MDM_BIGDECIMAL_EQUALS", NORMAL_PRIORITY));
-
-        //
-        // Network checks
-        //
-        dumbMethods.put(new FQMethod("java/net/InetAddress", "getLocalHost", new SignatureBuilder().withReturnType("java/net/InetAddress").toString()),
-                new ReportInfo("MDM_INETADDRESS_GETLOCALHOST", NORMAL_PRIORITY));
-
-        dumbMethods.put(new FQMethod("java/net/ServerSocket", Values.CONSTRUCTOR, SignatureBuilder.SIG_INT_TO_VOID),
-                new ReportInfo("MDM_PROMISCUOUS_SERVERSOCKET", NORMAL_PRIORITY));
-        dumbMethods.put(
-                new FQMethod("java/net/ServerSocket", Values.CONSTRUCTOR,
-                        new SignatureBuilder().withParamTypes(Values.SIG_PRIMITIVE_INT, Values.SIG_PRIMITIVE_INT).toString()),
-                new ReportInfo("MDM_PROMISCUOUS_SERVERSOCKET", NORMAL_PRIORITY));
-        dumbMethods.put(
-                new FQMethod("javax/net/ServerSocketFactory", "createServerSocket",
-                        new SignatureBuilder().withParamTypes(Values.SIG_PRIMITIVE_INT).withReturnType("java/net/ServerSocket").toString()),
-                new ReportInfo("MDM_PROMISCUOUS_SERVERSOCKET", LOW_PRIORITY));
-        dumbMethods.put(
-                new FQMethod("javax/net/ServerSocketFactory", "createServerSocket", new SignatureBuilder()
-                        .withParamTypes(Values.SIG_PRIMITIVE_INT, Values.SIG_PRIMITIVE_INT).withReturnType("java/net/ServerSocket").toString()),
-                new ReportInfo("MDM_PROMISCUOUS_SERVERSOCKET", LOW_PRIORITY));
-
-        //
-        // Random Number Generator checks
-        //
-        dumbMethods.put(new FQMethod("java/util/Random", Values.CONSTRUCTOR, SignatureBuilder.SIG_VOID_TO_VOID),
-                new ReportInfo("MDM_RANDOM_SEED", LOW_PRIORITY));
-
-        //
-        // Thread checks
-        //
-        dumbMethods.put(new FQMethod("java/lang/Thread", "getPriority", SignatureBuilder.SIG_VOID_TO_INT),
-                new ReportInfo("MDM_THREAD_PRIORITIES", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod("java/lang/Thread", "setPriority", SignatureBuilder.SIG_INT_TO_VOID),
-                new ReportInfo("MDM_THREAD_PRIORITIES", LOW_PRIORITY));
-
-        dumbMethods.put(new FQMethod("java/lang/Thread", "sleep", SignatureBuilder.SIG_LONG_TO_VOID), new ReportInfo("MDM_THREAD_YIELD", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod("java/lang/Thread", "sleep", SignatureBuilder.SIG_LONG_AND_INT_TO_VOID), new ReportInfo("MDM_THREAD_YIELD", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod("java/lang/Thread", "yield", SignatureBuilder.SIG_VOID_TO_VOID), new ReportInfo("MDM_THREAD_YIELD", NORMAL_PRIORITY));
-
-        dumbMethods.put(new FQMethod("java/lang/Thread", "join", SignatureBuilder.SIG_VOID_TO_VOID), new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod(Values.SLASHED_JAVA_LANG_OBJECT, "wait", SignatureBuilder.SIG_VOID_TO_VOID),
-                new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod("java/util/concurrent/locks/Condition", "await", SignatureBuilder.SIG_VOID_TO_VOID),
-                new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod("java/util/concurrent/locks/Lock", "lock", SignatureBuilder.SIG_VOID_TO_VOID),
-                new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod("java/util/concurrent/locks/Lock", "lockInterruptibly", SignatureBuilder.SIG_VOID_TO_VOID),
-                new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod("java/util/concurrent/locks/ReentrantLock", "lock", SignatureBuilder.SIG_VOID_TO_VOID),
-                new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod("java/util/concurrent/locks/ReentrantLock", "lockInterruptibly", SignatureBuilder.SIG_VOID_TO_VOID),
-                new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
-
-        dumbMethods.put(new FQMethod("java/util/concurrent/locks/Condition", "signal", SignatureBuilder.SIG_VOID_TO_VOID),
-                new ReportInfo("MDM_SIGNAL_NOT_SIGNALALL", NORMAL_PRIORITY));
-
-        dumbMethods.put(new FQMethod("java/util/concurrent/locks/Lock", "tryLock", SignatureBuilder.SIG_VOID_TO_BOOLEAN),
-                new ReportInfo("MDM_THREAD_FAIRNESS", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod("java/util/concurrent/locks/ReentrantLock", "tryLock", SignatureBuilder.SIG_VOID_TO_BOOLEAN),
-                new ReportInfo("MDM_THREAD_FAIRNESS", LOW_PRIORITY));
-
-        dumbMethods.put(new FQMethod("java/util/concurrent/locks/ReentrantLock", "isHeldByCurrentThread", SignatureBuilder.SIG_VOID_TO_BOOLEAN),
-                new ReportInfo("MDM_LOCK_ISLOCKED", LOW_PRIORITY));
-        dumbMethods.put(new FQMethod("java/util/concurrent/locks/ReentrantLock", "isLocked", SignatureBuilder.SIG_VOID_TO_BOOLEAN),
-                new ReportInfo("MDM_LOCK_ISLOCKED", LOW_PRIORITY));
-
-        //
-        // String checks
-        //
-        dumbMethods.put(
-                new FQMethod(Values.SLASHED_JAVA_LANG_STRING, Values.CONSTRUCTOR,
-                        new SignatureBuilder().withParamTypes(SignatureBuilder.SIG_BYTE_ARRAY).toString()),
-                new ReportInfo("MDM_STRING_BYTES_ENCODING", NORMAL_PRIORITY));
-        dumbMethods.put(
-                new FQMethod(Values.SLASHED_JAVA_LANG_STRING, "getBytes", new SignatureBuilder().withReturnType(SignatureBuilder.SIG_BYTE_ARRAY).toString()),
-                new ReportInfo("MDM_STRING_BYTES_ENCODING", NORMAL_PRIORITY));
-        dumbMethods.put(new FQMethod("java/util/Locale", "setDefault", new SignatureBuilder().withParamTypes("java/util/Locale").toString()),
-                new ReportInfo("MDM_SETDEFAULTLOCALE", NORMAL_PRIORITY));
+    /**
+     * the methods to report, built when the detector first looks at a call rather than when it is loaded. The SecureRandom methods are kept apart, as they
+     * are only worth reporting in classes compiled for java 5 or earlier, and the classes declaring any of the methods are collected so that calls into
+     * other classes are dismissed without building an {@link FQMethod} for them.
+     */
+    private static final class DumbMethods {
+        static final Map<FQMethod, ReportInfo> methods;
+        static final Map<FQMethod, ReportInfo> secureRandomMethods;
+        static final Set<String> classNames;
+
+        static {
+            Map<FQMethod, ReportInfo> m = new HashMap<>();
+            m.put(new FQMethod("java/lang/Runtime", "exit", SignatureBuilder.SIG_INT_TO_VOID), new ReportInfo("MDM_RUNTIME_EXIT_OR_HALT", LOW_PRIORITY));
+            m.put(new FQMethod("java/lang/Runtime", "halt", SignatureBuilder.SIG_INT_TO_VOID), new ReportInfo("MDM_RUNTIME_EXIT_OR_HALT", HIGH_PRIORITY));
+
+            m.put(new FQMethod("java/lang/Runtime", "runFinalization", SignatureBuilder.SIG_VOID_TO_VOID),
+                    new ReportInfo("MDM_RUNFINALIZATION", NORMAL_PRIORITY));
+            m.put(new FQMethod(Values.SLASHED_JAVA_LANG_SYSTEM, "runFinalization", SignatureBuilder.SIG_VOID_TO_VOID),
+                    new ReportInfo("MDM_RUNFINALIZATION", NORMAL_PRIORITY));
+
+            m.put(new FQMethod("java/math/BigDecimal", "equals", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN),
+                    new ReportInfo("MDM_BIGDECIMAL_EQUALS", NORMAL_PRIORITY));
+
+            //
+            // Network checks
+            //
+            m.put(new FQMethod("java/net/InetAddress", "getLocalHost", new SignatureBuilder().withReturnType("java/net/InetAddress").toString()),
+                    new ReportInfo("MDM_INETADDRESS_GETLOCALHOST", NORMAL_PRIORITY));
+
+            m.put(new FQMethod("java/net/ServerSocket", Values.CONSTRUCTOR, SignatureBuilder.SIG_INT_TO_VOID),
+                    new ReportInfo("MDM_PROMISCUOUS_SERVERSOCKET", NORMAL_PRIORITY));
+            m.put(
+                    new FQMethod("java/net/ServerSocket", Values.CONSTRUCTOR,
+                            new SignatureBuilder().withParamTypes(Values.SIG_PRIMITIVE_INT, Values.SIG_PRIMITIVE_INT).toString()),
+                    new ReportInfo("MDM_PROMISCUOUS_SERVERSOCKET", NORMAL_PRIORITY));
+            m.put(
+                    new FQMethod("javax/net/ServerSocketFactory", "createServerSocket",
+                            new SignatureBuilder().withParamTypes(Values.SIG_PRIMITIVE_INT).withReturnType("java/net/ServerSocket").toString()),
+                    new ReportInfo("MDM_PROMISCUOUS_SERVERSOCKET", LOW_PRIORITY));
+            m.put(
+                    new FQMethod("javax/net/ServerSocketFactory", "createServerSocket", new SignatureBuilder()
+                            .withParamTypes(Values.SIG_PRIMITIVE_INT, Values.SIG_PRIMITIVE_INT).withReturnType("java/net/ServerSocket").toString()),
+                    new ReportInfo("MDM_PROMISCUOUS_SERVERSOCKET", LOW_PRIORITY));
+
+            //
+            // Random Number Generator checks
+            //
+            m.put(new FQMethod("java/util/Random", Values.CONSTRUCTOR, SignatureBuilder.SIG_VOID_TO_VOID),
+                    new ReportInfo("MDM_RANDOM_SEED", LOW_PRIORITY));
+
+            //
+            // Thread checks
+            //
+            m.put(new FQMethod("java/lang/Thread", "getPriority", SignatureBuilder.SIG_VOID_TO_INT),
+                    new ReportInfo("MDM_THREAD_PRIORITIES", LOW_PRIORITY));
+            m.put(new FQMethod("java/lang/Thread", "setPriority", SignatureBuilder.SIG_INT_TO_VOID),
+                    new ReportInfo("MDM_THREAD_PRIORITIES", LOW_PRIORITY));
+
+            m.put(new FQMethod("java/lang/Thread", "sleep", SignatureBuilder.SIG_LONG_TO_VOID), new ReportInfo("MDM_THREAD_YIELD", LOW_PRIORITY));
+            m.put(new FQMethod("java/lang/Thread", "sleep", SignatureBuilder.SIG_LONG_AND_INT_TO_VOID), new ReportInfo("MDM_THREAD_YIELD", LOW_PRIORITY));
+            m.put(new FQMethod("java/lang/Thread", "yield", SignatureBuilder.SIG_VOID_TO_VOID), new ReportInfo("MDM_THREAD_YIELD", NORMAL_PRIORITY));
+
+            m.put(new FQMethod("java/lang/Thread", "join", SignatureBuilder.SIG_VOID_TO_VOID), new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
+            m.put(new FQMethod(Values.SLASHED_JAVA_LANG_OBJECT, "wait", SignatureBuilder.SIG_VOID_TO_VOID),
+                    new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
+            m.put(new FQMethod("java/util/concurrent/locks/Condition", "await", SignatureBuilder.SIG_VOID_TO_VOID),
+                    new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
+            m.put(new FQMethod("java/util/concurrent/locks/Lock", "lock", SignatureBuilder.SIG_VOID_TO_VOID),
+                    new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
+            m.put(new FQMethod("java/util/concurrent/locks/Lock", "lockInterruptibly", SignatureBuilder.SIG_VOID_TO_VOID),
+                    new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
+            m.put(new FQMethod("java/util/concurrent/locks/ReentrantLock", "lock", SignatureBuilder.SIG_VOID_TO_VOID),
+                    new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
+            m.put(new FQMethod("java/util/concurrent/locks/ReentrantLock", "lockInterruptibly", SignatureBuilder.SIG_VOID_TO_VOID),
+                    new ReportInfo("MDM_WAIT_WITHOUT_TIMEOUT", LOW_PRIORITY));
+
+            m.put(new FQMethod("java/util/concurrent/locks/Condition", "signal", SignatureBuilder.SIG_VOID_TO_VOID),
+                    new ReportInfo("MDM_SIGNAL_NOT_SIGNALALL", NORMAL_PRIORITY));
+
+            m.put(new FQMethod("java/util/concurrent/locks/Lock", "tryLock", SignatureBuilder.SIG_VOID_TO_BOOLEAN),
+                    new ReportInfo("MDM_THREAD_FAIRNESS", LOW_PRIORITY));
+            m.put(new FQMethod("java/util/concurrent/locks/ReentrantLock", "tryLock", SignatureBuilder.SIG_VOID_TO_BOOLEAN),
+                    new ReportInfo("MDM_THREAD_FAIRNESS", LOW_PRIORITY));
+
+            m.put(new FQMethod("java/util/concurrent/locks/ReentrantLock", "isHeldByCurrentThread", SignatureBuilder.SIG_VOID_TO_BOOLEAN),
+                    new ReportInfo("MDM_LOCK_ISLOCKED", LOW_PRIORITY));
+            m.put(new FQMethod("java/util/concurrent/locks/ReentrantLock", "isLocked", SignatureBuilder.SIG_VOID_TO_BOOLEAN),
+                    new ReportInfo("MDM_LOCK_ISLOCKED", LOW_PRIORITY));
+
+            //
+            // String checks
+            //
+            m.put(
+                    new FQMethod(Values.SLASHED_JAVA_LANG_STRING, Values.CONSTRUCTOR,
+                            new SignatureBuilder().withParamTypes(SignatureBuilder.SIG_BYTE_ARRAY).toString()),
+                    new ReportInfo("MDM_STRING_BYTES_ENCODING", NORMAL_PRIORITY));
+            m.put(
+                    new FQMethod(Values.SLASHED_JAVA_LANG_STRING, "getBytes", new SignatureBuilder().withReturnType(SignatureBuilder.SIG_BYTE_ARRAY).toString()),
+                    new ReportInfo("MDM_STRING_BYTES_ENCODING", NORMAL_PRIORITY));
+            m.put(new FQMethod("java/util/Locale", "setDefault", new SignatureBuilder().withParamTypes("java/util/Locale").toString()),
+                    new ReportInfo("MDM_SETDEFAULTLOCALE", NORMAL_PRIORITY));
+            methods = Collections.unmodifiableMap(m);
+
+            String byteArrayToVoid = new SignatureBuilder().withParamTypes(SignatureBuilder.SIG_BYTE_ARRAY).toString();
+            String intToByteArray = new SignatureBuilder().withParamTypes(Values.SIG_PRIMITIVE_INT).withReturnType(SignatureBuilder.SIG_BYTE_ARRAY).toString();
+            Map<FQMethod, ReportInfo> srm = new HashMap<>();
+            srm.put(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, SignatureBuilder.SIG_VOID_TO_VOID), new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
+            srm.put(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, byteArrayToVoid), new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
+            srm.put(new FQMethod("java/security/SecureRandom", "getSeed", intToByteArray), new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
+            secureRandomMethods = Collections.unmodifiableMap(srm);
+
+            Set<String> cn = new HashSet<>();
+            for (FQMethod fqm : m.keySet()) {
+                cn.add(fqm.getClassName());
+            }
+            for (FQMethod fqm : srm.keySet()) {
+                cn.add(fqm.getClassName());
+            }
+            classNames = Collections.unmodifiableSet(cn);
+        }
+
+        private DumbMethods() {
+        }
     }
 
     private final BugReporter bugReporter;
 
+    private boolean reportSecureRandom;
     private boolean sawAssertionDisabled;
     private int assertionEnd;
 
@@ -159,17 +189,7 @@ public class MoreDumbMethods extends BytecodeScanningDetector {
 
     @Override
     public void visitClassContext(ClassContext classContext) {
-        if (classContext.getJavaClass().getMajor() <= Const.MAJOR_1_5) {
-            dumbMethods.put(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, SignatureBuilder.SIG_VOID_TO_VOID),
-                    new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
-            dumbMethods.put(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, byteArrayToVoid), new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
-            dumbMethods.put(new FQMethod("java/security/SecureRandom", "getSeed", intToByteArray), new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
-        } else {
-            dumbMethods.remove(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, SignatureBuilder.SIG_VOID_TO_VOID));
-            dumbMethods.remove(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, byteArrayToVoid));
-            dumbMethods.remove(new FQMethod("java/security/SecureRandom", "getSeed", intToByteArray));
-        }
-
+        reportSecureRandom = classContext.getJavaClass().getMajor() <= Const.MAJOR_1_5;
         super.visitClassContext(classContext);
     }
 
@@ -184,7 +204,7 @@ public class MoreDumbMethods extends BytecodeScanningDetector {
     public void sawOpcode(int seen) {
 
         if (OpcodeUtils.isStandardInvoke(seen)) {
-            final ReportInfo info = dumbMethods.get(getFQMethod());
+            final ReportInfo info = getReportInfo();
             if ((info != null) && ((assertionEnd < getPC()) || !assertableReports.contains(info))) {
                 reportBug(info);
             }
@@ -200,11 +220,20 @@ public class MoreDumbMethods extends BytecodeScanningDetector {
         sawAssertionDisabled = false;
     }
 
-    private FQMethod getFQMethod() {
+    private ReportInfo getReportInfo() {
         final String className = getClassConstantOperand();
+        if (!DumbMethods.classNames.contains(className)) {
+            return null;
+        }
+
         final String methodName = getNameConstantOperand();
         final String methodSig = getSigConstantOperand();
-        return new FQMethod(className, methodName, methodSig);
+        FQMethod fqm = new FQMethod(className, methodName, methodSig);
+        ReportInfo info = DumbMethods.methods.get(fqm);
+        if ((info == null) && reportSecureRandom) {
+            info = DumbMethods.secureRandomMethods.get(fqm);
+        }
+        return info;
     }
 
     private void reportBug(ReportInfo info) {
@@ -41,12 +41,14 @@ import org.apache.bcel.generic.Type;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.CollectionUtils;
+import com.mebigfatguy.fbcontrib.utils.InterfaceMethodIndex;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
+import com.mebigfatguy.fbcontrib.utils.SignatureCursor;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
 import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
-import com.mebigfatguy.fbcontrib.utils.ToString;
+import com.mebigfatguy.fbcontrib.utils.SubtypeCache;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
@@ -73,8 +75,9 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
     private static final Set<String> OVERLY_CONCRETE_INTERFACES = UnmodifiableSet.create("java.util.List");
 
     private final BugReporter bugReporter;
+    private final SignatureCursor parmCursor = new SignatureCursor();
     private JavaClass[] constrainingClasses;
-    private Map<Integer, Map<JavaClass, List<MethodInfo>>> parameterDefiners;
+    private Map<Integer, Map<JavaClass, Map<String, String[]>>> parameterDefiners;
     private BitSet usedParameters;
     private JavaClass objectClass;
     private JavaClass cls;
@@ -238,20 +241,20 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
             stack.precomputation(this);
 
             if (OpcodeUtils.isInvoke(seen)) {
-                String methodSig = getSigConstantOperand();
-                List<String> parmTypes = SignatureUtils.getParameterSignatures(methodSig);
+                parmCursor.reset(getSigConstantOperand());
+                int numParms = parmCursor.getNumParameters();
                 int stackDepth = stack.getStackDepth();
-                if (stackDepth >= parmTypes.size()) {
-                    for (int i = 0; i < parmTypes.size(); i++) {
-                        OpcodeStack.Item itm = stack.getStackItem(i);
+                if (stackDepth >= numParms) {
+                    while (parmCursor.next()) {
+                        OpcodeStack.Item itm = stack.getStackItem(numParms - parmCursor.getIndex() - 1);
                         int reg = itm.getRegisterNumber();
-                        removeUselessDefiners(parmTypes.get(parmTypes.size() - i - 1), reg);
+                        removeUselessDefiners(parmCursor, reg);
                     }
                 }
 
                 if ((seen != Const.INVOKESPECIAL) && (seen != Const.INVOKESTATIC)) {
-                    if (stackDepth > parmTypes.size()) {
-                        OpcodeStack.Item itm = stack.getStackItem(parmTypes.size());
+                    if (stackDepth > numParms) {
+                        OpcodeStack.Item itm = stack.getStackItem(numParms);
                         int reg = itm.getRegisterNumber();
                         int parm = reg;
                         if (!methodIsStatic) {
@@ -384,17 +387,17 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
      * parameter definers, ie those, that can be defined more abstractly.
      */
     private void reportBugs() {
-        Iterator<Map.Entry<Integer, Map<JavaClass, List<MethodInfo>>>> it = parameterDefiners.entrySet().iterator();
+        Iterator<Map.Entry<Integer, Map<JavaClass, Map<String, String[]>>>> it = parameterDefiners.entrySet().iterator();
         while (it.hasNext()) {
             try {
-                Map.Entry<Integer, Map<JavaClass, List<MethodInfo>>> entry = it.next();
+                Map.Entry<Integer, Map<JavaClass, Map<String, String[]>>> entry = it.next();
 
                 Integer reg = entry.getKey();
                 if (!usedParameters.get(reg.intValue())) {
                     it.remove();
                     continue;
                 }
-                Map<JavaClass, List<MethodInfo>> definers = entry.getValue();
+                Map<JavaClass, Map<String, String[]>> definers = entry.getValue();
                 definers.remove(objectClass);
                 if (definers.size() > 1) {
                     removeInheritedInterfaces(definers);
@@ -454,18 +457,18 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
         return false;
     }
 
-    private void removeInheritedInterfaces(Map<JavaClass, List<MethodInfo>> definers) throws ClassNotFoundException {
+    private void removeInheritedInterfaces(Map<JavaClass, Map<String, String[]>> definers) throws ClassNotFoundException {
         List<JavaClass> infs = new ArrayList<>(definers.keySet());
         for (int i = 0; i < (infs.size() - 1); i++) {
             for (int j = i + 1; j < infs.size(); j++) {
                 JavaClass inf1 = infs.get(i);
                 JavaClass inf2 = infs.get(j);
-                if (inf1.implementationOf(inf2)) {
+                if (SubtypeCache.instance().isSubtype(inf1, inf2)) {
                     infs.remove(i);
                     definers.remove(inf1);
                     i--;
                     j = infs.size();
-                } else if (inf2.implementationOf(inf1)) {
+                } else if (SubtypeCache.instance().isSubtype(inf2, inf1)) {
                     infs.remove(j);
                     definers.remove(inf2);
                     j--;
@@ -532,7 +535,7 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
                     JavaClass clz = Repository.lookupClass(clsName);
                     if ((clz.isClass() && (!clz.isAbstract()) && (!cls.isEnum()))
                             || OVERLY_CONCRETE_INTERFACES.contains(clsName)) {
-                        Map<JavaClass, List<MethodInfo>> definers = getClassDefiners(clz);
+                        Map<JavaClass, Map<String, String[]>> definers = getClassDefiners(clz);
 
                         if (!definers.isEmpty()) {
                             parameterDefiners.put(Integer.valueOf(i + (methodIsStatic ? 0 : 1)), definers);
@@ -547,50 +550,38 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
     }
 
     /**
-     * returns a map of method information for each public method for each interface
-     * this class implements
+     * returns a map of the public and protected methods, and the exceptions they
+     * throw, for each interface this class implements. The interfaces and methods
+     * come from the shared {@link InterfaceMethodIndex}; the map itself is a new
+     * one, as definers are removed from it while the method is scanned.
      *
      * @param cls the class whose interfaces to record
      *
-     * @return a map of (method name)(method sig) by interface
+     * @return a map of (method name)(method sig) to exceptions by interface
      * @throws ClassNotFoundException if unable to load the class
      */
-    private static Map<JavaClass, List<MethodInfo>> getClassDefiners(final JavaClass cls)
+    private static Map<JavaClass, Map<String, String[]>> getClassDefiners(final JavaClass cls)
             throws ClassNotFoundException {
-        Map<JavaClass, List<MethodInfo>> definers = new HashMap<>();
+        Map<JavaClass, Map<String, String[]>> definers = new HashMap<>();
 
-        for (JavaClass ci : cls.getAllInterfaces()) {
-            if (cls.equals(ci) || !cls.isPublic() || "java.lang.Comparable".equals(ci.getClassName())) {
+        InterfaceMethodIndex index = InterfaceMethodIndex.instance();
+        List<JavaClass> infs = index.getInterfaces(cls);
+        if (!cls.isPublic()) {
+            return definers;
+        }
+
+        for (JavaClass ci : infs) {
+            if ("java.lang.Comparable".equals(ci.getClassName())) {
                 continue;
             }
-            List<MethodInfo> methodInfos = getPublicMethodInfos(ci);
-            if (!methodInfos.isEmpty()) {
-                definers.put(ci, methodInfos);
+            Map<String, String[]> methods = index.getMethods(ci);
+            if (!methods.isEmpty()) {
+                definers.put(ci, methods);
             }
         }
         return definers;
     }
 
-    /**
-     * returns a list of method information of all public or protected methods in
-     * this class
-     *
-     * @param cls the class to look for methods
-     * @return a map of (method name)(method signature)
-     */
-    private static List<MethodInfo> getPublicMethodInfos(final JavaClass cls) {
-        List<MethodInfo> methodInfos = new ArrayList<>();
-        Method[] methods = cls.getMethods();
-        for (Method m : methods) {
-            if ((m.getAccessFlags() & (Const.ACC_PUBLIC | Const.ACC_PROTECTED)) != 0) {
-                ExceptionTable et = m.getExceptionTable();
-                methodInfos
-                        .add(new MethodInfo(m.getName(), m.getSignature(), et == null ? null : et.getExceptionNames()));
-            }
-        }
-        return methodInfos;
-    }
-
     /**
      * parses through the interface that 'may' define a parameter defined by reg,
      * and look to see if we can rule it out, because a method is called on the
@@ -601,32 +592,22 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
      */
     private void removeUselessDefiners(final int reg) {
 
-        Map<JavaClass, List<MethodInfo>> definers = parameterDefiners.get(Integer.valueOf(reg));
+        Map<JavaClass, Map<String, String[]>> definers = parameterDefiners.get(Integer.valueOf(reg));
         if (CollectionUtils.isEmpty(definers)) {
             return;
         }
-        String methodSig = getSigConstantOperand();
-        String methodName = getNameConstantOperand();
-        MethodInfo methodInfo = new MethodInfo(methodName, methodSig);
+        String methodKey = InterfaceMethodIndex.methodKey(getNameConstantOperand(), getSigConstantOperand());
 
-        Iterator<List<MethodInfo>> it = definers.values().iterator();
+        Iterator<Map<String, String[]>> it = definers.values().iterator();
         while (it.hasNext()) {
-            boolean methodDefined = false;
-            List<MethodInfo> methodSigs = it.next();
-
-            for (MethodInfo mi : methodSigs) {
-                if (methodInfo.equals(mi)) {
-                    methodDefined = true;
-                    String[] exceptions = mi.getMethodExceptions();
-                    if (exceptions != null) {
-                        for (String ex : exceptions) {
-                            if (!isExceptionHandled(ex)) {
-                                methodDefined = false;
-                                break;
-                            }
-                        }
+            String[] exceptions = it.next().get(methodKey);
+            boolean methodDefined = exceptions != null;
+            if (methodDefined) {
+                for (String ex : exceptions) {
+                    if (!isExceptionHandled(ex)) {
+                        methodDefined = false;
+                        break;
                     }
-                    break;
                 }
             }
             if (!methodDefined) {
@@ -683,20 +664,23 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
         return false;
     }
 
-    private void removeUselessDefiners(String parmSig, final int reg) {
-        if (!parmSig.startsWith(Values.SIG_QUALIFIED_CLASS_PREFIX)) {
+    private void removeUselessDefiners(SignatureCursor parm, final int reg) {
+        if (parm.getKind() != 'L') {
             return;
         }
-        String parmClass = SignatureUtils.stripSignature(parmSig);
-        if (Values.DOTTED_JAVA_LANG_OBJECT.equals(parmClass)) {
+        Map<JavaClass, Map<String, String[]>> definers = parameterDefiners.get(Integer.valueOf(reg));
+        if (definers == null) {
+            return;
+        }
+        if (parm.isSignature(Values.SIG_JAVA_LANG_OBJECT)) {
             parameterDefiners.remove(Integer.valueOf(reg));
             return;
         }
-
-        Map<JavaClass, List<MethodInfo>> definers = parameterDefiners.get(Integer.valueOf(reg));
-        if (CollectionUtils.isEmpty(definers)) {
+        if (definers.isEmpty()) {
             return;
         }
+
+        String parmClass = SignatureUtils.stripSignature(parm.getSignature());
         Iterator<JavaClass> it = definers.keySet().iterator();
         while (it.hasNext()) {
             JavaClass definer = it.next();
@@ -731,52 +715,4 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
 
         return false;
     }
-
-    /**
-     * an inner helper class that holds basic information about a method
-     */
-    static class MethodInfo {
-        private final String methodName;
-        private final String methodSig;
-        private final String[] methodExceptions;
-
-        MethodInfo(String name, String sig, String... excs) {
-            methodName = name;
-            methodSig = sig;
-            methodExceptions = excs;
-        }
-
-        String getMethodName() {
-            return methodName;
-        }
-
-        String getMethodSignature() {
-            return methodSig;
-        }
-
-        String[] getMethodExceptions() {
-            return methodExceptions;
-        }
-
-        @Override
-        public int hashCode() {
-            return methodName.hashCode() ^ methodSig.hashCode();
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (!(o instanceof MethodInfo)) {
-                return false;
-            }
-
-            MethodInfo that = (MethodInfo) o;
-
-            return methodName.equals(that.methodName) && methodSig.equals(that.methodSig);
-        }
-
-        @Override
-        public String toString() {
-            return ToString.build(this);
-        }
-    }
 }
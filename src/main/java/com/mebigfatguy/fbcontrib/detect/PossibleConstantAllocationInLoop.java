@@ -30,6 +30,7 @@ import org.apache.bcel.classfile.LocalVariable;
 import org.apache.bcel.classfile.LocalVariableTable;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ControlFlowSummary;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
@@ -85,8 +86,18 @@ public class PossibleConstantAllocationInLoop extends BytecodeScanningDetector {
         }
     }
 
+    /**
+     * implements the visitor to reset the stack and allocations, for methods that have a loop
+     *
+     * @param obj
+     *            the context object of the currently parsed code block
+     */
     @Override
     public void visitCode(Code obj) {
+        if (!ControlFlowSummary.of(obj).hasBackEdges()) {
+            return;
+        }
+
         stack.resetForMethodEntry(this);
         allocations.clear();
         storedAllocations.clear();
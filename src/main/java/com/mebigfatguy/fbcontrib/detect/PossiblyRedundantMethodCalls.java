@@ -20,6 +20,7 @@ package com.mebigfatguy.fbcontrib.detect;
 
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -27,14 +28,17 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.bcel.Const;
+import org.apache.bcel.Repository;
 import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.CodeException;
+import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.LineNumber;
 import org.apache.bcel.classfile.LineNumberTable;
 
 import com.mebigfatguy.fbcontrib.collect.MethodInfo;
 import com.mebigfatguy.fbcontrib.collect.Statistics;
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ControlFlowSummary;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
@@ -70,105 +74,50 @@ public class PossiblyRedundantMethodCalls extends BytecodeScanningDetector {
 	public static final String PRMC_LOW_METHODCALLS = "fbcontrib.PRMC.lowmethodcalls";
 
 	/**
-	 * a collection of names that are to be checked against a currently parsed
-	 * method, to see if that method is risky to be called redundant. The contents
-	 * are either
-	 * <ul>
-	 * <li>a simple name that can be found as <em>part</em> of the methodName, like
-	 * "destroy" which would match destroy(), or destroyAll()</li>
-	 * <li>a fully qualified method name that exactly matches a method, like
-	 * "java/lang/String.valueOf"</li>
-	 * </ul>
+	 * the tables used to decide whether, and how loudly, to report a redundant
+	 * call. As they are only needed once a redundant call has been found, they,
+	 * along with the user properties that extend them, are built on first use
+	 * rather than when the detector is loaded.
 	 */
-	private static Set<String> riskyMethodNameContents = new HashSet<>();
-	private static int highByteCountLimit = 200;
-	private static int highMethodCallLimit = 10;
-	private static int normalByteCountLimit = 75;
-	private static int normalMethodCallLimit = 4;
-	private static int lowByteCountLimit = 10;
-	private static int lowMethodCallLimit = 1;
-
-	static {
-		riskyMethodNameContents.add("next");
-		riskyMethodNameContents.add("add");
-		riskyMethodNameContents.add("create");
-		riskyMethodNameContents.add("append");
-		riskyMethodNameContents.add("find");
-		riskyMethodNameContents.add("put");
-		riskyMethodNameContents.add("remove");
-		riskyMethodNameContents.add("read");
-		riskyMethodNameContents.add("write");
-		riskyMethodNameContents.add("push");
-		riskyMethodNameContents.add("pop");
-		riskyMethodNameContents.add("scan");
-		riskyMethodNameContents.add("skip");
-		riskyMethodNameContents.add("clone");
-		riskyMethodNameContents.add("close");
-		riskyMethodNameContents.add("copy");
-		riskyMethodNameContents.add("currentTimeMillis");
-		riskyMethodNameContents.add("nanoTime");
-		riskyMethodNameContents.add("newInstance");
-		riskyMethodNameContents.add("noneOf");
-		riskyMethodNameContents.add("now");
-		riskyMethodNameContents.add("allOf");
-		riskyMethodNameContents.add("random");
-		riskyMethodNameContents.add("beep");
-		riskyMethodNameContents.add("emptyList");
-		riskyMethodNameContents.add("emptySet");
-		riskyMethodNameContents.add("emptyMap");
-
-		String userNameProp = System.getProperty(PRMC_RISKY_FIELD_USER_KEY);
-		if (userNameProp != null) {
-			String[] userNames = userNameProp.split(Values.WHITESPACE_COMMA_SPLIT);
-			for (String name : userNames) {
-				riskyMethodNameContents.add(name);
-			}
-		}
-		Integer prop = Integer.getInteger(PRMC_HIGH_BYTECOUNT);
-		if (prop != null) {
-			highByteCountLimit = prop.intValue();
-		}
-		prop = Integer.getInteger(PRMC_HIGH_METHODCALLS);
-		if (prop != null) {
-			highMethodCallLimit = prop.intValue();
-		}
-		prop = Integer.getInteger(PRMC_NORMAL_BYTECOUNT);
-		if (prop != null) {
-			normalByteCountLimit = prop.intValue();
-		}
-		prop = Integer.getInteger(PRMC_NORMAL_METHODCALLS);
-		if (prop != null) {
-			normalMethodCallLimit = prop.intValue();
-		}
-		prop = Integer.getInteger(PRMC_LOW_BYTECOUNT);
-		if (prop != null) {
-			lowByteCountLimit = prop.intValue();
-		}
-		prop = Integer.getInteger(PRMC_LOW_METHODCALLS);
-		if (prop != null) {
-			lowMethodCallLimit = prop.intValue();
-		}
-	}
-
-	private static Set<String> riskyClassNames = new HashSet<>();
-
-	static {
-		riskyClassNames.add("java/nio/ByteBuffer");
-		riskyClassNames.add("java/io/DataInputStream");
-		riskyClassNames.add("java/io/ObjectInputStream");
-		riskyClassNames.add("java/util/Calendar");
-		riskyClassNames.add("java/util/stream/Collectors");
-		riskyClassNames.add("com/google/common/collect/Lists");
-		riskyClassNames.add("com/google/common/collect/Sets");
-		riskyClassNames.add("com/google/common/collect/Maps");
-		riskyClassNames.add("com/google/common/collect/Queues");
-
-		String userNameProp = System.getProperty(PRMC_RISKY_CLASS_USER_KEY);
-		if (userNameProp != null) {
-			String[] userNames = userNameProp.split(Values.WHITESPACE_COMMA_SPLIT);
-			for (String name : userNames) {
-				riskyClassNames.add(name);
+	private static final class RiskTables {
+		/**
+		 * a collection of names that are to be checked against a currently parsed
+		 * method, to see if that method is risky to be called redundant. The contents
+		 * are either
+		 * <ul>
+		 * <li>a simple name that can be found as <em>part</em> of the methodName, like
+		 * "destroy" which would match destroy(), or destroyAll()</li>
+		 * <li>a fully qualified method name that exactly matches a method, like
+		 * "java/lang/String.valueOf"</li>
+		 * </ul>
+		 */
+		static final Set<String> riskyMethodNameContents = withUserNames(PRMC_RISKY_FIELD_USER_KEY, "next", "add",
+				"create", "append", "find", "put", "remove", "read", "write", "push", "pop", "scan", "skip", "clone",
+				"close", "copy", "currentTimeMillis", "nanoTime", "newInstance", "noneOf", "now", "allOf", "random",
+				"beep", "emptyList", "emptySet", "emptyMap");
+
+		static final Set<String> riskyClassNames = withUserNames(PRMC_RISKY_CLASS_USER_KEY, "java/nio/ByteBuffer",
+				"java/io/DataInputStream", "java/io/ObjectInputStream", "java/util/Calendar",
+				"java/util/stream/Collectors", "com/google/common/collect/Lists", "com/google/common/collect/Sets",
+				"com/google/common/collect/Maps", "com/google/common/collect/Queues");
+
+		static final int highByteCountLimit = Integer.getInteger(PRMC_HIGH_BYTECOUNT, 200).intValue();
+		static final int highMethodCallLimit = Integer.getInteger(PRMC_HIGH_METHODCALLS, 10).intValue();
+		static final int normalByteCountLimit = Integer.getInteger(PRMC_NORMAL_BYTECOUNT, 75).intValue();
+		static final int normalMethodCallLimit = Integer.getInteger(PRMC_NORMAL_METHODCALLS, 4).intValue();
+		static final int lowByteCountLimit = Integer.getInteger(PRMC_LOW_BYTECOUNT, 10).intValue();
+		static final int lowMethodCallLimit = Integer.getInteger(PRMC_LOW_METHODCALLS, 1).intValue();
+
+		private RiskTables() {
+		}
+
+		private static Set<String> withUserNames(String userKey, String... names) {
+			Set<String> s = new HashSet<>(Arrays.asList(names));
+			String userNameProp = System.getProperty(userKey);
+			if (userNameProp != null) {
+				s.addAll(Arrays.asList(userNameProp.split(Values.WHITESPACE_COMMA_SPLIT)));
 			}
+			return Collections.unmodifiableSet(s);
 		}
 	}
 
@@ -248,6 +197,7 @@ public class PossiblyRedundantMethodCalls extends BytecodeScanningDetector {
 		fieldMethodCalls.clear();
 		staticMethodCalls.clear();
 		branchTargets.clear();
+		branchTargets.or(ControlFlowSummary.of(obj).getForwardBranchTargets());
 		CodeException[] codeExceptions = obj.getExceptionTable();
 		for (CodeException codeEx : codeExceptions) {
 			// adding the end pc seems silly, but it is need because javac may repeat
@@ -279,15 +229,7 @@ public class PossiblyRedundantMethodCalls extends BytecodeScanningDetector {
 				branchTargets.clear(pc);
 			}
 
-			if (((seen >= Const.IFEQ) && (seen <= Const.GOTO)) || ((seen >= Const.IFNULL) && (seen <= Const.GOTO_W))) {
-				branchTargets.set(getBranchTarget());
-			} else if ((seen == Const.TABLESWITCH) || (seen == Const.LOOKUPSWITCH)) {
-				int[] offsets = getSwitchOffsets();
-				for (int offset : offsets) {
-					branchTargets.set(offset + pc);
-				}
-				branchTargets.set(getDefaultSwitchOffset() + pc);
-			} else if (OpcodeUtils.isAStore(seen)) {
+			if (OpcodeUtils.isAStore(seen)) {
 				localMethodCalls.remove(Integer.valueOf(RegisterUtils.getAStoreReg(this, seen)));
 			} else if (seen == Const.PUTFIELD) {
 				String fieldSource = "";
@@ -399,8 +341,7 @@ public class PossiblyRedundantMethodCalls extends BytecodeScanningDetector {
 								int ln = getLineNumber(pc);
 
 								if ((ln != mc.getLineNumber()) || (Math.abs(pc - mc.getPC()) < 10)) {
-									Statistics statistics = Statistics.getStatistics();
-									MethodInfo mi = statistics.getMethodStatistics(className, methodName, signature);
+									MethodInfo mi = findMethodStatistics(className, methodName, signature);
 
 									bugReporter.reportBug(
 											new BugInstance(this, BugType.PRMC_POSSIBLY_REDUNDANT_METHOD_CALLS.name(),
@@ -440,6 +381,11 @@ public class PossiblyRedundantMethodCalls extends BytecodeScanningDetector {
 						}
 					}
 				}
+			} else if ((seen == Const.INVOKESPECIAL) && !Values.CONSTRUCTOR.equals(getNameConstantOperand())
+					&& !getClassConstantOperand().equals(getClassName())) {
+				// a call to a super method may change what the fields hold, but javac also
+				// calls private methods with invokespecial
+				fieldMethodCalls.clear();
 			} else if (OpcodeUtils.isReturn(seen)) {
 				localMethodCalls.clear();
 				fieldMethodCalls.clear();
@@ -463,6 +409,37 @@ public class PossiblyRedundantMethodCalls extends BytecodeScanningDetector {
 		}
 	}
 
+	/**
+	 * returns the statistics of a called method, looking through the super classes
+	 * of the class named in the call, for methods that are inherited.
+	 *
+	 * @param className  the slashed name of the class named in the call
+	 * @param methodName the name of the method called
+	 * @param signature  the signature of the method called
+	 * @return the statistics of the method, which are empty if it was not seen in
+	 *         the first pass
+	 */
+	private MethodInfo findMethodStatistics(String className, String methodName, String signature) {
+		Statistics statistics = Statistics.getStatistics();
+		MethodInfo mi = statistics.getMethodStatistics(className, methodName, signature);
+		if (mi.getNumBytes() > 0) {
+			return mi;
+		}
+
+		try {
+			for (JavaClass superClass : Repository.lookupClass(className).getSuperClasses()) {
+				MethodInfo superMi = statistics.getMethodStatistics(superClass.getClassName().replace('.', '/'),
+						methodName, signature);
+				if (superMi.getNumBytes() > 0) {
+					return superMi;
+				}
+			}
+		} catch (ClassNotFoundException e) {
+			bugReporter.reportMissingClass(e);
+		}
+		return mi;
+	}
+
 	/**
 	 * returns the bug priority based on metrics about the method
 	 *
@@ -475,15 +452,15 @@ public class PossiblyRedundantMethodCalls extends BytecodeScanningDetector {
 			return LOW_PRIORITY;
 		}
 
-		if ((mi.getNumBytes() >= highByteCountLimit) || (mi.getNumMethodCalls() >= highMethodCallLimit)) {
+		if ((mi.getNumBytes() >= RiskTables.highByteCountLimit) || (mi.getNumMethodCalls() >= RiskTables.highMethodCallLimit)) {
 			return HIGH_PRIORITY;
 		}
 
-		if ((mi.getNumBytes() >= normalByteCountLimit) || (mi.getNumMethodCalls() >= normalMethodCallLimit)) {
+		if ((mi.getNumBytes() >= RiskTables.normalByteCountLimit) || (mi.getNumMethodCalls() >= RiskTables.normalMethodCallLimit)) {
 			return NORMAL_PRIORITY;
 		}
 
-		if ((mi.getNumBytes() >= lowByteCountLimit) || (mi.getNumMethodCalls() >= lowMethodCallLimit)) {
+		if ((mi.getNumBytes() >= RiskTables.lowByteCountLimit) || (mi.getNumMethodCalls() >= RiskTables.lowMethodCallLimit)) {
 			return LOW_PRIORITY;
 		}
 
@@ -499,16 +476,16 @@ public class PossiblyRedundantMethodCalls extends BytecodeScanningDetector {
 	 * @return whether the method sounds like it modifies this
 	 */
 	private static boolean isRiskyName(String className, String methodName) {
-		if (riskyClassNames.contains(className)) {
+		if (RiskTables.riskyClassNames.contains(className)) {
 			return true;
 		}
 
 		String qualifiedMethodName = className + '.' + methodName;
-		if (riskyMethodNameContents.contains(qualifiedMethodName)) {
+		if (RiskTables.riskyMethodNameContents.contains(qualifiedMethodName)) {
 			return true;
 		}
 
-		for (String riskyName : riskyMethodNameContents) {
+		for (String riskyName : RiskTables.riskyMethodNameContents) {
 			if (methodName.indexOf(riskyName) >= 0) {
 				return true;
 			}
@@ -0,0 +1,303 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.detect;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Code;
+
+import com.mebigfatguy.fbcontrib.collect.MethodInfo;
+import com.mebigfatguy.fbcontrib.collect.Statistics;
+import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ConstantPoolInterest;
+import com.mebigfatguy.fbcontrib.utils.ControlFlowSummary;
+import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
+import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
+import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.TernaryPatcher;
+import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
+import com.mebigfatguy.fbcontrib.utils.Values;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.OpcodeStack.CustomUserValue;
+import edu.umd.cs.findbugs.ba.ClassContext;
+
+/**
+ * looks for reflective lookups, Class.forName, and the Class methods that find methods, fields and constructors, made with constant arguments each time a
+ * method runs, either inside a loop, or in a method that many methods of its class call. As the member found never changes, it can be looked up once and
+ * kept in a static final field, preferably as a MethodHandle or VarHandle, which, unlike Method.invoke, the JIT can inline through. Method.invoke and
+ * Constructor.newInstance called in a loop on a member looked up this way are also reported. Lookups whose result is kept in a field are taken to be cached
+ * already, and are not reported.
+ */
+@CustomUserValue
+public class RepeatedReflectiveLookup extends BytecodeScanningDetector {
+
+    private static final String RRL_MIN_CALLERS = "fb-contrib.rrl.mincallers";
+
+    private static final ConstantPoolInterest REFLECTION_INTEREST = ConstantPoolInterest.of("forName", "getMethod", "getField", "getConstructor",
+            "getDeclared");
+
+    private static final String SIG_STRING_PREFIX = "(" + Values.SIG_JAVA_LANG_STRING;
+
+    /** methods of Class that look up a member by the name given as their first parameter */
+    private static final Set<String> NAMED_LOOKUPS = UnmodifiableSet.create("getMethod", "getDeclaredMethod", "getField", "getDeclaredField");
+
+    /** methods of Class that look up a constructor, which is constant when the class is */
+    private static final Set<String> CONSTRUCTOR_LOOKUPS = UnmodifiableSet.create("getConstructor", "getDeclaredConstructor");
+
+    /** class of a looked up member, the method of it that uses the member */
+    private static final Map<String, String> REFLECTIVE_USES;
+
+    static {
+        Map<String, String> uses = new HashMap<>();
+        uses.put("java/lang/reflect/Method", "invoke");
+        uses.put("java/lang/reflect/Constructor", "newInstance");
+        REFLECTIVE_USES = Collections.unmodifiableMap(uses);
+    }
+
+    private final BugReporter bugReporter;
+    private final int minCallers;
+    private OpcodeStack stack;
+    private ControlFlowSummary summary;
+    private boolean hasManyCallers;
+    /** pc of a constant lookup, the report for it, unless its result is found to be kept in a field */
+    private Map<Integer, BugInstance> pendingLookups;
+    /** pc of a constant lookup, the name of the member or class looked up */
+    private Map<Integer, String> lookupNames;
+    /** register, pc of the constant lookup whose result it holds */
+    private Map<Integer, Integer> lookupRegisters;
+
+    /**
+     * constructs a RRL detector given the reporter to report bugs on
+     *
+     * @param bugReporter
+     *            the sync of bug reports
+     */
+    public RepeatedReflectiveLookup(BugReporter bugReporter) {
+        this.bugReporter = bugReporter;
+        minCallers = Integer.getInteger(RRL_MIN_CALLERS, 3).intValue();
+    }
+
+    /**
+     * overrides the visitor to only look at classes that mention a reflective lookup, and to create the opcode stack
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     */
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        if (!REFLECTION_INTEREST.isInterestedIn(classContext.getJavaClass())) {
+            return;
+        }
+
+        try {
+            stack = new OpcodeStack();
+            pendingLookups = new LinkedHashMap<>();
+            lookupNames = new HashMap<>();
+            lookupRegisters = new HashMap<>();
+            super.visitClassContext(classContext);
+        } finally {
+            stack = null;
+            summary = null;
+            pendingLookups = null;
+            lookupNames = null;
+            lookupRegisters = null;
+        }
+    }
+
+    /**
+     * implements the visitor to only look at methods that have a loop, or that are called by many methods of the class, and to report the lookups found
+     * whose result was not kept in a field. Static initializers run once, so are ignored.
+     *
+     * @param obj
+     *            the context object of the currently parsed code block
+     */
+    @Override
+    public void visitCode(Code obj) {
+        if (Values.STATIC_INITIALIZER.equals(getMethodName())) {
+            return;
+        }
+
+        MethodInfo mi = Statistics.getStatistics().getMethodStatistics(getClassName(), getMethodName(), getMethodSig());
+        hasManyCallers = mi.getNumCallers() >= minCallers;
+        summary = ControlFlowSummary.of(obj);
+        if (!hasManyCallers && !summary.hasBackEdges()) {
+            return;
+        }
+
+        stack.resetForMethodEntry(this);
+        pendingLookups.clear();
+        lookupNames.clear();
+        lookupRegisters.clear();
+        super.visitCode(obj);
+
+        for (BugInstance bug : pendingLookups.values()) {
+            bugReporter.reportBug(bug);
+        }
+    }
+
+    /**
+     * implements the visitor to look for constant lookups, the uses of what they find, and where their results are stored
+     *
+     * @param seen
+     *            the opcode of the currently parsed instruction
+     */
+    @Override
+    public void sawOpcode(int seen) {
+        Integer lookupPC = null;
+        try {
+            stack.precomputation(this);
+
+            switch (seen) {
+                case Const.INVOKEVIRTUAL:
+                    if (Values.SLASHED_JAVA_LANG_CLASS.equals(getClassConstantOperand())) {
+                        lookupPC = sawLookup(false);
+                    } else {
+                        sawReflectiveUse();
+                    }
+                break;
+
+                case Const.INVOKESTATIC:
+                    if (Values.SLASHED_JAVA_LANG_CLASS.equals(getClassConstantOperand()) && "forName".equals(getNameConstantOperand())) {
+                        lookupPC = sawLookup(true);
+                    }
+                break;
+
+                case Const.PUTFIELD:
+                case Const.PUTSTATIC:
+                    if (stack.getStackDepth() > 0) {
+                        Integer pc = (Integer) stack.getStackItem(0).getUserValue();
+                        if (pc != null) {
+                            pendingLookups.remove(pc);
+                        }
+                    }
+                break;
+
+                default:
+                    if (OpcodeUtils.isAStore(seen)) {
+                        sawStore(seen);
+                    } else if (OpcodeUtils.isALoad(seen)) {
+                        lookupPC = lookupRegisters.get(Integer.valueOf(RegisterUtils.getALoadReg(this, seen)));
+                    }
+                break;
+            }
+        } finally {
+            TernaryPatcher.pre(stack, seen);
+            stack.sawOpcode(this, seen);
+            TernaryPatcher.post(stack, seen);
+
+            if ((lookupPC != null) && (stack.getStackDepth() > 0)) {
+                stack.getStackItem(0).setUserValue(lookupPC);
+            }
+        }
+    }
+
+    /**
+     * looks for a lookup whose arguments are constant, made in a loop or in a method with many callers, queueing a report for it
+     *
+     * @param isForName
+     *            whether the lookup is Class.forName, rather than a lookup of a member of a class
+     * @return the pc of the lookup, to mark its result with, or null if it isn't a constant lookup
+     */
+    private Integer sawLookup(boolean isForName) {
+        String methodName = getNameConstantOperand();
+        String sig = getSigConstantOperand();
+        int numParms = SignatureUtils.getNumParameters(sig);
+
+        Object constant;
+        if (isForName || NAMED_LOOKUPS.contains(methodName)) {
+            if (!sig.startsWith(SIG_STRING_PREFIX) || (stack.getStackDepth() < numParms)) {
+                return null;
+            }
+            constant = stack.getStackItem(numParms - 1).getConstant();
+        } else if (CONSTRUCTOR_LOOKUPS.contains(methodName)) {
+            if (stack.getStackDepth() <= numParms) {
+                return null;
+            }
+            constant = stack.getStackItem(numParms).getConstant();
+        } else {
+            return null;
+        }
+
+        if (constant == null) {
+            return null;
+        }
+
+        Integer pc = Integer.valueOf(getPC());
+        String name = constant.toString();
+        lookupNames.put(pc, name);
+        if (summary.isInLoop(getPC()) || hasManyCallers) {
+            pendingLookups.put(pc,
+                    new BugInstance(this, BugType.RRL_REPEATED_REFLECTIVE_LOOKUP.name(), summary.isInLoop(getPC()) ? NORMAL_PRIORITY : LOW_PRIORITY)
+                            .addClass(this).addMethod(this).addCalledMethod(this).addString(name).addSourceLine(this));
+        }
+        return pc;
+    }
+
+    /**
+     * looks for a method invoked, or a constructor called, in a loop, reflectively on a member that was looked up with constant arguments outside of the loop
+     */
+    private void sawReflectiveUse() {
+        String useMethod = REFLECTIVE_USES.get(getClassConstantOperand());
+        if ((useMethod == null) || !useMethod.equals(getNameConstantOperand()) || !summary.isInLoop(getPC())) {
+            return;
+        }
+
+        int numParms = SignatureUtils.getNumParameters(getSigConstantOperand());
+        if (stack.getStackDepth() <= numParms) {
+            return;
+        }
+
+        Integer pc = (Integer) stack.getStackItem(numParms).getUserValue();
+        if ((pc == null) || summary.isInLoop(pc.intValue())) {
+            return;
+        }
+
+        bugReporter.reportBug(new BugInstance(this, BugType.RRL_REPEATED_REFLECTIVE_LOOKUP.name(), LOW_PRIORITY).addClass(this).addMethod(this)
+                .addCalledMethod(this).addString(lookupNames.get(pc)).addSourceLine(this));
+    }
+
+    /**
+     * remembers which register holds the result of a constant lookup, as the opcode stack may drop the mark on it where the loop's branches merge
+     *
+     * @param seen
+     *            the store opcode
+     */
+    private void sawStore(int seen) {
+        if (stack.getStackDepth() == 0) {
+            return;
+        }
+
+        Integer reg = Integer.valueOf(RegisterUtils.getAStoreReg(this, seen));
+        Integer pc = (Integer) stack.getStackItem(0).getUserValue();
+        if (pc == null) {
+            lookupRegisters.remove(reg);
+        } else {
+            lookupRegisters.put(reg, pc);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.detect;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Code;
+
+import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ConstantPoolInterest;
+import com.mebigfatguy.fbcontrib.utils.ControlFlowSummary;
+import com.mebigfatguy.fbcontrib.utils.FQMethod;
+import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
+import com.mebigfatguy.fbcontrib.utils.TernaryPatcher;
+import com.mebigfatguy.fbcontrib.utils.Values;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ba.ClassContext;
+
+/**
+ * looks for regular expressions, given as string literals, that are compiled anew each time a method runs, either explicitly with Pattern.compile, or
+ * implicitly by String.matches, replaceAll, replaceFirst or split, or by Pattern.matches. As the expression never changes, it can be compiled once into a
+ * static final Pattern. Calls that sit inside a loop, found from the backward branches of the method, are reported at a higher priority. Patterns that are
+ * stored in a field as soon as they are compiled are taken to be cached already, and are not reported.
+ */
+public class RepeatedRegexCompilation extends BytecodeScanningDetector {
+
+    private static final String SLASHED_JAVA_UTIL_REGEX_PATTERN = "java/util/regex/Pattern";
+
+    private static final ConstantPoolInterest REGEX_INTEREST = ConstantPoolInterest.of(SLASHED_JAVA_UTIL_REGEX_PATTERN, "matches", "replaceAll",
+            "replaceFirst", "split");
+
+    /** regex compiling method, how deep the regex lies on the stack at the call */
+    private static final Map<FQMethod, Integer> REGEX_METHODS;
+
+    static {
+        String sigPattern = "L" + SLASHED_JAVA_UTIL_REGEX_PATTERN + ";";
+        Map<FQMethod, Integer> methods = new HashMap<>();
+        methods.put(new FQMethod(Values.SLASHED_JAVA_LANG_STRING, "matches", SignatureBuilder.SIG_STRING_TO_BOOLEAN), Values.ZERO);
+        methods.put(new FQMethod(Values.SLASHED_JAVA_LANG_STRING, "replaceAll",
+                new SignatureBuilder().withParamTypes(Values.SLASHED_JAVA_LANG_STRING, Values.SLASHED_JAVA_LANG_STRING)
+                        .withReturnType(Values.SLASHED_JAVA_LANG_STRING).toString()),
+                Values.ONE);
+        methods.put(new FQMethod(Values.SLASHED_JAVA_LANG_STRING, "replaceFirst",
+                new SignatureBuilder().withParamTypes(Values.SLASHED_JAVA_LANG_STRING, Values.SLASHED_JAVA_LANG_STRING)
+                        .withReturnType(Values.SLASHED_JAVA_LANG_STRING).toString()),
+                Values.ONE);
+        methods.put(new FQMethod(Values.SLASHED_JAVA_LANG_STRING, "split",
+                new SignatureBuilder().withParamTypes(Values.SLASHED_JAVA_LANG_STRING).withReturnType(SignatureBuilder.SIG_STRING_ARRAY).toString()),
+                Values.ZERO);
+        methods.put(new FQMethod(Values.SLASHED_JAVA_LANG_STRING, "split", new SignatureBuilder()
+                .withParamTypes(Values.SLASHED_JAVA_LANG_STRING, Values.SIG_PRIMITIVE_INT).withReturnType(SignatureBuilder.SIG_STRING_ARRAY).toString()),
+                Values.ONE);
+        methods.put(new FQMethod(SLASHED_JAVA_UTIL_REGEX_PATTERN, "compile",
+                new SignatureBuilder().withParamTypes(Values.SLASHED_JAVA_LANG_STRING).withReturnType(sigPattern).toString()), Values.ZERO);
+        methods.put(new FQMethod(SLASHED_JAVA_UTIL_REGEX_PATTERN, "compile",
+                new SignatureBuilder().withParamTypes(Values.SLASHED_JAVA_LANG_STRING, Values.SIG_PRIMITIVE_INT).withReturnType(sigPattern).toString()),
+                Values.ONE);
+        methods.put(new FQMethod(SLASHED_JAVA_UTIL_REGEX_PATTERN, "matches",
+                new SignatureBuilder().withParamTypes(Values.SLASHED_JAVA_LANG_STRING, "java/lang/CharSequence").withReturnType(Values.SIG_PRIMITIVE_BOOLEAN)
+                        .toString()),
+                Values.ONE);
+        REGEX_METHODS = Collections.unmodifiableMap(methods);
+    }
+
+    private static final String SPLIT_METACHARACTERS = ".$|()[{^?*+\\";
+
+    private final BugReporter bugReporter;
+    private OpcodeStack stack;
+    /** the report for a Pattern.compile just seen, held until it is known whether the pattern is stored in a field */
+    private BugInstance pendingCompile;
+
+    /**
+     * constructs a RRC detector given the reporter to report bugs on
+     *
+     * @param bugReporter
+     *            the sync of bug reports
+     */
+    public RepeatedRegexCompilation(BugReporter bugReporter) {
+        this.bugReporter = bugReporter;
+    }
+
+    /**
+     * overrides the visitor to only look at classes that mention a regex compiling method, and to create the opcode stack
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     */
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        if (!REGEX_INTEREST.isInterestedIn(classContext.getJavaClass())) {
+            return;
+        }
+
+        try {
+            stack = new OpcodeStack();
+            super.visitClassContext(classContext);
+        } finally {
+            stack = null;
+            pendingCompile = null;
+        }
+    }
+
+    /**
+     * implements the visitor to reset the opcode stack, skipping static initializers, as those are where constant patterns belong
+     *
+     * @param obj
+     *            the context object of the currently parsed code block
+     */
+    @Override
+    public void visitCode(Code obj) {
+        if (Values.STATIC_INITIALIZER.equals(getMethodName())) {
+            return;
+        }
+
+        stack.resetForMethodEntry(this);
+        pendingCompile = null;
+        super.visitCode(obj);
+        reportPendingCompile();
+    }
+
+    /**
+     * implements the visitor to look for calls to regex compiling methods whose regex is a string literal. A pattern compiled only to be stored in a field
+     * is taken to be cached already, as the field is there so that it isn't compiled again.
+     *
+     * @param seen
+     *            the opcode of the currently parsed instruction
+     */
+    @Override
+    public void sawOpcode(int seen) {
+        try {
+            stack.precomputation(this);
+
+            if (pendingCompile != null) {
+                if ((seen == Const.PUTFIELD) || (seen == Const.PUTSTATIC)) {
+                    pendingCompile = null;
+                } else if (seen != Const.DUP) {
+                    reportPendingCompile();
+                }
+            }
+
+            if ((seen == Const.INVOKEVIRTUAL) || (seen == Const.INVOKESTATIC)) {
+                String regex = getConstantRegex();
+                if (regex != null) {
+                    boolean inLoop = ControlFlowSummary.of(getCode()).isInLoop(getPC());
+                    BugInstance bug = new BugInstance(this, BugType.RRC_REPEATED_REGEX_COMPILATION.name(), inLoop ? NORMAL_PRIORITY : LOW_PRIORITY)
+                            .addClass(this).addMethod(this).addCalledMethod(this).addString(regex).addSourceLine(this);
+                    if ("compile".equals(getNameConstantOperand())) {
+                        pendingCompile = bug;
+                    } else {
+                        bugReporter.reportBug(bug);
+                    }
+                }
+            }
+        } finally {
+            TernaryPatcher.pre(stack, seen);
+            stack.sawOpcode(this, seen);
+            TernaryPatcher.post(stack, seen);
+        }
+    }
+
+    private void reportPendingCompile() {
+        if (pendingCompile != null) {
+            bugReporter.reportBug(pendingCompile);
+            pendingCompile = null;
+        }
+    }
+
+    /**
+     * returns the literal regex passed to the method being called, if it is a regex compiling method, and the regex is one it will actually compile
+     *
+     * @return the regex, or null if the call does not compile a constant regex
+     */
+    private String getConstantRegex() {
+        String clsName = getClassConstantOperand();
+        if (!Values.SLASHED_JAVA_LANG_STRING.equals(clsName) && !SLASHED_JAVA_UTIL_REGEX_PATTERN.equals(clsName)) {
+            return null;
+        }
+
+        Integer depth = REGEX_METHODS.get(new FQMethod(clsName, getNameConstantOperand(), getSigConstantOperand()));
+        if ((depth == null) || (stack.getStackDepth() <= depth.intValue())) {
+            return null;
+        }
+
+        Object constant = stack.getStackItem(depth.intValue()).getConstant();
+        if (!(constant instanceof String)) {
+            return null;
+        }
+
+        String regex = (String) constant;
+        if ("split".equals(getNameConstantOperand()) && isSplitFastPath(regex)) {
+            return null;
+        }
+
+        return regex;
+    }
+
+    /**
+     * returns whether String.split handles the regex itself, without compiling a pattern, which it does for a single character that is not a regex
+     * metacharacter, or for a backslash escaped character that is not a letter or digit
+     *
+     * @param regex
+     *            the regex passed to split
+     * @return whether no pattern is compiled
+     */
+    private static boolean isSplitFastPath(String regex) {
+        if (regex.length() == 1) {
+            return SPLIT_METACHARACTERS.indexOf(regex.charAt(0)) < 0;
+        }
+
+        if ((regex.length() == 2) && (regex.charAt(0) == '\\')) {
+            char c = regex.charAt(1);
+            return !(((c >= '0') && (c <= '9')) || ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'))) && !Character.isSurrogate(c);
+        }
+
+        return false;
+    }
+}
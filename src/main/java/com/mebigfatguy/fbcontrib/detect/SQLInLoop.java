@@ -26,6 +26,7 @@ import org.apache.bcel.Const;
 import org.apache.bcel.classfile.Code;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ConstantPoolInterest;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
@@ -44,6 +45,8 @@ public class SQLInLoop extends BytecodeScanningDetector {
 
     private static final Set<String> queryMethods = UnmodifiableSet.create("execute", "executeQuery");
 
+    private static final ConstantPoolInterest SQL_INTEREST = ConstantPoolInterest.of("java/sql/");
+
     private final BugReporter bugReporter;
     List<Integer> queryLocations;
     List<LoopLocation> loops;
@@ -66,6 +69,10 @@ public class SQLInLoop extends BytecodeScanningDetector {
      */
     @Override
     public void visitClassContext(ClassContext classContext) {
+        if (!SQL_INTEREST.isInterestedIn(classContext.getJavaClass())) {
+            return;
+        }
+
         try {
             queryLocations = new ArrayList<>();
             loops = new ArrayList<>();
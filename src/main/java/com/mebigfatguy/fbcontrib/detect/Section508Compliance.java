@@ -30,6 +30,7 @@ import org.apache.bcel.classfile.Field;
 import org.apache.bcel.classfile.JavaClass;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ConstantPoolInterest;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
@@ -139,6 +140,12 @@ public class Section508Compliance extends BytecodeScanningDetector {
                 new SignatureBuilder().withParamTypes(Values.SLASHED_JAVA_LANG_STRING, Values.SIG_PRIMITIVE_INT).toString()), Values.ONE);
     }
 
+    /**
+     * the awt and swing packages, and the component methods that may be called through a subclass of a gui class
+     */
+    private static final ConstantPoolInterest GUI_INTEREST = ConstantPoolInterest.of("java/awt/", "javax/swing/", "setBackground", "setForeground",
+            "setSize");
+
     private final BugReporter bugReporter;
     private OpcodeStack stack;
     private Set<XField> fieldLabels;
@@ -173,12 +180,14 @@ public class Section508Compliance extends BytecodeScanningDetector {
                 }
             }
 
-            stack = new OpcodeStack();
-            fieldLabels = new HashSet<>();
-            localLabels = new HashMap<>();
-            super.visitClassContext(classContext);
-            for (XField fa : fieldLabels) {
-                bugReporter.reportBug(new BugInstance(this, BugType.S508C_NO_SETLABELFOR.name(), NORMAL_PRIORITY).addClass(this).addField(fa));
+            if (GUI_INTEREST.isInterestedIn(classContext.getJavaClass())) {
+                stack = new OpcodeStack();
+                fieldLabels = new HashSet<>();
+                localLabels = new HashMap<>();
+                super.visitClassContext(classContext);
+                for (XField fa : fieldLabels) {
+                    bugReporter.reportBug(new BugInstance(this, BugType.S508C_NO_SETLABELFOR.name(), NORMAL_PRIORITY).addClass(this).addField(fa));
+                }
             }
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
@@ -20,9 +20,9 @@ package com.mebigfatguy.fbcontrib.detect;
 
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -52,6 +52,7 @@ import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.QMethod;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
+import com.mebigfatguy.fbcontrib.utils.SignatureCursor;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
 import com.mebigfatguy.fbcontrib.utils.TernaryPatcher;
 import com.mebigfatguy.fbcontrib.utils.ToString;
@@ -83,30 +84,32 @@ public class SillynessPotPourri extends BytecodeScanningDetector {
     private static final String LITERAL = "literal";
     private static final Pattern APPEND_PATTERN = Pattern.compile("([0-9]+):(.*)");
 
-    private static JavaClass calendarClass;
-
-    static {
-        try {
-            calendarClass = Repository.lookupClass("java/util/Calendar");
-        } catch (ClassNotFoundException cnfe) {
-            calendarClass = null;
+    /**
+     * the string methods that are pointless to call on a literal, mapped to the stack offset of the string they are called on. Only needed once a string
+     * method is called, so built then rather than when the detector is loaded.
+     */
+    private static final class SillyLiteralMethods {
+        static final Map<QMethod, Integer> methods;
+
+        static {
+            String localeToString = new SignatureBuilder().withParamTypes("java/util/Locale").withReturnType(Values.SLASHED_JAVA_LANG_STRING).toString();
+            Map<QMethod, Integer> m = new HashMap<>();
+            m.put(new QMethod("toLowerCase", SignatureBuilder.SIG_VOID_TO_STRING), Values.ZERO);
+            m.put(new QMethod("toUpperCase", SignatureBuilder.SIG_VOID_TO_STRING), Values.ZERO);
+            m.put(new QMethod("toLowerCase", localeToString), Values.ONE);
+            m.put(new QMethod("toUpperCase", localeToString), Values.ONE);
+            m.put(new QMethod("trim", SignatureBuilder.SIG_VOID_TO_STRING), Values.ZERO);
+            m.put(new QMethod("isEmpty", SignatureBuilder.SIG_VOID_TO_BOOLEAN), Values.ZERO);
+            methods = Collections.unmodifiableMap(m);
         }
-    }
 
-    private static Map<QMethod, Integer> methodsThatAreSillyOnStringLiterals = new HashMap<>();
-
-    static {
-        String localeToString = new SignatureBuilder().withParamTypes("java/util/Locale").withReturnType(Values.SLASHED_JAVA_LANG_STRING).toString();
-        methodsThatAreSillyOnStringLiterals.put(new QMethod("toLowerCase", SignatureBuilder.SIG_VOID_TO_STRING), Values.ZERO);
-        methodsThatAreSillyOnStringLiterals.put(new QMethod("toUpperCase", SignatureBuilder.SIG_VOID_TO_STRING), Values.ZERO);
-        methodsThatAreSillyOnStringLiterals.put(new QMethod("toLowerCase", localeToString), Values.ONE);
-        methodsThatAreSillyOnStringLiterals.put(new QMethod("toUpperCase", localeToString), Values.ONE);
-        methodsThatAreSillyOnStringLiterals.put(new QMethod("trim", SignatureBuilder.SIG_VOID_TO_STRING), Values.ZERO);
-        methodsThatAreSillyOnStringLiterals.put(new QMethod("isEmpty", SignatureBuilder.SIG_VOID_TO_BOOLEAN), Values.ZERO);
+        private SillyLiteralMethods() {
+        }
     }
 
     private final BugReporter bugReporter;
     private final Set<String> toStringClasses;
+    private final SignatureCursor parmCursor = new SignatureCursor();
     private OpcodeStack stack;
     private int lastPCs[];
     private int lastOpcode;
@@ -680,8 +683,8 @@ public class SillynessPotPourri extends BytecodeScanningDetector {
         } else if ("compareTo".equals(methodName)) {
             String sig = getSigConstantOperand();
             if ("I".equals(SignatureUtils.getReturnSignature(sig))) {
-                List<String> parms = SignatureUtils.getParameterSignatures(sig);
-                if ((parms.size() == 1) && className.equals(SignatureUtils.trimSignature(parms.get(0)))) {
+                parmCursor.reset(sig);
+                if ((parmCursor.getNumParameters() == 1) && parmCursor.next() && parmCursor.isClass(className)) {
                     return new SPPUserValue(SPPMethod.COMPARETO);
                 }
             }
@@ -743,7 +746,7 @@ public class SillynessPotPourri extends BytecodeScanningDetector {
 
     private SPPUserValue stringSilliness(String methodName, String signature) {
 
-        Integer stackOffset = methodsThatAreSillyOnStringLiterals.get(new QMethod(methodName, signature));
+        Integer stackOffset = SillyLiteralMethods.methods.get(new QMethod(methodName, signature));
         int offset;
         if ((stackOffset != null) && (stack.getStackDepth() > (offset = stackOffset.intValue()))) {
             OpcodeStack.Item itm = stack.getStackItem(offset);
@@ -760,7 +763,7 @@ public class SillynessPotPourri extends BytecodeScanningDetector {
             }
         }
         // not an elseif because the below cases might be in the set
-        // methodsThatAreSillyOnStringLiterals
+        // SillyLiteralMethods
         SPPUserValue userValue = null;
 
         if ("intern".equals(methodName)) {
@@ -880,7 +883,7 @@ public class SillynessPotPourri extends BytecodeScanningDetector {
             if (!Values.SIG_JAVA_LANG_OBJECT.equals(itemSig) && !"Ljava/util/Calendar;".equals(itemSig) && !"Ljava/util/GregorianCalendar;".equals(itemSig)) {
                 try {
                     JavaClass cls = Repository.lookupClass(SignatureUtils.stripSignature(itemSig));
-                    if (!cls.instanceOf(calendarClass)) {
+                    if (!cls.instanceOf(Repository.lookupClass("java/util/Calendar"))) {
                         bugReporter.reportBug(new BugInstance(this, BugType.SPP_INVALID_CALENDAR_COMPARE.name(), NORMAL_PRIORITY).addClass(this).addMethod(this)
                                 .addSourceLine(this));
                     }
@@ -20,7 +20,6 @@ package com.mebigfatguy.fbcontrib.detect;
 
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.JavaClass;
-import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.Values;
@@ -29,16 +28,13 @@ import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
-import edu.umd.cs.findbugs.ba.ClassContext;
 
 /**
  * Looks for methods that call wait, notify or notifyAll on an instance of a java.lang.Thread. Since the internal workings of the threads is to synchronize on
  * the thread itself, introducing client calls will confuse the thread state of the object in question, and will cause spurious thread state changes, either
  * waking threads up when not intended, or removing the the thread from the runnable state.
  */
-public class SpuriousThreadStates extends BytecodeScanningDetector {
-    private BugReporter bugReporter;
-    private OpcodeStack stack;
+public class SpuriousThreadStates extends AbstractOpcodeSubscriber {
 
     /**
      * constructs a STS detector given the reporter to report bugs on
@@ -47,38 +43,20 @@ public class SpuriousThreadStates extends BytecodeScanningDetector {
      *            the sync of bug reports
      */
     public SpuriousThreadStates(BugReporter bugReporter) {
-        this.bugReporter = bugReporter;
+        super(bugReporter);
     }
 
     @Override
-    public void visitClassContext(ClassContext classContext) {
-        try {
-            stack = new OpcodeStack();
-            super.visitClassContext(classContext);
-        } finally {
-            stack = null;
-        }
-    }
-
-    @Override
-    public void visitMethod(Method obj) {
-        stack.resetForMethodEntry(this);
-        super.visitMethod(obj);
-    }
-
-    @Override
-    public void sawOpcode(int seen) {
+    protected Object sawOpcode(BytecodeScanningDetector scanner, OpcodeStack stack, int seen) {
         OpcodeStack.Item itm = null;
 
         try {
-            stack.precomputation(this);
-
             if (seen == Const.INVOKEVIRTUAL) {
-                String className = getClassConstantOperand();
+                String className = scanner.getClassConstantOperand();
                 if (Values.SLASHED_JAVA_LANG_OBJECT.equals(className)) {
                     if (stack.getStackDepth() > 0) {
-                        String methodName = getNameConstantOperand();
-                        String signature = getSigConstantOperand();
+                        String methodName = scanner.getNameConstantOperand();
+                        String signature = scanner.getSigConstantOperand();
                         if (("wait".equals(methodName) || "notify".equals(methodName) || "notifyAll".equals(methodName))
                                 && SignatureBuilder.SIG_VOID_TO_VOID.equals(signature)) {
                             itm = stack.getStackItem(0);
@@ -109,16 +87,15 @@ public class SpuriousThreadStates extends BytecodeScanningDetector {
                         }
 
                         if (found) {
-                            bugReporter.reportBug(
-                                    new BugInstance(this, "STS_SPURIOUS_THREAD_STATES", NORMAL_PRIORITY).addClass(this).addMethod(this).addSourceLine(this));
+                            bugReporter.reportBug(new BugInstance(this, "STS_SPURIOUS_THREAD_STATES", NORMAL_PRIORITY).addClass(scanner).addMethod(scanner)
+                                    .addSourceLine(scanner));
                         }
                     }
                 }
             }
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
-        } finally {
-            stack.sawOpcode(this, seen);
         }
+        return null;
     }
 }
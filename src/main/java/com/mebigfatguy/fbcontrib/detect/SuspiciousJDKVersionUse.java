@@ -18,32 +18,28 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import javax.annotation.Nullable;
 import org.apache.bcel.Const;
 
 import org.apache.bcel.Repository;
-import org.apache.bcel.classfile.ClassParser;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.JdkApiIndex;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
@@ -54,35 +50,12 @@ import edu.umd.cs.findbugs.ba.ClassContext;
 
 /**
  * looks for calls to classes and methods that do not exist in the JDK for which this class is compiled. This can happen if you specify the -source and -target
- * options of the javac compiler, and specify a target that is less than the jdk version of the javac compiler.
+ * options of the javac compiler, and specify a target that is less than the jdk version of the javac compiler. The api of each jdk is looked up in a
+ * {@link JdkApiIndex}, either one named by the fb-contrib.sjvu.index.N property, or one built once from the rt.jar, jmods or modules image of a jdk, and kept
+ * in the fb-contrib.sjvu.indexdir directory. That jdk is the running one when it is of the right release, else one installed alongside it, or else the one
+ * named by the fb-contrib.sjvu.jdkhome.N property.
  */
 public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
-    private static final Map<Integer, String> VER_REG_EX = new HashMap<>();
-
-    static {
-        VER_REG_EX.put(Integer.valueOf(Const.MAJOR_1_1), "(jdk|j2?re)1.1");
-        VER_REG_EX.put(Integer.valueOf(Const.MAJOR_1_2), "(jdk|j2?re)1.2");
-        VER_REG_EX.put(Integer.valueOf(Const.MAJOR_1_3), "(jdk|j2?re)1.3");
-        VER_REG_EX.put(Integer.valueOf(Const.MAJOR_1_4), "(jdk|j2?re)1.4");
-        VER_REG_EX.put(Values.JAVA_5, "((jdk|j2?re)1.5)|(java-5)");
-        VER_REG_EX.put(Integer.valueOf(Const.MAJOR_1_6), "((jdk|j2?re)1.6)|(java-6)");
-        VER_REG_EX.put(Integer.valueOf(Const.MAJOR_1_7), "((jdk|j2?re)1.7)|(java-7)");
-        VER_REG_EX.put(Integer.valueOf(Const.MAJOR_1_8), "((jdk|j2?re)1.8)|(java-8)");
-    }
-
-    private static final Map<Integer, Integer> HUMAN_VERSIONS = new HashMap<>();
-
-    static {
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_1), Values.ONE);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_2), Values.TWO);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_3), Values.THREE);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_4), Values.FOUR);
-        HUMAN_VERSIONS.put(Values.JAVA_5, Values.FIVE);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_6), Values.SIX);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_7), Values.SEVEN);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_8), Values.EIGHT);
-    }
-
     private static Set<String> knownJDKJavaxPackageRoots = UnmodifiableSet.create(
     // @formatter:off
         "javax/accessibility/",
@@ -109,62 +82,94 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
     // @formatter:on
     );
 
-    private static final Pattern jarPattern;
     private static final String SJVU_JDKHOME = "fb-contrib.sjvu.jdkhome";
+    private static final String SJVU_INDEX = "fb-contrib.sjvu.index";
+    private static final String SJVU_INDEXDIR = "fb-contrib.sjvu.indexdir";
+
+    /**
+     * the patterns used to find the jdks installed alongside the running one, only needed when no api index is named or stored for a class's jdk, and so
+     * built then rather than when the detector is loaded
+     */
+    private static final class JdkLocations {
+        static final Map<Integer, String> VER_REG_EX;
+        static final Pattern jarPattern;
+
+        static {
+            Map<Integer, String> vre = new HashMap<>();
+            vre.put(Integer.valueOf(Const.MAJOR_1_1), "(jdk|j2?re)1.1");
+            vre.put(Integer.valueOf(Const.MAJOR_1_2), "(jdk|j2?re)1.2");
+            vre.put(Integer.valueOf(Const.MAJOR_1_3), "(jdk|j2?re)1.3");
+            vre.put(Integer.valueOf(Const.MAJOR_1_4), "(jdk|j2?re)1.4");
+            vre.put(Values.JAVA_5, "((jdk|j2?re)1.5)|(java-5)");
+            vre.put(Integer.valueOf(Const.MAJOR_1_6), "((jdk|j2?re)1.6)|(java-6)");
+            vre.put(Integer.valueOf(Const.MAJOR_1_7), "((jdk|j2?re)1.7)|(java-7)");
+            vre.put(Integer.valueOf(Const.MAJOR_1_8), "((jdk|j2?re)1.8)|(java-8)");
+            VER_REG_EX = Collections.unmodifiableMap(vre);
+
+            String os = System.getProperty("os.name");
+            if (os.toLowerCase(Locale.getDefault()).startsWith("windows")) {
+                jarPattern = Pattern.compile("jar:file:/*([^!]*)");
+            } else {
+                jarPattern = Pattern.compile("jar:file:([^!]*)");
+            }
+        }
 
-    static {
-        String os = System.getProperty("os.name");
-        if (os.toLowerCase(Locale.getDefault()).startsWith("windows")) {
-            jarPattern = Pattern.compile("jar:file:/*([^!]*)");
-        } else {
-            jarPattern = Pattern.compile("jar:file:([^!]*)");
+        private JdkLocations() {
         }
 
+        /**
+         * returns the pattern of the directory names of a release's jdks. From java 9 on these are named like jdk-11 or java-11-openjdk, and from java 5 on
+         * some installers name them by the version only, like 8.0.392 or 11.0.2
+         *
+         * @param majorVersion
+         *            the class file major version
+         * @param humanVersion
+         *            the java release
+         * @return the pattern
+         */
+        static String getVersionPattern(Integer majorVersion, Integer humanVersion) {
+            String versionStr = VER_REG_EX.get(majorVersion);
+            if (versionStr == null) {
+                return "(((jdk|j2?re)-?)|(java-)|^)" + humanVersion + "(\\D|$)";
+            }
+            if (humanVersion.intValue() >= 5) {
+                return versionStr + "|(^" + humanVersion + "\\.)";
+            }
+            return versionStr;
+        }
     }
 
-    private final Map<String, File> versionPaths;
-    private final Map<Integer, Map<String, Set<String>>> validMethodsByVersion;
-    private final Map<String, String> superNames;
-    private final Map<Integer, ZipFile> jdkZips;
-    private File jdksRoot = null;
+    private final Map<Integer, File> versionPaths;
+    private final Map<Integer, JdkApiIndex> jdkIndexes;
     private Integer clsMajorVersion;
-    private ZipFile jdkZip;
+    private JdkApiIndex jdkIndex;
     private final BugReporter bugReporter;
 
     public SuspiciousJDKVersionUse(BugReporter bugReporter) {
         this.bugReporter = bugReporter;
         versionPaths = new HashMap<>();
-        jdkZips = new HashMap<>();
-        validMethodsByVersion = new HashMap<>();
-        superNames = new HashMap<>();
+        jdkIndexes = new HashMap<>();
     }
 
     @Override
     public void visitClassContext(ClassContext classContext) {
         try {
             clsMajorVersion = Integer.valueOf(classContext.getJavaClass().getMajor());
-            jdkZip = jdkZips.get(clsMajorVersion);
-            if (jdkZip == null) {
-                File rtJar = getRTJarFile();
-                if (rtJar == null) {
-                    rtJar = getRTJarFromProperty(clsMajorVersion);
-                }
-                if (rtJar != null) {
-                    jdkZip = new ZipFile(rtJar);
-                    jdkZips.put(clsMajorVersion, jdkZip);
-                }
+            if (jdkIndexes.containsKey(clsMajorVersion)) {
+                jdkIndex = jdkIndexes.get(clsMajorVersion);
+            } else {
+                jdkIndex = loadIndex();
+                jdkIndexes.put(clsMajorVersion, jdkIndex);
             }
 
-            if (jdkZip == null) {
+            if (jdkIndex == null) {
                 return;
             }
 
             super.visitClassContext(classContext);
-        } catch (IOException ioe) {
-            // Hmm What to do
         } finally {
             clsMajorVersion = null;
-            jdkZip = null;
+            jdkIndex = null;
         }
     }
 
@@ -172,33 +177,21 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
     public void sawOpcode(int seen) {
 
         String clsName;
-        try {
-            if ((seen == Const.INVOKEVIRTUAL) // Interfaces are more difficult, ignore
-                                        // for now
-                    || (seen == Const.INVOKESTATIC) || (seen == Const.INVOKESPECIAL)) {
-                clsName = getClassConstantOperand();
-                if ((clsName.startsWith("java/")) || (clsName.startsWith("javax/"))) {
-                    Method m = findCalledMethod();
-                    if (m == null) {
-                        return;
-                    }
-
-                    Map<String, Set<String>> validMethods = validMethodsByVersion.get(clsMajorVersion);
-                    if (validMethods == null) {
-                        validMethods = new HashMap<>();
-                        validMethodsByVersion.put(clsMajorVersion, validMethods);
-                    }
+        if ((seen == Const.INVOKEVIRTUAL) // Interfaces are more difficult, ignore
+                                    // for now
+                || (seen == Const.INVOKESTATIC) || (seen == Const.INVOKESPECIAL)) {
+            clsName = getClassConstantOperand();
+            if ((clsName.startsWith("java/")) || (clsName.startsWith("javax/"))) {
+                Method m = findCalledMethod();
+                if (m == null) {
+                    return;
+                }
 
-                    if (!isValid(validMethods, clsName)) {
-                        bugReporter.reportBug(new BugInstance(this, BugType.SJVU_SUSPICIOUS_JDK_VERSION_USE.name(), HIGH_PRIORITY).addClass(this)
-                                .addMethod(this).addSourceLine(this).addCalledMethod(this));
-                    }
+                if (!isValid(clsName)) {
+                    bugReporter.reportBug(new BugInstance(this, BugType.SJVU_SUSPICIOUS_JDK_VERSION_USE.name(), HIGH_PRIORITY).addClass(this)
+                            .addMethod(this).addSourceLine(this).addCalledMethod(this));
                 }
             }
-        } catch (ClassNotFoundException cnfe) {
-            bugReporter.reportMissingClass(cnfe);
-        } catch (IOException ioe) {
-            // Hmm what do do.
         }
     }
 
@@ -222,48 +215,32 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
         }
     }
 
-    private boolean isValid(Map<String, Set<String>> validMethods, String clsName) throws IOException, ClassNotFoundException {
-
-        Set<String> methodInfos = validMethods.get(clsName);
-        if (methodInfos == null) {
-
-            ZipEntry ze = jdkZip.getEntry(clsName + ".class");
-            if (ze == null) {
-                if (isJavaXExternal(clsName)) {
-                    return true;
-                }
-
-                bugReporter.reportBug(new BugInstance(this, BugType.SJVU_SUSPICIOUS_JDK_VERSION_USE.name(), HIGH_PRIORITY).addClass(this).addMethod(this)
-                        .addSourceLine(this).addClass(clsName));
-            } else if (clsName.startsWith("java/")) {
-                JavaClass calledClass = null;
-                try (InputStream is = new BufferedInputStream(jdkZip.getInputStream(ze))) {
-                    ClassParser parser = new ClassParser(is, clsName);
-                    calledClass = parser.parse();
+    /**
+     * walks up the superclasses of the called class in the index of the jdk the class is compiled for, looking for the called method
+     *
+     * @param clsName
+     *            the slashed name of the called class
+     * @return whether the method exists in that jdk, or can't be checked
+     */
+    private boolean isValid(String clsName) {
+        String validClsName = clsName;
+        while (true) {
+            if (!jdkIndex.hasClass(validClsName)) {
+                if (!isJavaXExternal(validClsName)) {
+                    bugReporter.reportBug(new BugInstance(this, BugType.SJVU_SUSPICIOUS_JDK_VERSION_USE.name(), HIGH_PRIORITY).addClass(this)
+                            .addMethod(this).addSourceLine(this).addClass(validClsName));
                 }
+                return true;
+            }
 
-                superNames.put(clsName, calledClass.getSuperclassName().replace('.', '/'));
-                Method[] methods = calledClass.getMethods();
-
-                methodInfos = new HashSet<>(methods.length);
-                validMethods.put(clsName, methodInfos);
-
-                for (Method m : methods) {
-                    methodInfos.add(m.getName() + m.getSignature());
-                }
+            if (!validClsName.startsWith("java/") || jdkIndex.hasMethod(validClsName, getNameConstantOperand(), getSigConstantOperand())) {
+                return true;
             }
-        }
 
-        if (methodInfos == null) {
-            return true;
-        }
-        String wantedMethod = getNameConstantOperand() + getSigConstantOperand();
-        if (methodInfos.contains(wantedMethod)) {
-            return true;
-        } else if (Values.SLASHED_JAVA_LANG_OBJECT.equals(clsName)) {
-            return false;
-        } else {
-            return isValid(validMethods, superNames.get(clsName));
+            validClsName = jdkIndex.getSuperclassName(validClsName);
+            if (validClsName == null) {
+                return false;
+            }
         }
     }
 
@@ -286,8 +263,7 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
 
         int lastSlashPos = className.lastIndexOf('/');
         String packageName = className.substring(0, lastSlashPos);
-        ZipEntry ze = jdkZip.getEntry(packageName);
-        if (ze != null) {
+        if (jdkIndex.hasPackage(packageName)) {
             return false;
         }
 
@@ -300,95 +276,186 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
         return true;
     }
 
+    /**
+     * finds the classes of a jdk of the given release, either the running jdk, if it is of that release, or one installed in the same directory as it
+     *
+     * @param humanVersion
+     *            the java release, such as 8
+     * @return the rt.jar, jmods directory or modules image of the jdk, or null if none is found
+     */
     @Nullable
-    private File getRTJarFile() {
-        String versionStr = VER_REG_EX.get(clsMajorVersion);
-        if (versionStr == null) {
-            return null;
+    private File getJDKClasses(Integer humanVersion) {
+        File jdkClasses = versionPaths.get(humanVersion);
+        if ((jdkClasses != null) || versionPaths.containsKey(humanVersion)) {
+            return jdkClasses;
         }
 
-        File rtPath = versionPaths.get(versionStr);
-        if (rtPath != null) {
-            return rtPath;
-        }
-        if (versionPaths.containsKey(versionStr)) {
-            return null;
-        }
-
-        if (jdksRoot == null) {
-            URL jdkUrl = SuspiciousJDKVersionUse.class.getResource("/java/lang/Object.class");
-            if (jdkUrl != null) {
-                Matcher m = jarPattern.matcher(jdkUrl.toExternalForm());
-
-                if (m.find()) {
-                    String path = m.group(1);
-                    jdksRoot = new File(path);
-                    Pattern verPat = Pattern.compile(versionStr);
-                    m = verPat.matcher(jdksRoot.getName());
-                    while ((jdksRoot.getParentFile() != null) && !m.find()) {
-                        jdksRoot = jdksRoot.getParentFile();
-                        m = verPat.matcher(jdksRoot.getName());
-                    }
-
-                    if (jdksRoot.getParentFile() == null) {
-                        versionPaths.put(versionStr, null);
-                        return null;
-                    }
-
-                    try {
-                        String encoding = System.getProperty("file.encoding");
-                        jdksRoot = new File(URLDecoder.decode(jdksRoot.getParentFile().getPath(), encoding));
-                    } catch (UnsupportedEncodingException uee) {
-                        versionPaths.put(versionStr, null);
-                        return null;
-                    }
-                }
+        File runningJdk = getRunningJDKHome();
+        if (runningJdk != null) {
+            if (humanVersion.equals(getRunningVersion())) {
+                jdkClasses = getJDKClassesIn(runningJdk);
             }
-        }
 
-        if (jdksRoot != null) {
-            File[] possibleJdks = jdksRoot.listFiles();
+            File jdksRoot = runningJdk.getParentFile();
+            File[] possibleJdks = ((jdkClasses == null) && (jdksRoot != null)) ? jdksRoot.listFiles() : null;
             if (possibleJdks != null) {
+                Pattern verPat = Pattern.compile(JdkLocations.getVersionPattern(clsMajorVersion, humanVersion));
                 for (File possibleJdk : possibleJdks) {
-                    Pattern verPat = Pattern.compile(versionStr);
-                    Matcher m = verPat.matcher(possibleJdk.getName());
-                    if (m.find()) {
-                        File wantedRtJar = new File(possibleJdk, "lib/rt.jar");
-                        if (!wantedRtJar.exists()) {
-                            wantedRtJar = new File(possibleJdk, "jre/lib/rt.jar");
-                            if (!wantedRtJar.exists()) {
-                                versionPaths.put(versionStr, null);
-                                return null;
-                            }
+                    if (verPat.matcher(possibleJdk.getName()).find()) {
+                        jdkClasses = getJDKClassesIn(possibleJdk);
+                        if (jdkClasses != null) {
+                            break;
                         }
-                        versionPaths.put(versionStr, wantedRtJar);
-                        return wantedRtJar;
                     }
                 }
             }
         }
 
-        versionPaths.put(versionStr, null);
+        versionPaths.put(humanVersion, jdkClasses);
+        return jdkClasses;
+    }
 
-        return null;
+    /**
+     * finds the home directory of the running jdk from where java/lang/Object is loaded, which is a jar: url into rt.jar up to java 8, and a jrt: url into
+     * the modules image from java 9 on
+     *
+     * @return the home directory, or null if it can't be found
+     */
+    @Nullable
+    private static File getRunningJDKHome() {
+        URL jdkUrl = SuspiciousJDKVersionUse.class.getResource("/java/lang/Object.class");
+        if (jdkUrl == null) {
+            return null;
+        }
+
+        if ("jrt".equals(jdkUrl.getProtocol())) {
+            return new File(System.getProperty("java.home"));
+        }
+
+        Matcher m = JdkLocations.jarPattern.matcher(jdkUrl.toExternalForm());
+        if (!m.find()) {
+            return null;
+        }
+
+        try {
+            String encoding = System.getProperty("file.encoding");
+            // rt.jar is in the lib directory of the jre, which in a jdk is itself in a jre directory
+            File lib = new File(URLDecoder.decode(m.group(1), encoding)).getParentFile();
+            File home = (lib == null) ? null : lib.getParentFile();
+            if ((home != null) && "jre".equals(home.getName()) && (home.getParentFile() != null)) {
+                home = home.getParentFile();
+            }
+            return home;
+        } catch (UnsupportedEncodingException uee) {
+            return null;
+        }
     }
 
+    /**
+     * returns the release of the running jdk from the java.specification.version property, which is 1.8 for java 8, and 11 for java 11
+     *
+     * @return the release, or null if it can't be parsed
+     */
     @Nullable
-    private static File getRTJarFromProperty(Integer requestedVersion) {
-        String jdkHome = System.getProperty(SJVU_JDKHOME + '.' + HUMAN_VERSIONS.get(requestedVersion));
-        if (jdkHome == null) {
+    private static Integer getRunningVersion() {
+        String version = System.getProperty("java.specification.version", "");
+        if (version.startsWith("1.")) {
+            version = version.substring(2);
+        }
+        try {
+            return Integer.valueOf(version);
+        } catch (NumberFormatException e) {
             return null;
         }
+    }
 
+    /**
+     * finds the classes of a jdk, its rt.jar up to java 8, and its jmods, or when it has none, its modules image from java 9 on
+     *
+     * @param jdkHome
+     *            the home directory of the jdk
+     * @return the rt.jar, jmods directory or modules image, or null
+     */
+    @Nullable
+    private static File getJDKClassesIn(File jdkHome) {
         File rtJar = new File(jdkHome, "lib/rt.jar");
-        if (rtJar.exists()) {
+        if (rtJar.isFile()) {
             return rtJar;
         }
         rtJar = new File(jdkHome, "jre/lib/rt.jar");
-        if (rtJar.exists()) {
+        if (rtJar.isFile()) {
             return rtJar;
         }
+        File jmods = new File(jdkHome, "jmods");
+        if (jmods.isDirectory()) {
+            return jmods;
+        }
+        File modules = new File(jdkHome, "lib/modules");
+        if (modules.isFile()) {
+            return modules;
+        }
 
         return null;
     }
+
+    /**
+     * finds the api index for the jdk the current class is compiled for, either one given explicitly, or one built, or previously built, from the classes of
+     * that jdk
+     *
+     * @return the index, or null if no index or jdk can be found
+     */
+    @Nullable
+    private JdkApiIndex loadIndex() {
+        Integer humanVersion = getHumanVersion(clsMajorVersion);
+        if (humanVersion == null) {
+            return null;
+        }
+
+        try {
+            String indexName = System.getProperty(SJVU_INDEX + '.' + humanVersion);
+            if (indexName != null) {
+                return JdkApiIndex.open(new File(indexName));
+            }
+
+            File jdkClasses = getJDKClasses(humanVersion);
+            if (jdkClasses == null) {
+                jdkClasses = getJDKClassesFromProperty(humanVersion);
+            }
+            if (jdkClasses == null) {
+                return null;
+            }
+
+            String indexDir = System.getProperty(SJVU_INDEXDIR);
+            File cacheDir = (indexDir != null) ? new File(indexDir) : new File(System.getProperty("java.io.tmpdir"), "fb-contrib-sjvu");
+            return JdkApiIndex.forSource(jdkClasses, humanVersion.intValue(), cacheDir);
+        } catch (IOException ioe) {
+            bugReporter.logError("Failed to load the jdk " + humanVersion + " api index for SuspiciousJDKVersionUse", ioe);
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Integer getHumanVersion(Integer majorVersion) {
+        if (majorVersion.intValue() < Const.MAJOR_1_1) {
+            return null;
+        }
+        return Integer.valueOf(majorVersion.intValue() - (Const.MAJOR_1_1 - 1));
+    }
+
+    /**
+     * finds the classes of the jdk named by the fb-contrib.sjvu.jdkhome.N property
+     *
+     * @param humanVersion
+     *            the java release, such as 8
+     * @return the rt.jar, jmods directory or modules image, or null
+     */
+    @Nullable
+    private static File getJDKClassesFromProperty(Integer humanVersion) {
+        String jdkHome = System.getProperty(SJVU_JDKHOME + '.' + humanVersion);
+        if (jdkHome == null) {
+            return null;
+        }
+
+        return getJDKClassesIn(new File(jdkHome));
+    }
 }
@@ -32,6 +32,7 @@ import org.apache.bcel.classfile.LocalVariableTable;
 import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ControlFlowSummary;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
@@ -102,7 +103,7 @@ public class SuspiciousLoopSearch extends BytecodeScanningDetector {
      */
     @Override
     public void visitCode(Code obj) {
-        if (prescreen(getMethod())) {
+        if (prescreen(getMethod(), obj)) {
             ifBlocks.clear();
             loadedRegs.clear();
             loopLocations.clear();
@@ -272,15 +273,17 @@ public class SuspiciousLoopSearch extends BytecodeScanningDetector {
     }
 
     /**
-     * looks for methods that contain a GOTO opcodes
+     * looks for methods that contain a GOTO opcodes, and that have a loop
      *
      * @param method
      *            the context object of the current method
-     * @return if the class uses synchronization
+     * @param code
+     *            the code of the current method
+     * @return if the method could have a loop search
      */
-    private boolean prescreen(Method method) {
+    private boolean prescreen(Method method, Code code) {
         BitSet bytecodeSet = getClassContext().getBytecodeSet(method);
-        return (bytecodeSet != null) && bytecodeSet.get(Const.GOTO);
+        return (bytecodeSet != null) && bytecodeSet.get(Const.GOTO) && ControlFlowSummary.of(code).hasBackEdges();
     }
 
     /**
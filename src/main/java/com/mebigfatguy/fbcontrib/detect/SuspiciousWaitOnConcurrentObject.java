@@ -22,7 +22,6 @@ import java.util.Set;
 
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.JavaClass;
-import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
@@ -36,13 +35,10 @@ import edu.umd.cs.findbugs.ba.ClassContext;
 /**
  * looks for calls to the wait method on mutexes defined in the java.util.concurrent package where it is likely that await was intended.
  */
-public class SuspiciousWaitOnConcurrentObject extends BytecodeScanningDetector {
+public class SuspiciousWaitOnConcurrentObject extends AbstractOpcodeSubscriber {
     private static final Set<String> concurrentAwaitClasses = UnmodifiableSet.create("java.util.concurrent.CountDownLatch",
             "java.util.concurrent.CyclicBarrier");
 
-    private BugReporter bugReporter;
-    private OpcodeStack stack;
-
     /**
      * constructs a SWCO detector given the reporter to report bugs on
      *
@@ -50,7 +46,7 @@ public class SuspiciousWaitOnConcurrentObject extends BytecodeScanningDetector {
      *            the sync of bug reports
      */
     public SuspiciousWaitOnConcurrentObject(BugReporter bugReporter) {
-        this.bugReporter = bugReporter;
+        super(bugReporter);
     }
 
     /**
@@ -58,58 +54,43 @@ public class SuspiciousWaitOnConcurrentObject extends BytecodeScanningDetector {
      *
      * @param classContext
      *            the context object of the currently parsed class
+     * @return whether the class could use the java.util.concurrent classes
      */
     @Override
-    public void visitClassContext(ClassContext classContext) {
-        try {
-            JavaClass cls = classContext.getJavaClass();
-            int major = cls.getMajor();
-            if (major >= Const.MAJOR_1_5) {
-                stack = new OpcodeStack();
-                super.visitClassContext(classContext);
-            }
-        } finally {
-            stack = null;
-        }
-    }
-
-    /**
-     * implements the visitor to reset the opcode stack
-     *
-     * @param obj
-     *            the context object for the currently parsed method
-     */
-    @Override
-    public void visitMethod(Method obj) {
-        stack.resetForMethodEntry(this);
+    protected boolean startClass(ClassContext classContext) {
+        JavaClass cls = classContext.getJavaClass();
+        int major = cls.getMajor();
+        return major >= Const.MAJOR_1_5;
     }
 
     /**
      * implements the visitor to look for calls to wait, on java.util.concurrent classes that define await.
      *
+     * @param scanner
+     *            the visitor positioned on the current instruction
+     * @param stack
+     *            the opcode stack before the current instruction
      * @param seen
      *            the opcode of the currently visited instruction
+     * @return null, as no user value is used
      */
     @Override
-    public void sawOpcode(int seen) {
+    protected Object sawOpcode(BytecodeScanningDetector scanner, OpcodeStack stack, int seen) {
         try {
-            stack.precomputation(this);
-
-            if ((seen != Const.INVOKEVIRTUAL) || !"wait".equals(getNameConstantOperand()) || stack.getStackDepth() == 0) {
-                return;
+            if ((seen != Const.INVOKEVIRTUAL) || !"wait".equals(scanner.getNameConstantOperand()) || stack.getStackDepth() == 0) {
+                return null;
             }
             JavaClass cls = stack.getStackItem(0).getJavaClass();
             if (cls != null) {
                 String clsName = cls.getClassName();
                 if (concurrentAwaitClasses.contains(clsName)) {
-                    bugReporter.reportBug(new BugInstance(this, BugType.SWCO_SUSPICIOUS_WAIT_ON_CONCURRENT_OBJECT.name(), NORMAL_PRIORITY).addClass(this)
-                            .addMethod(this).addSourceLine(this));
+                    bugReporter.reportBug(new BugInstance(this, BugType.SWCO_SUSPICIOUS_WAIT_ON_CONCURRENT_OBJECT.name(), NORMAL_PRIORITY).addClass(scanner)
+                            .addMethod(scanner).addSourceLine(scanner));
                 }
             }
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
-        } finally {
-            stack.sawOpcode(this, seen);
         }
+        return null;
     }
 }
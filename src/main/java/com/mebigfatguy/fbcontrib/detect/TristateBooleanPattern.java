@@ -19,7 +19,6 @@
 package com.mebigfatguy.fbcontrib.detect;
 
 import org.apache.bcel.Const;
-import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.Method;
 import org.apache.bcel.generic.Type;
 
@@ -30,15 +29,12 @@ import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
-import edu.umd.cs.findbugs.ba.ClassContext;
 
 /**
  * looks for methods that are defined to return Boolean, but return null. This thus allows three return values, Boolean.FALSE, Boolean.TRUE and null. If three
  * values intended, it would be more clear to just create an enumeration with three values and return that type.
  */
-public class TristateBooleanPattern extends BytecodeScanningDetector {
-    private BugReporter bugReporter;
-    private OpcodeStack stack;
+public class TristateBooleanPattern extends AbstractOpcodeSubscriber {
 
     /**
      * constructs a TBP detector given the reporter to report bugs on
@@ -47,66 +43,45 @@ public class TristateBooleanPattern extends BytecodeScanningDetector {
      *            the sync of bug reports
      */
     public TristateBooleanPattern(BugReporter bugReporter) {
-        this.bugReporter = bugReporter;
+        super(bugReporter);
     }
 
     /**
-     * implements the visitor to allocate the opcode stack
+     * implements the visitor to only look at methods that return Boolean
      *
-     * @param classContext
-     *            the context object of the currently parsed class
+     * @param scanner
+     *            the visitor positioned on the method
+     * @return whether the method returns Boolean
      */
     @Override
-    public void visitClassContext(ClassContext classContext) {
-        try {
-            stack = new OpcodeStack();
-            super.visitClassContext(classContext);
-        } finally {
-            stack = null;
-        }
-    }
-
-    /**
-     * implements the visitor to filter out methods that don't return Boolean,
-     *
-     *
-     * @param obj
-     *            the context object for the currently parsed code block
-     */
-    @Override
-    public void visitCode(Code obj) {
-        try {
-            Method m = getMethod();
-            Type retType = m.getReturnType();
-            if ("Ljava/lang/Boolean;".equals(retType.getSignature())) {
-                stack.resetForMethodEntry(this);
-                super.visitCode(obj);
-            }
-        } catch (StopOpcodeParsingException e) {
-            // if the method was already reported
-        }
+    protected boolean startMethod(BytecodeScanningDetector scanner) {
+        Method m = scanner.getMethod();
+        Type retType = m.getReturnType();
+        return "Ljava/lang/Boolean;".equals(retType.getSignature());
     }
 
     /**
      * implements the visitor to look for null returns
+     *
+     * @param scanner
+     *            the visitor positioned on the current instruction
+     * @param stack
+     *            the opcode stack before the current instruction
+     * @param seen
+     *            the opcode of the currently parsed instruction
+     * @return null, as no user value is used
      */
     @Override
-    public void sawOpcode(int seen) {
-        try {
-
-            stack.precomputation(this);
-
-            if ((seen == Const.ARETURN) && (stack.getStackDepth() > 0)) {
-                OpcodeStack.Item item = stack.getStackItem(0);
-                if (item.isNull()) {
-                    bugReporter.reportBug(new BugInstance(this, BugType.TBP_TRISTATE_BOOLEAN_PATTERN.name(), NORMAL_PRIORITY).addClass(this).addMethod(this)
-                            .addSourceLine(this));
-                    throw new StopOpcodeParsingException();
-                }
+    protected Object sawOpcode(BytecodeScanningDetector scanner, OpcodeStack stack, int seen) {
+        if ((seen == Const.ARETURN) && (stack.getStackDepth() > 0)) {
+            OpcodeStack.Item item = stack.getStackItem(0);
+            if (item.isNull()) {
+                bugReporter.reportBug(new BugInstance(this, BugType.TBP_TRISTATE_BOOLEAN_PATTERN.name(), NORMAL_PRIORITY).addClass(scanner)
+                        .addMethod(scanner).addSourceLine(scanner));
+                throw new StopOpcodeParsingException();
             }
-        } finally {
-            stack.sawOpcode(this, seen);
         }
+        return null;
     }
 
 }
@@ -23,6 +23,7 @@ import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.MethodBudget;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
 import edu.umd.cs.findbugs.BugInstance;
@@ -36,8 +37,6 @@ import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
  */
 public class Unjitable extends PreorderVisitor implements Detector {
 
-    private static final int UNJITABLE_CODE_LENGTH = 8000;
-
     private BugReporter bugReporter;
 
     public Unjitable(BugReporter bugReporter) {
@@ -68,7 +67,7 @@ public class Unjitable extends PreorderVisitor implements Detector {
         Method m = getMethod();
         if ((!m.isStatic() || !Values.STATIC_INITIALIZER.equals(m.getName())) && (!m.getName().contains("enum constant"))) { // a findbugs thing!!
             byte[] code = obj.getCode();
-            if (code.length >= UNJITABLE_CODE_LENGTH) {
+            if (code.length >= MethodBudget.UNJITABLE_CODE_LENGTH) {
                 bugReporter.reportBug(new BugInstance(this, BugType.UJM_UNJITABLE_METHOD.name(), NORMAL_PRIORITY).addClass(this).addMethod(this)
                         .addString("Code Bytes: " + code.length));
             }
@@ -34,6 +34,7 @@ import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.CollectionUtils;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
+import com.mebigfatguy.fbcontrib.utils.SubtypeCache;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
@@ -179,7 +180,7 @@ public class UseTryWithResources extends BytecodeScanningDetector {
 
         if ((bugPC >= 0) && ((seen == Const.INVOKEVIRTUAL) || (seen == Const.INVOKEINTERFACE)) && "addSuppressed".equals(getNameConstantOperand())
                 && SignatureBuilder.SIG_THROWABLE_TO_VOID.equals(getSigConstantOperand())
-                && Repository.lookupClass(getClassConstantOperand()).instanceOf(throwableClass)) {
+                && SubtypeCache.instance().isSubtype(getClassConstantOperand(), throwableClass.getClassName())) {
             closePC = -1;
             bugPC = -1;
             suppressedPC = getPC();
@@ -201,7 +202,7 @@ public class UseTryWithResources extends BytecodeScanningDetector {
     private void sawOpcodeAfterLoad(int seen, int pc) throws ClassNotFoundException {
         if (((seen == Const.INVOKEVIRTUAL) || (seen == Const.INVOKEINTERFACE)) && "close".equals(getNameConstantOperand())
                 && SignatureBuilder.SIG_VOID_TO_VOID.equals(getSigConstantOperand())
-                && Repository.lookupClass(getClassConstantOperand()).implementationOf(autoCloseableClass)) {
+                && SubtypeCache.instance().isSubtype(getClassConstantOperand(), autoCloseableClass.getClassName())) {
             TryBlock tb = findEnclosingFinally(pc);
             if ((tb != null) && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item itm = stack.getStackItem(0);
@@ -18,15 +18,13 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
-import java.util.List;
-
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
-import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.SignatureCursor;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
 import edu.umd.cs.findbugs.BugInstance;
@@ -47,6 +45,7 @@ public class UseVarArgs extends PreorderVisitor implements Detector {
 			.withParamTypes(SignatureBuilder.SIG_STRING_ARRAY).toString();
 
 	private final BugReporter bugReporter;
+	private final SignatureCursor parmCursor = new SignatureCursor();
 	private JavaClass javaClass;
 
 	public UseVarArgs(BugReporter bugReporter) {
@@ -89,8 +88,10 @@ public class UseVarArgs extends PreorderVisitor implements Detector {
 				return;
 			}
 
-			List<String> types = SignatureUtils.getParameterSignatures(obj.getSignature());
-			if ((types.isEmpty()) || (types.size() > 2)) {
+			String sig = obj.getSignature();
+			parmCursor.reset(sig);
+			int numParms = parmCursor.getNumParameters();
+			if ((numParms == 0) || (numParms > 2)) {
 				return;
 			}
 
@@ -98,18 +99,23 @@ public class UseVarArgs extends PreorderVisitor implements Detector {
 				return;
 			}
 
-			String lastParmSig = types.get(types.size() - 1);
-			if (!lastParmSig.startsWith(Values.SIG_ARRAY_PREFIX)
-					|| lastParmSig.startsWith(Values.SIG_ARRAY_OF_ARRAYS_PREFIX)) {
+			parmCursor.next();
+			int firstParmStart = parmCursor.getStart();
+			int firstParmEnd = parmCursor.getEnd();
+			if (numParms == 2) {
+				parmCursor.next();
+			}
+
+			if (parmCursor.getArrayDimensions() != 1) {
 				return;
 			}
 
-			if (SignatureBuilder.SIG_BYTE_ARRAY.equals(lastParmSig)
-					|| SignatureBuilder.SIG_CHAR_ARRAY.equals(lastParmSig)) {
+			if (parmCursor.isSignature(SignatureBuilder.SIG_BYTE_ARRAY)
+					|| parmCursor.isSignature(SignatureBuilder.SIG_CHAR_ARRAY)) {
 				return;
 			}
 
-			if (hasSimilarParms(types)) {
+			if ((numParms == 2) && hasSimilarParms(sig, firstParmStart, firstParmEnd, parmCursor)) {
 				return;
 			}
 
@@ -139,33 +145,23 @@ public class UseVarArgs extends PreorderVisitor implements Detector {
 	}
 
 	/**
-	 * determines whether a bunch of types are similar and thus would be confusing
-	 * to have one be a varargs.
+	 * determines whether the first of two parameters is similar to the last, and
+	 * thus would be confusing to have the last one be a varargs.
 	 *
-	 * @param argTypes the parameter signatures to check
-	 * @return whether the parameter are similar
+	 * @param sig            the method signature
+	 * @param firstParmStart the offset of the first parameter in the signature
+	 * @param firstParmEnd   the offset just past the first parameter
+	 * @param lastParm       the cursor positioned on the last, array, parameter
+	 * @return whether the parameters are similar
 	 */
-	@edu.umd.cs.findbugs.annotations.SuppressFBWarnings(value = "LII_LIST_INDEXED_ITERATING", justification = "this doesn't iterate over every element, so we can't use a for-each loop")
-	private static boolean hasSimilarParms(List<String> argTypes) {
-
-		for (int i = 0; i < (argTypes.size() - 1); i++) {
-			if (argTypes.get(i).startsWith(Values.SIG_ARRAY_PREFIX)) {
-				return true;
-			}
+	private static boolean hasSimilarParms(String sig, int firstParmStart, int firstParmEnd, SignatureCursor lastParm) {
+		if (sig.startsWith(Values.SIG_ARRAY_PREFIX, firstParmStart)) {
+			return true;
 		}
 
-		String baseType = argTypes.get(argTypes.size() - 1);
-		while (baseType.startsWith(Values.SIG_ARRAY_PREFIX)) {
-			baseType = baseType.substring(1);
-		}
-
-		for (int i = 0; i < (argTypes.size() - 1); i++) {
-			if (argTypes.get(i).equals(baseType)) {
-				return true;
-			}
-		}
-
-		return false;
+		int baseTypeStart = lastParm.getStart() + lastParm.getArrayDimensions();
+		int length = firstParmEnd - firstParmStart;
+		return ((lastParm.getEnd() - baseTypeStart) == length) && sig.regionMatches(firstParmStart, sig, baseTypeStart, length);
 	}
 
 	/**
@@ -0,0 +1,362 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.detect;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.CodeException;
+import org.apache.bcel.classfile.Method;
+
+import com.mebigfatguy.fbcontrib.collect.MethodInfo;
+import com.mebigfatguy.fbcontrib.collect.Statistics;
+import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
+import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.ba.ClassContext;
+
+/**
+ * looks for blocking calls, such as socket and stream io, Thread.sleep, BlockingQueue.take, Future.get or jdbc statement execution, made while holding a
+ * monitor, either in a synchronized method or a synchronized block. A virtual thread that blocks while holding a monitor can not unmount, and so pins the
+ * platform thread that carries it for as long as the call takes. Calls to methods of the same class that themselves make a blocking call are reported too, at
+ * a lower priority, unless turned off with -Dfb-contrib.vtp.followcalls=false.
+ */
+public class VirtualThreadPinning extends BytecodeScanningDetector {
+
+    private static final String VTP_FOLLOW_CALLS = "fb-contrib.vtp.followcalls";
+
+    private static final String SIG_TIME_UNIT = "Ljava/util/concurrent/TimeUnit;";
+
+    /** methods that only block when given a timeout, as otherwise they return at once */
+    private static final Set<String> TIMED_ONLY_METHODS = UnmodifiableSet.create("poll", "offer", "pollFirst", "pollLast", "offerFirst", "offerLast",
+            "tryTransfer", "tryLock", "tryAcquire");
+
+    /** class declaring the method, names of its methods that block */
+    private static final Map<String, Set<String>> BLOCKING_CALLS;
+
+    static {
+        Set<String> blockingQueueMethods = UnmodifiableSet.create("take", "put", "poll", "offer", "transfer", "tryTransfer");
+        Set<String> futureMethods = UnmodifiableSet.create("get", "join");
+        Set<String> inputMethods = UnmodifiableSet.create("read", "readFully", "readLine", "readObject", "readAllBytes", "readNBytes", "skip",
+                "transferTo");
+        Set<String> outputMethods = UnmodifiableSet.create("write", "flush", "writeObject");
+        Set<String> channelMethods = UnmodifiableSet.create("read", "write", "connect", "finishConnect", "accept", "receive", "send");
+        Set<String> statementMethods = UnmodifiableSet.create("execute", "executeQuery", "executeUpdate", "executeBatch", "executeLargeUpdate",
+                "executeLargeBatch");
+
+        Map<String, Set<String>> calls = new HashMap<>();
+        calls.put("java/lang/Thread", UnmodifiableSet.create("sleep", "join"));
+        calls.put("java/lang/Process", UnmodifiableSet.create("waitFor"));
+        calls.put("java/util/concurrent/BlockingQueue", blockingQueueMethods);
+        calls.put("java/util/concurrent/BlockingDeque", UnmodifiableSet.create("take", "put", "poll", "offer", "takeFirst", "takeLast", "putFirst",
+                "putLast", "pollFirst", "pollLast", "offerFirst", "offerLast"));
+        calls.put("java/util/concurrent/TransferQueue", blockingQueueMethods);
+        calls.put("java/util/concurrent/ArrayBlockingQueue", blockingQueueMethods);
+        calls.put("java/util/concurrent/LinkedBlockingQueue", blockingQueueMethods);
+        calls.put("java/util/concurrent/LinkedBlockingDeque", blockingQueueMethods);
+        calls.put("java/util/concurrent/LinkedTransferQueue", blockingQueueMethods);
+        calls.put("java/util/concurrent/PriorityBlockingQueue", blockingQueueMethods);
+        calls.put("java/util/concurrent/SynchronousQueue", blockingQueueMethods);
+        calls.put("java/util/concurrent/DelayQueue", blockingQueueMethods);
+        calls.put("java/util/concurrent/Future", futureMethods);
+        calls.put("java/util/concurrent/FutureTask", futureMethods);
+        calls.put("java/util/concurrent/CompletableFuture", futureMethods);
+        calls.put("java/util/concurrent/ForkJoinTask", futureMethods);
+        calls.put("java/util/concurrent/ExecutorService", UnmodifiableSet.create("awaitTermination", "invokeAll", "invokeAny"));
+        calls.put("java/util/concurrent/CountDownLatch", UnmodifiableSet.create("await"));
+        calls.put("java/util/concurrent/CyclicBarrier", UnmodifiableSet.create("await"));
+        calls.put("java/util/concurrent/Semaphore", UnmodifiableSet.create("acquire", "acquireUninterruptibly", "tryAcquire"));
+        calls.put("java/util/concurrent/Phaser", UnmodifiableSet.create("awaitAdvance", "awaitAdvanceInterruptibly", "arriveAndAwaitAdvance"));
+        calls.put("java/util/concurrent/Exchanger", UnmodifiableSet.create("exchange"));
+        calls.put("java/util/concurrent/locks/Lock", UnmodifiableSet.create("lock", "lockInterruptibly", "tryLock"));
+        calls.put("java/util/concurrent/locks/ReentrantLock", UnmodifiableSet.create("lock", "lockInterruptibly", "tryLock"));
+        calls.put("java/util/concurrent/locks/Condition", UnmodifiableSet.create("await", "awaitNanos", "awaitUninterruptibly", "awaitUntil"));
+        calls.put("java/io/InputStream", inputMethods);
+        calls.put("java/io/FileInputStream", inputMethods);
+        calls.put("java/io/BufferedInputStream", inputMethods);
+        calls.put("java/io/DataInputStream", inputMethods);
+        calls.put("java/io/ObjectInputStream", inputMethods);
+        calls.put("java/io/Reader", inputMethods);
+        calls.put("java/io/BufferedReader", inputMethods);
+        calls.put("java/io/InputStreamReader", inputMethods);
+        calls.put("java/io/FileReader", inputMethods);
+        calls.put("java/io/RandomAccessFile", UnmodifiableSet.create("read", "readFully", "readLine", "write"));
+        calls.put("java/io/OutputStream", outputMethods);
+        calls.put("java/io/FileOutputStream", outputMethods);
+        calls.put("java/io/BufferedOutputStream", outputMethods);
+        calls.put("java/io/DataOutputStream", outputMethods);
+        calls.put("java/io/ObjectOutputStream", outputMethods);
+        calls.put("java/net/Socket", UnmodifiableSet.create("connect"));
+        calls.put("java/net/ServerSocket", UnmodifiableSet.create("accept"));
+        calls.put("java/net/DatagramSocket", UnmodifiableSet.create("receive", "send"));
+        calls.put("java/net/URL", UnmodifiableSet.create("openStream", "getContent"));
+        calls.put("java/net/URLConnection", UnmodifiableSet.create("connect", "getInputStream", "getContent"));
+        calls.put("java/net/HttpURLConnection", UnmodifiableSet.create("connect", "getInputStream", "getResponseCode", "getContent"));
+        calls.put("java/net/http/HttpClient", UnmodifiableSet.create("send"));
+        calls.put("java/nio/channels/SocketChannel", channelMethods);
+        calls.put("java/nio/channels/ServerSocketChannel", channelMethods);
+        calls.put("java/nio/channels/DatagramChannel", channelMethods);
+        calls.put("java/nio/channels/FileChannel", UnmodifiableSet.create("read", "write", "force", "lock", "transferTo", "transferFrom"));
+        calls.put("java/nio/file/Files", UnmodifiableSet.create("readAllBytes", "readAllLines", "readString", "write", "writeString", "copy", "move",
+                "lines"));
+        calls.put("java/sql/DriverManager", UnmodifiableSet.create("getConnection"));
+        calls.put("javax/sql/DataSource", UnmodifiableSet.create("getConnection"));
+        calls.put("java/sql/Connection", UnmodifiableSet.create("commit", "rollback", "prepareCall", "prepareStatement"));
+        calls.put("java/sql/Statement", statementMethods);
+        calls.put("java/sql/PreparedStatement", statementMethods);
+        calls.put("java/sql/CallableStatement", statementMethods);
+        calls.put("java/sql/ResultSet", UnmodifiableSet.create("next"));
+        BLOCKING_CALLS = Collections.unmodifiableMap(calls);
+    }
+
+    private final BugReporter bugReporter;
+    private final boolean followCalls;
+    /** name and signature of the methods of this class that make a blocking call */
+    private Set<String> blockingMethods;
+    /** name and signature of the methods that were called blocking, when first reported in this method */
+    private Set<String> reportedCalls;
+    private BitSet monitorRegion;
+    private boolean collecting;
+
+    /**
+     * constructs a VTP detector given the reporter to report bugs on
+     *
+     * @param bugReporter
+     *            the sync of bug reports
+     */
+    public VirtualThreadPinning(BugReporter bugReporter) {
+        this.bugReporter = bugReporter;
+        String follow = System.getProperty(VTP_FOLLOW_CALLS);
+        followCalls = (follow == null) || Boolean.parseBoolean(follow);
+    }
+
+    /**
+     * overrides the visitor to only look at classes that synchronize, first finding which of its methods block, when following calls, and then looking for
+     * blocking calls made while holding a monitor
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     */
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        if (!hasSynchronization(classContext)) {
+            return;
+        }
+
+        try {
+            blockingMethods = new HashSet<>();
+            reportedCalls = new HashSet<>();
+            monitorRegion = new BitSet();
+            if (followCalls) {
+                collecting = true;
+                super.visitClassContext(classContext);
+            }
+            collecting = false;
+            super.visitClassContext(classContext);
+        } finally {
+            blockingMethods = null;
+            reportedCalls = null;
+            monitorRegion = null;
+        }
+    }
+
+    /**
+     * implements the visitor to find the instructions of the method that are run while holding a monitor, and skip methods that have none. When collecting
+     * blocking methods, methods that the first pass found make no calls are skipped instead.
+     *
+     * @param obj
+     *            the context object of the currently parsed code block
+     */
+    @Override
+    public void visitCode(Code obj) {
+        if (collecting) {
+            MethodInfo mi = Statistics.getStatistics().getMethodStatistics(getClassName(), getMethodName(), getMethodSig());
+            if ((mi.getNumBytes() > 0) && (mi.getNumMethodCalls() == 0)) {
+                return;
+            }
+
+            try {
+                super.visitCode(obj);
+            } catch (StopOpcodeParsingException e) {
+                // method already found to block
+            }
+            return;
+        }
+
+        if (!findMonitorRegion(getMethod(), obj)) {
+            return;
+        }
+
+        reportedCalls.clear();
+        super.visitCode(obj);
+    }
+
+    /**
+     * implements the visitor to look for blocking calls, either to note that the method blocks, or to report them when made while holding a monitor
+     *
+     * @param seen
+     *            the opcode of the currently parsed instruction
+     */
+    @Override
+    public void sawOpcode(int seen) {
+        if ((seen != Const.INVOKEVIRTUAL) && (seen != Const.INVOKEINTERFACE) && (seen != Const.INVOKESTATIC) && (seen != Const.INVOKESPECIAL)) {
+            return;
+        }
+
+        if (collecting) {
+            if (isBlockingCall()) {
+                blockingMethods.add(getMethodName() + getMethodSig());
+                throw new StopOpcodeParsingException();
+            }
+            return;
+        }
+
+        if (!monitorRegion.get(getPC())) {
+            return;
+        }
+
+        int priority;
+        if (isBlockingCall()) {
+            priority = NORMAL_PRIORITY;
+        } else if (getClassConstantOperand().equals(getClassName()) && blockingMethods.contains(getNameConstantOperand() + getSigConstantOperand())) {
+            priority = LOW_PRIORITY;
+        } else {
+            return;
+        }
+
+        if (reportedCalls.add(getClassConstantOperand() + '.' + getNameConstantOperand() + getSigConstantOperand())) {
+            bugReporter.reportBug(new BugInstance(this, BugType.VTP_BLOCKING_CALL_IN_SYNCHRONIZED.name(), priority).addClass(this).addMethod(this)
+                    .addCalledMethod(this).addSourceLine(this));
+        }
+    }
+
+    /**
+     * returns whether the method being called may block. Object.wait is final, so it is recognized whatever class it is called through, and methods such
+     * as poll or tryLock only block in their timed forms.
+     *
+     * @return whether the call may block
+     */
+    private boolean isBlockingCall() {
+        String methodName = getNameConstantOperand();
+        if ("wait".equals(methodName) && (getSigConstantOperand().charAt(1) != 'L')) {
+            return true;
+        }
+
+        Set<String> methods = BLOCKING_CALLS.get(getClassConstantOperand());
+        if ((methods == null) || !methods.contains(methodName)) {
+            return false;
+        }
+
+        return !TIMED_ONLY_METHODS.contains(methodName) || getSigConstantOperand().contains(SIG_TIME_UNIT);
+    }
+
+    /**
+     * fills the monitor region with the instructions of the method run while holding a monitor, which is all of a synchronized method, or the ranges of
+     * synchronized blocks. A synchronized block is compiled with a catch all handler over the block that releases the monitor before rethrowing, so the
+     * blocks are the ranges of the catch all handlers that start with a monitorexit.
+     *
+     * @param m
+     *            the method being visited
+     * @param code
+     *            the code of the method
+     * @return whether any instruction is run holding a monitor
+     */
+    private boolean findMonitorRegion(Method m, Code code) {
+        monitorRegion.clear();
+        if (m.isSynchronized()) {
+            monitorRegion.set(0, code.getLength());
+            return true;
+        }
+
+        BitSet bytecodeSet = getClassContext().getBytecodeSet(m);
+        if ((bytecodeSet == null) || !bytecodeSet.get(Const.MONITORENTER)) {
+            return false;
+        }
+
+        byte[] bytes = code.getCode();
+        for (CodeException ce : code.getExceptionTable()) {
+            if ((ce.getCatchType() == 0) && handlerReleasesMonitor(bytes, ce.getHandlerPC())) {
+                monitorRegion.set(ce.getStartPC(), ce.getEndPC());
+            }
+        }
+        return !monitorRegion.isEmpty();
+    }
+
+    /**
+     * returns whether a handler stores the exception, loads the monitor and exits it, as the handlers of synchronized blocks do
+     *
+     * @param bytes
+     *            the bytecode of the method
+     * @param handlerPC
+     *            the start of the handler
+     * @return whether the handler releases a monitor
+     */
+    private static boolean handlerReleasesMonitor(byte[] bytes, int handlerPC) {
+        int pc = handlerPC;
+        int op = bytes[pc] & 0xFF;
+        if (op == Const.ASTORE) {
+            pc += 2;
+        } else if ((op >= Const.ASTORE_0) && (op <= Const.ASTORE_3)) {
+            pc++;
+        } else {
+            return false;
+        }
+
+        op = bytes[pc] & 0xFF;
+        if (op == Const.ALOAD) {
+            pc += 2;
+        } else if ((op >= Const.ALOAD_0) && (op <= Const.ALOAD_3)) {
+            pc++;
+        } else {
+            return false;
+        }
+
+        return (pc < bytes.length) && ((bytes[pc] & 0xFF) == Const.MONITOREXIT);
+    }
+
+    /**
+     * returns whether any method of the class is synchronized, or has a synchronized block
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     * @return whether the class synchronizes
+     */
+    private static boolean hasSynchronization(ClassContext classContext) {
+        for (Method m : classContext.getJavaClass().getMethods()) {
+            if (m.isSynchronized()) {
+                return true;
+            }
+            BitSet bytecodeSet = classContext.getBytecodeSet(m);
+            if ((bytecodeSet != null) && bytecodeSet.get(Const.MONITORENTER)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -31,6 +31,7 @@ import org.apache.bcel.Const;
 
 import com.mebigfatguy.fbcontrib.collect.Statistics;
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ConstantPoolInterest;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.Values;
@@ -52,6 +53,7 @@ public class WiringIssues extends BytecodeScanningDetector {
 
     private static final String SPRING_AUTOWIRED = "Lorg/springframework/beans/factory/annotation/Autowired;";
     private static final String SPRING_QUALIFIER = "Lorg/springframework/beans/factory/annotation/Qualifier;";
+    private static final ConstantPoolInterest AUTOWIRED_INTEREST = ConstantPoolInterest.of(SPRING_AUTOWIRED);
 
     private BugReporter bugReporter;
     private OpcodeStack stack;
@@ -75,7 +77,7 @@ public class WiringIssues extends BytecodeScanningDetector {
 
             Field[] fields = cls.getFields();
 
-            if (fields.length > 0) {
+            if ((fields.length > 0) && AUTOWIRED_INTEREST.isInterestedIn(cls)) {
 
                 Map<WiringType, FieldAnnotation> wiredFields = new HashMap<>();
                 boolean loadedParents = false;
@@ -113,8 +115,10 @@ public class WiringIssues extends BytecodeScanningDetector {
                 }
             }
 
-            stack = new OpcodeStack();
-            super.visitClassContext(classContext);
+            if (Statistics.getStatistics().hasAutowiredBeans()) {
+                stack = new OpcodeStack();
+                super.visitClassContext(classContext);
+            }
         } catch (ClassNotFoundException e) {
             bugReporter.reportMissingClass(e);
         } finally {
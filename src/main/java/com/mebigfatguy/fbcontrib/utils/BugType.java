@@ -33,6 +33,7 @@ public enum BugType {
     AWCBR_ARRAY_WRAPPED_CALL_BY_REFERENCE,
 
     BAS_BLOATED_ASSIGNMENT_SCOPE,
+    BCE_BOXED_COLLECTION_ELEMENTS,
     BED_BOGUS_EXCEPTION_DECLARATION,
     BED_HIERARCHICAL_EXCEPTION_DECLARATION,
     BL_BURYING_LOGIC,
@@ -75,6 +76,9 @@ public enum BugType {
     DWI_DELETING_WHILE_ITERATING,
     DWI_MODIFYING_WHILE_ITERATING,
 
+    ECF_EXCEPTION_THROWN_AND_CAUGHT_IN_LOOP,
+    ECF_PARSE_EXCEPTION_AS_VALIDATION,
+    ECF_STACK_TRACE_FILLED_IN_LOOP,
     EXS_EXCEPTION_SOFTENING_HAS_CHECKED,
     EXS_EXCEPTION_SOFTENING_NO_CHECKED,
     EXS_EXCEPTION_SOFTENING_NO_CONSTRAINTS,
@@ -228,6 +232,8 @@ public enum BugType {
 
     RFI_SET_ACCESSIBLE,
     ROOM_REFLECTION_ON_OBJECT_METHODS,
+    RRC_REPEATED_REGEX_COMPILATION,
+    RRL_REPEATED_REFLECTIVE_LOOKUP,
 
     S508C_APPENDED_STRING,
     S508C_NON_ACCESSIBLE_JCOMPONENT,
@@ -343,6 +349,8 @@ public enum BugType {
     UVA_USE_VAR_ARGS,
     UTWR_USE_TRY_WITH_RESOURCES,
 
+    VTP_BLOCKING_CALL_IN_SYNCHRONIZED,
+
     WEM_OBSCURING_EXCEPTION,
     WEM_WEAK_EXCEPTION_MESSAGING,
     WI_DUPLICATE_WIRED_TYPES,
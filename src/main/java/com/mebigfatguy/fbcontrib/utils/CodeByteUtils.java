@@ -52,4 +52,17 @@ public final class CodeByteUtils {
     public static int getshort(byte[] bytes, int offset) {
         return (short) ((0x0000FFFF & (bytes[offset] << 8)) | (0x00FF & bytes[offset + 1]));
     }
+
+    /**
+     * returns the code int at a specific offset
+     *
+     * @param bytes
+     *            the code bytes
+     * @param offset
+     *            the offset into the code
+     * @return the int
+     */
+    public static int getint(byte[] bytes, int offset) {
+        return (bytes[offset] << 24) | ((0x00FF & bytes[offset + 1]) << 16) | ((0x00FF & bytes[offset + 2]) << 8) | (0x00FF & bytes[offset + 3]);
+    }
 }
@@ -0,0 +1,207 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantClass;
+import org.apache.bcel.classfile.ConstantDouble;
+import org.apache.bcel.classfile.ConstantFloat;
+import org.apache.bcel.classfile.ConstantInteger;
+import org.apache.bcel.classfile.ConstantLong;
+import org.apache.bcel.classfile.ConstantString;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.CPInstruction;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.ConstantPushInstruction;
+import org.apache.bcel.generic.FieldInstruction;
+import org.apache.bcel.generic.IndexedInstruction;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.InvokeInstruction;
+import org.apache.bcel.generic.LDC;
+import org.apache.bcel.generic.LDC2_W;
+import org.apache.bcel.generic.NEWARRAY;
+
+/**
+ * hashes of method bodies that do not depend on the constant pool of the class they are in, so that methods of different classes can be told apart without
+ * comparing them instruction by instruction. Two bodies get the same hash when they have the same instructions, referring to the same fields, methods and
+ * constants by name and value, rather than by constant pool index. Instructions whose operands are constant pool indices of other kinds, such as new or
+ * checkcast, and branches, are hashed by their opcode alone, so bodies that differ only there collide, and a full comparison is still needed when hashes are
+ * equal.
+ * <p>
+ * The hashes of all the methods of a class are computed together, the first time any of them is asked for, and cached until bcel's Repository is replaced.
+ */
+public final class CodeFingerprints {
+
+    private static final CodeFingerprints instance = new CodeFingerprints();
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<String, Map<String, Long>> classFingerprints = new ConcurrentHashMap<>();
+    private final AtomicLong classesHashed = new AtomicLong();
+    private volatile org.apache.bcel.util.Repository repository;
+
+    CodeFingerprints() {
+    }
+
+    /**
+     * returns the cache shared by all detectors
+     *
+     * @return the shared cache
+     */
+    public static CodeFingerprints instance() {
+        return instance;
+    }
+
+    /**
+     * returns the fingerprints of all the methods of a class that have code
+     *
+     * @param cls
+     *            the class
+     * @return an unmodifiable map from method name, ':' and signature to fingerprint
+     */
+    public Map<String, Long> getFingerprints(JavaClass cls) {
+        checkRepository();
+        Map<String, Long> fingerprints = classFingerprints.get(cls.getClassName());
+        if (fingerprints == null) {
+            ConstantPoolGen pool = new ConstantPoolGen(cls.getConstantPool());
+            fingerprints = new HashMap<>();
+            for (Method m : cls.getMethods()) {
+                Code code = m.getCode();
+                if (code != null) {
+                    fingerprints.put(m.getName() + ':' + m.getSignature(), Long.valueOf(fingerprint(code, pool)));
+                }
+            }
+            fingerprints = Collections.unmodifiableMap(fingerprints);
+            classFingerprints.put(cls.getClassName(), fingerprints);
+            classesHashed.incrementAndGet();
+        }
+        return fingerprints;
+    }
+
+    /**
+     * returns the number of classes whose methods have been hashed
+     *
+     * @return the number of classes hashed
+     */
+    public long getClassesHashed() {
+        return classesHashed.get();
+    }
+
+    /**
+     * computes the fingerprint of a method body
+     *
+     * @param code
+     *            the code of the method
+     * @param pool
+     *            the constant pool of the class that declares the method
+     * @return the fingerprint
+     */
+    public static long fingerprint(Code code, ConstantPoolGen pool) {
+        byte[] bytes = code.getCode();
+        long hash = mix(FNV_OFFSET_BASIS, bytes.length);
+        for (InstructionHandle ih : new InstructionList(bytes).getInstructionHandles()) {
+            Instruction ins = ih.getInstruction();
+            hash = mix(hash, ins.getOpcode());
+
+            if (ins instanceof FieldInstruction) {
+                FieldInstruction fieldIns = (FieldInstruction) ins;
+                hash = mix(hash, fieldIns.getFieldName(pool).hashCode());
+                hash = mix(hash, fieldIns.getSignature(pool).hashCode());
+            } else if (ins instanceof InvokeInstruction) {
+                InvokeInstruction invokeIns = (InvokeInstruction) ins;
+                hash = mix(hash, invokeIns.getClassName(pool).hashCode());
+                hash = mix(hash, invokeIns.getMethodName(pool).hashCode());
+                hash = mix(hash, invokeIns.getSignature(pool).hashCode());
+            } else if ((ins instanceof LDC) || (ins instanceof LDC2_W)) {
+                hash = mix(hash, constantHash(pool, ((CPInstruction) ins).getIndex()));
+            } else if (ins instanceof ConstantPushInstruction) {
+                hash = mix(hash, ((ConstantPushInstruction) ins).getValue().hashCode());
+            } else if (ins instanceof NEWARRAY) {
+                hash = mix(hash, ((NEWARRAY) ins).getTypecode());
+            } else if ((ins instanceof IndexedInstruction) && !(ins instanceof CPInstruction)) {
+                hash = mix(hash, ((IndexedInstruction) ins).getIndex());
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * empties the cache
+     */
+    public void clear() {
+        classFingerprints.clear();
+    }
+
+    private static int constantHash(ConstantPoolGen pool, int index) {
+        Constant c = pool.getConstant(index);
+        int hash = c.getTag();
+        if (c instanceof ConstantString) {
+            hash = (hash * 31) + ((ConstantString) c).getBytes(pool.getConstantPool()).hashCode();
+        } else if (c instanceof ConstantClass) {
+            hash = (hash * 31) + ((ConstantClass) c).getBytes(pool.getConstantPool()).hashCode();
+        } else if (c instanceof ConstantInteger) {
+            hash = (hash * 31) + ((ConstantInteger) c).getBytes();
+        } else if (c instanceof ConstantFloat) {
+            hash = (hash * 31) + Float.floatToIntBits(((ConstantFloat) c).getBytes());
+        } else if (c instanceof ConstantLong) {
+            hash = (hash * 31) + Long.hashCode(((ConstantLong) c).getBytes());
+        } else if (c instanceof ConstantDouble) {
+            hash = (hash * 31) + Double.hashCode(((ConstantDouble) c).getBytes());
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        long h = hash;
+        for (int i = 0; i < 4; i++) {
+            h ^= (value >>> (i * 8)) & 0xFF;
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+
+    private void checkRepository() {
+        org.apache.bcel.util.Repository current = Repository.getRepository();
+        if (current != repository) {
+            synchronized (this) {
+                if (current != repository) {
+                    repository = current;
+                    clear();
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.ConstantUtf8;
+import org.apache.bcel.classfile.JavaClass;
+
+/**
+ * a declaration of the names a detector needs a class to mention before it is worth visiting. Detectors that only apply to classes using some api, create one
+ * with the package or class name prefixes, or member names, of that api, and return early from visitClassContext for classes that are not of interest.
+ * <p>
+ * Class names, descriptors, member names, annotation types and string literals all live as utf8 entries in the constant pool, so a class is of interest if
+ * any of those entries contains one of the fragments. Every fragment of every interest is looked for in one pass over the constant pool, the first time any
+ * detector asks about a class, and the answers are kept until the thread moves on to another class.
+ */
+public final class ConstantPoolInterest {
+
+    private static final List<String> allFragments = new ArrayList<>();
+    private static final ThreadLocal<ScannedClass> lastScannedClass = new ThreadLocal<>();
+
+    private final int[] fragmentIds;
+
+    private ConstantPoolInterest(int[] fragmentIds) {
+        this.fragmentIds = fragmentIds;
+    }
+
+    /**
+     * creates an interest in classes whose constant pool mentions any of the given fragments
+     *
+     * @param fragments
+     *            slashed package or class name prefixes, such as "javax/persistence/", or member names
+     * @return the interest
+     */
+    public static ConstantPoolInterest of(String... fragments) {
+        int[] ids = new int[fragments.length];
+        synchronized (allFragments) {
+            for (int i = 0; i < fragments.length; i++) {
+                int id = allFragments.indexOf(fragments[i]);
+                if (id < 0) {
+                    id = allFragments.size();
+                    allFragments.add(fragments[i]);
+                }
+                ids[i] = id;
+            }
+        }
+        return new ConstantPoolInterest(ids);
+    }
+
+    /**
+     * returns whether the class mentions any of the fragments of this interest
+     *
+     * @param cls
+     *            the class about to be visited
+     * @return whether the detector should visit the class
+     */
+    public boolean isInterestedIn(JavaClass cls) {
+        ScannedClass scanned = lastScannedClass.get();
+        if ((scanned == null) || (scanned.cls.get() != cls) || (scanned.numFragments <= maxFragmentId())) {
+            scanned = new ScannedClass(cls);
+            lastScannedClass.set(scanned);
+        }
+
+        for (int id : fragmentIds) {
+            if (scanned.found.get(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int maxFragmentId() {
+        int max = -1;
+        for (int id : fragmentIds) {
+            max = Math.max(max, id);
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * the fragments found in the constant pool of one class
+     */
+    private static final class ScannedClass {
+        final WeakReference<JavaClass> cls;
+        final int numFragments;
+        final BitSet found = new BitSet();
+
+        ScannedClass(JavaClass javaClass) {
+            cls = new WeakReference<>(javaClass);
+
+            String[] fragments;
+            synchronized (allFragments) {
+                fragments = allFragments.toArray(new String[allFragments.size()]);
+            }
+            numFragments = fragments.length;
+
+            ConstantPool pool = javaClass.getConstantPool();
+            int remaining = fragments.length;
+            for (int i = 0; (i < pool.getLength()) && (remaining > 0); i++) {
+                Constant c = pool.getConstant(i);
+                if (c instanceof ConstantUtf8) {
+                    String utf8 = ((ConstantUtf8) c).getBytes();
+                    for (int f = found.nextClearBit(0); f < fragments.length; f = found.nextClearBit(f + 1)) {
+                        if (utf8.contains(fragments[f])) {
+                            found.set(f);
+                            remaining--;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.CodeException;
+import org.apache.bcel.classfile.ConstantPool;
+
+/**
+ * a light weight summary of the control flow of a method, read straight from its bytecode, for detectors that need to know where the basic blocks start, where
+ * branches go, or where the loops are, but not the full spotbugs CFG with its per instruction exception edges. A summary is made with one pass over the code
+ * bytes, without creating instruction objects.
+ * <p>
+ * The summaries of the methods of the class the current thread is visiting are kept, so that all detectors that ask about a method share one summary. They are
+ * let go when the thread moves on to another class.
+ */
+public final class ControlFlowSummary {
+
+    private static final int[] INSTRUCTION_LENGTHS = buildInstructionLengths();
+    private static final int[] NO_EDGES = new int[0];
+
+    private static final ThreadLocal<SummarizedClass> lastSummarizedClass = new ThreadLocal<>();
+
+    private final int codeLength;
+    private final BitSet blockStarts;
+    private final BitSet branchTargets;
+    private final BitSet forwardBranchTargets;
+    private int[] backEdges = NO_EDGES;
+    private int backEdgeCount;
+    private int conditionalBranchCount;
+    private int gotoCount;
+    private int switchEdgeCount;
+    private int handlerCount;
+    private int invokeCount;
+    private boolean hasSubroutines;
+
+    private ControlFlowSummary(Code code) {
+        byte[] bytes = code.getCode();
+        codeLength = bytes.length;
+        blockStarts = new BitSet(codeLength);
+        branchTargets = new BitSet(codeLength);
+        forwardBranchTargets = new BitSet(codeLength);
+
+        blockStarts.set(0);
+        int pc = 0;
+        while (pc < codeLength) {
+            int opcode = bytes[pc] & 0xFF;
+            int next;
+            switch (opcode) {
+                case Const.TABLESWITCH: {
+                    int base = (pc + 4) & ~3;
+                    addSwitchEdge(pc, pc + CodeByteUtils.getint(bytes, base));
+                    int low = CodeByteUtils.getint(bytes, base + 4);
+                    int high = CodeByteUtils.getint(bytes, base + 8);
+                    next = base + 12 + ((high - low + 1) * 4);
+                    for (int offset = base + 12; offset < next; offset += 4) {
+                        addSwitchEdge(pc, pc + CodeByteUtils.getint(bytes, offset));
+                    }
+                    blockStarts.set(next);
+                }
+                break;
+
+                case Const.LOOKUPSWITCH: {
+                    int base = (pc + 4) & ~3;
+                    addSwitchEdge(pc, pc + CodeByteUtils.getint(bytes, base));
+                    int pairs = CodeByteUtils.getint(bytes, base + 4);
+                    next = base + 8 + (pairs * 8);
+                    for (int offset = base + 12; offset < next; offset += 8) {
+                        addSwitchEdge(pc, pc + CodeByteUtils.getint(bytes, offset));
+                    }
+                    blockStarts.set(next);
+                }
+                break;
+
+                case Const.WIDE:
+                    next = pc + (((bytes[pc + 1] & 0xFF) == Const.IINC) ? 6 : 4);
+                    if ((bytes[pc + 1] & 0xFF) == Const.RET) {
+                        hasSubroutines = true;
+                        blockStarts.set(next);
+                    }
+                break;
+
+                case Const.GOTO:
+                case Const.JSR:
+                    next = pc + 3;
+                    addBranch(pc, pc + CodeByteUtils.getshort(bytes, pc + 1), opcode);
+                    blockStarts.set(next);
+                break;
+
+                case Const.GOTO_W:
+                case Const.JSR_W:
+                    next = pc + 5;
+                    addBranch(pc, pc + CodeByteUtils.getint(bytes, pc + 1), opcode);
+                    blockStarts.set(next);
+                break;
+
+                case Const.RET:
+                    next = pc + 2;
+                    hasSubroutines = true;
+                    blockStarts.set(next);
+                break;
+
+                default:
+                    next = pc + INSTRUCTION_LENGTHS[opcode];
+                    if (((opcode >= Const.IFEQ) && (opcode <= Const.IF_ACMPNE)) || (opcode == Const.IFNULL) || (opcode == Const.IFNONNULL)) {
+                        addBranch(pc, pc + CodeByteUtils.getshort(bytes, pc + 1), opcode);
+                        blockStarts.set(next);
+                    } else if (((opcode >= Const.IRETURN) && (opcode <= Const.RETURN)) || (opcode == Const.ATHROW)) {
+                        blockStarts.set(next);
+                    } else if ((opcode >= Const.INVOKEVIRTUAL) && (opcode <= Const.INVOKEDYNAMIC)) {
+                        invokeCount++;
+                    }
+                break;
+            }
+            pc = next;
+        }
+
+        CodeException[] exceptions = code.getExceptionTable();
+        if (exceptions != null) {
+            BitSet handlers = new BitSet(codeLength);
+            for (CodeException ce : exceptions) {
+                blockStarts.set(ce.getStartPC());
+                blockStarts.set(ce.getEndPC());
+                handlers.set(ce.getHandlerPC());
+            }
+            blockStarts.or(handlers);
+            handlerCount = handlers.cardinality();
+        }
+
+        if (blockStarts.length() > codeLength) {
+            blockStarts.clear(codeLength, blockStarts.length());
+        }
+        if (backEdges.length > (backEdgeCount * 2)) {
+            backEdges = Arrays.copyOf(backEdges, backEdgeCount * 2);
+        }
+    }
+
+    /**
+     * returns the summary of a method, computing it if no detector has asked for it since the current thread started on the method's class
+     *
+     * @param code
+     *            the code of the method
+     * @return the summary
+     */
+    public static ControlFlowSummary of(Code code) {
+        SummarizedClass summarized = lastSummarizedClass.get();
+        if ((summarized == null) || (summarized.pool.get() != code.getConstantPool())) {
+            summarized = new SummarizedClass(code.getConstantPool());
+            lastSummarizedClass.set(summarized);
+        }
+
+        ControlFlowSummary summary = summarized.summaries.get(code);
+        if (summary == null) {
+            summary = new ControlFlowSummary(code);
+            summarized.summaries.put(code, summary);
+        }
+        return summary;
+    }
+
+    private void addBranch(int pc, int target, int opcode) {
+        if ((opcode == Const.GOTO) || (opcode == Const.GOTO_W)) {
+            gotoCount++;
+        } else if ((opcode == Const.JSR) || (opcode == Const.JSR_W)) {
+            hasSubroutines = true;
+        } else {
+            conditionalBranchCount++;
+        }
+        addTarget(pc, target);
+    }
+
+    private void addSwitchEdge(int pc, int target) {
+        switchEdgeCount++;
+        addTarget(pc, target);
+    }
+
+    private void addTarget(int pc, int target) {
+        blockStarts.set(target);
+        branchTargets.set(target);
+        if (target > pc) {
+            forwardBranchTargets.set(target);
+        } else {
+            if (backEdges.length == (backEdgeCount * 2)) {
+                backEdges = Arrays.copyOf(backEdges, Math.max(8, backEdges.length * 2));
+            }
+            backEdges[backEdgeCount * 2] = pc;
+            backEdges[(backEdgeCount * 2) + 1] = target;
+            backEdgeCount++;
+        }
+    }
+
+    /**
+     * returns the length of the code bytes
+     *
+     * @return the code length
+     */
+    public int getCodeLength() {
+        return codeLength;
+    }
+
+    /**
+     * returns the number of basic blocks, where blocks start at the beginning of the code, at branch targets, after branches, returns and throws, and at the
+     * bounds of try blocks and at catch handlers. Unlike spotbugs' CFG, instructions that may throw do not end blocks.
+     *
+     * @return the number of basic blocks
+     */
+    public int getBlockCount() {
+        return blockStarts.cardinality();
+    }
+
+    /**
+     * returns whether a basic block starts at a pc
+     *
+     * @param pc
+     *            the offset of an instruction
+     * @return whether a block starts there
+     */
+    public boolean isBlockStart(int pc) {
+        return blockStarts.get(pc);
+    }
+
+    /**
+     * returns whether any branch, goto or switch jumps to a pc
+     *
+     * @param pc
+     *            the offset of an instruction
+     * @return whether the pc is a branch target
+     */
+    public boolean isBranchTarget(int pc) {
+        return branchTargets.get(pc);
+    }
+
+    /**
+     * returns the pcs that are jumped to from an earlier instruction. This is the same set a scanner that notes branch targets as it goes has seen by the time
+     * it reaches each pc. The set is shared, and must not be changed.
+     *
+     * @return the forward branch targets
+     */
+    public BitSet getForwardBranchTargets() {
+        return forwardBranchTargets;
+    }
+
+    /**
+     * returns whether the method has a loop, that is a branch, goto or switch that jumps backwards
+     *
+     * @return whether there is a back edge
+     */
+    public boolean hasBackEdges() {
+        return backEdgeCount > 0;
+    }
+
+    /**
+     * returns the number of branches, gotos and switch cases that jump backwards, or to themselves
+     *
+     * @return the number of back edges
+     */
+    public int getBackEdgeCount() {
+        return backEdgeCount;
+    }
+
+    /**
+     * returns the pc of the instruction that jumps backwards, which is the bottom of a loop
+     *
+     * @param index
+     *            the back edge, from 0 to {@link #getBackEdgeCount()}
+     * @return the pc of the branch
+     */
+    public int getBackEdgeSource(int index) {
+        return backEdges[index * 2];
+    }
+
+    /**
+     * returns the pc that a back edge jumps to, which is the top of a loop
+     *
+     * @param index
+     *            the back edge, from 0 to {@link #getBackEdgeCount()}
+     * @return the pc of the target
+     */
+    public int getBackEdgeTarget(int index) {
+        return backEdges[(index * 2) + 1];
+    }
+
+    /**
+     * returns whether an instruction lies in a loop, that is between the target and the source of some back edge
+     *
+     * @param pc
+     *            the pc of the instruction
+     * @return whether the instruction may be run repeatedly
+     */
+    public boolean isInLoop(int pc) {
+        for (int i = 0; i < backEdgeCount; i++) {
+            if ((pc >= backEdges[(i * 2) + 1]) && (pc <= backEdges[i * 2])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * returns the number of conditional branches
+     *
+     * @return the number of if instructions
+     */
+    public int getConditionalBranchCount() {
+        return conditionalBranchCount;
+    }
+
+    /**
+     * returns the number of unconditional jumps, not counting jsrs
+     *
+     * @return the number of gotos
+     */
+    public int getGotoCount() {
+        return gotoCount;
+    }
+
+    /**
+     * returns the number of switch cases, counting each default, and each case even when several go to the same place
+     *
+     * @return the number of switch edges
+     */
+    public int getSwitchEdgeCount() {
+        return switchEdgeCount;
+    }
+
+    /**
+     * returns the number of distinct catch or finally handlers
+     *
+     * @return the number of handlers
+     */
+    public int getHandlerCount() {
+        return handlerCount;
+    }
+
+    /**
+     * returns the number of method invocations, each of which may turn out to never return
+     *
+     * @return the number of invoke instructions
+     */
+    public int getInvokeCount() {
+        return invokeCount;
+    }
+
+    /**
+     * returns whether the method uses jsr and ret, which old compilers used for finally blocks. The flow through such subroutines is not summarized.
+     *
+     * @return whether there are subroutines
+     */
+    public boolean hasSubroutines() {
+        return hasSubroutines;
+    }
+
+    private static int[] buildInstructionLengths() {
+        int[] lengths = new int[256];
+        Arrays.fill(lengths, 1);
+        for (int opcode : new int[] { Const.BIPUSH, Const.LDC, Const.ILOAD, Const.LLOAD, Const.FLOAD, Const.DLOAD, Const.ALOAD, Const.ISTORE, Const.LSTORE,
+                Const.FSTORE, Const.DSTORE, Const.ASTORE, Const.RET, Const.NEWARRAY }) {
+            lengths[opcode] = 2;
+        }
+        for (int opcode : new int[] { Const.SIPUSH, Const.LDC_W, Const.LDC2_W, Const.IINC, Const.GETSTATIC, Const.PUTSTATIC, Const.GETFIELD, Const.PUTFIELD,
+                Const.INVOKEVIRTUAL, Const.INVOKESPECIAL, Const.INVOKESTATIC, Const.NEW, Const.ANEWARRAY, Const.CHECKCAST, Const.INSTANCEOF, Const.IFNULL,
+                Const.IFNONNULL }) {
+            lengths[opcode] = 3;
+        }
+        for (int opcode = Const.IFEQ; opcode <= Const.JSR; opcode++) {
+            lengths[opcode] = 3;
+        }
+        lengths[Const.MULTIANEWARRAY] = 4;
+        lengths[Const.INVOKEINTERFACE] = 5;
+        lengths[Const.INVOKEDYNAMIC] = 5;
+        lengths[Const.GOTO_W] = 5;
+        lengths[Const.JSR_W] = 5;
+        return lengths;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    private static final class SummarizedClass {
+        final WeakReference<ConstantPool> pool;
+        final Map<Code, ControlFlowSummary> summaries = new WeakHashMap<>();
+
+        SummarizedClass(ConstantPool constantPool) {
+            pool = new WeakReference<>(constantPool);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.util.Arrays;
+
+/**
+ * a compact, immutable directed graph over nodes numbered 0 to n-1, with the edges of each node stored contiguously in one int array. Built with
+ * {@link IntGraph.Builder}, it supports finding strongly connected components in linear time without recursion, so very large graphs can not overflow the
+ * stack.
+ */
+public final class IntGraph {
+
+    private final int numNodes;
+    private final int[] edgeStarts;
+    private final int[] edgeTargets;
+
+    IntGraph(int numNodes, int[] edgeStarts, int[] edgeTargets) {
+        this.numNodes = numNodes;
+        this.edgeStarts = edgeStarts;
+        this.edgeTargets = edgeTargets;
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    public int getNumEdges() {
+        return edgeStarts[numNodes];
+    }
+
+    /**
+     * returns the number of nodes that the given node has edges to
+     *
+     * @param node
+     *            the source node
+     * @return the number of outgoing edges
+     */
+    public int getNumSuccessors(int node) {
+        return edgeStarts[node + 1] - edgeStarts[node];
+    }
+
+    /**
+     * returns a successor of a node
+     *
+     * @param node
+     *            the source node
+     * @param index
+     *            the index of the edge, from 0 to getNumSuccessors(node) - 1
+     * @return the target node of the edge
+     */
+    public int getSuccessor(int node, int index) {
+        return edgeTargets[edgeStarts[node] + index];
+    }
+
+    /**
+     * finds the strongly connected components of this graph using an iterative version of Tarjan's algorithm. Components are numbered in reverse topological
+     * order, that is a component only has edges to components with a lower or equal number.
+     *
+     * @return the components of the graph
+     */
+    public Components findStronglyConnectedComponents() {
+        int[] index = new int[numNodes];
+        int[] lowLink = new int[numNodes];
+        int[] componentOf = new int[numNodes];
+        Arrays.fill(componentOf, -1);
+
+        int[] sccStack = new int[numNodes];
+        int sccStackSize = 0;
+        boolean[] onSccStack = new boolean[numNodes];
+
+        int[] callNodes = new int[numNodes];
+        int[] callEdges = new int[numNodes];
+
+        int nextIndex = 1;
+        int numComponents = 0;
+
+        for (int root = 0; root < numNodes; root++) {
+            if (index[root] != 0) {
+                continue;
+            }
+
+            int depth = 0;
+            callNodes[0] = root;
+            callEdges[0] = edgeStarts[root];
+            index[root] = lowLink[root] = nextIndex++;
+            sccStack[sccStackSize++] = root;
+            onSccStack[root] = true;
+
+            while (depth >= 0) {
+                int node = callNodes[depth];
+                int edge = callEdges[depth];
+                if (edge < edgeStarts[node + 1]) {
+                    callEdges[depth] = edge + 1;
+                    int target = edgeTargets[edge];
+                    if (index[target] == 0) {
+                        index[target] = lowLink[target] = nextIndex++;
+                        sccStack[sccStackSize++] = target;
+                        onSccStack[target] = true;
+                        depth++;
+                        callNodes[depth] = target;
+                        callEdges[depth] = edgeStarts[target];
+                    } else if (onSccStack[target] && (index[target] < lowLink[node])) {
+                        lowLink[node] = index[target];
+                    }
+                    continue;
+                }
+
+                if (lowLink[node] == index[node]) {
+                    int member;
+                    do {
+                        member = sccStack[--sccStackSize];
+                        onSccStack[member] = false;
+                        componentOf[member] = numComponents;
+                    } while (member != node);
+                    numComponents++;
+                }
+
+                depth--;
+                if ((depth >= 0) && (lowLink[node] < lowLink[callNodes[depth]])) {
+                    lowLink[callNodes[depth]] = lowLink[node];
+                }
+            }
+        }
+
+        return new Components(numComponents, componentOf);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * collects edges between nodes, and then packs them into an immutable IntGraph
+     */
+    public static final class Builder {
+
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private int numEdges;
+        private int numNodes;
+
+        /**
+         * adds a directed edge between two nodes, growing the graph to include both of them
+         *
+         * @param source
+         *            the node the edge starts from
+         * @param target
+         *            the node the edge goes to
+         * @return this builder
+         */
+        public Builder addEdge(int source, int target) {
+            if (numEdges == sources.length) {
+                sources = Arrays.copyOf(sources, numEdges * 2);
+                targets = Arrays.copyOf(targets, numEdges * 2);
+            }
+            sources[numEdges] = source;
+            targets[numEdges] = target;
+            numEdges++;
+            numNodes = Math.max(numNodes, Math.max(source, target) + 1);
+            return this;
+        }
+
+        /**
+         * makes sure the graph has at least this many nodes, even if some of them have no edges
+         *
+         * @param nodes
+         *            the minimum number of nodes
+         * @return this builder
+         */
+        public Builder ensureNodes(int nodes) {
+            numNodes = Math.max(numNodes, nodes);
+            return this;
+        }
+
+        public IntGraph build() {
+            int[] edgeStarts = new int[numNodes + 1];
+            for (int e = 0; e < numEdges; e++) {
+                edgeStarts[sources[e] + 1]++;
+            }
+            for (int n = 0; n < numNodes; n++) {
+                edgeStarts[n + 1] += edgeStarts[n];
+            }
+
+            int[] fill = Arrays.copyOf(edgeStarts, numNodes);
+            int[] edgeTargets = new int[numEdges];
+            for (int e = 0; e < numEdges; e++) {
+                edgeTargets[fill[sources[e]]++] = targets[e];
+            }
+
+            return new IntGraph(numNodes, edgeStarts, edgeTargets);
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+
+    /**
+     * the strongly connected components of an IntGraph, with the member nodes of each component held contiguously
+     */
+    public static final class Components {
+
+        private final int numComponents;
+        private final int[] componentOf;
+        private final int[] memberStarts;
+        private final int[] members;
+
+        Components(int numComponents, int[] componentOf) {
+            this.numComponents = numComponents;
+            this.componentOf = componentOf;
+
+            memberStarts = new int[numComponents + 1];
+            for (int component : componentOf) {
+                memberStarts[component + 1]++;
+            }
+            for (int c = 0; c < numComponents; c++) {
+                memberStarts[c + 1] += memberStarts[c];
+            }
+
+            int[] fill = Arrays.copyOf(memberStarts, numComponents);
+            members = new int[componentOf.length];
+            for (int node = 0; node < componentOf.length; node++) {
+                members[fill[componentOf[node]]++] = node;
+            }
+        }
+
+        public int getNumComponents() {
+            return numComponents;
+        }
+
+        public int getComponent(int node) {
+            return componentOf[node];
+        }
+
+        public int getSize(int component) {
+            return memberStarts[component + 1] - memberStarts[component];
+        }
+
+        /**
+         * returns a member node of a component, members are ordered by node number
+         *
+         * @param component
+         *            the component
+         * @param index
+         *            the index of the member, from 0 to getSize(component) - 1
+         * @return the member node
+         */
+        public int getMember(int component, int index) {
+            return members[memberStarts[component] + index];
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
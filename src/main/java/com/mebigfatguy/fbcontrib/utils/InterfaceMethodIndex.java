@@ -0,0 +1,150 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.ExceptionTable;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+
+/**
+ * an index, shared by all detectors, of the interfaces a type implements and of the methods each interface declares. Both are built the first time a type or
+ * interface is asked for, so that common types such as java.util.ArrayList or java.util.HashMap are only walked once per analysis, rather than once for each
+ * parameter of each method that uses them.
+ * <p>
+ * Methods are keyed by their name followed by their signature. The index is emptied whenever bcel's Repository is replaced.
+ */
+public final class InterfaceMethodIndex {
+
+    private static final InterfaceMethodIndex instance = new InterfaceMethodIndex();
+
+    private static final String[] NO_EXCEPTIONS = new String[0];
+
+    private final Map<String, List<JavaClass>> interfaces = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String[]>> methods = new ConcurrentHashMap<>();
+    private volatile org.apache.bcel.util.Repository repository;
+
+    InterfaceMethodIndex() {
+    }
+
+    /**
+     * returns the index shared by all detectors
+     *
+     * @return the shared index
+     */
+    public static InterfaceMethodIndex instance() {
+        return instance;
+    }
+
+    /**
+     * returns the key of a method in the maps returned by {@link #getMethods(JavaClass)}
+     *
+     * @param methodName
+     *            the name of the method
+     * @param signature
+     *            the signature of the method
+     * @return the key
+     */
+    public static String methodKey(String methodName, String signature) {
+        return methodName + signature;
+    }
+
+    /**
+     * returns all interfaces a type implements, directly or through its super types, in the order of {@link JavaClass#getAllInterfaces()}, leaving out the
+     * type itself
+     *
+     * @param cls
+     *            the type
+     * @return an unmodifiable list of the interfaces
+     * @throws ClassNotFoundException
+     *             if a super type can not be found
+     */
+    public List<JavaClass> getInterfaces(JavaClass cls) throws ClassNotFoundException {
+        checkRepository();
+        List<JavaClass> infs = interfaces.get(cls.getClassName());
+        if (infs == null) {
+            infs = new ArrayList<>();
+            for (JavaClass inf : cls.getAllInterfaces()) {
+                if (!cls.equals(inf)) {
+                    infs.add(inf);
+                }
+            }
+            infs = Collections.unmodifiableList(infs);
+            interfaces.put(cls.getClassName(), infs);
+        }
+        return infs;
+    }
+
+    /**
+     * returns the public and protected methods a class or interface declares itself, along with the exceptions each declares it throws
+     *
+     * @param cls
+     *            the class or interface
+     * @return an unmodifiable map from {@link #methodKey(String, String)} to thrown exception names
+     */
+    public Map<String, String[]> getMethods(JavaClass cls) {
+        checkRepository();
+        Map<String, String[]> declared = methods.get(cls.getClassName());
+        if (declared == null) {
+            declared = new HashMap<>();
+            for (Method m : cls.getMethods()) {
+                if ((m.getAccessFlags() & (Const.ACC_PUBLIC | Const.ACC_PROTECTED)) != 0) {
+                    ExceptionTable et = m.getExceptionTable();
+                    declared.put(methodKey(m.getName(), m.getSignature()), et == null ? NO_EXCEPTIONS : et.getExceptionNames());
+                }
+            }
+            declared = Collections.unmodifiableMap(declared);
+            methods.put(cls.getClassName(), declared);
+        }
+        return declared;
+    }
+
+    /**
+     * empties the index
+     */
+    public void clear() {
+        interfaces.clear();
+        methods.clear();
+    }
+
+    private void checkRepository() {
+        org.apache.bcel.util.Repository current = Repository.getRepository();
+        if (current != repository) {
+            synchronized (this) {
+                if (current != repository) {
+                    repository = current;
+                    clear();
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
+
+/**
+ * a read only index of the classes, methods and packages of the java/ and javax/ api of one java release, memory mapped from a file written by
+ * {@link JdkApiIndexWriter}. Lookups are probes into open addressed hash tables kept in the mapped file, and do not allocate.
+ * <p>
+ * The file holds a header of seven ints: magic, format version, java version, and the slot counts of the class, method and package tables, followed by the
+ * offset of the string pool. Then come the class table, whose slots are pairs of pool offsets of a class name and its superclass name, the method table, whose
+ * slots are pool offsets of keys of the form class.nameSignature, and the package table. Empty slots hold -1. The pool holds each string as an unsigned short
+ * length followed by its latin-1 bytes. Slots are picked from the String hash code of the key, so the writer and the reader agree without sharing any code.
+ */
+public final class JdkApiIndex {
+
+    static final int MAGIC = 0x534A5655;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 7 * 4;
+    static final int EMPTY = -1;
+
+    private static final ConcurrentMap<File, JdkApiIndex> openIndexes = new ConcurrentHashMap<>();
+
+    private final ByteBuffer buffer;
+    private final int javaVersion;
+    private final int classSlots;
+    private final int classTable;
+    private final int methodSlots;
+    private final int methodTable;
+    private final int packageSlots;
+    private final int packageTable;
+    private final int pool;
+
+    private JdkApiIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if ((buffer.capacity() < HEADER_SIZE) || (buffer.getInt(0) != MAGIC)) {
+            throw new IOException("Not a jdk api index");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported jdk api index format: " + buffer.getInt(4));
+        }
+        javaVersion = buffer.getInt(8);
+        classSlots = buffer.getInt(12);
+        methodSlots = buffer.getInt(16);
+        packageSlots = buffer.getInt(20);
+        pool = buffer.getInt(24);
+
+        classTable = HEADER_SIZE;
+        methodTable = classTable + (classSlots * 8);
+        packageTable = methodTable + (methodSlots * 4);
+        if ((Integer.bitCount(classSlots) != 1) || (Integer.bitCount(methodSlots) != 1) || (Integer.bitCount(packageSlots) != 1)
+                || (packageTable + (packageSlots * 4) != pool) || (pool > buffer.capacity())) {
+            throw new IOException("Corrupt jdk api index");
+        }
+    }
+
+    /**
+     * maps an index file, sharing the mapping with any earlier caller
+     *
+     * @param indexFile
+     *            the file written by {@link JdkApiIndexWriter}
+     * @return the index
+     * @throws IOException
+     *             if the file can not be read, or is not an index
+     */
+    public static JdkApiIndex open(File indexFile) throws IOException {
+        File key = indexFile.getCanonicalFile();
+        JdkApiIndex index = openIndexes.get(key);
+        if (index == null) {
+            try (RandomAccessFile raf = new RandomAccessFile(key, "r"); FileChannel channel = raf.getChannel()) {
+                index = new JdkApiIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+            JdkApiIndex existing = openIndexes.putIfAbsent(key, index);
+            if (existing != null) {
+                index = existing;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * returns an index of the api found in a jdk's rt.jar, jmods directory or modules image, writing it to a cache directory the first time it is asked for,
+     * so that the class files are parsed only once for each jdk
+     *
+     * @param source
+     *            an rt.jar, a jmod file, a jmods directory, or the lib/modules image of a java 9 or later jdk
+     * @param javaVersion
+     *            the java release of the source, such as 8
+     * @param cacheDir
+     *            the directory to keep the index in
+     * @return the index
+     * @throws IOException
+     *             if the source can not be read, or the index can not be written
+     */
+    public static JdkApiIndex forSource(File source, int javaVersion, File cacheDir) throws IOException {
+        File indexFile = new File(cacheDir, "jdk" + javaVersion + '-' + Integer.toHexString(source.getCanonicalPath().hashCode()) + '-'
+                + Long.toHexString(source.lastModified()) + ".idx");
+        if (!indexFile.isFile()) {
+            JdkApiIndexWriter writer = new JdkApiIndexWriter(javaVersion);
+            writer.addSource(source);
+            writer.write(indexFile);
+        }
+        return open(indexFile);
+    }
+
+    public int getJavaVersion() {
+        return javaVersion;
+    }
+
+    /**
+     * returns whether the class exists in this release
+     *
+     * @param className
+     *            the slashed class name
+     * @return whether the class exists
+     */
+    public boolean hasClass(@SlashedClassName String className) {
+        return findClass(className) >= 0;
+    }
+
+    /**
+     * returns the superclass of a class of this release
+     *
+     * @param className
+     *            the slashed class name
+     * @return the slashed superclass name, or null if the class is unknown or is java/lang/Object
+     */
+    @Nullable
+    public String getSuperclassName(@SlashedClassName String className) {
+        int slot = findClass(className);
+        if (slot < 0) {
+            return null;
+        }
+        int superOffset = buffer.getInt(classTable + (slot * 8) + 4);
+        return (superOffset == EMPTY) ? null : readString(superOffset);
+    }
+
+    /**
+     * returns whether the class declares the method in this release
+     *
+     * @param className
+     *            the slashed class name
+     * @param methodName
+     *            the method name
+     * @param signature
+     *            the method signature
+     * @return whether the class declares the method
+     */
+    public boolean hasMethod(@SlashedClassName String className, String methodName, String signature) {
+        int hash = hash(hash(hash(hash(0, className), "."), methodName), signature);
+        int mask = methodSlots - 1;
+        for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask) {
+            int offset = buffer.getInt(methodTable + (slot * 4));
+            if (offset == EMPTY) {
+                return false;
+            }
+            int pos = pool + offset;
+            int end = pos + 2 + (buffer.getShort(pos) & 0xFFFF);
+            pos += 2;
+            pos = matchPart(pos, end, className);
+            pos = matchPart(pos, end, ".");
+            pos = matchPart(pos, end, methodName);
+            pos = matchPart(pos, end, signature);
+            if (pos == end) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * returns whether the package exists in this release
+     *
+     * @param packageName
+     *            the slashed package name
+     * @return whether the package exists
+     */
+    public boolean hasPackage(String packageName) {
+        return find(packageTable, 4, packageSlots, packageName) >= 0;
+    }
+
+    private int findClass(String className) {
+        return find(classTable, 8, classSlots, className);
+    }
+
+    private int find(int table, int slotSize, int slots, String key) {
+        int mask = slots - 1;
+        for (int slot = mix(hash(0, key)) & mask;; slot = (slot + 1) & mask) {
+            int offset = buffer.getInt(table + (slot * slotSize));
+            if (offset == EMPTY) {
+                return -1;
+            }
+            int pos = pool + offset;
+            int end = pos + 2 + (buffer.getShort(pos) & 0xFFFF);
+            if (matchPart(pos + 2, end, key) == end) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * matches one part of a key against the pooled string at pos
+     *
+     * @return the position after the part, or -1 if it does not match
+     */
+    private int matchPart(int pos, int end, String part) {
+        if ((pos < 0) || ((end - pos) < part.length())) {
+            return -1;
+        }
+        for (int i = 0; i < part.length(); i++) {
+            if ((buffer.get(pos++) & 0xFF) != part.charAt(i)) {
+                return -1;
+            }
+        }
+        return pos;
+    }
+
+    private String readString(int offset) {
+        int pos = pool + offset;
+        int len = buffer.getShort(pos) & 0xFFFF;
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = (char) (buffer.get(pos + 2 + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * continues a String.hashCode style hash over another part of a key
+     */
+    static int hash(int h, String part) {
+        for (int i = 0; i < part.length(); i++) {
+            h = (31 * h) + part.charAt(i);
+        }
+        return h;
+    }
+
+    static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.bcel.classfile.ClassParser;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+
+/**
+ * builds the file read by {@link JdkApiIndex} from the class files of a jdk, either from its rt.jar, or, for java 9 and later, from its jmods, or from its
+ * lib/modules image, read through the jrt file system that the jdk ships in its lib/jrt-fs.jar, as not all jdks come with jmods. Only classes in the java and
+ * javax packages are kept, as those are all that SuspiciousJDKVersionUse asks about.
+ * <p>
+ * Usage: JdkApiIndexWriter rt.jar|jmods-directory|lib/modules javaVersion indexFile
+ */
+public final class JdkApiIndexWriter {
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String JMOD_SUFFIX = ".jmod";
+    private static final String JMOD_CLASSES = "classes/";
+    private static final String MODULES_IMAGE = "modules";
+    private static final String JRT_MODULES = "/modules";
+    private static final URI JRT_URI = URI.create("jrt:/");
+
+    private final int javaVersion;
+    private final Map<String, String> superNames = new HashMap<>();
+    private final Set<String> methods = new HashSet<>();
+    private final Set<String> packages = new HashSet<>();
+
+    public JdkApiIndexWriter(int javaVersion) {
+        this.javaVersion = javaVersion;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: JdkApiIndexWriter rt.jar|jmods-directory|lib/modules javaVersion indexFile");
+            System.exit(1);
+        }
+
+        JdkApiIndexWriter writer = new JdkApiIndexWriter(Integer.parseInt(args[1]));
+        writer.addSource(new File(args[0]));
+        writer.write(new File(args[2]));
+    }
+
+    /**
+     * adds the classes of an rt.jar, a jmod file, every jmod file in a directory, or a lib/modules image
+     *
+     * @param source
+     *            the jar, jmod, jmods directory or modules image
+     * @throws IOException
+     *             if the source can not be read
+     */
+    public void addSource(File source) throws IOException {
+        if (source.isDirectory()) {
+            File[] jmods = source.listFiles();
+            if (jmods == null) {
+                throw new IOException("Can not list " + source);
+            }
+            Arrays.sort(jmods);
+            for (File jmod : jmods) {
+                if (jmod.getName().endsWith(JMOD_SUFFIX)) {
+                    addArchive(jmod, JMOD_CLASSES);
+                }
+            }
+        } else if (source.getName().endsWith(JMOD_SUFFIX)) {
+            addArchive(source, JMOD_CLASSES);
+        } else if (MODULES_IMAGE.equals(source.getName())) {
+            File lib = source.getAbsoluteFile().getParentFile();
+            File jdkHome = (lib == null) ? null : lib.getParentFile();
+            if (jdkHome == null) {
+                throw new IOException("Can not find the jdk of " + source);
+            }
+            addImage(jdkHome);
+        } else {
+            addArchive(source, "");
+        }
+    }
+
+    /**
+     * adds one parsed class
+     *
+     * @param cls
+     *            the class to add
+     */
+    public void addClass(JavaClass cls) {
+        String className = cls.getClassName().replace('.', '/');
+        if (!isIndexed(className) || !isLatin1(className)) {
+            return;
+        }
+
+        String superName = cls.getSuperclassName().replace('.', '/');
+        superNames.put(className, Values.SLASHED_JAVA_LANG_OBJECT.equals(className) ? null : superName);
+        for (Method m : cls.getMethods()) {
+            String key = className + '.' + m.getName() + m.getSignature();
+            if (isLatin1(key)) {
+                methods.add(key);
+            }
+        }
+
+        int slashPos = className.lastIndexOf('/');
+        while (slashPos > 0) {
+            packages.add(className.substring(0, slashPos));
+            slashPos = className.lastIndexOf('/', slashPos - 1);
+        }
+    }
+
+    /**
+     * writes the index, replacing the file only once it is complete, so that readers never map a partial index
+     *
+     * @param indexFile
+     *            the file to write
+     * @throws IOException
+     *             if the file can not be written
+     */
+    public void write(File indexFile) throws IOException {
+        ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        DataOutputStream pool = new DataOutputStream(poolBytes);
+        Map<String, Integer> poolOffsets = new HashMap<>();
+
+        int classSlots = slotsFor(superNames.size());
+        int[] classTable = new int[classSlots * 2];
+        Arrays.fill(classTable, JdkApiIndex.EMPTY);
+        for (Map.Entry<String, String> entry : superNames.entrySet()) {
+            int slot = freeSlot(classTable, 2, classSlots, entry.getKey());
+            classTable[slot * 2] = intern(pool, poolOffsets, entry.getKey());
+            if (entry.getValue() != null) {
+                classTable[(slot * 2) + 1] = intern(pool, poolOffsets, entry.getValue());
+            }
+        }
+
+        int[] methodTable = buildSet(methods, pool, poolOffsets);
+        int[] packageTable = buildSet(packages, pool, poolOffsets);
+        pool.flush();
+
+        File dir = indexFile.getAbsoluteFile().getParentFile();
+        if ((dir != null) && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can not create " + dir);
+        }
+        File tmpFile = File.createTempFile(indexFile.getName(), ".tmp", dir);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                out.writeInt(JdkApiIndex.MAGIC);
+                out.writeInt(JdkApiIndex.FORMAT_VERSION);
+                out.writeInt(javaVersion);
+                out.writeInt(classSlots);
+                out.writeInt(methodTable.length);
+                out.writeInt(packageTable.length);
+                out.writeInt(JdkApiIndex.HEADER_SIZE + ((classTable.length + methodTable.length + packageTable.length) * 4));
+                writeInts(out, classTable);
+                writeInts(out, methodTable);
+                writeInts(out, packageTable);
+                poolBytes.writeTo(out);
+            }
+            Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    private void addArchive(File archive, String prefix) throws IOException {
+        try (ZipFile zip = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (name.startsWith(prefix) && name.endsWith(CLASS_SUFFIX) && isIndexed(name.substring(prefix.length()))) {
+                    try (InputStream is = new BufferedInputStream(zip.getInputStream(entry))) {
+                        addClass(new ClassParser(is, name).parse());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * adds the classes of the modules image of a jdk, through the jrt file system of the running jdk if it is the one asked for, or otherwise through the one
+     * in the jdk's lib/jrt-fs.jar, which also works when running on java 8
+     *
+     * @param jdkHome
+     *            the home directory of a java 9 or later jdk
+     */
+    private void addImage(File jdkHome) throws IOException {
+        try {
+            File javaHome = new File(System.getProperty("java.home"));
+            if (jdkHome.getCanonicalFile().equals(javaHome.getCanonicalFile())) {
+                // the running jdk's file system is shared, and can't be closed
+                addModules(FileSystems.getFileSystem(JRT_URI));
+                return;
+            }
+
+            File jrtFs = new File(jdkHome, "lib/jrt-fs.jar");
+            if (!jrtFs.isFile()) {
+                throw new IOException("No jrt file system found in " + jdkHome);
+            }
+            try (URLClassLoader loader = new URLClassLoader(new URL[] { jrtFs.toURI().toURL() });
+                    FileSystem jrt = FileSystems.newFileSystem(JRT_URI, Collections.singletonMap("java.home", jdkHome.getPath()), loader)) {
+                addModules(jrt);
+            }
+        } catch (FileSystemNotFoundException | ProviderNotFoundException e) {
+            throw new IOException("Can not read the modules image of " + jdkHome, e);
+        }
+    }
+
+    private void addModules(FileSystem jrt) throws IOException {
+        List<Path> classFiles;
+        try (Stream<Path> paths = Files.walk(jrt.getPath(JRT_MODULES))) {
+            classFiles = paths.filter(path -> path.getFileName() != null && path.getFileName().toString().endsWith(CLASS_SUFFIX)).collect(Collectors.toList());
+        }
+
+        for (Path classFile : classFiles) {
+            // paths are /modules/module.name/java/lang/Object.class
+            String name = classFile.toString();
+            int classStart = name.indexOf('/', JRT_MODULES.length() + 1) + 1;
+            if ((classStart > 0) && isIndexed(name.substring(classStart))) {
+                try (InputStream is = new BufferedInputStream(Files.newInputStream(classFile))) {
+                    addClass(new ClassParser(is, name).parse());
+                }
+            }
+        }
+    }
+
+    private static boolean isIndexed(String slashedName) {
+        return slashedName.startsWith("java/") || slashedName.startsWith("javax/");
+    }
+
+    private static boolean isLatin1(String s) {
+        if (s.length() > 0xFFFF) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] buildSet(Set<String> keys, DataOutputStream pool, Map<String, Integer> poolOffsets) throws IOException {
+        int slots = slotsFor(keys.size());
+        int[] table = new int[slots];
+        Arrays.fill(table, JdkApiIndex.EMPTY);
+        for (String key : keys) {
+            table[freeSlot(table, 1, slots, key)] = intern(pool, poolOffsets, key);
+        }
+        return table;
+    }
+
+    /**
+     * sizes a table to a power of two that is at most half full
+     */
+    private static int slotsFor(int count) {
+        return Integer.highestOneBit(Math.max(count, 1) * 2) << 1;
+    }
+
+    private static int freeSlot(int[] table, int slotSize, int slots, String key) {
+        int mask = slots - 1;
+        int slot = JdkApiIndex.mix(JdkApiIndex.hash(0, key)) & mask;
+        while (table[slot * slotSize] != JdkApiIndex.EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int intern(DataOutputStream pool, Map<String, Integer> poolOffsets, String s) throws IOException {
+        Integer offset = poolOffsets.get(s);
+        if (offset == null) {
+            offset = Integer.valueOf(pool.size());
+            pool.writeShort(s.length());
+            pool.writeBytes(s);
+            poolOffsets.put(s, offset);
+        }
+        return offset.intValue();
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * matches string literals against a set of regular expressions, each of which can only match a string holding one of a few keywords. All the keywords are
+ * looked for at once in one pass over the string with an Aho-Corasick automaton, and the regular expression of a rule is only run when one of its keywords has
+ * been found, so most literals are rejected without running any regular expression at all.
+ * <p>
+ * Keywords are ascii, and are found ignoring case, so a keyword only needs to be a fragment that any match of the rule must contain; the regular expression
+ * has the final say. A rule without keywords always runs its regular expression.
+ */
+public final class LiteralMatcher {
+
+    /** the most rules one matcher holds, so that candidate rules fit in a long */
+    public static final int MAX_RULES = Long.SIZE;
+
+    private static final int ASCII = 128;
+
+    private final Pattern[] patterns;
+    private final boolean[] wholeString;
+    private final long unfilteredRules;
+    private final long filteredRules;
+    private final int[] charClasses;
+    private final int numClasses;
+    private final int[] transitions;
+    private final long[] outputs;
+
+    private LiteralMatcher(Builder builder) {
+        int numRules = builder.patterns.size();
+        patterns = builder.patterns.toArray(new Pattern[numRules]);
+        wholeString = new boolean[numRules];
+        long unfiltered = 0;
+        for (int r = 0; r < numRules; r++) {
+            wholeString[r] = builder.wholeString.get(r).booleanValue();
+            if (builder.keywords.get(r).length == 0) {
+                unfiltered |= 1L << r;
+            }
+        }
+        unfilteredRules = unfiltered;
+        filteredRules = (numRules == MAX_RULES ? -1L : (1L << numRules) - 1) & ~unfiltered;
+
+        charClasses = new int[ASCII];
+        int classes = 1;
+        for (String[] ruleKeywords : builder.keywords) {
+            for (String keyword : ruleKeywords) {
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = keyword.charAt(i);
+                    if (charClasses[c] == 0) {
+                        charClasses[c] = classes++;
+                    }
+                }
+            }
+        }
+        numClasses = classes;
+
+        // build the trie of keywords, with the rules each keyword belongs to
+        List<int[]> trie = new ArrayList<>();
+        List<Long> trieOutputs = new ArrayList<>();
+        trie.add(new int[numClasses]);
+        trieOutputs.add(Long.valueOf(0));
+        for (int r = 0; r < numRules; r++) {
+            for (String keyword : builder.keywords.get(r)) {
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    int cls = charClasses[keyword.charAt(i)];
+                    int next = trie.get(state)[cls];
+                    if (next == 0) {
+                        next = trie.size();
+                        trie.add(new int[numClasses]);
+                        trieOutputs.add(Long.valueOf(0));
+                        trie.get(state)[cls] = next;
+                    }
+                    state = next;
+                }
+                trieOutputs.set(state, Long.valueOf(trieOutputs.get(state).longValue() | (1L << r)));
+            }
+        }
+
+        // turn the trie into a dfa, following failure links breadth first, so each state also reports the keywords that end as suffixes of it
+        int numStates = trie.size();
+        transitions = new int[numStates * numClasses];
+        outputs = new long[numStates];
+        int[] failures = new int[numStates];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int cls = 1; cls < numClasses; cls++) {
+            int next = trie.get(0)[cls];
+            transitions[cls] = next;
+            if (next != 0) {
+                queue.add(Integer.valueOf(next));
+            }
+        }
+        outputs[0] = trieOutputs.get(0).longValue();
+        while (!queue.isEmpty()) {
+            int state = queue.removeFirst().intValue();
+            outputs[state] = trieOutputs.get(state).longValue() | outputs[failures[state]];
+            for (int cls = 1; cls < numClasses; cls++) {
+                int next = trie.get(state)[cls];
+                if (next == 0) {
+                    transitions[(state * numClasses) + cls] = transitions[(failures[state] * numClasses) + cls];
+                } else {
+                    transitions[(state * numClasses) + cls] = next;
+                    failures[next] = transitions[(failures[state] * numClasses) + cls];
+                    queue.add(Integer.valueOf(next));
+                }
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * returns the rules that might match a literal, those whose keywords appear in it, along with those that have no keywords. This is one pass over the
+     * literal, which stops as soon as every rule with keywords has been seen.
+     *
+     * @param literal
+     *            the string to look at
+     * @return a bit mask of the candidate rules, indexed in the order the rules were added
+     */
+    public long candidates(String literal) {
+        long found = 0;
+        int state = 0;
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if ((c >= 'A') && (c <= 'Z')) {
+                c += 'a' - 'A';
+            }
+            state = transitions[(state * numClasses) + (c < ASCII ? charClasses[c] : 0)];
+            found |= outputs[state];
+            if (found == filteredRules) {
+                break;
+            }
+        }
+        return found | unfilteredRules;
+    }
+
+    /**
+     * returns whether a rule matches a literal, given the candidate rules of that literal
+     *
+     * @param literal
+     *            the string to look at
+     * @param rule
+     *            the index of the rule
+     * @param candidates
+     *            the candidate rules, as returned by {@link #candidates(String)}
+     * @return whether the rule's regular expression matches
+     */
+    public boolean matches(String literal, int rule, long candidates) {
+        if ((candidates & (1L << rule)) == 0) {
+            return false;
+        }
+
+        return wholeString[rule] ? patterns[rule].matcher(literal).matches() : patterns[rule].matcher(literal).find();
+    }
+
+    /**
+     * returns whether a rule matches a literal
+     *
+     * @param literal
+     *            the string to look at
+     * @param rule
+     *            the index of the rule
+     * @return whether the rule's regular expression matches
+     */
+    public boolean matches(String literal, int rule) {
+        return matches(literal, rule, candidates(literal));
+    }
+
+    /**
+     * returns the first rule, in the order they were added, that matches a literal
+     *
+     * @param literal
+     *            the string to look at
+     * @return the index of the rule, or -1 if no rule matches
+     */
+    public int firstMatch(String literal) {
+        long candidates = candidates(literal);
+        while (candidates != 0) {
+            int rule = Long.numberOfTrailingZeros(candidates);
+            if (matches(literal, rule, candidates)) {
+                return rule;
+            }
+            candidates &= candidates - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * returns whether any rule matches a literal
+     *
+     * @param literal
+     *            the string to look at
+     * @return whether some rule's regular expression matches
+     */
+    public boolean anyMatch(String literal) {
+        return firstMatch(literal) >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this, "charClasses", "transitions", "outputs");
+    }
+
+    /**
+     * collects the rules of a {@link LiteralMatcher}. Rules are indexed from 0, in the order they are added.
+     */
+    public static final class Builder {
+        private final List<Pattern> patterns = new ArrayList<>();
+        private final List<Boolean> wholeString = new ArrayList<>();
+        private final List<String[]> keywords = new ArrayList<>();
+
+        Builder() {
+        }
+
+        /**
+         * adds a rule that matches when the regular expression matches the whole literal
+         *
+         * @param pattern
+         *            the regular expression
+         * @param ruleKeywords
+         *            ascii fragments, at least one of which is in any literal the expression matches
+         * @return this builder
+         */
+        public Builder addMatch(Pattern pattern, String... ruleKeywords) {
+            return add(pattern, true, ruleKeywords);
+        }
+
+        /**
+         * adds a rule that matches when the regular expression is found somewhere in the literal
+         *
+         * @param pattern
+         *            the regular expression
+         * @param ruleKeywords
+         *            ascii fragments, at least one of which is in any literal the expression is found in
+         * @return this builder
+         */
+        public Builder addFind(Pattern pattern, String... ruleKeywords) {
+            return add(pattern, false, ruleKeywords);
+        }
+
+        private Builder add(Pattern pattern, boolean matchWholeString, String... ruleKeywords) {
+            if (patterns.size() == MAX_RULES) {
+                throw new IllegalStateException("A LiteralMatcher can not hold more than " + MAX_RULES + " rules");
+            }
+
+            String[] folded = new String[ruleKeywords.length];
+            for (int i = 0; i < ruleKeywords.length; i++) {
+                String keyword = ruleKeywords[i];
+                if (keyword.isEmpty()) {
+                    throw new IllegalArgumentException("Empty keyword for pattern " + pattern);
+                }
+                for (int c = 0; c < keyword.length(); c++) {
+                    if (keyword.charAt(c) >= ASCII) {
+                        throw new IllegalArgumentException("Keyword " + keyword + " is not ascii");
+                    }
+                }
+                folded[i] = keyword.toLowerCase(Locale.ENGLISH);
+            }
+
+            patterns.add(pattern);
+            wholeString.add(Boolean.valueOf(matchWholeString));
+            keywords.add(folded);
+            return this;
+        }
+
+        public LiteralMatcher build() {
+            return new LiteralMatcher(this);
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.bcel.classfile.Code;
+
+/**
+ * a limit on how much work an expensive detector spends on one method, so that generated code, such as parser tables or giant switch statements, does not
+ * stall an analysis. A method whose bytecode is at least fb-contrib.method.budget.bytes long (by default 8000 bytes, the same bound Unjitable reports methods
+ * hotspot won't jit at) is not looked at, and a method being looked at for longer than fb-contrib.method.budget.millis (by default no limit) is abandoned,
+ * by throwing a {@link StopOpcodeParsingException} from {@link #checkpoint()}. Either limit is turned off by setting it to 0.
+ * <p>
+ * Each method skipped or abandoned is counted against the detector that gave up on it, and the counts are written out by the detector profiler, which
+ * clears them when a new analysis starts.
+ */
+public final class MethodBudget {
+
+    public static final String BUDGET_BYTES_PROPERTY = "fb-contrib.method.budget.bytes";
+    public static final String BUDGET_MILLIS_PROPERTY = "fb-contrib.method.budget.millis";
+    public static final int UNJITABLE_CODE_LENGTH = 8000;
+
+    private static final int CHECKPOINT_INTERVAL = 256;
+
+    private static final Map<String, AtomicLong> skippedMethods = new ConcurrentHashMap<>();
+
+    private final String detectorName;
+    private final int maxBytes;
+    private final long maxNanos;
+    private long startNanos;
+    private int checkpoints;
+
+    /**
+     * creates a budget for a detector, with the limits set by system properties
+     *
+     * @param detector
+     *            the detector whose methods are limited
+     */
+    public MethodBudget(Class<?> detector) {
+        this(detector.getName(), Integer.getInteger(BUDGET_BYTES_PROPERTY, UNJITABLE_CODE_LENGTH).intValue(),
+                Long.getLong(BUDGET_MILLIS_PROPERTY, 0L).longValue());
+    }
+
+    MethodBudget(String detectorName, int maxBytes, long maxMillis) {
+        this.detectorName = detectorName;
+        this.maxBytes = maxBytes;
+        maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+    }
+
+    /**
+     * decides whether a method is small enough to be looked at, and if so starts its clock
+     *
+     * @param code
+     *            the code of the method about to be looked at
+     * @return whether the method should be looked at
+     */
+    public boolean admit(Code code) {
+        if ((maxBytes > 0) && (code.getCode().length >= maxBytes)) {
+            recordSkip();
+            return false;
+        }
+
+        startNanos = System.nanoTime();
+        checkpoints = 0;
+        return true;
+    }
+
+    /**
+     * called periodically while looking at a method admitted by {@link #admit(Code)}. The clock is only read every so many calls, to keep this cheap enough
+     * to call for each opcode.
+     *
+     * @throws StopOpcodeParsingException
+     *             if the method has been looked at for longer than allowed
+     */
+    public void checkpoint() {
+        if ((maxNanos > 0) && ((++checkpoints % CHECKPOINT_INTERVAL) == 0) && ((System.nanoTime() - startNanos) > maxNanos)) {
+            recordSkip();
+            throw new StopOpcodeParsingException();
+        }
+    }
+
+    private void recordSkip() {
+        skippedMethods.computeIfAbsent(detectorName, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * returns how many methods each detector has skipped or abandoned
+     *
+     * @return a map, sorted by detector class name, of skipped method counts
+     */
+    public static Map<String, Long> getSkippedMethods() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : skippedMethods.entrySet()) {
+            counts.put(entry.getKey(), Long.valueOf(entry.getValue().get()));
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * forgets the methods skipped by an earlier analysis in this jvm
+     */
+    public static void clearSkippedMethods() {
+        skippedMethods.clear();
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
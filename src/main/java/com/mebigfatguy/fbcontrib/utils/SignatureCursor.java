@@ -0,0 +1,316 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
+
+/**
+ * a reusable cursor over the parameters of a method signature, that reports the index, register slot, kind and position of each parameter without creating
+ * any strings. It parses the same way as {@link SignatureUtils#getParameterSignatures(String)}, including skipping the odd characters eclipse puts in
+ * signatures, but is meant for detectors that look at the parameters of every invoke, and so can hold one cursor and reset it for each method.
+ * <p>
+ * A typical use is
+ *
+ * <pre>
+ * cursor.reset(signature);
+ * while (cursor.next()) {
+ *     if (cursor.getKind() == 'L') {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * A cursor is not thread safe.
+ */
+public final class SignatureCursor {
+
+    private static final String ECLIPSE_WEIRD_SIG_CHARS = "!+";
+
+    private String signature;
+    private int limit;
+    private int numParameters;
+
+    private int index;
+    private int slot;
+    private int start;
+    private int end;
+    private int arrayDimensions;
+
+    /**
+     * creates a cursor over a method without parameters, that is meant to be {@link #reset(String)} before being used
+     */
+    public SignatureCursor() {
+        this("()V");
+    }
+
+    /**
+     * creates a cursor over the parameters of a static method
+     *
+     * @param methodSignature
+     *            the signature of the method
+     */
+    public SignatureCursor(String methodSignature) {
+        reset(methodSignature, true);
+    }
+
+    /**
+     * positions the cursor before the first parameter of a static method, with slots counted from 0
+     *
+     * @param methodSignature
+     *            the signature of the method
+     * @return this cursor
+     */
+    public SignatureCursor reset(String methodSignature) {
+        return reset(methodSignature, true);
+    }
+
+    /**
+     * positions the cursor before the first parameter of a method
+     *
+     * @param methodSignature
+     *            the signature of the method
+     * @param methodIsStatic
+     *            if the method is static, slots are counted from 0, otherwise from 1
+     * @return this cursor
+     */
+    public SignatureCursor reset(String methodSignature, boolean methodIsStatic) {
+        signature = methodSignature;
+        limit = methodSignature.lastIndexOf(')');
+        numParameters = -1;
+
+        index = -1;
+        slot = methodIsStatic ? 0 : 1;
+        start = methodSignature.indexOf('(') + 1;
+        end = start;
+        arrayDimensions = 0;
+        return this;
+    }
+
+    /**
+     * moves to the next parameter
+     *
+     * @return whether there was another parameter
+     */
+    public boolean next() {
+        if (index >= 0) {
+            slot += isTwoSlot() ? 2 : 1;
+        }
+
+        int pos = end;
+        while ((pos < limit) && isWonky(pos)) {
+            pos++;
+        }
+        if (pos >= limit) {
+            end = limit;
+            return false;
+        }
+
+        start = pos;
+        arrayDimensions = 0;
+        while (signature.charAt(pos) == '[') {
+            arrayDimensions++;
+            pos++;
+            if (isWonky(pos)) {
+                // as getParameterSignatures does, drop an array prefix that is followed by eclipse junk
+                arrayDimensions = 0;
+                start = ++pos;
+            }
+        }
+
+        if (signature.charAt(pos) == 'L') {
+            pos = signature.indexOf(';', pos + 1);
+        }
+        end = pos + 1;
+        index++;
+        return true;
+    }
+
+    /**
+     * returns the number of parameters of the method, without moving the cursor. This is computed once for each reset.
+     *
+     * @return the number of parameters
+     */
+    public int getNumParameters() {
+        if (numParameters < 0) {
+            int savedIndex = index;
+            int savedSlot = slot;
+            int savedStart = start;
+            int savedEnd = end;
+            int savedDimensions = arrayDimensions;
+
+            int count = index + 1;
+            while (next()) {
+                count++;
+            }
+            numParameters = count;
+
+            index = savedIndex;
+            slot = savedSlot;
+            start = savedStart;
+            end = savedEnd;
+            arrayDimensions = savedDimensions;
+        }
+        return numParameters;
+    }
+
+    /**
+     * @return the 0 based index of the current parameter
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the register slot of the current parameter
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * @return the offset in the method signature where the current parameter starts
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return the offset in the method signature just past the end of the current parameter
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * returns the first character of the current parameter's signature, that is '[' for arrays, 'L' for objects, or the primitive type code
+     *
+     * @return the kind of parameter
+     */
+    public char getKind() {
+        return signature.charAt(start);
+    }
+
+    /**
+     * returns the kind of the element of an array parameter, or the kind of the parameter if it is not an array
+     *
+     * @return the kind of the element type
+     */
+    public char getElementKind() {
+        return signature.charAt(start + arrayDimensions);
+    }
+
+    /**
+     * @return the number of array dimensions of the current parameter
+     */
+    public int getArrayDimensions() {
+        return arrayDimensions;
+    }
+
+    /**
+     * @return whether the current parameter takes two register slots, as longs and doubles do
+     */
+    public boolean isTwoSlot() {
+        return isTwoSlot(start, end);
+    }
+
+    /**
+     * returns whether the current parameter's signature equals the given signature
+     *
+     * @param parmSignature
+     *            the signature to compare against
+     * @return if the signatures are equal
+     */
+    public boolean isSignature(String parmSignature) {
+        int length = end - start;
+        return (parmSignature.length() == length) && signature.regionMatches(start, parmSignature, 0, length);
+    }
+
+    /**
+     * returns whether the current parameter's signature starts with the given prefix
+     *
+     * @param prefix
+     *            the prefix to look for
+     * @return if the parameter starts with the prefix
+     */
+    public boolean startsWith(String prefix) {
+        return (prefix.length() <= (end - start)) && signature.startsWith(prefix, start);
+    }
+
+    /**
+     * returns whether the element type of the current parameter, or the parameter itself if not an array, equals the given signature
+     *
+     * @param elementSignature
+     *            the signature to compare against
+     * @return if the element signature is equal
+     */
+    public boolean isElementSignature(String elementSignature) {
+        int elementStart = start + arrayDimensions;
+        int length = end - elementStart;
+        return (elementSignature.length() == length) && signature.regionMatches(elementStart, elementSignature, 0, length);
+    }
+
+    /**
+     * returns whether the current parameter is of the given class, matching as {@link SignatureUtils#trimSignature(String)} would
+     *
+     * @param className
+     *            the slashed name of the class
+     * @return if the parameter is of that class
+     */
+    public boolean isClass(@SlashedClassName String className) {
+        if (getKind() != 'L') {
+            return isSignature(className);
+        }
+        int length = className.length();
+        return ((end - start) == (length + 2)) && signature.regionMatches(start + 1, className, 0, length);
+    }
+
+    /**
+     * creates the signature of the current parameter. Unlike the other accessors, this allocates a string, so use it only once a parameter is known to be
+     * of interest.
+     *
+     * @return the signature of the current parameter
+     */
+    public String getSignature() {
+        return signature.substring(start, end);
+    }
+
+    /**
+     * @return the method signature being walked
+     */
+    public String getMethodSignature() {
+        return signature;
+    }
+
+    private boolean isTwoSlot(int parmStart, int parmEnd) {
+        if ((parmEnd - parmStart) != 1) {
+            return false;
+        }
+        char kind = signature.charAt(parmStart);
+        return (kind == 'J') || (kind == 'D');
+    }
+
+    private boolean isWonky(int pos) {
+        return (pos < limit) && (ECLIPSE_WEIRD_SIG_CHARS.indexOf(signature.charAt(pos)) >= 0);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -175,6 +175,7 @@ public final class SignatureUtils {
      * @param methodSignature
      *            the signature of the method to parse
      * @return a map of parameter types (expect empty slots when doubles/longs are used
+     * @see SignatureCursor for walking parameters without building a map
      */
     public static Map<Integer, String> getParameterSlotAndSignatures(boolean methodIsStatic, String methodSignature) {
 
@@ -217,6 +218,7 @@ public final class SignatureUtils {
      * @param methodSignature
      *            the signature of the method to parse
      * @return a list of parameter signatures
+     * @see SignatureCursor for walking parameters without building a list
      */
     public static List<String> getParameterSignatures(String methodSignature) {
 
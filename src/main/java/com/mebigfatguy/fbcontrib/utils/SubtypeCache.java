@@ -0,0 +1,273 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+
+/**
+ * a cache, shared by all detectors, of whether one class is a subtype of another, and of the set of super types of a class, so that the same hierarchy is
+ * not walked again for each detector and each call site that asks about it. Answers are the same as those of {@link JavaClass#instanceOf(JavaClass)}, a class
+ * being a subtype of itself, of all of its superclasses and of all the interfaces they implement.
+ * <p>
+ * Both caches are bounded, evicting the least recently used entry once full. The number of entries of each may be set with the system property
+ * fb-contrib.subtype.cache.size. The caches are emptied whenever bcel's Repository is replaced, as happens when a new analysis starts, so that answers never
+ * outlive the class path they were computed from. Lookups that fail with a ClassNotFoundException are not cached.
+ */
+public final class SubtypeCache {
+
+    private static final String CACHE_SIZE = "fb-contrib.subtype.cache.size";
+    private static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private static final SubtypeCache instance = new SubtypeCache(Integer.getInteger(CACHE_SIZE, DEFAULT_CACHE_SIZE).intValue());
+
+    private final Map<Pair, Boolean> subtypes;
+    private final Map<String, Set<String>> superTypes;
+    private final AtomicLong subtypeHits = new AtomicLong();
+    private final AtomicLong subtypeMisses = new AtomicLong();
+    private final AtomicLong superTypeHits = new AtomicLong();
+    private final AtomicLong superTypeMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private org.apache.bcel.util.Repository repository;
+
+    SubtypeCache(int maxSize) {
+        subtypes = new LruMap<>(maxSize);
+        superTypes = new LruMap<>(maxSize);
+    }
+
+    /**
+     * returns the cache shared by all detectors
+     *
+     * @return the shared cache
+     */
+    public static SubtypeCache instance() {
+        return instance;
+    }
+
+    /**
+     * returns whether a class is a subtype of another
+     *
+     * @param subClassName
+     *            the dotted or slashed name of the possible subtype
+     * @param superClassName
+     *            the dotted or slashed name of the possible super type
+     * @return whether the first class is the second, extends it or implements it
+     * @throws ClassNotFoundException
+     *             if either class, or one of the super types of the first, can not be found
+     */
+    public boolean isSubtype(String subClassName, String superClassName) throws ClassNotFoundException {
+        Pair key = new Pair(dotted(subClassName), dotted(superClassName));
+        Boolean isSubtype;
+        synchronized (this) {
+            checkRepository();
+            isSubtype = subtypes.get(key);
+        }
+        if (isSubtype != null) {
+            subtypeHits.incrementAndGet();
+            return isSubtype.booleanValue();
+        }
+
+        subtypeMisses.incrementAndGet();
+        Repository.lookupClass(key.superClassName);
+        isSubtype = Boolean.valueOf(getSuperTypes(key.subClassName).contains(key.superClassName));
+        synchronized (this) {
+            subtypes.put(key, isSubtype);
+        }
+        return isSubtype.booleanValue();
+    }
+
+    /**
+     * returns whether a class is a subtype of another
+     *
+     * @param subClass
+     *            the possible subtype
+     * @param superClass
+     *            the possible super type
+     * @return whether the first class is the second, extends it or implements it
+     * @throws ClassNotFoundException
+     *             if one of the super types of the first class can not be found
+     */
+    public boolean isSubtype(JavaClass subClass, JavaClass superClass) throws ClassNotFoundException {
+        return isSubtype(subClass.getClassName(), superClass.getClassName());
+    }
+
+    /**
+     * returns the dotted names of the class itself, all of its superclasses, and all interfaces implemented by any of them
+     *
+     * @param className
+     *            the dotted or slashed name of the class
+     * @return an unmodifiable set of the super type names
+     * @throws ClassNotFoundException
+     *             if the class, or one of its super types, can not be found
+     */
+    public Set<String> getSuperTypes(String className) throws ClassNotFoundException {
+        String dottedName = dotted(className);
+        Set<String> types;
+        synchronized (this) {
+            checkRepository();
+            types = superTypes.get(dottedName);
+        }
+        if (types != null) {
+            superTypeHits.incrementAndGet();
+            return types;
+        }
+
+        superTypeMisses.incrementAndGet();
+        JavaClass cls = Repository.lookupClass(dottedName);
+        types = new HashSet<>();
+        types.add(dottedName);
+        for (JavaClass superClass : cls.getSuperClasses()) {
+            types.add(superClass.getClassName());
+        }
+        for (JavaClass infClass : cls.getAllInterfaces()) {
+            types.add(infClass.getClassName());
+        }
+        types = Collections.unmodifiableSet(types);
+        synchronized (this) {
+            superTypes.put(dottedName, types);
+        }
+        return types;
+    }
+
+    public long getSubtypeHits() {
+        return subtypeHits.get();
+    }
+
+    public long getSubtypeMisses() {
+        return subtypeMisses.get();
+    }
+
+    public long getSuperTypeHits() {
+        return superTypeHits.get();
+    }
+
+    public long getSuperTypeMisses() {
+        return superTypeMisses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * returns the fraction of subtype checks answered from the cache
+     *
+     * @return the hit rate, or 0 if nothing has been asked
+     */
+    public double getSubtypeHitRate() {
+        return hitRate(subtypeHits.get(), subtypeMisses.get());
+    }
+
+    /**
+     * returns the fraction of super type sets answered from the cache
+     *
+     * @return the hit rate, or 0 if nothing has been asked
+     */
+    public double getSuperTypeHitRate() {
+        return hitRate(superTypeHits.get(), superTypeMisses.get());
+    }
+
+    /**
+     * empties the caches, leaving the statistics alone
+     */
+    public synchronized void clear() {
+        subtypes.clear();
+        superTypes.clear();
+    }
+
+    private void checkRepository() {
+        org.apache.bcel.util.Repository current = Repository.getRepository();
+        if (current != repository) {
+            repository = current;
+            clear();
+        }
+    }
+
+    private static double hitRate(long hits, long misses) {
+        long total = hits + misses;
+        return (total == 0) ? 0.0 : ((double) hits) / total;
+    }
+
+    private static String dotted(String className) {
+        return className.replace('/', '.');
+    }
+
+    /**
+     * an access ordered map that drops its least recently used entry when it grows past its bound
+     */
+    private final class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = -7052424591235917543L;
+
+        private final int maxSize;
+
+        LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * the key of a subtype check
+     */
+    private static final class Pair {
+        final String subClassName;
+        final String superClassName;
+
+        Pair(String subClassName, String superClassName) {
+            this.subClassName = subClassName;
+            this.superClassName = superClassName;
+        }
+
+        @Override
+        public int hashCode() {
+            return (subClassName.hashCode() * 31) ^ superClassName.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Pair)) {
+                return false;
+            }
+            Pair that = (Pair) o;
+            return subClassName.equals(that.subClassName) && superClassName.equals(that.superClassName);
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
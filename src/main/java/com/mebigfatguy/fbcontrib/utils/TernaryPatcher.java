@@ -31,11 +31,17 @@ import edu.umd.cs.findbugs.OpcodeStack;
  * be N items on the stack before what the ternary pushes. Now clearly the uservalue should be stripped for items pushed on by both branches of the ternary, but
  * items that were on the stack before the ternary was executed should be left alone. This is currently not happening in findbugs. So this class saves off user
  * values across a GOTO involved with a ternary and restores them appropriately.
+ * <p>
+ * The saved values are held per thread, so that detectors running concurrently on different classes do not see each other's stacks.
  */
 public final class TernaryPatcher {
 
-    private static List<Object> userValues = new ArrayList<Object>();
-    private static boolean sawGOTO = false;
+    private static final ThreadLocal<PatchState> STATE = new ThreadLocal<PatchState>() {
+        @Override
+        protected PatchState initialValue() {
+            return new PatchState();
+        }
+    };
 
     private TernaryPatcher() {
     }
@@ -49,17 +55,18 @@ public final class TernaryPatcher {
      *            the opcode currently seen
      */
     public static void pre(OpcodeStack stack, int opcode) {
-        if (sawGOTO) {
+        PatchState state = STATE.get();
+        if (state.sawGOTO) {
             return;
         }
-        sawGOTO = (opcode == Const.GOTO) || (opcode == Const.GOTO_W);
-        if (sawGOTO) {
+        state.sawGOTO = (opcode == Const.GOTO) || (opcode == Const.GOTO_W);
+        if (state.sawGOTO) {
             int depth = stack.getStackDepth();
             if (depth > 0) {
-                userValues.clear();
+                state.userValues.clear();
                 for (int i = 0; i < depth; i++) {
                     OpcodeStack.Item item = stack.getStackItem(i);
-                    userValues.add(item.getUserValue());
+                    state.userValues.add(item.getUserValue());
                 }
             }
         }
@@ -74,18 +81,27 @@ public final class TernaryPatcher {
      *            the opcode currently seen
      */
     public static void post(OpcodeStack stack, int opcode) {
-        if (!sawGOTO || (opcode == Const.GOTO) || (opcode == Const.GOTO_W)) {
+        PatchState state = STATE.get();
+        if (!state.sawGOTO || (opcode == Const.GOTO) || (opcode == Const.GOTO_W)) {
             return;
         }
         int depth = stack.getStackDepth();
-        for (int i = 0; i < depth && i < userValues.size(); i++) {
+        for (int i = 0; i < depth && i < state.userValues.size(); i++) {
             OpcodeStack.Item item = stack.getStackItem(i);
             if (item.getUserValue() == null) {
-                item.setUserValue(userValues.get(i));
+                item.setUserValue(state.userValues.get(i));
             }
         }
 
-        userValues.clear();
-        sawGOTO = false;
+        state.userValues.clear();
+        state.sawGOTO = false;
+    }
+
+    /**
+     * holds the user values saved at a GOTO for the detector running on the current thread
+     */
+    static final class PatchState {
+        final List<Object> userValues = new ArrayList<>();
+        boolean sawGOTO;
     }
 }
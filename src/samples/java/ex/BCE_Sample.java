@@ -0,0 +1,59 @@
+package ex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BCE_Sample {
+
+    private final Map<Integer, Long> counters = new HashMap<>();
+    private final Map<String, Integer> names = new HashMap<>();
+    private final List<Integer> passed = new ArrayList<>();
+
+    public void testFieldCounterInLoop(int[] keys) {
+        for (int key : keys) {
+            Long count = counters.get(key);
+            counters.put(key, (count == null) ? 1L : count.longValue() + 1);
+        }
+    }
+
+    public long testLocalBufferInLoop(int n) {
+        List<Integer> buffer = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            buffer.add(i * 2);
+        }
+
+        long sum = 0;
+        for (int v : buffer) {
+            sum += v;
+        }
+        return sum;
+    }
+
+    public double testLocalOutsideLoop(double a, double b) {
+        List<Double> pair = new ArrayList<>(2);
+        pair.add(a);
+        pair.add(b);
+        return pair.get(0).doubleValue() + pair.get(1).doubleValue();
+    }
+
+    public void fpNonBoxedKeys(String[] keys) {
+        for (String key : keys) {
+            names.put(key, key.length());
+        }
+    }
+
+    public void fpPassThrough(List<Integer> values) {
+        for (Integer v : values) {
+            passed.add(v);
+        }
+        passed.add(Integer.valueOf(0));
+    }
+
+    public int fpParameter(List<Integer> values) {
+        values.add(1);
+        values.add(2);
+        return values.size();
+    }
+}
@@ -0,0 +1,118 @@
+package ex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ECF_Sample {
+
+    public int testThrowAndCatchInLoop(List<String> values) {
+        int found = 0;
+        for (String v : values) {
+            try {
+                if (v.isEmpty()) {
+                    throw new IllegalStateException("empty");
+                }
+                found++;
+            } catch (IllegalStateException e) {
+                found--;
+            }
+        }
+        return found;
+    }
+
+    public int testThrowOutOfLoop(String[] values) {
+        try {
+            for (String v : values) {
+                if (v == null) {
+                    throw new SkipException();
+                }
+            }
+            return 1;
+        } catch (SkipException e) {
+            return 0;
+        }
+    }
+
+    public List<Integer> testParseAsValidation(List<String> tokens) {
+        List<Integer> numbers = new ArrayList<>();
+        for (String t : tokens) {
+            try {
+                numbers.add(Integer.valueOf(Integer.parseInt(t)));
+            } catch (NumberFormatException e) {
+                // not a number
+            }
+        }
+        return numbers;
+    }
+
+    public List<ParseException> testExceptionsInLoop(List<String> lines) {
+        List<ParseException> errors = new ArrayList<>();
+        for (String line : lines) {
+            if (line.startsWith("#")) {
+                errors.add(new ParseException(line));
+            }
+        }
+        return errors;
+    }
+
+    public List<QuietException> fpQuietException(List<String> lines) {
+        List<QuietException> errors = new ArrayList<>();
+        for (String line : lines) {
+            errors.add(new QuietException(line));
+        }
+        return errors;
+    }
+
+    public int fpParseOutsideLoop(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public List<Integer> fpParseRethrown(List<String> tokens) {
+        List<Integer> numbers = new ArrayList<>();
+        for (String t : tokens) {
+            try {
+                numbers.add(Integer.valueOf(Integer.parseInt(t)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad number " + t, e);
+            }
+        }
+        return numbers;
+    }
+
+    public void fpThrowNotCaught(List<String> values) {
+        for (String v : values) {
+            if (v == null) {
+                throw new IllegalArgumentException("null value");
+            }
+        }
+    }
+
+    static class ParseException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        ParseException(String message) {
+            super(message);
+        }
+    }
+
+    static class SkipException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    static class QuietException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        QuietException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
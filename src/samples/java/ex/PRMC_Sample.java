@@ -115,6 +115,16 @@ public class PRMC_Sample {
         return data;
     }
 
+    public boolean tagPrivateCallBetween() {
+        int len = data.length();
+        logData();
+        return data.length() == len;
+    }
+
+    private void logData() {
+        System.out.println("data seen");
+    }
+
     enum FPEnum {
         fee, fi, fo, fum
     };
@@ -177,6 +187,19 @@ public class PRMC_Sample {
     public void setValue(int i) {
     }
 
+    public static String tagJdkCalls(Class<?> c) {
+        StringBuilder sb = new StringBuilder();
+        if (c.getEnclosingClass() != null) {
+            sb.append(tagJdkCalls(c.getEnclosingClass())).append('.').append(c.getSimpleName());
+        } else {
+            sb.append(c.getName());
+        }
+        if (c.getTypeParameters().length > 0) {
+            sb.append('<').append(Arrays.toString(c.getTypeParameters())).append('>');
+        }
+        return sb.toString();
+    }
+
     class Chain {
         public Chain chainedField;
 
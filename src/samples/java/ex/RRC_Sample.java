@@ -0,0 +1,96 @@
+package ex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class RRC_Sample {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern DIGITS;
+    private static Pattern lazyPattern;
+    private final Pattern instancePattern;
+
+    static {
+        DIGITS = Pattern.compile("[0-9]+");
+    }
+
+    public RRC_Sample(boolean strict) {
+        instancePattern = Pattern.compile(strict ? "[a-z]+" : "\\w+");
+    }
+
+    public RRC_Sample() {
+        instancePattern = Pattern.compile("[a-z]*");
+    }
+
+    public static Pattern fpLazyStaticPattern() {
+        if (lazyPattern == null) {
+            lazyPattern = Pattern.compile("[A-Z]+");
+        }
+        return lazyPattern;
+    }
+
+    public List<String> fpStaticPattern(List<String> lines) {
+        List<String> words = new ArrayList<>();
+        for (String line : lines) {
+            for (String word : WHITESPACE.split(line)) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    public int testMatchesInLoop(List<String> values) {
+        int count = 0;
+        for (String v : values) {
+            if (v.matches("[a-z]+")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public String testReplaceAll(String s) {
+        return s.replaceAll("\\s+", " ");
+    }
+
+    public String testReplaceFirstInLoop(String[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (String v : values) {
+            sb.append(v.replaceFirst("^0+", ""));
+        }
+        return sb.toString();
+    }
+
+    public String[] testSplitRegex(String s) {
+        return s.split("\\s*,\\s*");
+    }
+
+    public String[] testSplitLimitRegex(String s) {
+        return s.split("[;:]", 2);
+    }
+
+    public boolean testPatternCompile(String s) {
+        return Pattern.compile("a+b", Pattern.CASE_INSENSITIVE).matcher(s).find();
+    }
+
+    public boolean testPatternMatches(String s) {
+        return Pattern.matches("x*y", s);
+    }
+
+    public String[] fpSplitSingleChar(String s) {
+        return s.split(",");
+    }
+
+    public String[] fpSplitEscapedChar(String s) {
+        return s.split("\\.");
+    }
+
+    public String fpStringReplace(String s) {
+        return s.replace(".", "");
+    }
+
+    public boolean fpVariableRegex(String s, String regex) {
+        return s.matches(regex);
+    }
+}
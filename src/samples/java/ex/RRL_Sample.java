@@ -0,0 +1,87 @@
+package ex;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RRL_Sample {
+
+    private static Method cachedLength;
+
+    public int testGetMethodInLoop(List<Object> items) throws Exception {
+        int total = 0;
+        for (Object o : items) {
+            Method m = o.getClass().getMethod("hashCode");
+            total += ((Integer) m.invoke(o)).intValue();
+        }
+        return total;
+    }
+
+    public List<Object> testForNameInLoop(int n) throws Exception {
+        List<Object> drivers = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            drivers.add(Class.forName("java.util.ArrayList"));
+        }
+        return drivers;
+    }
+
+    public List<Object> testConstructorInLoop(int n) throws Exception {
+        List<Object> lists = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Constructor<ArrayList> c = ArrayList.class.getConstructor();
+            lists.add(c.newInstance());
+        }
+        return lists;
+    }
+
+    public int testInvokeInLoop(List<String> items) throws Exception {
+        Method m = String.class.getMethod("length");
+        int total = 0;
+        for (String s : items) {
+            total += ((Integer) m.invoke(s)).intValue();
+        }
+        return total;
+    }
+
+    public Object testOftenCalled(Object o) throws Exception {
+        Field f = o.getClass().getDeclaredField("value");
+        return f.get(o);
+    }
+
+    public Object callerOne(Object o) throws Exception {
+        return testOftenCalled(o);
+    }
+
+    public Object callerTwo(Object o) throws Exception {
+        return testOftenCalled(o);
+    }
+
+    public Object callerThree(Object o) throws Exception {
+        return testOftenCalled(o);
+    }
+
+    public int fpCachedInField(List<String> items) throws Exception {
+        int total = 0;
+        for (String s : items) {
+            if (cachedLength == null) {
+                cachedLength = String.class.getMethod("length");
+            }
+            total += s.length();
+        }
+        return total;
+    }
+
+    public List<Method> fpVariableName(List<String> names) throws Exception {
+        List<Method> methods = new ArrayList<>();
+        for (String name : names) {
+            methods.add(String.class.getMethod(name));
+        }
+        return methods;
+    }
+
+    public Object fpRarelyCalled(Object o) throws Exception {
+        return o.getClass().getDeclaredField("value").get(o);
+    }
+}
@@ -0,0 +1,81 @@
+package ex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class VTP_Sample {
+
+    private final Object lock = new Object();
+    private final ReentrantLock reentrantLock = new ReentrantLock();
+    private BlockingQueue<String> queue;
+    private int count;
+
+    public synchronized void testSleepInSyncMethod() throws InterruptedException {
+        count++;
+        Thread.sleep(100);
+    }
+
+    public String testTakeInSyncBlock() throws InterruptedException {
+        synchronized (lock) {
+            count++;
+            return queue.take();
+        }
+    }
+
+    public int testReadInSyncBlock(InputStream is) throws IOException {
+        synchronized (this) {
+            return is.read();
+        }
+    }
+
+    public Object testFutureGetInNestedSyncBlock(Future<Object> f) throws InterruptedException, ExecutionException {
+        synchronized (lock) {
+            synchronized (this) {
+                count++;
+            }
+            return f.get();
+        }
+    }
+
+    public synchronized void testSameClassBlockingCall() throws InterruptedException {
+        count++;
+        pause();
+    }
+
+    public String testTimedPollInSyncBlock() throws InterruptedException {
+        synchronized (lock) {
+            return queue.poll(1, TimeUnit.SECONDS);
+        }
+    }
+
+    private void pause() throws InterruptedException {
+        Thread.sleep(10);
+    }
+
+    public void fpSleepOutsideSyncBlock() throws InterruptedException {
+        synchronized (lock) {
+            count++;
+        }
+        Thread.sleep(100);
+    }
+
+    public String fpUntimedPollInSyncBlock() {
+        synchronized (lock) {
+            return queue.poll();
+        }
+    }
+
+    public String fpReentrantLock() throws InterruptedException {
+        reentrantLock.lock();
+        try {
+            return queue.take();
+        } finally {
+            reentrantLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.bcel.Const;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MethodCallGraphTest {
+
+    private Statistics statistics;
+    private MethodCallGraph callGraph;
+
+    @BeforeMethod
+    public void setUp() {
+        statistics = Statistics.getStatistics();
+        statistics.clear();
+        callGraph = new MethodCallGraph();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        statistics.clear();
+    }
+
+    @Test
+    public void shouldPropagateThroughChainsAndCycles() {
+        MethodInfo a = method("ex/A", "a", false);
+        MethodInfo b = method("ex/A", "b", false);
+        MethodInfo c = method("ex/A", "c", false);
+        MethodInfo d = method("ex/A", "d", true);
+        MethodInfo pure = method("ex/A", "pure", false);
+        MethodInfo pureCaller = method("ex/A", "pureCaller", false);
+        callGraph.setCalls("ex/A", Arrays.asList(call("a", "ex/A", "b"), call("b", "ex/A", "c"), call("c", "ex/A", "b"), call("c", "ex/A", "d"),
+                call("pureCaller", "ex/A", "pure"), call("pure", "ex/A", "pure")));
+
+        assertEquals(callGraph.propagateModifiesState(statistics), 3);
+        assertTrue(a.getModifiesState());
+        assertTrue(b.getModifiesState());
+        assertTrue(c.getModifiesState());
+        assertTrue(d.getModifiesState());
+        assertFalse(pure.getModifiesState());
+        assertFalse(pureCaller.getModifiesState());
+    }
+
+    @Test
+    public void shouldResolveInheritedMethodsAcrossClasses() {
+        MethodInfo pureGetter = method("ex/Base", "getter", false);
+        MethodInfo setter = method("ex/Base", "setter", true);
+        MethodInfo callsGetter = method("ex/Derived", "callsGetter", false);
+        MethodInfo callsSetter = method("ex/Derived", "callsSetter", false);
+        callGraph.addClass("ex/Base", "java/lang/Object");
+        callGraph.addClass("ex/Derived", "ex/Base");
+        callGraph.setCalls("ex/Derived", Arrays.asList(call("callsGetter", "ex/Derived", "getter"), call("callsSetter", "ex/Derived", "setter")));
+
+        callGraph.propagateModifiesState(statistics);
+        assertFalse(pureGetter.getModifiesState());
+        assertTrue(setter.getModifiesState());
+        assertFalse(callsGetter.getModifiesState());
+        assertTrue(callsSetter.getModifiesState());
+    }
+
+    @Test
+    public void shouldAssumeUnknownMethodsModifyState() {
+        MethodInfo callsLibrary = method("ex/A", "callsLibrary", false);
+        callGraph.addClass("ex/A", "java/util/ArrayList");
+        callGraph.setCalls("ex/A", Arrays.asList(call("callsLibrary", "ex/A", "size")));
+
+        assertEquals(callGraph.propagateModifiesState(statistics), 1);
+        assertTrue(callsLibrary.getModifiesState());
+    }
+
+    @Test
+    public void shouldNotAssumeObjectNativeMethodsModifyState() {
+        MethodInfo callsHashCode = method("ex/A", "callsHashCode", false);
+        MethodInfo callsLibraryHashCode = method("ex/B", "callsLibraryHashCode", false);
+        callGraph.addClass("ex/A", "java/lang/Object");
+        callGraph.addClass("ex/B", "java/util/ArrayList");
+        callGraph.setCalls("ex/A", Arrays.asList(new MethodCallGraph.Call("callsHashCode", "()V", "ex/A", "hashCode", "()I")));
+        callGraph.setCalls("ex/B", Arrays.asList(new MethodCallGraph.Call("callsLibraryHashCode", "()V", "ex/B", "hashCode", "()I")));
+
+        assertEquals(callGraph.propagateModifiesState(statistics), 1);
+        assertFalse(callsHashCode.getModifiesState());
+        assertTrue(callsLibraryHashCode.getModifiesState());
+    }
+
+    private MethodInfo method(String className, String methodName, boolean modifiesState) {
+        MethodInfo mi = statistics.addMethodStatistics(className, methodName, "()V", Const.ACC_PUBLIC, 10, 1, false);
+        mi.setModifiesState(modifiesState);
+        return mi;
+    }
+
+    private static MethodCallGraph.Call call(String callerName, String calleeClassName, String calleeName) {
+        return new MethodCallGraph.Call(callerName, "()V", calleeClassName, calleeName, "()V");
+    }
+}
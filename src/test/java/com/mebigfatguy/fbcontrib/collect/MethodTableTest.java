@@ -0,0 +1,144 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.Test;
+
+import com.mebigfatguy.fbcontrib.utils.FQMethod;
+
+public class MethodTableTest {
+
+    private static final int NUM_CLASSES = 2000;
+    private static final int METHODS_PER_CLASS = 5;
+
+    @Test
+    public void shouldFindMethodsAfterGrowing() {
+        MethodTable table = new MethodTable();
+        Map<FQMethod, MethodInfo> expected = new HashMap<>();
+        for (int c = 0; c < NUM_CLASSES; c++) {
+            for (int m = 0; m < METHODS_PER_CLASS; m++) {
+                String clsName = "ex/Cls" + c;
+                String sig = "(I)L" + clsName + ';';
+                expected.put(new FQMethod(clsName, "m" + m, sig), table.getOrAdd(clsName, "m" + m, sig));
+            }
+        }
+
+        assertEquals(table.size(), NUM_CLASSES * METHODS_PER_CLASS);
+        for (Map.Entry<FQMethod, MethodInfo> entry : expected.entrySet()) {
+            FQMethod fqm = entry.getKey();
+            // lookups with equal but not identical strings must still match
+            MethodInfo mi = table.get(new String(fqm.getClassName()), new String(fqm.getMethodName()), new String(fqm.getSignature()));
+            assertSame(mi, entry.getValue());
+            assertSame(table.getOrAdd(fqm.getClassName(), fqm.getMethodName(), fqm.getSignature()), mi);
+        }
+
+        assertNull(table.get("ex/Cls0", "m0", "()V"));
+        assertNull(table.get("ex/Cls0", "missing", "(I)Lex/Cls0;"));
+        assertNull(table.get("ex/Missing", "m0", "(I)Lex/Cls0;"));
+        assertNull(table.get("ex/Cls1", "m0", "(I)Lex/Cls0;"));
+    }
+
+    @Test
+    public void shouldIterateAndClear() {
+        MethodTable table = new MethodTable();
+        MethodInfo foo = table.getOrAdd("ex/A", "foo", "()V");
+        MethodInfo bar = table.getOrAdd("ex/B", "bar", "()V");
+
+        Map<FQMethod, MethodInfo> entries = new HashMap<>();
+        for (Map.Entry<FQMethod, MethodInfo> entry : table) {
+            entries.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals(entries.size(), 2);
+        assertSame(entries.get(new FQMethod("ex/A", "foo", "()V")), foo);
+        assertSame(entries.get(new FQMethod("ex/B", "bar", "()V")), bar);
+
+        table.clear();
+        assertEquals(table.size(), 0);
+        assertNull(table.get("ex/A", "foo", "()V"));
+        assertTrue(!table.iterator().hasNext());
+    }
+
+    @Test
+    public void shouldReadWhileOtherThreadsAdd() throws Exception {
+        final MethodTable table = new MethodTable();
+        final MethodInfo stable = table.getOrAdd("ex/Stable", "get", "()I");
+        final int writers = 4;
+        final int readers = 4;
+        final CyclicBarrier barrier = new CyclicBarrier(writers + readers);
+        final AtomicBoolean writing = new AtomicBoolean(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        try {
+            List<Future<?>> writerResults = new ArrayList<>();
+            List<Future<?>> readerResults = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                final int writerId = w;
+                writerResults.add(executor.submit(() -> {
+                    barrier.await();
+                    for (int c = 0; c < NUM_CLASSES; c++) {
+                        table.getOrAdd("ex/W" + writerId + '_' + c, "run", "()V");
+                    }
+                    return null;
+                }));
+            }
+            for (int r = 0; r < readers; r++) {
+                readerResults.add(executor.submit(() -> {
+                    barrier.await();
+                    while (writing.get()) {
+                        assertSame(table.get("ex/Stable", "get", "()I"), stable);
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> result : writerResults) {
+                result.get();
+            }
+            writing.set(false);
+            for (Future<?> result : readerResults) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(table.size(), (writers * NUM_CLASSES) + 1);
+        for (int w = 0; w < writers; w++) {
+            for (int c = 0; c < NUM_CLASSES; c++) {
+                assertNotNull(table.get("ex/W" + w + '_' + c, "run", "()V"));
+            }
+        }
+    }
+}
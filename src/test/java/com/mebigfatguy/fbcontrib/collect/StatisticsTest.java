@@ -0,0 +1,99 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.bcel.Const;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.mebigfatguy.fbcontrib.utils.FQMethod;
+
+public class StatisticsTest {
+
+    private static final int THREADS = 8;
+    private static final int CLASSES_PER_THREAD = 250;
+    private static final int METHODS_PER_CLASS = 4;
+
+    @BeforeMethod
+    @AfterMethod
+    public void clearStatistics() {
+        Statistics.getStatistics().clear();
+    }
+
+    @Test
+    public void shouldCollectConcurrentlyWithoutLosingEntries() throws Exception {
+        final Statistics statistics = Statistics.getStatistics();
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                final int threadId = t;
+                results.add(executor.submit(() -> {
+                    barrier.await();
+                    for (int c = 0; c < CLASSES_PER_THREAD; c++) {
+                        String clsName = "ex/Cls" + threadId + '_' + c;
+                        for (int m = 0; m < METHODS_PER_CLASS; m++) {
+                            statistics.addMethodStatistics(clsName, "m" + m, "()V", Const.ACC_PUBLIC, m + 1, m, false);
+                            // every thread also calls a method shared by all of them
+                            statistics.getMethodStatistics("ex/Shared", "shared", "()V").addCallingAccess(Const.ACC_PRIVATE);
+                            statistics.addMethodStatistics("ex/Shared", "shared", "()V", Const.ACC_PUBLIC, 1, 0, false).addCallingAccess(Const.ACC_PUBLIC);
+                        }
+                        statistics.addAutowiredBean(clsName.replace('/', '.'));
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int numEntries = 0;
+        for (Map.Entry<FQMethod, MethodInfo> entry : statistics) {
+            numEntries++;
+        }
+        assertEquals(numEntries, (THREADS * CLASSES_PER_THREAD * METHODS_PER_CLASS) + 1);
+
+        for (int t = 0; t < THREADS; t++) {
+            for (int c = 0; c < CLASSES_PER_THREAD; c++) {
+                String clsName = "ex/Cls" + t + '_' + c;
+                assertTrue(statistics.isAutowiredBean(clsName.replace('/', '.')));
+                assertEquals(statistics.getMethodStatistics(clsName, "m2", "()V").getNumBytes(), 3);
+            }
+        }
+
+        assertTrue(statistics.getMethodStatistics("ex/Shared", "shared", "()V").wasCalledPublicly());
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.detect;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.bcel.Repository;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import edu.umd.cs.findbugs.BugCollectionBugReporter;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.DetectorFactory;
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.FindBugs;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.PluginException;
+import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.config.UserPreferences;
+
+/**
+ * runs detectors over the compiled samples, first one run at a time, and then several runs at once from different threads, to check that no detector keeps
+ * the state of the class it is visiting where another thread's analysis sees it. Half the runs are over a copy of the samples marked as compiled for java 5,
+ * for which MoreDumbMethods also reports the SecureRandom calls of MDM_Sample.
+ */
+public class ConcurrentAnalysisTest {
+
+    private static final String PLUGIN_DIR = "fb-contrib.test.plugin";
+    private static final String SAMPLES_DIR = "fb-contrib.test.samples";
+    private static final String PLUGIN_ID = "com.mebigfatguy.fbcontrib";
+
+    private static final int JAVA_5_MAJOR = 49;
+
+    private static final int THREADS = 4;
+
+    /**
+     * detectors with static tables, or that use the shared helpers, and that don't read the first pass statistics, as those are held for the whole jvm, and
+     * so can only be collected by one run at a time
+     */
+    private static final List<String> DETECTORS = Arrays.asList("MoreDumbMethods", "SillynessPotPourri", "HangingExecutors", "RepeatedRegexCompilation",
+            "ExceptionControlFlow", "JPAIssues", "LoggerOddities", "SQLInLoop");
+
+    private org.apache.bcel.util.Repository bcelRepository;
+    private File samples;
+    private File legacySamples;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        // spotbugs leaves its own repository installed when it finishes, which the other tests can't look classes up in
+        bcelRepository = Repository.getRepository();
+        samples = new File(requiredProperty(SAMPLES_DIR));
+        legacySamples = Files.createTempDirectory("fb-contrib-legacy").toFile();
+        copySamples(samples, legacySamples);
+    }
+
+    @AfterClass
+    public void tearDown() {
+        Repository.setRepository(bcelRepository);
+        delete(legacySamples);
+    }
+
+    @Test
+    public void shouldReportTheSameBugsInParallelAsSerially() throws Exception {
+        final File[] targets = { samples, legacySamples };
+        List<List<String>> expected = new ArrayList<>(targets.length);
+        for (File target : targets) {
+            expected.add(analyze(target));
+        }
+        assertNotEquals(expected.get(1), expected.get(0), "the java 5 copy of the samples should report the SecureRandom calls of MDM_Sample");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+            List<Future<List<String>>> results = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                final File target = targets[t % targets.length];
+                results.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        barrier.await();
+                        return analyze(target);
+                    }
+                }));
+            }
+
+            for (int t = 0; t < THREADS; t++) {
+                assertEquals(results.get(t).get(), expected.get(t % targets.length), "run " + t + " over " + targets[t % targets.length]);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * analyzes a directory of classes with the detectors under test
+     *
+     * @param target
+     *            the directory of classes
+     * @return a sorted description of each bug reported
+     */
+    private static List<String> analyze(File target) throws IOException, InterruptedException {
+        Project project = new Project();
+        project.addFile(target.getPath());
+        String classPath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        for (String entry : classPath.split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                project.addAuxClasspathEntry(entry);
+            }
+        }
+
+        BugCollectionBugReporter bugReporter = new BugCollectionBugReporter(project);
+        bugReporter.setPriorityThreshold(Priorities.LOW_PRIORITY);
+
+        FindBugs2 engine = new FindBugs2();
+        engine.setProject(project);
+        engine.setBugReporter(bugReporter);
+        engine.setDetectorFactoryCollection(DetectorFactoryCollection.instance());
+        engine.setUserPreferences(buildPreferences());
+        engine.setAnalysisFeatureSettings(FindBugs.MAX_EFFORT);
+        engine.setNoClassOk(true);
+        engine.finishSettings();
+        engine.execute();
+
+        List<String> bugs = new ArrayList<>();
+        for (BugInstance bug : bugReporter.getBugCollection().getCollection()) {
+            bugs.add(bug.getType() + ' ' + bug.getPriority() + ' ' + bug.getPrimaryClass() + ' ' + bug.getPrimaryMethod() + ' '
+                    + bug.getPrimarySourceLineAnnotation());
+        }
+        Collections.sort(bugs);
+        return bugs;
+    }
+
+    /**
+     * copies the samples, marking each class as compiled for java 5
+     *
+     * @param from
+     *            the directory of samples to copy
+     * @param to
+     *            the directory to copy them to
+     */
+    private static void copySamples(File from, File to) throws IOException {
+        File[] files = from.listFiles();
+        if (files == null) {
+            throw new IOException("No samples found in " + from);
+        }
+
+        for (File file : files) {
+            File copy = new File(to, file.getName());
+            if (file.isDirectory()) {
+                copy.mkdir();
+                copySamples(file, copy);
+            } else {
+                byte[] bytes = Files.readAllBytes(file.toPath());
+                bytes[6] = 0;
+                bytes[7] = JAVA_5_MAJOR;
+                Files.write(copy.toPath(), bytes);
+            }
+        }
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static UserPreferences buildPreferences() {
+        Plugin plugin = loadPlugin();
+        UserPreferences prefs = UserPreferences.createDefaultUserPreferences();
+        prefs.enableAllDetectors(false);
+        for (String detectorName : DETECTORS) {
+            DetectorFactory factory = DetectorFactoryCollection.instance().getFactory(detectorName);
+            if ((factory == null) || (factory.getPlugin() != plugin)) {
+                throw new IllegalArgumentException("Unknown fb-contrib detector: " + detectorName);
+            }
+            prefs.enableDetector(factory, true);
+        }
+        prefs.setEffort(UserPreferences.EFFORT_MAX);
+        prefs.getFilterSettings().setMinPriority("Low");
+        return prefs;
+    }
+
+    private static synchronized Plugin loadPlugin() {
+        Plugin plugin = Plugin.getByPluginId(PLUGIN_ID);
+        if (plugin != null) {
+            return plugin;
+        }
+
+        try {
+            plugin = Plugin.addCustomPlugin(new File(requiredProperty(PLUGIN_DIR)).toURI());
+        } catch (PluginException e) {
+            throw new IllegalStateException("Failed to load fb-contrib from " + System.getProperty(PLUGIN_DIR), e);
+        }
+        if (plugin == null) {
+            throw new IllegalStateException("Failed to load fb-contrib from " + System.getProperty(PLUGIN_DIR));
+        }
+        return plugin;
+    }
+
+    private static String requiredProperty(String name) {
+        String value = System.getProperty(name);
+        if ((value == null) || value.isEmpty()) {
+            throw new IllegalStateException("System property " + name + " is not set, run the tests with maven");
+        }
+        return value;
+    }
+}
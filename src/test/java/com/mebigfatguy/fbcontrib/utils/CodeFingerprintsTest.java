@@ -0,0 +1,102 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.MethodGen;
+import org.testng.annotations.Test;
+
+public class CodeFingerprintsTest {
+
+    @Test
+    public void shouldIgnoreConstantPoolLayout() throws ClassNotFoundException {
+        JavaClass cls = Repository.lookupClass(Fingerprinted.class);
+        ConstantPoolGen pool = new ConstantPoolGen(cls.getConstantPool());
+        ConstantPoolGen shuffledPool = new ConstantPoolGen();
+        shuffledPool.addString("unrelated");
+        shuffledPool.addClass("com.example.Unrelated");
+        shuffledPool.addMethodref("com.example.Unrelated", "unrelated", "()V");
+
+        for (Method m : cls.getMethods()) {
+            if (m.getCode() == null) {
+                continue;
+            }
+            MethodGen mg = new MethodGen(m, cls.getClassName(), pool);
+            mg.getInstructionList().replaceConstantPool(pool, shuffledPool);
+            mg.setConstantPool(shuffledPool);
+            Method copy = mg.getMethod();
+
+            assertEquals(CodeFingerprints.fingerprint(copy.getCode(), shuffledPool), CodeFingerprints.fingerprint(m.getCode(), pool), m.getName());
+        }
+    }
+
+    @Test
+    public void shouldTellDifferentBodiesApart() throws ClassNotFoundException {
+        JavaClass cls = Repository.lookupClass(Fingerprinted.class);
+        Map<String, Long> fingerprints = new CodeFingerprints().getFingerprints(cls);
+
+        assertEquals(fingerprints.get("greet:()Ljava/lang/String;"), fingerprints.get("greetAgain:()Ljava/lang/String;"));
+        assertNotEquals(fingerprints.get("greet:()Ljava/lang/String;"), fingerprints.get("wave:()Ljava/lang/String;"));
+        assertNotEquals(fingerprints.get("size:()I"), fingerprints.get("capacity:()I"));
+    }
+
+    @Test
+    public void shouldHashEachClassOnce() throws ClassNotFoundException {
+        CodeFingerprints cache = new CodeFingerprints();
+        JavaClass cls = Repository.lookupClass(Fingerprinted.class);
+        Map<String, Long> fingerprints = cache.getFingerprints(cls);
+        assertSame(cache.getFingerprints(cls), fingerprints);
+        assertEquals(cache.getClassesHashed(), 1);
+    }
+
+    static class Fingerprinted {
+        private List<String> items;
+        private List<String> others;
+
+        public String greet() {
+            return "hello " + items.size();
+        }
+
+        public String greetAgain() {
+            return "hello " + items.size();
+        }
+
+        public String wave() {
+            return "goodbye " + items.size();
+        }
+
+        public int size() {
+            return items.size();
+        }
+
+        public int capacity() {
+            return others.size();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+import org.testng.annotations.Test;
+
+public class ConstantPoolInterestTest {
+
+    @Test
+    public void shouldMatchPackagePrefixes() throws ClassNotFoundException {
+        ConstantPoolInterest sql = ConstantPoolInterest.of("java/sql/");
+        ConstantPoolInterest persistence = ConstantPoolInterest.of("javax/persistence/", "org/springframework/transaction/");
+
+        JavaClass driverManager = Repository.lookupClass("java.sql.DriverManager");
+        assertTrue(sql.isInterestedIn(driverManager));
+        assertFalse(persistence.isInterestedIn(driverManager));
+
+        JavaClass integer = Repository.lookupClass("java.lang.Integer");
+        assertFalse(sql.isInterestedIn(integer));
+        assertFalse(persistence.isInterestedIn(integer));
+    }
+
+    @Test
+    public void shouldMatchMemberNamesAndLiterals() throws ClassNotFoundException {
+        JavaClass arrayList = Repository.lookupClass("java.util.ArrayList");
+        assertTrue(ConstantPoolInterest.of("ensureCapacity").isInterestedIn(arrayList));
+        assertTrue(ConstantPoolInterest.of("com/example/NoSuchPackage/", "Illegal Capacity").isInterestedIn(arrayList));
+        assertFalse(ConstantPoolInterest.of("com/example/NoSuchPackage/").isInterestedIn(arrayList));
+    }
+
+    @Test
+    public void shouldRescanForInterestsCreatedLater() throws ClassNotFoundException {
+        JavaClass hashMap = Repository.lookupClass("java.util.HashMap");
+        assertFalse(ConstantPoolInterest.of("com/example/Other/").isInterestedIn(hashMap));
+        assertTrue(ConstantPoolInterest.of("resize").isInterestedIn(hashMap));
+        assertFalse(ConstantPoolInterest.of("com/example/Another/").isInterestedIn(hashMap));
+    }
+}
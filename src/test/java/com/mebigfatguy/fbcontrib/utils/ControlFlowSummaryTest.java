@@ -0,0 +1,168 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.BranchInstruction;
+import org.apache.bcel.generic.GotoInstruction;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.JsrInstruction;
+import org.apache.bcel.generic.Select;
+import org.testng.annotations.Test;
+
+public class ControlFlowSummaryTest {
+
+    @Test
+    public void shouldAgreeWithInstructionLists() throws ClassNotFoundException {
+        for (Class<?> c : new Class<?>[] { Flows.class, String.class, java.util.HashMap.class, java.util.concurrent.ConcurrentHashMap.class,
+                java.util.regex.Pattern.class, java.math.BigDecimal.class }) {
+            JavaClass cls = Repository.lookupClass(c);
+            for (Method m : cls.getMethods()) {
+                Code code = m.getCode();
+                if (code != null) {
+                    assertAgrees(ControlFlowSummary.of(code), code, c.getName() + '.' + m.getName());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldFindLoops() throws ClassNotFoundException {
+        JavaClass cls = Repository.lookupClass(Flows.class);
+        ControlFlowSummary loop = ControlFlowSummary.of(getCode(cls, "loop"));
+        assertTrue(loop.hasBackEdges());
+        assertEquals(loop.getBackEdgeCount(), 1);
+        assertTrue(loop.getBackEdgeTarget(0) < loop.getBackEdgeSource(0));
+        assertTrue(loop.isBranchTarget(loop.getBackEdgeTarget(0)));
+        assertFalse(loop.isInLoop(0));
+        assertTrue(loop.isInLoop(loop.getBackEdgeTarget(0)));
+        assertTrue(loop.isInLoop(loop.getBackEdgeSource(0)));
+        assertFalse(loop.isInLoop(loop.getCodeLength() - 1));
+
+        ControlFlowSummary choose = ControlFlowSummary.of(getCode(cls, "choose"));
+        assertFalse(choose.hasBackEdges());
+        assertEquals(choose.getSwitchEdgeCount(), 4);
+        assertEquals(choose.getHandlerCount(), 1);
+    }
+
+    @Test
+    public void shouldShareSummariesOfAClass() throws ClassNotFoundException {
+        JavaClass cls = Repository.lookupClass(Flows.class);
+        Code code = getCode(cls, "loop");
+        ControlFlowSummary summary = ControlFlowSummary.of(code);
+        assertSame(ControlFlowSummary.of(code), summary);
+        ControlFlowSummary.of(Repository.lookupClass(String.class).getMethods()[0].getCode());
+        assertEquals(ControlFlowSummary.of(code).getBackEdgeCount(), summary.getBackEdgeCount());
+    }
+
+    private static Code getCode(JavaClass cls, String methodName) {
+        for (Method m : cls.getMethods()) {
+            if (m.getName().equals(methodName)) {
+                return m.getCode();
+            }
+        }
+        throw new AssertionError(methodName);
+    }
+
+    private static void assertAgrees(ControlFlowSummary summary, Code code, String method) {
+        BitSet targets = new BitSet();
+        BitSet forwardTargets = new BitSet();
+        int conditionals = 0;
+        int gotos = 0;
+        int switchEdges = 0;
+        int backEdges = 0;
+        for (InstructionHandle ih : new InstructionList(code.getCode()).getInstructionHandles()) {
+            if (ih.getInstruction() instanceof BranchInstruction) {
+                BranchInstruction bi = (BranchInstruction) ih.getInstruction();
+                List<InstructionHandle> branchTargets = new ArrayList<>();
+                branchTargets.add(bi.getTarget());
+                if (bi instanceof Select) {
+                    for (InstructionHandle target : ((Select) bi).getTargets()) {
+                        branchTargets.add(target);
+                    }
+                    switchEdges += branchTargets.size();
+                } else if (bi instanceof GotoInstruction) {
+                    gotos++;
+                } else if (!(bi instanceof JsrInstruction)) {
+                    conditionals++;
+                }
+
+                for (InstructionHandle target : branchTargets) {
+                    targets.set(target.getPosition());
+                    if (target.getPosition() > ih.getPosition()) {
+                        forwardTargets.set(target.getPosition());
+                    } else {
+                        backEdges++;
+                    }
+                }
+                assertTrue(summary.isBlockStart(bi.getTarget().getPosition()), method);
+            }
+        }
+
+        for (int pc = 0; pc < code.getCode().length; pc++) {
+            assertEquals(summary.isBranchTarget(pc), targets.get(pc), method + " at " + pc);
+        }
+        assertEquals(summary.getForwardBranchTargets(), forwardTargets, method);
+        assertEquals(summary.getConditionalBranchCount(), conditionals, method);
+        assertEquals(summary.getGotoCount(), gotos, method);
+        assertEquals(summary.getSwitchEdgeCount(), switchEdges, method);
+        assertEquals(summary.getBackEdgeCount(), backEdges, method);
+        assertEquals(summary.getCodeLength(), code.getCode().length, method);
+    }
+
+    static class Flows {
+        int loop(int[] values) {
+            int sum = 0;
+            for (int v : values) {
+                sum += v;
+            }
+            return sum;
+        }
+
+        String choose(int i) {
+            try {
+                switch (i) {
+                    case 1:
+                        return "one";
+                    case 20:
+                        return "twenty";
+                    case 300:
+                        return "three hundred";
+                    default:
+                        return Integer.toString(i);
+                }
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class IntGraphTest {
+
+    private static final int LARGE_GRAPH_NODES = 100_000;
+
+    @Test
+    public void shouldPackEdgesPerNode() {
+        IntGraph graph = new IntGraph.Builder().addEdge(2, 0).addEdge(0, 1).addEdge(2, 1).ensureNodes(4).build();
+
+        assertEquals(graph.getNumNodes(), 4);
+        assertEquals(graph.getNumEdges(), 3);
+        assertEquals(graph.getNumSuccessors(0), 1);
+        assertEquals(graph.getSuccessor(0, 0), 1);
+        assertEquals(graph.getNumSuccessors(2), 2);
+        assertEquals(graph.getSuccessor(2, 0), 0);
+        assertEquals(graph.getSuccessor(2, 1), 1);
+        assertEquals(graph.getNumSuccessors(3), 0);
+    }
+
+    @Test
+    public void shouldFindComponentsInReverseTopologicalOrder() {
+        // 0 <-> 1 -> 2 <-> 3 <-> 4, 5 alone
+        IntGraph graph = new IntGraph.Builder().addEdge(0, 1).addEdge(1, 0).addEdge(1, 2).addEdge(2, 3).addEdge(3, 2).addEdge(3, 4).addEdge(4, 3)
+                .ensureNodes(6).build();
+        IntGraph.Components components = graph.findStronglyConnectedComponents();
+
+        assertEquals(components.getNumComponents(), 3);
+        int left = components.getComponent(0);
+        int right = components.getComponent(2);
+        assertEquals(components.getComponent(1), left);
+        assertEquals(components.getComponent(3), right);
+        assertEquals(components.getComponent(4), right);
+        assertTrue(right < left);
+        assertEquals(components.getSize(left), 2);
+        assertEquals(components.getSize(right), 3);
+        assertEquals(components.getMember(right, 0), 2);
+        assertEquals(components.getMember(right, 2), 4);
+        assertEquals(components.getSize(components.getComponent(5)), 1);
+    }
+
+    @Test
+    public void shouldHandleLongChainsWithoutRecursion() {
+        IntGraph.Builder builder = new IntGraph.Builder();
+        for (int n = 0; n < (LARGE_GRAPH_NODES - 1); n++) {
+            builder.addEdge(n, n + 1);
+        }
+        IntGraph chain = builder.build();
+        assertEquals(chain.findStronglyConnectedComponents().getNumComponents(), LARGE_GRAPH_NODES);
+
+        builder.addEdge(LARGE_GRAPH_NODES - 1, 0);
+        IntGraph.Components ring = builder.build().findStronglyConnectedComponents();
+        assertEquals(ring.getNumComponents(), 1);
+        assertEquals(ring.getSize(0), LARGE_GRAPH_NODES);
+    }
+
+    @Test(timeOut = 10_000)
+    public void shouldHandleLargeRandomGraphs() {
+        Random random = new Random(42);
+        // clusters of 10 nodes, each a ring, with random forward edges between clusters
+        IntGraph.Builder builder = new IntGraph.Builder();
+        for (int n = 0; n < LARGE_GRAPH_NODES; n++) {
+            int clusterStart = n - (n % 10);
+            builder.addEdge(n, clusterStart + (((n % 10) + 1) % 10));
+            if (clusterStart > 0) {
+                builder.addEdge(n, random.nextInt(clusterStart));
+            }
+        }
+
+        IntGraph.Components components = builder.build().findStronglyConnectedComponents();
+
+        assertEquals(components.getNumComponents(), LARGE_GRAPH_NODES / 10);
+        assertNotEquals(components.getComponent(0), components.getComponent(10));
+    }
+}
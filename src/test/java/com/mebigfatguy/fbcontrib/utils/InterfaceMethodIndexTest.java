@@ -0,0 +1,63 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+import org.testng.annotations.Test;
+
+public class InterfaceMethodIndexTest {
+
+    @Test
+    public void shouldListInterfacesInBcelOrder() throws ClassNotFoundException {
+        InterfaceMethodIndex index = new InterfaceMethodIndex();
+        JavaClass list = Repository.lookupClass("java.util.List");
+        List<JavaClass> infs = index.getInterfaces(list);
+
+        assertFalse(infs.contains(list));
+        assertTrue(infs.contains(Repository.lookupClass("java.util.Collection")));
+        List<JavaClass> expected = new ArrayList<>(Arrays.asList(list.getAllInterfaces()));
+        expected.remove(list);
+        assertEquals(infs, expected);
+        assertSame(index.getInterfaces(list), infs);
+    }
+
+    @Test
+    public void shouldIndexDeclaredMethodsWithExceptions() throws ClassNotFoundException {
+        InterfaceMethodIndex index = new InterfaceMethodIndex();
+        Map<String, String[]> listMethods = index.getMethods(Repository.lookupClass("java.util.List"));
+        assertEquals(listMethods.get(InterfaceMethodIndex.methodKey("size", "()I")).length, 0);
+        assertNull(listMethods.get(InterfaceMethodIndex.methodKey("size", "()J")));
+
+        Map<String, String[]> closeableMethods = index.getMethods(Repository.lookupClass("java.io.Closeable"));
+        assertEquals(closeableMethods.get(InterfaceMethodIndex.methodKey("close", "()V")), new String[] { "java.io.IOException" });
+        assertSame(index.getMethods(Repository.lookupClass("java.io.Closeable")), closeableMethods);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class JdkApiIndexTest {
+
+    private static final String[] CLASSES = { "java/lang/Object", "java/lang/Number", "java/lang/Integer", "javax/naming/Context",
+            "com/mebigfatguy/fbcontrib/utils/JdkApiIndexTest" };
+
+    private File dir;
+    private File rtJar;
+    private JdkApiIndex index;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("sjvu").toFile();
+        rtJar = new File(dir, "rt.jar");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(rtJar))) {
+            for (String cls : CLASSES) {
+                zos.putNextEntry(new ZipEntry(cls + ".class"));
+                try (InputStream is = ClassLoader.getSystemResourceAsStream(cls + ".class")) {
+                    byte[] buffer = new byte[8192];
+                    int len;
+                    while ((len = is.read(buffer)) >= 0) {
+                        zos.write(buffer, 0, len);
+                    }
+                }
+                zos.closeEntry();
+            }
+        }
+
+        index = JdkApiIndex.forSource(rtJar, 8, dir);
+    }
+
+    @AfterClass
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void shouldFindClassesAndSuperclasses() {
+        assertEquals(index.getJavaVersion(), 8);
+        assertTrue(index.hasClass("java/lang/Integer"));
+        assertTrue(index.hasClass("javax/naming/Context"));
+        assertFalse(index.hasClass("java/lang/Long"));
+        assertFalse(index.hasClass("java/lang/Integ"));
+        assertFalse(index.hasClass("com/mebigfatguy/fbcontrib/utils/JdkApiIndexTest"));
+
+        assertEquals(index.getSuperclassName("java/lang/Integer"), "java/lang/Number");
+        assertEquals(index.getSuperclassName("java/lang/Number"), Values.SLASHED_JAVA_LANG_OBJECT);
+        assertEquals(index.getSuperclassName("javax/naming/Context"), Values.SLASHED_JAVA_LANG_OBJECT);
+        assertNull(index.getSuperclassName(Values.SLASHED_JAVA_LANG_OBJECT));
+        assertNull(index.getSuperclassName("java/lang/Long"));
+    }
+
+    @Test
+    public void shouldFindDeclaredMethodsOnly() {
+        assertTrue(index.hasMethod("java/lang/Integer", "parseInt", "(Ljava/lang/String;)I"));
+        assertTrue(index.hasMethod("java/lang/Integer", "<init>", "(I)V"));
+        assertTrue(index.hasMethod("java/lang/Number", "intValue", "()I"));
+        assertFalse(index.hasMethod("java/lang/Integer", "parseInt", "(Ljava/lang/String;)J"));
+        assertFalse(index.hasMethod("java/lang/Number", "parseInt", "(Ljava/lang/String;)I"));
+        assertFalse(index.hasMethod("java/lang/Long", "parseLong", "(Ljava/lang/String;)J"));
+    }
+
+    @Test
+    public void shouldFindPackagesAndTheirParents() {
+        assertTrue(index.hasPackage("java/lang"));
+        assertTrue(index.hasPackage("java"));
+        assertTrue(index.hasPackage("javax/naming"));
+        assertFalse(index.hasPackage("java/util"));
+        assertFalse(index.hasPackage("com/mebigfatguy"));
+    }
+
+    @Test
+    public void shouldReuseTheCachedIndex() throws IOException {
+        File[] indexes = dir.listFiles((d, name) -> name.endsWith(".idx"));
+        assertEquals(indexes.length, 1);
+        long written = indexes[0].lastModified();
+
+        assertSame(JdkApiIndex.forSource(rtJar, 8, dir), index);
+        assertEquals(indexes[0].lastModified(), written);
+        assertSame(JdkApiIndex.open(indexes[0]), index);
+    }
+
+    @Test
+    public void shouldIndexAModulesImage() throws IOException {
+        File modules = findModulesImage();
+        if (modules == null) {
+            throw new SkipException("No java 9 or later jdk found to read a modules image from");
+        }
+
+        File indexFile = new File(dir, "modules.index");
+        JdkApiIndexWriter writer = new JdkApiIndexWriter(9);
+        writer.addSource(modules);
+        writer.write(indexFile);
+        JdkApiIndex modulesIndex = JdkApiIndex.open(indexFile);
+
+        assertTrue(modulesIndex.hasClass("java/lang/Module"));
+        assertEquals(modulesIndex.getSuperclassName("java/lang/Integer"), "java/lang/Number");
+        assertTrue(modulesIndex.hasMethod("java/lang/Integer", "parseInt", "(Ljava/lang/String;)I"));
+        assertTrue(modulesIndex.hasPackage("java/util/concurrent"));
+        assertFalse(modulesIndex.hasClass("jdk/internal/misc/Unsafe"));
+        assertFalse(modulesIndex.hasClass("com/mebigfatguy/fbcontrib/utils/JdkApiIndexTest"));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldRejectFilesThatAreNotIndexes() throws IOException {
+        File bogus = new File(dir, "bogus.bin");
+        Files.write(bogus.toPath(), "not an index at all, not even close".getBytes(StandardCharsets.UTF_8));
+        JdkApiIndex.open(bogus);
+    }
+
+    /**
+     * finds the modules image of the running jdk, or when that is java 8, of a later jdk installed alongside it
+     */
+    private static File findModulesImage() {
+        File javaHome = new File(System.getProperty("java.home"));
+        File modules = new File(javaHome, "lib/modules");
+        if (modules.isFile()) {
+            return modules;
+        }
+
+        File jdkHome = "jre".equals(javaHome.getName()) ? javaHome.getParentFile() : javaHome;
+        File[] jdks = jdkHome.getParentFile().listFiles();
+        if (jdks != null) {
+            for (File jdk : jdks) {
+                modules = new File(jdk, "lib/modules");
+                if (modules.isFile() && new File(jdk, "lib/jrt-fs.jar").isFile()) {
+                    return modules;
+                }
+            }
+        }
+        return null;
+    }
+}
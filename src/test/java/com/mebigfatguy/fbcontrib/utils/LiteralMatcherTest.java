@@ -0,0 +1,101 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.testng.annotations.Test;
+
+public class LiteralMatcherTest {
+
+    private static final Pattern[] PATTERNS = { Pattern.compile(".*<[a-zA-Z_](\\w)*>[^=]?.*"), Pattern.compile(".*</[a-zA-Z_](\\w)*>[^=]?.*"),
+            Pattern.compile(".*<!\\[CDATA\\[.*", Pattern.CASE_INSENSITIVE), Pattern.compile(".*\\]\\]>.*"), Pattern.compile(".*xmlns:.*"),
+            Pattern.compile("\\{[0-9]\\}") };
+
+    private static LiteralMatcher buildMatcher() {
+        return LiteralMatcher.builder().addMatch(PATTERNS[0], "<").addMatch(PATTERNS[1], "</").addMatch(PATTERNS[2], "<![CDATA[").addMatch(PATTERNS[3], "]]>")
+                .addMatch(PATTERNS[4], "xmlns:").addFind(PATTERNS[5], "{").build();
+    }
+
+    @Test
+    public void shouldFindOverlappingKeywords() {
+        LiteralMatcher matcher = LiteralMatcher.builder().addMatch(Pattern.compile(".*"), "he").addMatch(Pattern.compile(".*"), "she")
+                .addMatch(Pattern.compile(".*"), "hers").addMatch(Pattern.compile(".*"), "his").build();
+        assertEquals(matcher.candidates("ushers"), 0b0111L);
+        assertEquals(matcher.candidates("USHERS"), 0b0111L);
+        assertEquals(matcher.candidates("this"), 0b1000L);
+        assertEquals(matcher.candidates("hés"), 0L);
+    }
+
+    @Test
+    public void shouldAlwaysRunRulesWithoutKeywords() {
+        LiteralMatcher matcher = LiteralMatcher.builder().addMatch(Pattern.compile("a+"), "zzz").addFind(Pattern.compile("b")).build();
+        assertEquals(matcher.candidates("aaa"), 0b10L);
+        assertFalse(matcher.anyMatch("aaa"));
+        assertEquals(matcher.firstMatch("abc"), 1);
+    }
+
+    @Test
+    public void shouldAgreeWithRegularExpressions() {
+        LiteralMatcher matcher = buildMatcher();
+        String[] literals = { "", "<a>", "<a>=", "text </b> more", "<![cdata[ x", "<![CDATA[", "x ]]>", "xmlns:foo", "XMLNS:foo", "{1} and {}", "{}", "<<</a>",
+                "line\n<a>", "é<a_b>é", "a < b && c > d" };
+        for (String literal : literals) {
+            assertAgrees(matcher, literal);
+        }
+    }
+
+    @Test
+    public void shouldAgreeWithRegularExpressionsOnRandomLiterals() {
+        LiteralMatcher matcher = buildMatcher();
+        String alphabet = "<>/![]{}:=aAxXmlnsCDT019 \né";
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int len = random.nextInt(16);
+            for (int c = 0; c < len; c++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertAgrees(matcher, sb.toString());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectNonAsciiKeywords() {
+        LiteralMatcher.builder().addFind(Pattern.compile("é"), "é");
+    }
+
+    private static void assertAgrees(LiteralMatcher matcher, String literal) {
+        int expectedFirst = -1;
+        for (int r = 0; r < PATTERNS.length; r++) {
+            boolean expected = (r == 5) ? PATTERNS[r].matcher(literal).find() : PATTERNS[r].matcher(literal).matches();
+            assertEquals(matcher.matches(literal, r), expected, literal + " rule " + r);
+            if (expected && (expectedFirst < 0)) {
+                expectedFirst = r;
+            }
+        }
+        assertEquals(matcher.firstMatch(literal), expectedFirst, literal);
+        assertTrue((matcher.candidates(literal) & ~0b111111L) == 0);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.bcel.classfile.Code;
+import org.testng.annotations.Test;
+
+public class MethodBudgetTest {
+
+    @Test
+    public void shouldSkipMethodsOverTheByteBudget() {
+        String detector = "bytes." + getClass().getName();
+        MethodBudget budget = new MethodBudget(detector, 100, 0);
+
+        assertTrue(budget.admit(codeOfLength(99)));
+        assertNull(MethodBudget.getSkippedMethods().get(detector));
+        assertFalse(budget.admit(codeOfLength(100)));
+        assertEquals(MethodBudget.getSkippedMethods().get(detector), Long.valueOf(1));
+    }
+
+    @Test
+    public void shouldSkipMethodsThatUnjitableReports() {
+        MethodBudget budget = new MethodBudget("unjitable." + getClass().getName(), MethodBudget.UNJITABLE_CODE_LENGTH, 0);
+
+        assertTrue(budget.admit(codeOfLength(MethodBudget.UNJITABLE_CODE_LENGTH - 1)));
+        assertFalse(budget.admit(codeOfLength(MethodBudget.UNJITABLE_CODE_LENGTH)));
+    }
+
+    @Test
+    public void shouldForgetSkippedMethodsOfAnEarlierAnalysis() {
+        String detector = "cleared." + getClass().getName();
+        MethodBudget budget = new MethodBudget(detector, 100, 0);
+
+        assertFalse(budget.admit(codeOfLength(100)));
+        assertEquals(MethodBudget.getSkippedMethods().get(detector), Long.valueOf(1));
+        MethodBudget.clearSkippedMethods();
+        assertNull(MethodBudget.getSkippedMethods().get(detector));
+    }
+
+    @Test
+    public void shouldAdmitEverythingWithoutLimits() {
+        MethodBudget budget = new MethodBudget("unlimited." + getClass().getName(), 0, 0);
+
+        assertTrue(budget.admit(codeOfLength(65535)));
+        for (int i = 0; i < 10000; i++) {
+            budget.checkpoint();
+        }
+    }
+
+    @Test
+    public void shouldAbandonMethodsOverTheTimeBudget() throws InterruptedException {
+        String detector = "millis." + getClass().getName();
+        MethodBudget budget = new MethodBudget(detector, 0, 1);
+
+        assertTrue(budget.admit(codeOfLength(10)));
+        Thread.sleep(5);
+        try {
+            for (int i = 0; i < 10000; i++) {
+                budget.checkpoint();
+            }
+            fail("method was not abandoned");
+        } catch (StopOpcodeParsingException e) {
+            assertEquals(MethodBudget.getSkippedMethods().get(detector), Long.valueOf(1));
+        }
+
+        assertTrue(budget.admit(codeOfLength(10)));
+        budget.checkpoint();
+    }
+
+    private static Code codeOfLength(int length) {
+        return new Code(0, 0, 0, 0, new byte[length], null, null, null);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class SignatureCursorTest {
+
+    @DataProvider(name = "methodSignatures")
+    public Object[][] methodSignatures() {
+        return new Object[][] { { "()V" }, { "(I)V" }, { "add(ILjava/lang/Object;)Ljava/lang/Object;" }, { "(JDI)J" }, { "([I[[Ljava/lang/String;Z)V" },
+                { "(Ljava/util/Map;[JLjava/lang/String;D)[Ljava/lang/Object;" }, { "add(I!+Ljava/util/List;)Ljava/lang/Object;" },
+                { "wonky(!Ljava/lang/Object;++)Ljava/lang/Object;" } };
+    }
+
+    @Test(dataProvider = "methodSignatures")
+    public void shouldWalkTheSameParametersAsSignatureUtils(String methodSignature) {
+        SignatureCursor cursor = new SignatureCursor(methodSignature);
+        List<String> parms = new ArrayList<>();
+        while (cursor.next()) {
+            assertEquals(cursor.getIndex(), parms.size());
+            parms.add(cursor.getSignature());
+        }
+
+        assertEquals(parms, SignatureUtils.getParameterSignatures(methodSignature));
+        assertEquals(cursor.getNumParameters(), SignatureUtils.getNumParameters(methodSignature));
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void shouldTrackSlotsLikeSignatureUtils() {
+        String sig = "(Ljava/util/Map;[JLjava/lang/String;DI)V";
+        SignatureCursor cursor = new SignatureCursor();
+        for (boolean isStatic : new boolean[] { true, false }) {
+            Map<Integer, String> slots = new LinkedHashMap<>();
+            cursor.reset(sig, isStatic);
+            while (cursor.next()) {
+                slots.put(Integer.valueOf(cursor.getSlot()), cursor.getSignature());
+                assertEquals(cursor.isTwoSlot(), cursor.isSignature("D"));
+            }
+            assertEquals(slots, SignatureUtils.getParameterSlotAndSignatures(isStatic, sig));
+        }
+    }
+
+    @Test
+    public void shouldDescribeParametersWithoutSubstrings() {
+        SignatureCursor cursor = new SignatureCursor("([[Ljava/lang/String;Ljava/util/List;J)V");
+        assertEquals(cursor.getNumParameters(), 3);
+
+        assertTrue(cursor.next());
+        assertEquals(cursor.getKind(), '[');
+        assertEquals(cursor.getElementKind(), 'L');
+        assertEquals(cursor.getArrayDimensions(), 2);
+        assertTrue(cursor.startsWith("[["));
+        assertTrue(cursor.isElementSignature("Ljava/lang/String;"));
+        assertFalse(cursor.isSignature("Ljava/lang/String;"));
+        // counting does not move the cursor
+        assertEquals(cursor.getNumParameters(), 3);
+        assertEquals(cursor.getIndex(), 0);
+
+        assertTrue(cursor.next());
+        assertEquals(cursor.getKind(), 'L');
+        assertTrue(cursor.isClass("java/util/List"));
+        assertFalse(cursor.isClass("java/util/Lis"));
+        assertEquals(cursor.getStart(), 21);
+        assertEquals(cursor.getEnd(), 37);
+
+        assertTrue(cursor.next());
+        assertEquals(cursor.getKind(), 'J');
+        assertEquals(cursor.getSlot(), 2);
+        assertTrue(cursor.isTwoSlot());
+        assertFalse(cursor.next());
+
+        cursor.reset("()V");
+        assertEquals(cursor.getNumParameters(), 0);
+        assertFalse(cursor.next());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+import org.testng.annotations.Test;
+
+public class SubtypeCacheTest {
+
+    @Test
+    public void shouldAgreeWithInstanceOf() throws ClassNotFoundException {
+        SubtypeCache cache = new SubtypeCache(64);
+        String[] classes = { "java.util.ArrayList", "java.util.List", "java.util.Collection", "java.util.HashMap", "java.util.Map", "java.lang.Object",
+                "java.lang.RuntimeException", "java.lang.Exception", "java.lang.AutoCloseable", "java.io.InputStream" };
+        for (String sub : classes) {
+            JavaClass subClass = Repository.lookupClass(sub);
+            for (String sup : classes) {
+                assertEquals(cache.isSubtype(sub, sup), subClass.instanceOf(Repository.lookupClass(sup)), sub + " <: " + sup);
+            }
+        }
+    }
+
+    @Test
+    public void shouldAcceptSlashedNames() throws ClassNotFoundException {
+        SubtypeCache cache = new SubtypeCache(64);
+        assertTrue(cache.isSubtype("java/lang/IllegalStateException", Values.SLASHED_JAVA_LANG_RUNTIMEEXCEPTION));
+        assertTrue(cache.isSubtype("java.lang.IllegalStateException", Values.DOTTED_JAVA_LANG_RUNTIMEEXCEPTION));
+        assertFalse(cache.isSubtype("java/io/IOException", Values.SLASHED_JAVA_LANG_RUNTIMEEXCEPTION));
+        assertEquals(cache.getSubtypeHits(), 1);
+        assertEquals(cache.getSubtypeMisses(), 2);
+    }
+
+    @Test
+    public void shouldCollectSuperTypes() throws ClassNotFoundException {
+        SubtypeCache cache = new SubtypeCache(64);
+        Set<String> types = cache.getSuperTypes("java/util/ArrayList");
+        assertTrue(types.contains("java.util.ArrayList"));
+        assertTrue(types.contains("java.util.AbstractList"));
+        assertTrue(types.contains("java.util.Collection"));
+        assertTrue(types.contains("java.lang.Iterable"));
+        assertTrue(types.contains(Values.DOTTED_JAVA_LANG_OBJECT));
+        assertFalse(types.contains("java.util.Set"));
+        assertEquals(cache.getSuperTypes("java.util.ArrayList"), types);
+        assertEquals(cache.getSuperTypeHits(), 1);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws ClassNotFoundException {
+        SubtypeCache cache = new SubtypeCache(2);
+        cache.getSuperTypes("java.util.ArrayList");
+        cache.getSuperTypes("java.util.HashMap");
+        cache.getSuperTypes("java.util.ArrayList");
+        cache.getSuperTypes("java.util.TreeSet");
+        assertEquals(cache.getEvictions(), 1);
+
+        cache.getSuperTypes("java.util.ArrayList");
+        assertEquals(cache.getSuperTypeHits(), 2);
+        cache.getSuperTypes("java.util.HashMap");
+        assertEquals(cache.getSuperTypeMisses(), 4);
+        assertEquals(cache.getSuperTypeHitRate(), 2.0 / 6.0, 0.0001);
+    }
+
+    @Test(expectedExceptions = ClassNotFoundException.class)
+    public void shouldNotHideMissingClasses() throws ClassNotFoundException {
+        new SubtypeCache(64).isSubtype("com.example.NoSuchClass", Values.DOTTED_JAVA_LANG_OBJECT);
+    }
+}
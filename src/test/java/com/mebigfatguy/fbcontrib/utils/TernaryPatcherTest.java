@@ -0,0 +1,106 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2019 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.bcel.Const;
+import org.testng.annotations.Test;
+
+import edu.umd.cs.findbugs.OpcodeStack;
+
+public class TernaryPatcherTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void shouldRestoreUserValueAfterGoto() {
+        OpcodeStack.Item item = new OpcodeStack.Item();
+        item.setUserValue("saved");
+        OpcodeStack stack = stackOf(item);
+
+        TernaryPatcher.pre(stack, Const.GOTO);
+        item.setUserValue(null);
+        TernaryPatcher.post(stack, Const.GOTO);
+        TernaryPatcher.pre(stack, Const.ICONST_0);
+        TernaryPatcher.post(stack, Const.ICONST_0);
+
+        assertEquals(item.getUserValue(), "saved");
+    }
+
+    @Test
+    public void shouldKeepUserValuesConfinedToEachThread() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+            List<Future<Integer>> results = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                final Integer threadId = Integer.valueOf(t);
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int restored = 0;
+                        for (int r = 0; r < ROUNDS; r++) {
+                            OpcodeStack.Item item = new OpcodeStack.Item();
+                            item.setUserValue(threadId);
+                            OpcodeStack stack = stackOf(item);
+
+                            TernaryPatcher.pre(stack, Const.GOTO);
+                            TernaryPatcher.post(stack, Const.GOTO);
+                            item.setUserValue(null);
+                            // make every thread save its values before any restores them
+                            barrier.await();
+                            TernaryPatcher.pre(stack, Const.ICONST_0);
+                            TernaryPatcher.post(stack, Const.ICONST_0);
+
+                            if (threadId.equals(item.getUserValue())) {
+                                restored++;
+                            }
+                        }
+                        return Integer.valueOf(restored);
+                    }
+                }));
+            }
+
+            for (Future<Integer> result : results) {
+                assertEquals(result.get().intValue(), ROUNDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static OpcodeStack stackOf(OpcodeStack.Item item) {
+        OpcodeStack stack = mock(OpcodeStack.class);
+        when(Integer.valueOf(stack.getStackDepth())).thenReturn(Integer.valueOf(1));
+        when(stack.getStackItem(0)).thenReturn(item);
+        return stack;
+    }
+}